@@ -0,0 +1,123 @@
+package com.webhook_wrapper.config;
+
+import com.webhook_wrapper.sheets.SheetsAppender;
+import com.webhook_wrapper.sheets.SheetsTestController;
+import com.webhook_wrapper.sink.JdbcCommentSink;
+import com.webhook_wrapper.sink.RollingFileCommentSink;
+import com.webhook_wrapper.webhook.FacebookWebhookController;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aot.AotDetector;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.MergedAnnotation;
+import org.springframework.core.annotation.MergedAnnotations;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Refuses to start an AOT build (the fast-start profile) whose
+ * {@code @ConditionalOnProperty} components were decided with other settings
+ * than the ones it runs with. AOT fixes at build time which of them exist, so
+ * without this check, enabling the webhook or a sink at run time would
+ * silently do nothing.
+ */
+@Component
+public class AotConditionCheck {
+    private static final Logger logger = LoggerFactory.getLogger(AotConditionCheck.class);
+
+    // Every component switched on or off by a property
+    static final List<Class<?>> CONDITIONAL_COMPONENTS = List.of(
+            SheetsAppender.class,
+            SheetsTestController.class,
+            FacebookWebhookController.class,
+            RollingFileCommentSink.class,
+            JdbcCommentSink.class);
+
+    private final Environment environment;
+    private final ListableBeanFactory beans;
+
+    public AotConditionCheck(Environment environment, ListableBeanFactory beans) {
+        this.environment = environment;
+        this.beans = beans;
+    }
+
+    @PostConstruct
+    public void verify() {
+        if (!AotDetector.useGeneratedArtifacts()) {
+            return;
+        }
+        List<String> mismatches = mismatches();
+        if (!mismatches.isEmpty()) {
+            throw new IllegalStateException("This AOT build was made with different settings than it runs with: "
+                    + String.join("; ", mismatches) + ". Rebuild with them in -Dfast-start.aot-args.");
+        }
+        logger.debug("AOT-built components match the runtime settings");
+    }
+
+    /**
+     * One message per component whose presence disagrees with its condition.
+     */
+    List<String> mismatches() {
+        List<String> mismatches = new ArrayList<>();
+        for (Class<?> type : CONDITIONAL_COMPONENTS) {
+            MergedAnnotation<ConditionalOnProperty> condition =
+                    MergedAnnotations.from(type).get(ConditionalOnProperty.class);
+            if (!condition.isPresent()) {
+                continue;
+            }
+            boolean wanted = matches(condition);
+            boolean built = beans.getBeanNamesForType(type, true, false).length > 0;
+            if (wanted != built) {
+                mismatches.add(type.getSimpleName() + (built ? " was built in but " : " was left out but ")
+                        + describe(condition) + (wanted ? " now enables it" : " now disables it"));
+            }
+        }
+        return mismatches;
+    }
+
+    // Same rules as Spring Boot's OnPropertyCondition
+    private boolean matches(MergedAnnotation<ConditionalOnProperty> condition) {
+        String havingValue = condition.getString("havingValue");
+        for (String name : names(condition)) {
+            String value = environment.getProperty(name);
+            if (value == null) {
+                if (!condition.getBoolean("matchIfMissing")) {
+                    return false;
+                }
+            } else if (havingValue.isEmpty() ? "false".equalsIgnoreCase(value)
+                    : !havingValue.equalsIgnoreCase(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String describe(MergedAnnotation<ConditionalOnProperty> condition) {
+        List<String> settings = new ArrayList<>();
+        for (String name : names(condition)) {
+            settings.add(name + "=" + environment.getProperty(name, "(unset)"));
+        }
+        return String.join(", ", settings);
+    }
+
+    private static List<String> names(MergedAnnotation<ConditionalOnProperty> condition) {
+        String prefix = condition.getString("prefix");
+        if (!prefix.isEmpty() && !prefix.endsWith(".")) {
+            prefix = prefix + ".";
+        }
+        String[] names = condition.getStringArray("name");
+        if (names.length == 0) {
+            names = condition.getStringArray("value");
+        }
+        List<String> qualified = new ArrayList<>(names.length);
+        for (String name : names) {
+            qualified.add(prefix + name);
+        }
+        return qualified;
+    }
+}
@@ -3,16 +3,51 @@ package com.webhook_wrapper.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 @ConfigurationProperties(prefix="app")
 public class AppProperties {
     private Fb fb = new Fb();
+    private Dedup dedup = new Dedup();
+    private Webhook webhook = new Webhook();
+    private List<Page> pages = new ArrayList<>();
+    private Engine engine = new Engine();
+    private Http http = new Http();
+    private Outbox outbox = new Outbox();
+    private Extract extract = new Extract();
+    private Pipeline pipeline = new Pipeline();
+    private Sinks sinks = new Sinks();
+    private Polling polling = new Polling();
+    private HotPosts hotPosts = new HotPosts();
+    private Resilience resilience = new Resilience();
+    private SheetIndex sheetIndex = new SheetIndex();
+    private Threads threads = new Threads();
+    private Startup startup = new Startup();
 
     public static class Fb {
         private String pageId;
         private String accessToken;
         private String apiVersion;
         private int fetchIntervalSeconds;
+        private String graphBaseUrl = "https://graph.facebook.com";
+        // Fold post details into the feed request and look up the rest with batch calls
+        private boolean expandPostFields = true;
+        private boolean useBatchApi = true;
+        // Decode the feed token by token instead of into a Map tree
+        private boolean streamingParse = true;
+        // Incremental mode follows paging cursors and only downloads comments
+        // newer than the per-post watermark kept in cursorFile
+        private boolean incremental = false;
+        private int pageSize = 100;
+        private int maxFeedPages = 10;
+        private String cursorFile = "data/comment-cursors.properties";
+        // Post detail lookups run concurrently behind a TTL cache
+        private int enrichParallelism = 8;
+        private int enrichTimeoutSeconds = 60;
+        private int postCacheMaxSize = 10000;
+        private int postCacheTtlSeconds = 3600;
 
         // getters and setters
         public String getPageId() {
@@ -40,9 +75,893 @@ public class AppProperties {
         public void setFetchIntervalSeconds(int fetchIntervalSeconds) {
             this.fetchIntervalSeconds = fetchIntervalSeconds;
         }
+        public String getGraphBaseUrl() {
+            return graphBaseUrl;
+        }
+        public void setGraphBaseUrl(String graphBaseUrl) {
+            this.graphBaseUrl = graphBaseUrl;
+        }
+        public boolean isExpandPostFields() {
+            return expandPostFields;
+        }
+        public void setExpandPostFields(boolean expandPostFields) {
+            this.expandPostFields = expandPostFields;
+        }
+        public boolean isUseBatchApi() {
+            return useBatchApi;
+        }
+        public void setUseBatchApi(boolean useBatchApi) {
+            this.useBatchApi = useBatchApi;
+        }
+        public boolean isStreamingParse() {
+            return streamingParse;
+        }
+        public void setStreamingParse(boolean streamingParse) {
+            this.streamingParse = streamingParse;
+        }
+        public boolean isIncremental() {
+            return incremental;
+        }
+        public void setIncremental(boolean incremental) {
+            this.incremental = incremental;
+        }
+        public int getPageSize() {
+            return pageSize;
+        }
+        public void setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+        }
+        public int getMaxFeedPages() {
+            return maxFeedPages;
+        }
+        public void setMaxFeedPages(int maxFeedPages) {
+            this.maxFeedPages = maxFeedPages;
+        }
+        public String getCursorFile() {
+            return cursorFile;
+        }
+        public void setCursorFile(String cursorFile) {
+            this.cursorFile = cursorFile;
+        }
+        public int getEnrichParallelism() {
+            return enrichParallelism;
+        }
+        public void setEnrichParallelism(int enrichParallelism) {
+            this.enrichParallelism = enrichParallelism;
+        }
+        public int getEnrichTimeoutSeconds() {
+            return enrichTimeoutSeconds;
+        }
+        public void setEnrichTimeoutSeconds(int enrichTimeoutSeconds) {
+            this.enrichTimeoutSeconds = enrichTimeoutSeconds;
+        }
+        public int getPostCacheMaxSize() {
+            return postCacheMaxSize;
+        }
+        public void setPostCacheMaxSize(int postCacheMaxSize) {
+            this.postCacheMaxSize = postCacheMaxSize;
+        }
+        public int getPostCacheTtlSeconds() {
+            return postCacheTtlSeconds;
+        }
+        public void setPostCacheTtlSeconds(int postCacheTtlSeconds) {
+            this.postCacheTtlSeconds = postCacheTtlSeconds;
+        }
+
+        /**
+         * The single page configured under app.fb, as a {@link Page}.
+         */
+        public Page toPage() {
+            Page page = new Page();
+            page.setPageId(pageId);
+            page.setAccessToken(accessToken);
+            page.setFetchIntervalSeconds(fetchIntervalSeconds);
+            return page;
+        }
+    }
+
+    public static class Dedup {
+        // Seen comment IDs are persisted to file unless persistent is false;
+        // windowHours > 0 forgets comments created longer ago than that
+        private boolean persistent = true;
+        private String file = "data/seen-comments.log";
+        private long windowHours = 0;
+        // Lock stripes for concurrent claims; rounded up to a power of two
+        private int stripes = 64;
+
+        public boolean isPersistent() {
+            return persistent;
+        }
+        public void setPersistent(boolean persistent) {
+            this.persistent = persistent;
+        }
+        public String getFile() {
+            return file;
+        }
+        public void setFile(String file) {
+            this.file = file;
+        }
+        public long getWindowHours() {
+            return windowHours;
+        }
+        public void setWindowHours(long windowHours) {
+            this.windowHours = windowHours;
+        }
+        public int getStripes() {
+            return stripes;
+        }
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+    }
+
+    public static class Webhook {
+        // Push ingestion through /webhook; polling drops to reconcileIntervalSeconds
+        private boolean enabled = false;
+        private String verifyToken = "";
+        private String appSecret = "";
+        private int reconcileIntervalSeconds = 900;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        public String getVerifyToken() {
+            return verifyToken;
+        }
+        public void setVerifyToken(String verifyToken) {
+            this.verifyToken = verifyToken;
+        }
+        public String getAppSecret() {
+            return appSecret;
+        }
+        public void setAppSecret(String appSecret) {
+            this.appSecret = appSecret;
+        }
+        public int getReconcileIntervalSeconds() {
+            return reconcileIntervalSeconds;
+        }
+        public void setReconcileIntervalSeconds(int reconcileIntervalSeconds) {
+            this.reconcileIntervalSeconds = reconcileIntervalSeconds;
+        }
+    }
+
+    /**
+     * One entry of app.pages. sheetId/range default to the google.* settings when blank.
+     */
+    public static class Page {
+        private String pageId;
+        private String accessToken;
+        private int fetchIntervalSeconds = 60;
+        private String sheetId;
+        private String range;
+
+        public String getPageId() {
+            return pageId;
+        }
+        public void setPageId(String pageId) {
+            this.pageId = pageId;
+        }
+        public String getAccessToken() {
+            return accessToken;
+        }
+        public void setAccessToken(String accessToken) {
+            this.accessToken = accessToken;
+        }
+        public int getFetchIntervalSeconds() {
+            return fetchIntervalSeconds;
+        }
+        public void setFetchIntervalSeconds(int fetchIntervalSeconds) {
+            this.fetchIntervalSeconds = fetchIntervalSeconds;
+        }
+        public String getSheetId() {
+            return sheetId;
+        }
+        public void setSheetId(String sheetId) {
+            this.sheetId = sheetId;
+        }
+        public String getRange() {
+            return range;
+        }
+        public void setRange(String range) {
+            this.range = range;
+        }
+    }
+
+    public static class Engine {
+        // Worker pool shared by all pages in app.pages
+        private int workerThreads = 4;
+        // Graph calls all pages may make per budget window, shared fairly between them
+        private int callsPerWindow = 600;
+        private int windowSeconds = 60;
+        // Above this X-App-Usage / X-Page-Usage percentage the budget is scaled down
+        private int throttleAtPercent = 75;
+
+        public int getWorkerThreads() {
+            return workerThreads;
+        }
+        public void setWorkerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+        }
+        public int getCallsPerWindow() {
+            return callsPerWindow;
+        }
+        public void setCallsPerWindow(int callsPerWindow) {
+            this.callsPerWindow = callsPerWindow;
+        }
+        public int getWindowSeconds() {
+            return windowSeconds;
+        }
+        public void setWindowSeconds(int windowSeconds) {
+            this.windowSeconds = windowSeconds;
+        }
+        public int getThrottleAtPercent() {
+            return throttleAtPercent;
+        }
+        public void setThrottleAtPercent(int throttleAtPercent) {
+            this.throttleAtPercent = throttleAtPercent;
+        }
+    }
+
+    /**
+     * Transport used for Graph API calls. Connections are pooled and kept alive
+     * by the JDK HttpClient; each call type gets its own response timeout.
+     */
+    public static class Http {
+        // Negotiated through ALPN; falls back to HTTP/1.1 when the server does not offer h2
+        private boolean http2 = true;
+        private boolean gzip = true;
+        private int connectTimeoutMs = 5000;
+        private int feedTimeoutMs = 30000;
+        private int detailTimeoutMs = 10000;
+        private int batchTimeoutMs = 30000;
+        private int pageTimeoutMs = 20000;
+
+        public boolean isHttp2() {
+            return http2;
+        }
+        public void setHttp2(boolean http2) {
+            this.http2 = http2;
+        }
+        public boolean isGzip() {
+            return gzip;
+        }
+        public void setGzip(boolean gzip) {
+            this.gzip = gzip;
+        }
+        public int getConnectTimeoutMs() {
+            return connectTimeoutMs;
+        }
+        public void setConnectTimeoutMs(int connectTimeoutMs) {
+            this.connectTimeoutMs = connectTimeoutMs;
+        }
+        public int getFeedTimeoutMs() {
+            return feedTimeoutMs;
+        }
+        public void setFeedTimeoutMs(int feedTimeoutMs) {
+            this.feedTimeoutMs = feedTimeoutMs;
+        }
+        public int getDetailTimeoutMs() {
+            return detailTimeoutMs;
+        }
+        public void setDetailTimeoutMs(int detailTimeoutMs) {
+            this.detailTimeoutMs = detailTimeoutMs;
+        }
+        public int getBatchTimeoutMs() {
+            return batchTimeoutMs;
+        }
+        public void setBatchTimeoutMs(int batchTimeoutMs) {
+            this.batchTimeoutMs = batchTimeoutMs;
+        }
+        public int getPageTimeoutMs() {
+            return pageTimeoutMs;
+        }
+        public void setPageTimeoutMs(int pageTimeoutMs) {
+            this.pageTimeoutMs = pageTimeoutMs;
+        }
+    }
+
+    public static class Outbox {
+        // New rows are written to a local log first and delivered to Sheets by a drain thread
+        private boolean enabled = true;
+        private String dir = "data/outbox";
+        private long segmentBytes = 16 * 1024 * 1024;
+        // fsync once per appended batch; off trades durability on power loss for speed
+        private boolean fsync = true;
+        private int drainBatchSize = 500;
+        private long retryInitialMs = 1000;
+        private long retryMaxMs = 300000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        public String getDir() {
+            return dir;
+        }
+        public void setDir(String dir) {
+            this.dir = dir;
+        }
+        public long getSegmentBytes() {
+            return segmentBytes;
+        }
+        public void setSegmentBytes(long segmentBytes) {
+            this.segmentBytes = segmentBytes;
+        }
+        public boolean isFsync() {
+            return fsync;
+        }
+        public void setFsync(boolean fsync) {
+            this.fsync = fsync;
+        }
+        public int getDrainBatchSize() {
+            return drainBatchSize;
+        }
+        public void setDrainBatchSize(int drainBatchSize) {
+            this.drainBatchSize = drainBatchSize;
+        }
+        public long getRetryInitialMs() {
+            return retryInitialMs;
+        }
+        public void setRetryInitialMs(long retryInitialMs) {
+            this.retryInitialMs = retryInitialMs;
+        }
+        public long getRetryMaxMs() {
+            return retryMaxMs;
+        }
+        public void setRetryMaxMs(long retryMaxMs) {
+            this.retryMaxMs = retryMaxMs;
+        }
+    }
+
+    public static class Extract {
+        // Extra columns after the phone, by extractor name: email, order
+        private List<String> extraFields = new ArrayList<>();
+
+        public List<String> getExtraFields() {
+            return extraFields;
+        }
+        public void setExtraFields(List<String> extraFields) {
+            this.extraFields = extraFields;
+        }
+    }
+
+    /**
+     * Sync cycles run as fetch -> dedup -> enrich -> sink stages joined by
+     * bounded queues; a full queue blocks the stage feeding it.
+     */
+    public static class Pipeline {
+        private boolean enabled = true;
+        private int queueCapacity = 1000;
+        private int dedupParallelism = 1;
+        private int enrichParallelism = 4;
+        // More than one sink worker gives up row order within a cycle
+        private int sinkParallelism = 1;
+        // Posts looked up together; 50 fills one Graph batch request
+        private int enrichBatchSize = 50;
+        private int sinkBatchSize = 500;
+        // How long shutdown waits for claimed comments to reach the sinks
+        private int shutdownTimeoutSeconds = 30;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+        public int getDedupParallelism() {
+            return dedupParallelism;
+        }
+        public void setDedupParallelism(int dedupParallelism) {
+            this.dedupParallelism = dedupParallelism;
+        }
+        public int getEnrichParallelism() {
+            return enrichParallelism;
+        }
+        public void setEnrichParallelism(int enrichParallelism) {
+            this.enrichParallelism = enrichParallelism;
+        }
+        public int getSinkParallelism() {
+            return sinkParallelism;
+        }
+        public void setSinkParallelism(int sinkParallelism) {
+            this.sinkParallelism = sinkParallelism;
+        }
+        public int getEnrichBatchSize() {
+            return enrichBatchSize;
+        }
+        public void setEnrichBatchSize(int enrichBatchSize) {
+            this.enrichBatchSize = enrichBatchSize;
+        }
+        public int getSinkBatchSize() {
+            return sinkBatchSize;
+        }
+        public void setSinkBatchSize(int sinkBatchSize) {
+            this.sinkBatchSize = sinkBatchSize;
+        }
+        public int getShutdownTimeoutSeconds() {
+            return shutdownTimeoutSeconds;
+        }
+        public void setShutdownTimeoutSeconds(int shutdownTimeoutSeconds) {
+            this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+        }
+    }
+
+    /**
+     * Extra destinations that receive every row alongside Google Sheets.
+     */
+    public static class Sinks {
+        private File file = new File();
+        private Jdbc jdbc = new Jdbc();
+
+        public File getFile() {
+            return file;
+        }
+        public Jdbc getJdbc() {
+            return jdbc;
+        }
+
+        public static class File {
+            private boolean enabled = false;
+            private String dir = "data/export";
+            // csv or ndjson
+            private String format = "csv";
+            // Start a new file once the current one passes maxBytes or is rotateIntervalMinutes old
+            private long maxBytes = 64L * 1024 * 1024;
+            private long rotateIntervalMinutes = 60;
+            // gzip each file once it is rotated out
+            private boolean compress = false;
+            private int batchSize = 1000;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+            public String getDir() {
+                return dir;
+            }
+            public void setDir(String dir) {
+                this.dir = dir;
+            }
+            public String getFormat() {
+                return format;
+            }
+            public void setFormat(String format) {
+                this.format = format;
+            }
+            public long getMaxBytes() {
+                return maxBytes;
+            }
+            public void setMaxBytes(long maxBytes) {
+                this.maxBytes = maxBytes;
+            }
+            public long getRotateIntervalMinutes() {
+                return rotateIntervalMinutes;
+            }
+            public void setRotateIntervalMinutes(long rotateIntervalMinutes) {
+                this.rotateIntervalMinutes = rotateIntervalMinutes;
+            }
+            public boolean isCompress() {
+                return compress;
+            }
+            public void setCompress(boolean compress) {
+                this.compress = compress;
+            }
+            public int getBatchSize() {
+                return batchSize;
+            }
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+        }
+
+        public static class Jdbc {
+            private boolean enabled = false;
+            private String url = "jdbc:h2:file:./data/comments";
+            private String username = "sa";
+            private String password = "";
+            private String table = "comments";
+            // Rows per multi-row INSERT
+            private int batchSize = 500;
+            private boolean createTable = true;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+            public String getUrl() {
+                return url;
+            }
+            public void setUrl(String url) {
+                this.url = url;
+            }
+            public String getUsername() {
+                return username;
+            }
+            public void setUsername(String username) {
+                this.username = username;
+            }
+            public String getPassword() {
+                return password;
+            }
+            public void setPassword(String password) {
+                this.password = password;
+            }
+            public String getTable() {
+                return table;
+            }
+            public void setTable(String table) {
+                this.table = table;
+            }
+            public int getBatchSize() {
+                return batchSize;
+            }
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+            public boolean isCreateTable() {
+                return createTable;
+            }
+            public void setCreateTable(boolean createTable) {
+                this.createTable = createTable;
+            }
+        }
+    }
+
+    /**
+     * Per-page poll intervals that follow the comment rate: short while
+     * comments are arriving, backing off exponentially while a page is quiet.
+     * The page's fetch-interval-seconds is the first interval.
+     */
+    public static class Polling {
+        private boolean adaptive = true;
+        private int minIntervalSeconds = 15;
+        private int maxIntervalSeconds = 900;
+        // Poll about often enough to pick up this many new comments each time
+        private int targetCommentsPerPoll = 10;
+        // Interval growth after a cycle that found nothing new
+        private double backoffMultiplier = 2.0;
+        // How fast the measured comment rate forgets old activity
+        private int rateHalfLifeSeconds = 600;
+
+        public boolean isAdaptive() {
+            return adaptive;
+        }
+        public void setAdaptive(boolean adaptive) {
+            this.adaptive = adaptive;
+        }
+        public int getMinIntervalSeconds() {
+            return minIntervalSeconds;
+        }
+        public void setMinIntervalSeconds(int minIntervalSeconds) {
+            this.minIntervalSeconds = minIntervalSeconds;
+        }
+        public int getMaxIntervalSeconds() {
+            return maxIntervalSeconds;
+        }
+        public void setMaxIntervalSeconds(int maxIntervalSeconds) {
+            this.maxIntervalSeconds = maxIntervalSeconds;
+        }
+        public int getTargetCommentsPerPoll() {
+            return targetCommentsPerPoll;
+        }
+        public void setTargetCommentsPerPoll(int targetCommentsPerPoll) {
+            this.targetCommentsPerPoll = targetCommentsPerPoll;
+        }
+        public double getBackoffMultiplier() {
+            return backoffMultiplier;
+        }
+        public void setBackoffMultiplier(double backoffMultiplier) {
+            this.backoffMultiplier = backoffMultiplier;
+        }
+        public int getRateHalfLifeSeconds() {
+            return rateHalfLifeSeconds;
+        }
+        public void setRateHalfLifeSeconds(int rateHalfLifeSeconds) {
+            this.rateHalfLifeSeconds = rateHalfLifeSeconds;
+        }
+    }
+
+    /**
+     * Fetches comments from a working set of recently active posts through
+     * their own /comments edges instead of rescanning the feed every cycle.
+     * The feed is read only every feed-refresh-seconds, to find new posts.
+     */
+    public static class HotPosts {
+        private boolean enabled = false;
+        // Posts queried per cycle at most; the fastest-moving ones win
+        private int maxActivePosts = 50;
+        private int feedRefreshSeconds = 600;
+        // Posts older than this leave the working set once they stop getting comments
+        private int maxPostAgeHours = 72;
+        // Re-read this far behind each post's newest comment to catch late arrivals
+        private int overlapSeconds = 120;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        public int getMaxActivePosts() {
+            return maxActivePosts;
+        }
+        public void setMaxActivePosts(int maxActivePosts) {
+            this.maxActivePosts = maxActivePosts;
+        }
+        public int getFeedRefreshSeconds() {
+            return feedRefreshSeconds;
+        }
+        public void setFeedRefreshSeconds(int feedRefreshSeconds) {
+            this.feedRefreshSeconds = feedRefreshSeconds;
+        }
+        public int getMaxPostAgeHours() {
+            return maxPostAgeHours;
+        }
+        public void setMaxPostAgeHours(int maxPostAgeHours) {
+            this.maxPostAgeHours = maxPostAgeHours;
+        }
+        public int getOverlapSeconds() {
+            return overlapSeconds;
+        }
+        public void setOverlapSeconds(int overlapSeconds) {
+            this.overlapSeconds = overlapSeconds;
+        }
+    }
+
+    /**
+     * Retries and circuit breaking for Graph and Sheets calls. A throttled
+     * call is retried after the reset time the API reports, if that is within
+     * max-wait-ms; a longer reset opens the circuit until then instead.
+     */
+    public static class Resilience {
+        // Attempts per call, the first one included
+        private int maxAttempts = 4;
+        private long initialBackoffMs = 500;
+        private long maxBackoffMs = 30000;
+        // Longest reported reset time worth waiting out inside a call
+        private long maxWaitMs = 30000;
+        // Consecutive throttled or failed calls that open the circuit
+        private int failureThreshold = 5;
+        private int openSeconds = 60;
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+        public long getInitialBackoffMs() {
+            return initialBackoffMs;
+        }
+        public void setInitialBackoffMs(long initialBackoffMs) {
+            this.initialBackoffMs = initialBackoffMs;
+        }
+        public long getMaxBackoffMs() {
+            return maxBackoffMs;
+        }
+        public void setMaxBackoffMs(long maxBackoffMs) {
+            this.maxBackoffMs = maxBackoffMs;
+        }
+        public long getMaxWaitMs() {
+            return maxWaitMs;
+        }
+        public void setMaxWaitMs(long maxWaitMs) {
+            this.maxWaitMs = maxWaitMs;
+        }
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+        public int getOpenSeconds() {
+            return openSeconds;
+        }
+        public void setOpenSeconds(int openSeconds) {
+            this.openSeconds = openSeconds;
+        }
+    }
+
+    /**
+     * Index of the comment IDs already in each target sheet, read from the
+     * sheet at startup, so restarts and retried appends never add a comment
+     * twice. With upsert on, a comment that already has a row (an edit
+     * delivered by the webhook) is written over that row instead.
+     */
+    public static class SheetIndex {
+        private boolean enabled = false;
+        // Rows per values.get call while reading the comment ID column
+        private int chunkRows = 50000;
+        private boolean upsert = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        public int getChunkRows() {
+            return chunkRows;
+        }
+        public void setChunkRows(int chunkRows) {
+            this.chunkRows = chunkRows;
+        }
+        public boolean isUpsert() {
+            return upsert;
+        }
+        public void setUpsert(boolean upsert) {
+            this.upsert = upsert;
+        }
+    }
+
+    /**
+     * Harvests replies: every comment that reports more replies than last
+     * time has its own /comments edge read (filter=stream, so replies to
+     * replies come too), a few threads at a time.
+     */
+    public static class Threads {
+        private boolean enabled = false;
+        // Threads fetched at once per page
+        private int parallelism = 4;
+        // Threads fetched per cycle at most; the rest wait for the next cycle
+        private int maxThreadsPerCycle = 200;
+        // Reply counts remembered, so a thread is only read again once it grows
+        private int trackedThreads = 100000;
+        // How often a cursor or hot-post fetch lists a post's reply counts, 0 to never
+        private int relistIntervalSeconds = 900;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        public int getParallelism() {
+            return parallelism;
+        }
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+        public int getMaxThreadsPerCycle() {
+            return maxThreadsPerCycle;
+        }
+        public void setMaxThreadsPerCycle(int maxThreadsPerCycle) {
+            this.maxThreadsPerCycle = maxThreadsPerCycle;
+        }
+        public int getTrackedThreads() {
+            return trackedThreads;
+        }
+        public void setTrackedThreads(int trackedThreads) {
+            this.trackedThreads = trackedThreads;
+        }
+        public int getRelistIntervalSeconds() {
+            return relistIntervalSeconds;
+        }
+        public void setRelistIntervalSeconds(int relistIntervalSeconds) {
+            this.relistIntervalSeconds = relistIntervalSeconds;
+        }
+    }
+
+    /**
+     * Cold start for short-lived containers. With lazy-sheets the Google
+     * Sheets client (credentials, TLS transport) is built on a background
+     * thread once the context is up, and retried until it works instead of
+     * failing startup; rows written before then wait in memory, or in the
+     * outbox when that is on.
+     */
+    public static class Startup {
+        private boolean lazySheets = false;
+        // Rows held in memory while the client starts (outbox off); more fail as retryable
+        private int maxPendingRows = 10000;
+        private long initRetryInitialMs = 1000;
+        private long initRetryMaxMs = 60000;
+
+        public boolean isLazySheets() {
+            return lazySheets;
+        }
+        public void setLazySheets(boolean lazySheets) {
+            this.lazySheets = lazySheets;
+        }
+        public int getMaxPendingRows() {
+            return maxPendingRows;
+        }
+        public void setMaxPendingRows(int maxPendingRows) {
+            this.maxPendingRows = maxPendingRows;
+        }
+        public long getInitRetryInitialMs() {
+            return initRetryInitialMs;
+        }
+        public void setInitRetryInitialMs(long initRetryInitialMs) {
+            this.initRetryInitialMs = initRetryInitialMs;
+        }
+        public long getInitRetryMaxMs() {
+            return initRetryMaxMs;
+        }
+        public void setInitRetryMaxMs(long initRetryMaxMs) {
+            this.initRetryMaxMs = initRetryMaxMs;
+        }
     }
 
     public Fb getFb() {
         return fb;
     }
+
+    public Dedup getDedup() {
+        return dedup;
+    }
+
+    public Webhook getWebhook() {
+        return webhook;
+    }
+
+    public List<Page> getPages() {
+        return pages;
+    }
+
+    public void setPages(List<Page> pages) {
+        this.pages = pages;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public Http getHttp() {
+        return http;
+    }
+
+    public Outbox getOutbox() {
+        return outbox;
+    }
+
+    public Extract getExtract() {
+        return extract;
+    }
+
+    public Pipeline getPipeline() {
+        return pipeline;
+    }
+
+    public Sinks getSinks() {
+        return sinks;
+    }
+
+    public Polling getPolling() {
+        return polling;
+    }
+
+    public HotPosts getHotPosts() {
+        return hotPosts;
+    }
+
+    public Resilience getResilience() {
+        return resilience;
+    }
+
+    public SheetIndex getSheetIndex() {
+        return sheetIndex;
+    }
+
+    public Threads getThreads() {
+        return threads;
+    }
+
+    public Startup getStartup() {
+        return startup;
+    }
 }
@@ -0,0 +1,29 @@
+package com.webhook_wrapper.dedup;
+
+/**
+ * Folds a Graph comment ID ("postId_commentId") into a 64-bit key.
+ * At ten million IDs the chance of any collision is about one in 400,000.
+ */
+public final class CommentIdHash {
+
+    private CommentIdHash() {
+    }
+
+    /**
+     * FNV-1a over the characters followed by the murmur3 fmix64 finalizer.
+     * Never returns 0, which the hash tables use to mark an empty slot.
+     */
+    public static long hash(String commentId) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < commentId.length(); i++) {
+            h ^= commentId.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h != 0 ? h : 1;
+    }
+}
@@ -0,0 +1,171 @@
+package com.webhook_wrapper.dedup;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Append-only, memory-mapped log of (key, stamp) records.
+ *
+ * Layout: a 16 byte header (magic, version) followed by fixed 12 byte records
+ * (long key, int stamp). The record area is mapped in fixed-size chunks and the
+ * unused tail is zero-filled; a record whose key is 0 is empty.
+ *
+ * Appends are safe from many threads: each one reserves its slot with a single
+ * atomic increment and writes into its own offset. Only mapping a new chunk
+ * takes a lock, once every {@value #CHUNK_RECORDS} records.
+ */
+public class DedupLog implements Closeable {
+    private static final int MAGIC = 0x4642444C; // "FBDL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 12;
+    static final int CHUNK_RECORDS = 64 * 1024;
+    private static final long CHUNK_BYTES = (long) CHUNK_RECORDS * RECORD_BYTES;
+
+    private final Path path;
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+    private final AtomicInteger nextSlot = new AtomicInteger();
+
+    private DedupLog(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Opens (or creates) the log and replays every record into the visitor.
+     */
+    public static DedupLog open(Path path, LongHashSet.Visitor replay) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        DedupLog log = new DedupLog(path);
+        log.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long fileSize = log.channel.size();
+        log.header = log.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        if (fileSize < HEADER_BYTES) {
+            log.header.putInt(0, MAGIC);
+            log.header.putInt(4, VERSION);
+            return log;
+        }
+        if (log.header.getInt(0) != MAGIC || log.header.getInt(4) != VERSION) {
+            log.close();
+            throw new IOException("Not a dedup log: " + path);
+        }
+
+        int chunkCount = (int) ((fileSize - HEADER_BYTES + CHUNK_BYTES - 1) / CHUNK_BYTES);
+        int end = 0;
+        for (int c = 0; c < chunkCount; c++) {
+            MappedByteBuffer chunk = log.chunk(c);
+            for (int i = 0; i < CHUNK_RECORDS; i++) {
+                int offset = i * RECORD_BYTES;
+                long key = chunk.getLong(offset);
+                // concurrent writers can leave holes behind a crash, so scan everything
+                if (key != 0) {
+                    replay.visit(key, chunk.getInt(offset + 8));
+                    end = c * CHUNK_RECORDS + i + 1;
+                }
+            }
+        }
+        log.nextSlot.set(end);
+        return log;
+    }
+
+    public void append(long key, int stamp) throws IOException {
+        int slot = nextSlot.getAndIncrement();
+        MappedByteBuffer chunk = chunk(slot / CHUNK_RECORDS);
+        int offset = (slot % CHUNK_RECORDS) * RECORD_BYTES;
+        // stamp first: a crash between the two writes leaves key 0, i.e. an empty slot
+        chunk.putInt(offset + 8, stamp);
+        chunk.putLong(offset, key);
+    }
+
+    public int getRecordCount() {
+        return nextSlot.get();
+    }
+
+    /**
+     * Flushes dirty pages to disk. Without it, records still survive a process
+     * crash (they live in the page cache) but not an OS crash.
+     */
+    public void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    /**
+     * Replaces the log with exactly the records fed to the visitor. Used after
+     * eviction so the file does not keep growing with expired records.
+     * Callers must make sure no appends run concurrently.
+     */
+    public void rewrite(Consumer<LongHashSet.Visitor> live) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".compact");
+        Files.deleteIfExists(tmp);
+        DedupLog compacted = open(tmp, (key, stamp) -> { });
+        IOException[] failure = new IOException[1];
+        live.accept((key, stamp) -> {
+            if (failure[0] == null) {
+                try {
+                    compacted.append(key, stamp);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        if (failure[0] != null) {
+            compacted.close();
+            throw failure[0];
+        }
+        int records = compacted.getRecordCount();
+        compacted.close();
+
+        close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        chunks = new MappedByteBuffer[0];
+        nextSlot.set(records);
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        chunks = new MappedByteBuffer[0];
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private MappedByteBuffer chunk(int index) throws IOException {
+        MappedByteBuffer[] current = chunks;
+        if (index < current.length) {
+            return current[index];
+        }
+        return mapChunks(index);
+    }
+
+    private synchronized MappedByteBuffer mapChunks(int index) throws IOException {
+        MappedByteBuffer[] current = chunks;
+        if (index < current.length) {
+            return current[index];
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(current, index + 1);
+        for (int c = current.length; c <= index; c++) {
+            // mapping past the end of the file extends it with zeros
+            grown[c] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + c * CHUNK_BYTES, CHUNK_BYTES);
+        }
+        chunks = grown;
+        return grown[index];
+    }
+}
@@ -0,0 +1,183 @@
+package com.webhook_wrapper.dedup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Set of seen comment IDs kept as 64-bit hashes in memory and mirrored to an
+ * append-only {@link DedupLog} so it survives restarts.
+ *
+ * Safe for concurrent use without a global lock: keys are spread over
+ * independently locked stripes by their high bits, and log appends are
+ * lock-free. Two threads claiming the same ID always land on the same stripe,
+ * so exactly one of them wins.
+ *
+ * With a retention window, entries whose comment was created before
+ * now - window are evicted, and comments that old are reported as already
+ * seen rather than re-tracked.
+ */
+public class DedupStore implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(DedupStore.class);
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final LongHashSet[] stripes;
+    private final int stripeShift;
+    private final int stripeMask;
+    private DedupLog log;
+    private final long windowMinutes;
+
+    private DedupStore(int stripeCount, Duration window) {
+        int count = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new LongHashSet[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new LongHashSet(1024);
+        }
+        this.stripeShift = 64 - Integer.numberOfTrailingZeros(count);
+        this.stripeMask = count - 1;
+        this.windowMinutes = window != null ? window.toMinutes() : 0;
+    }
+
+    /**
+     * Loads the log at the given path, dropping entries already outside the window.
+     */
+    public static DedupStore open(Path file, Duration window) throws IOException {
+        return open(file, window, DEFAULT_STRIPES);
+    }
+
+    public static DedupStore open(Path file, Duration window, int stripeCount) throws IOException {
+        long started = System.nanoTime();
+        DedupStore store = new DedupStore(stripeCount, window);
+        // replay runs before the store is shared, so the stripes need no locking here
+        store.log = DedupLog.open(file, (key, stamp) -> store.stripeFor(key).add(key, stamp));
+        int loaded = store.size();
+        int evicted = store.evictExpired();
+        logger.info("Loaded {} seen comment IDs from {} in {} ms ({} expired)",
+                loaded, file, (System.nanoTime() - started) / 1_000_000, evicted);
+        return store;
+    }
+
+    /**
+     * Store without a backing file; contents are lost on restart.
+     */
+    public static DedupStore inMemory(Duration window) {
+        return new DedupStore(DEFAULT_STRIPES, window);
+    }
+
+    public static DedupStore inMemory(Duration window, int stripeCount) {
+        return new DedupStore(stripeCount, window);
+    }
+
+    /**
+     * Atomically claims the comment: returns true for exactly one caller per ID,
+     * no matter how many threads race on it.
+     *
+     * @param createdEpochSeconds the comment's created_time, or 0 if unknown (treated as now)
+     */
+    public boolean claim(String commentId, long createdEpochSeconds) {
+        int stamp = toStamp(createdEpochSeconds);
+        if (windowMinutes > 0 && stamp < cutoffStamp()) {
+            return false;
+        }
+        long key = CommentIdHash.hash(commentId);
+        LongHashSet stripe = stripeFor(key);
+        synchronized (stripe) {
+            if (!stripe.add(key, stamp)) {
+                return false;
+            }
+            // appended under the stripe lock so compaction never misses a record
+            if (log != null) {
+                try {
+                    log.append(key, stamp);
+                } catch (IOException e) {
+                    logger.error("Failed to persist seen comment {}: {}", commentId, e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(String commentId) {
+        long key = CommentIdHash.hash(commentId);
+        LongHashSet stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.contains(key);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (LongHashSet stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Drops entries outside the retention window and compacts the log.
+     * Holds every stripe lock while it runs, so claims pause briefly.
+     * Returns the number of entries removed.
+     */
+    public int evictExpired() {
+        if (windowMinutes <= 0) {
+            return 0;
+        }
+        return evictLocked(0, cutoffStamp());
+    }
+
+    private int evictLocked(int index, int cutoff) {
+        if (index < stripes.length) {
+            synchronized (stripes[index]) {
+                return evictLocked(index + 1, cutoff);
+            }
+        }
+        int removed = 0;
+        for (LongHashSet stripe : stripes) {
+            removed += stripe.removeOlderThan(cutoff);
+        }
+        if (removed > 0 && log != null) {
+            try {
+                log.rewrite(visitor -> {
+                    for (LongHashSet stripe : stripes) {
+                        stripe.forEach(visitor);
+                    }
+                });
+            } catch (IOException e) {
+                logger.error("Failed to compact dedup log: {}", e.getMessage());
+            }
+        }
+        return removed;
+    }
+
+    public void flush() {
+        if (log != null) {
+            log.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    private LongHashSet stripeFor(long key) {
+        return stripes[(int) (key >>> stripeShift) & stripeMask];
+    }
+
+    private int cutoffStamp() {
+        return toStamp(System.currentTimeMillis() / 1000) - (int) windowMinutes;
+    }
+
+    private static int toStamp(long epochSeconds) {
+        long seconds = epochSeconds > 0 ? epochSeconds : System.currentTimeMillis() / 1000;
+        return (int) (seconds / 60);
+    }
+}
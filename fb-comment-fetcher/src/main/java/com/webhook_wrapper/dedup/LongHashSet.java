@@ -0,0 +1,136 @@
+package com.webhook_wrapper.dedup;
+
+/**
+ * Open-addressing set of non-zero longs with linear probing. Each key carries
+ * an int stamp (minutes since the epoch) used for time-window eviction.
+ * Costs 12 bytes per slot instead of the ~100 bytes of a boxed String in a HashSet.
+ */
+public class LongHashSet {
+    private static final float MAX_LOAD = 0.6f;
+
+    private long[] keys;
+    private int[] stamps;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / MAX_LOAD)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Adds the key. Returns false if it was already present (its stamp is left as is).
+     */
+    public boolean add(long key, int stamp) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        stamps[slot] = stamp;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Adds the key or replaces its stamp.
+     */
+    public void put(long key, int stamp) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                stamps[slot] = stamp;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        add(key, stamp);
+    }
+
+    /**
+     * The key's stamp, or missing if the key is not in the set.
+     */
+    public int stamp(long key, int missing) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return stamps[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missing;
+    }
+
+    public boolean contains(long key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public interface Visitor {
+        void visit(long key, int stamp);
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                visitor.visit(keys[i], stamps[i]);
+            }
+        }
+    }
+
+    /**
+     * Drops every key stamped before the cutoff. Returns the number removed.
+     */
+    public int removeOlderThan(int cutoffStamp) {
+        long[] oldKeys = keys;
+        int[] oldStamps = stamps;
+        int before = size;
+        allocate(keys.length);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0 && oldStamps[i] >= cutoffStamp) {
+                add(oldKeys[i], oldStamps[i]);
+            }
+        }
+        return before - size;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldStamps = stamps;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                add(oldKeys[i], oldStamps[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        stamps = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+        resizeAt = (int) (capacity * MAX_LOAD);
+    }
+
+    private static int mix(long key) {
+        // keys are already well mixed hashes; fold the high bits in anyway
+        return (int) (key ^ (key >>> 32));
+    }
+}
@@ -0,0 +1,66 @@
+package com.webhook_wrapper.extract;
+
+import com.webhook_wrapper.config.AppProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The extraction stage of the ingest path. The phone column is always filled;
+ * app.extract.extra-fields picks further extractors by name, each of which
+ * adds a column after the phone. Any {@link FieldExtractor} bean can be named.
+ */
+@Component
+public class CommentFieldExtraction {
+    private final FieldExtractor phone;
+    private final List<FieldExtractor> extras;
+
+    public CommentFieldExtraction(AppProperties appProperties, List<FieldExtractor> extractors) {
+        Map<String, FieldExtractor> byName = new LinkedHashMap<>();
+        for (FieldExtractor extractor : extractors) {
+            byName.put(extractor.name(), extractor);
+        }
+        this.phone = byName.getOrDefault("phone", new PhoneNumberExtractor());
+
+        List<FieldExtractor> configured = new ArrayList<>();
+        for (String name : appProperties.getExtract().getExtraFields()) {
+            FieldExtractor extractor = byName.get(name.trim());
+            if (extractor == null) {
+                throw new IllegalArgumentException("Unknown app.extract.extra-fields entry '" + name
+                        + "', expected one of " + byName.keySet());
+            }
+            configured.add(extractor);
+        }
+        this.extras = Collections.unmodifiableList(configured);
+    }
+
+    public String phone(String message) {
+        return phone.extract(message);
+    }
+
+    /**
+     * Values of the configured extra fields, in column order.
+     */
+    public List<String> extras(String message) {
+        if (extras.isEmpty()) {
+            return List.of();
+        }
+        List<String> values = new ArrayList<>(extras.size());
+        for (FieldExtractor extractor : extras) {
+            values.add(extractor.extract(message));
+        }
+        return values;
+    }
+
+    public List<String> getExtraFieldNames() {
+        List<String> names = new ArrayList<>(extras.size());
+        for (FieldExtractor extractor : extras) {
+            names.add(extractor.name());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,24 @@
+package com.webhook_wrapper.extract;
+
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Pattern;
+
+@Component
+public class EmailExtractor extends PatternFieldExtractor {
+    static final Pattern EMAIL = Pattern.compile("[A-Za-z0-9._%+-]+@[A-Za-z0-9-]+(?:\\.[A-Za-z0-9-]+)*\\.[A-Za-z]{2,}");
+
+    public EmailExtractor() {
+        super("email", EMAIL, 0);
+    }
+
+    @Override
+    protected boolean mayMatch(CharSequence message) {
+        for (int i = 0; i < message.length(); i++) {
+            if (message.charAt(i) == '@') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,18 @@
+package com.webhook_wrapper.extract;
+
+/**
+ * Pulls one field (phone number, email, ...) out of a comment message.
+ * Implementations are Spring beans and must be safe to call from many threads.
+ */
+public interface FieldExtractor {
+
+    /**
+     * Name used to select the extractor under app.extract.extra-fields.
+     */
+    String name();
+
+    /**
+     * First occurrence of the field in the message, or "" if there is none.
+     */
+    String extract(CharSequence message);
+}
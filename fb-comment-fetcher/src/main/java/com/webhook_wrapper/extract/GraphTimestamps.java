@@ -0,0 +1,180 @@
+package com.webhook_wrapper.extract;
+
+import java.time.Instant;
+
+/**
+ * Parser for Graph API timestamps such as 2025-08-30T10:00:00+0000.
+ *
+ * java.time cannot read the +0000 offset with its ISO parsers, and a
+ * DateTimeFormatter allocates a parse context per call and reports bad input
+ * with an exception. This scans the characters directly: no allocation on the
+ * parse path and a sentinel instead of an exception for input it cannot read.
+ * Accepted offsets are +hhmm, +hh:mm, -hhmm, -hh:mm and Z, optionally after
+ * fractional seconds.
+ */
+public final class GraphTimestamps {
+    /** Returned for null or unreadable input; no Graph object is that old. */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private GraphTimestamps() {
+    }
+
+    public static long parseEpochSeconds(CharSequence text) {
+        if (text == null || text.length() < 20) {
+            return INVALID;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = digits(text, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59
+                || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T'
+                || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return INVALID;
+        }
+
+        int i = 19;
+        if (text.charAt(i) == '.') {
+            i++;
+            int start = i;
+            while (i < text.length() && isDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == start) {
+                return INVALID;
+            }
+        }
+        int offsetSeconds = offsetSeconds(text, i);
+        if (offsetSeconds == Integer.MIN_VALUE) {
+            return INVALID;
+        }
+        return epochDay(year, month, day) * 86400L + hour * 3600L + minute * 60L + second - offsetSeconds;
+    }
+
+    /**
+     * Epoch seconds, or 0 when the text is not a Graph timestamp. Matches the
+     * "0 means unknown" convention of the dedup window.
+     */
+    public static long toEpochSecondsOrZero(CharSequence text) {
+        long seconds = parseEpochSeconds(text);
+        return seconds == INVALID ? 0 : seconds;
+    }
+
+    /**
+     * UTC instant in ISO-8601 form (2025-08-30T10:00:00Z), the same text
+     * DateTimeFormatter.ISO_INSTANT gives for whole seconds.
+     */
+    public static String formatIsoInstant(long epochSeconds) {
+        long epochDay = Math.floorDiv(epochSeconds, 86400L);
+        int secondOfDay = (int) Math.floorMod(epochSeconds, 86400L);
+
+        // Days to civil date, after Howard Hinnant's civil_from_days
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            return Instant.ofEpochSecond(epochSeconds).toString();
+        }
+
+        char[] out = new char[20];
+        put(out, 0, (int) year, 4);
+        out[4] = '-';
+        put(out, 5, month, 2);
+        out[7] = '-';
+        put(out, 8, day, 2);
+        out[10] = 'T';
+        put(out, 11, secondOfDay / 3600, 2);
+        out[13] = ':';
+        put(out, 14, secondOfDay / 60 % 60, 2);
+        out[16] = ':';
+        put(out, 17, secondOfDay % 60, 2);
+        out[19] = 'Z';
+        return new String(out);
+    }
+
+    private static int offsetSeconds(CharSequence text, int i) {
+        int remaining = text.length() - i;
+        if (remaining == 1 && text.charAt(i) == 'Z') {
+            return 0;
+        }
+        if (remaining != 5 && remaining != 6) {
+            return Integer.MIN_VALUE;
+        }
+        char sign = text.charAt(i);
+        if (sign != '+' && sign != '-') {
+            return Integer.MIN_VALUE;
+        }
+        int hours = digits(text, i + 1, 2);
+        int minuteIndex = i + 3;
+        if (remaining == 6) {
+            if (text.charAt(minuteIndex) != ':') {
+                return Integer.MIN_VALUE;
+            }
+            minuteIndex++;
+        }
+        int minutes = digits(text, minuteIndex, 2);
+        if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59) {
+            return Integer.MIN_VALUE;
+        }
+        int seconds = hours * 3600 + minutes * 60;
+        return sign == '-' ? -seconds : seconds;
+    }
+
+    // Days since 1970-01-01 for a proleptic Gregorian date
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // Non-negative value of count digits at start, or -1
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static void put(char[] out, int start, int value, int width) {
+        for (int i = start + width - 1; i >= start; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
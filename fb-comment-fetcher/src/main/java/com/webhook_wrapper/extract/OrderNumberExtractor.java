@@ -0,0 +1,30 @@
+package com.webhook_wrapper.extract;
+
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Pattern;
+
+/**
+ * Order references such as "order #A1234", "Order no. 88123" or "order: 2025-0042".
+ * Only the reference itself is returned.
+ */
+@Component
+public class OrderNumberExtractor extends PatternFieldExtractor {
+    static final Pattern ORDER = Pattern.compile(
+            "(?i)\\border\\s*(?:no\\.?|number|#)?\\s*[:#]?\\s*([A-Z0-9][A-Z0-9-]{2,19})\\b");
+
+    public OrderNumberExtractor() {
+        super("order", ORDER, 1);
+    }
+
+    @Override
+    protected boolean mayMatch(CharSequence message) {
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c >= '0' && c <= '9') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
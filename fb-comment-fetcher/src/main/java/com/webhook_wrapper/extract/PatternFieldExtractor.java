@@ -0,0 +1,46 @@
+package com.webhook_wrapper.extract;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extractor backed by a pattern compiled once. Each thread reuses its own
+ * Matcher, and {@link #mayMatch} lets a subclass rule out most messages with
+ * a cheap character scan before the regex runs, so a message without the
+ * field costs no allocation at all.
+ */
+public abstract class PatternFieldExtractor implements FieldExtractor {
+    private final String name;
+    private final int group;
+    private final ThreadLocal<Matcher> matchers;
+
+    protected PatternFieldExtractor(String name, Pattern pattern, int group) {
+        this.name = name;
+        this.group = group;
+        this.matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String extract(CharSequence message) {
+        if (message == null || message.length() == 0 || !mayMatch(message)) {
+            return "";
+        }
+        Matcher matcher = matchers.get().reset(message);
+        String value = matcher.find() ? matcher.group(group) : null;
+        // don't keep the last message reachable from the thread
+        matcher.reset("");
+        return value != null ? value : "";
+    }
+
+    /**
+     * False when the message certainly has no match. Defaults to true.
+     */
+    protected boolean mayMatch(CharSequence message) {
+        return true;
+    }
+}
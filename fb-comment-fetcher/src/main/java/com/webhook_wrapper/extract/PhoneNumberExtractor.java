@@ -0,0 +1,30 @@
+package com.webhook_wrapper.extract;
+
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Pattern;
+
+/**
+ * Phone numbers like 555-123-4567, (555) 123 4567 or +1 5551234567.
+ */
+@Component
+public class PhoneNumberExtractor extends PatternFieldExtractor {
+    static final Pattern PHONE = Pattern.compile("(\\+?\\d{1,3}[-\\s]?)?\\(?\\d{3}\\)?[-\\s]?\\d{3}[-\\s]?\\d{4}");
+
+    public PhoneNumberExtractor() {
+        super("phone", PHONE, 0);
+    }
+
+    // Every match has at least ten digits
+    @Override
+    protected boolean mayMatch(CharSequence message) {
+        int digits = 0;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c >= '0' && c <= '9' && ++digits == 10) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,24 @@
+package com.webhook_wrapper.facebook;
+
+import java.util.regex.Pattern;
+
+/**
+ * Keeps access tokens out of logs. Graph URLs carry the token as a query
+ * parameter, and RestTemplate puts the full URL into its I/O error messages.
+ */
+public final class AccessTokens {
+    private static final Pattern TOKEN_PARAM = Pattern.compile("(access_token=)[^&\\s\"']+");
+
+    private AccessTokens() {
+    }
+
+    /**
+     * The text with every access_token value replaced; null stays null.
+     */
+    public static String redact(String text) {
+        if (text == null || !text.contains("access_token=")) {
+            return text;
+        }
+        return TOKEN_PARAM.matcher(text).replaceAll("$1REDACTED");
+    }
+}
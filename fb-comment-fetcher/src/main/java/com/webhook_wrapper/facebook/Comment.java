@@ -0,0 +1,37 @@
+package com.webhook_wrapper.facebook;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A comment as decoded by {@link GraphStreamParser}, tagged with the post it
+ * belongs to. commentCount is its number of replies, when it was requested.
+ */
+public record Comment(String id, String postId, String message, String createdTime, String fromId, String fromName,
+                      int commentCount) {
+
+    public Comment(String id, String postId, String message, String createdTime, String fromId, String fromName) {
+        this(id, postId, message, createdTime, fromId, fromName, 0);
+    }
+
+    /**
+     * The comment in the map shape the Graph API returns (id, message,
+     * created_time, from, and comment_count when it has replies).
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> comment = new HashMap<>();
+        comment.put("id", id);
+        comment.put("message", message);
+        comment.put("created_time", createdTime);
+        if (fromId != null || fromName != null) {
+            Map<String, Object> from = new HashMap<>();
+            from.put("id", fromId);
+            from.put("name", fromName);
+            comment.put("from", from);
+        }
+        if (commentCount > 0) {
+            comment.put("comment_count", commentCount);
+        }
+        return comment;
+    }
+}
@@ -0,0 +1,129 @@
+package com.webhook_wrapper.facebook;
+
+import com.webhook_wrapper.config.AppProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-post watermarks for incremental comment fetching, persisted to
+ * app.fb.cursor-file so a restart resumes where the last cycle stopped.
+ */
+@Component
+public class CommentCursorStore {
+    private static final Logger logger = LoggerFactory.getLogger(CommentCursorStore.class);
+
+    /**
+     * after: Graph paging cursor of the last comment page read.
+     * since: created_time (unix seconds) of the newest comment seen.
+     * updatedTime: the post's updated_time when it was last scanned.
+     */
+    public record PostCursor(String after, long since, String updatedTime) {
+    }
+
+    private final Path file;
+    private final Map<String, PostCursor> cursors = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    public CommentCursorStore(AppProperties appProperties) {
+        this.file = Paths.get(appProperties.getFb().getCursorFile());
+        load();
+    }
+
+    public PostCursor get(String postId) {
+        return cursors.get(postId);
+    }
+
+    public void put(String postId, PostCursor cursor) {
+        cursors.put(postId, cursor);
+        dirty = true;
+    }
+
+    public int size() {
+        return cursors.size();
+    }
+
+    /**
+     * Writes the cursors to disk if anything changed since the last save.
+     * The file is replaced atomically so a crash never leaves it half written.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        Properties props = new Properties();
+        cursors.forEach((postId, cursor) -> props.setProperty(postId, encode(cursor)));
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                props.store(writer, "comment cursors");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            logger.error("Failed to save comment cursors to {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        } catch (IOException e) {
+            logger.error("Failed to load comment cursors from {}: {}", file, e.getMessage());
+            return;
+        }
+        for (String postId : props.stringPropertyNames()) {
+            PostCursor cursor = decode(props.getProperty(postId));
+            if (cursor != null) {
+                cursors.put(postId, cursor);
+            } else {
+                // the post is read from the start again next cycle; dedup drops what was already synced
+                logger.warn("Ignoring unreadable comment cursor for post {} in {}", postId, file);
+            }
+        }
+        logger.info("Loaded {} comment cursors from {}", cursors.size(), file);
+    }
+
+    private static String encode(PostCursor cursor) {
+        return nullToEmpty(cursor.after()) + "|" + cursor.since() + "|" + nullToEmpty(cursor.updatedTime());
+    }
+
+    private static PostCursor decode(String value) {
+        String[] parts = value.split("\\|", -1);
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            return new PostCursor(emptyToNull(parts[0]), Long.parseLong(parts[1]), emptyToNull(parts[2]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
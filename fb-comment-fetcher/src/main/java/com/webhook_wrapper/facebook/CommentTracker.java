@@ -1,15 +1,62 @@
 package com.webhook_wrapper.facebook;
 
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.dedup.DedupStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
 
 @Component
 public class CommentTracker {
-    private final Set<String> seenCommentIds = new HashSet<>();
+    private static final Logger logger = LoggerFactory.getLogger(CommentTracker.class);
+    private final DedupStore seenCommentIds;
 
-    public boolean isNewComment(String commentId) {
-        return seenCommentIds.add(commentId); // true if not seen before
+    public CommentTracker(AppProperties appProperties) throws IOException {
+        AppProperties.Dedup dedup = appProperties.getDedup();
+        Duration window = Duration.ofHours(dedup.getWindowHours());
+        this.seenCommentIds = dedup.isPersistent()
+                ? DedupStore.open(Paths.get(dedup.getFile()), window, dedup.getStripes())
+                : DedupStore.inMemory(window, dedup.getStripes());
+    }
+
+    /**
+     * Atomically claims a comment for emission, true if it was not seen before.
+     * Safe to call from any number of fetch or sink threads: for a given ID
+     * exactly one caller gets true, so two workers never emit the same comment.
+     * Keyed on the comment's created_time so it can be evicted once it falls
+     * outside app.dedup.window-hours; 0 if unknown.
+     */
+    public boolean claim(String commentId, long createdEpochSeconds) {
+        return seenCommentIds.claim(commentId, createdEpochSeconds);
+    }
+
+    public int size() {
+        return seenCommentIds.size();
+    }
+
+    /**
+     * Forces the seen-ID log to disk; called at the end of each sync cycle.
+     */
+    public void flush() {
+        seenCommentIds.flush();
+    }
+
+    @Scheduled(fixedDelayString = "${app.dedup.eviction-interval-ms:3600000}")
+    public void evictExpired() {
+        int removed = seenCommentIds.evictExpired();
+        if (removed > 0) {
+            logger.info("Evicted {} comment IDs outside the dedup window", removed);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        seenCommentIds.close();
     }
 }
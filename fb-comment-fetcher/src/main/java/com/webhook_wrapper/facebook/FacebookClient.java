@@ -1,96 +1,405 @@
 package com.webhook_wrapper.facebook;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.webhook_wrapper.config.AppProperties;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import com.webhook_wrapper.metrics.SyncMetrics;
+import com.webhook_wrapper.resilience.ApiGuards;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 @Component
 public class FacebookClient {
-    private final RestTemplate restTemplate;
+    private static final Logger logger = LoggerFactory.getLogger(FacebookClient.class);
+    // Fields shown next to each comment; requested per post or folded into the feed
+    public static final String POST_DETAIL_FIELDS = "message,permalink_url,created_time";
+    // The Graph batch endpoint accepts at most 50 sub-requests per call
+    public static final int MAX_BATCH_SIZE = 50;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ParameterizedTypeReference<Map<String, Object>> JSON_OBJECT =
+            new ParameterizedTypeReference<>() { };
+    private static final ParameterizedTypeReference<List<Map<String, Object>>> JSON_ARRAY =
+            new ParameterizedTypeReference<>() { };
+    private static final GraphStreamParser streamParser = new GraphStreamParser(objectMapper.getFactory());
+
     private final AppProperties appProperties;
+    private final SyncMetrics metrics;
+    // One pooled HTTP client underneath; the templates differ only in timeout
+    private final RestTemplate feedTemplate;
+    private final RestTemplate detailTemplate;
+    private final RestTemplate batchTemplate;
+    private final RestTemplate pageTemplate;
 
-    public FacebookClient(AppProperties appProperties) {
+    public FacebookClient(AppProperties appProperties, GraphUsageBudget usageBudget, SyncMetrics metrics,
+                          ApiGuards guards) {
         this.appProperties = appProperties;
-        this.restTemplate = createConfiguredRestTemplate();
-        
-        // Add system properties to help with network debugging
-        System.setProperty("REDACTED", "true");
-        System.setProperty("REDACTED", "dns,sun");
-        
-        System.out.println("FacebookClient initialized with configured RestTemplate");
-    }
-    
-    private RestTemplate createConfiguredRestTemplate() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        
-        // Set timeouts
-        factory.setConnectTimeout(15000); // 15 seconds connection timeout
-        factory.setReadTimeout(30000);    // 30 seconds read timeout
-        
-        // Create RestTemplate with the configured factory
-        RestTemplate template = new RestTemplate(factory);
-        
-        System.out.println("RestTemplate configured - Connect timeout: 15s, Read timeout: 30s");
-        return template;
+        this.metrics = metrics;
+        AppProperties.Http http = appProperties.getHttp();
+        // Count every Graph attempt against the shared budget and pick up the usage headers;
+        // throttled and transient failures are retried underneath the callers
+        GraphHttpTransport transport = new GraphHttpTransport(http, new GraphRetryInterceptor(guards.graph(),
+                () -> Objects.toString(pageId(), "app"),
+                headers -> usageBudget.recordCall(GraphCallContext.currentPageId(),
+                        headers.getFirst("X-App-Usage"),
+                        headers.getFirst("X-Page-Usage"),
+                        headers.getFirst(GraphRetryInterceptor.BUSINESS_USE_CASE_USAGE))));
+        this.feedTemplate = transport.restTemplate(http.getFeedTimeoutMs());
+        this.detailTemplate = transport.restTemplate(http.getDetailTimeoutMs());
+        this.batchTemplate = transport.restTemplate(http.getBatchTimeoutMs());
+        this.pageTemplate = transport.restTemplate(http.getPageTimeoutMs());
+
+        logger.info("FacebookClient initialized - {}, gzip {}, connect timeout {}ms, "
+                        + "feed/detail/batch/page timeouts {}/{}/{}/{}ms",
+                transport.version(), http.isGzip() ? "on" : "off", http.getConnectTimeoutMs(),
+                http.getFeedTimeoutMs(), http.getDetailTimeoutMs(), http.getBatchTimeoutMs(), http.getPageTimeoutMs());
     }
 
     public Map<String, Object> fetchPostsAndComments() {
-        // Build URL with properly encoded curly braces for Facebook Graph API
-        String fieldsParam = "id,comments%7Bcreated_time,from,message,id%7D"; // %7B = { and %7D = }
-        String urlString = String.format("https://graph.facebook.com/%s/%s/feed?fields=%s&access_token=%s",
-                appProperties.getFb().getApiVersion(),
-                appProperties.getFb().getPageId(),
-                fieldsParam,
-                appProperties.getFb().getAccessToken());
-        
-        System.out.println("Making request to URL: " + urlString);
-        
+        URI uri = URI.create(feedWithCommentsUrl());
+        logger.debug("Fetching feed with comments for page {}", pageId());
+        Timer.Sample sample = metrics.start();
         try {
-            URI uri = URI.create(urlString);
-            Map<String, Object> response = restTemplate.getForObject(uri, Map.class);
-            System.out.println("Successfully received response from Facebook API");
+            Map<String, Object> response = feedTemplate.exchange(uri, HttpMethod.GET, null, JSON_OBJECT).getBody();
+            metrics.graphCall(sample, "feed", true);
             return response;
         } catch (Exception e) {
-            System.err.println("Error making request to Facebook API: " + e.getMessage());
-            System.err.println("Error type: " + e.getClass().getSimpleName());
-            if (e.getCause() != null) {
-                System.err.println("Root cause: " + e.getCause().getMessage());
-                System.err.println("Root cause type: " + e.getCause().getClass().getSimpleName());
-            }
-            e.printStackTrace();
+            metrics.graphCall(sample, "feed", false);
+            logger.error("Feed request for page {} failed ({}): {}", pageId(), e.getClass().getSimpleName(),
+                    AccessTokens.redact(e.getMessage()));
             throw e;
         }
     }
     
+    /**
+     * Same request as {@link #fetchPostsAndComments()}, but the response body is
+     * decoded as it streams in and each post and comment is handed to the visitor
+     * as a typed record; the response is never held as a map tree.
+     *
+     * @return the paging.next URL of the feed, or null on the last page
+     */
+    public String streamPostsAndComments(GraphStreamParser.FeedVisitor visitor) {
+        URI uri = URI.create(feedWithCommentsUrl());
+        logger.debug("Streaming feed with comments for page {}", pageId());
+        Timer.Sample sample = metrics.start();
+        try {
+            String next = feedTemplate.execute(uri, HttpMethod.GET, null,
+                    response -> streamParser.parseFeed(response.getBody(), visitor));
+            metrics.graphCall(sample, "feed", true);
+            return next;
+        } catch (Exception e) {
+            metrics.graphCall(sample, "feed", false);
+            logger.error("Streaming feed request for page {} failed ({}): {}", pageId(), e.getClass().getSimpleName(),
+                    AccessTokens.redact(e.getMessage()));
+            throw e;
+        }
+    }
+
+    private String feedWithCommentsUrl() {
+        // Build URL with properly encoded curly braces for Facebook Graph API
+        String fieldsParam = "id,comments%7B" + commentFields() + "%7D"; // %7B = { and %7D = }
+        if (appProperties.getFb().isExpandPostFields()) {
+            // Post details come back with the feed, saving a fetchPostDetails call per post. They must stay
+            // ahead of comments: GraphStreamParser hands a post over when its comments start
+            fieldsParam = POST_DETAIL_FIELDS + "," + fieldsParam;
+        }
+        return String.format("%s/%s/%s/feed?fields=%s&access_token=%s",
+                appProperties.getFb().getGraphBaseUrl(),
+                appProperties.getFb().getApiVersion(),
+                pageId(),
+                fieldsParam,
+                accessToken());
+    }
+
     public Map<String, Object> fetchPostDetails(String postId) {
         // Fetch individual post details with id, message, permalink_url, created_time
-        String fieldsParam = "id,message,permalink_url,created_time";
-        String urlString = String.format("https://graph.facebook.com/%s/%s?fields=%s&access_token=%s",
+        String fieldsParam = "id," + POST_DETAIL_FIELDS;
+        String urlString = String.format("%s/%s/%s?fields=%s&access_token=%s",
+                appProperties.getFb().getGraphBaseUrl(),
                 appProperties.getFb().getApiVersion(),
                 postId,
                 fieldsParam,
-                appProperties.getFb().getAccessToken());
-        
-        System.out.println("Fetching post details for: " + postId);
+                accessToken());
         
+        logger.debug("Fetching post details for {}", postId);
+        Timer.Sample sample = metrics.start();
         try {
             URI uri = URI.create(urlString);
-            Map<String, Object> response = restTemplate.getForObject(uri, Map.class);
-            System.out.println("Successfully received post details for: " + postId);
+            Map<String, Object> response = detailTemplate.exchange(uri, HttpMethod.GET, null, JSON_OBJECT).getBody();
+            metrics.graphCall(sample, "detail", true);
             return response;
         } catch (Exception e) {
-            System.err.println("Error fetching post details for " + postId + ": " + e.getMessage());
-            System.err.println("Error type: " + e.getClass().getSimpleName());
-            if (e.getCause() != null) {
-                System.err.println("Root cause: " + e.getCause().getMessage());
-                System.err.println("Root cause type: " + e.getCause().getClass().getSimpleName());
+            metrics.graphCall(sample, "detail", false);
+            logger.error("Post details request for {} failed ({}): {}", postId, e.getClass().getSimpleName(),
+                    AccessTokens.redact(e.getMessage()));
+            throw e;
+        }
+    }
+
+    /**
+     * Fetches details for many posts through the Graph batch endpoint, up to
+     * {@value #MAX_BATCH_SIZE} posts per HTTP request. Posts whose sub-request
+     * failed are left out of the result so the caller can fall back for them.
+     */
+    public Map<String, Map<String, Object>> fetchPostDetailsBatch(Collection<String> postIds) {
+        Map<String, Map<String, Object>> details = new LinkedHashMap<>();
+        List<String> ids = new ArrayList<>(postIds);
+        for (int start = 0; start < ids.size(); start += MAX_BATCH_SIZE) {
+            List<String> chunk = ids.subList(start, Math.min(ids.size(), start + MAX_BATCH_SIZE));
+            details.putAll(executeBatch(chunk));
+        }
+        return details;
+    }
+
+    private Map<String, Map<String, Object>> executeBatch(List<String> postIds) {
+        List<String> relativeUrls = new ArrayList<>(postIds.size());
+        for (String postId : postIds) {
+            relativeUrls.add(postId + "?fields=id," + POST_DETAIL_FIELDS);
+        }
+        logger.debug("Fetching post details for {} posts in one batch request", postIds.size());
+        return parseBatch(postIds, postBatch(relativeUrls), "post details");
+    }
+
+    /**
+     * Sends up to {@value #MAX_BATCH_SIZE} GET sub-requests in one call to the
+     * Graph batch endpoint. Responses come back in request order; an entry is
+     * null if its sub-request timed out.
+     */
+    private List<Map<String, Object>> postBatch(List<String> relativeUrls) {
+        List<Map<String, String>> requests = new ArrayList<>(relativeUrls.size());
+        for (String relativeUrl : relativeUrls) {
+            requests.add(Map.of("method", "GET", "relative_url", relativeUrl));
+        }
+
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("access_token", accessToken());
+        form.add("include_headers", "false");
+        try {
+            form.add("batch", objectMapper.writeValueAsString(requests));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode batch request", e);
+        }
+
+        URI uri = URI.create(String.format("%s/%s/",
+                appProperties.getFb().getGraphBaseUrl(),
+                appProperties.getFb().getApiVersion()));
+
+        Timer.Sample sample = metrics.start();
+        try {
+            // a bare MultiValueMap would be taken as the headers, so the form is passed as the body with none
+            HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(form, null);
+            List<Map<String, Object>> responses = batchTemplate.exchange(uri, HttpMethod.POST, request, JSON_ARRAY)
+                    .getBody();
+            metrics.graphCall(sample, "batch", true);
+            return responses;
+        } catch (Exception e) {
+            metrics.graphCall(sample, "batch", false);
+            logger.error("Batch request of {} sub-requests failed ({}): {}", relativeUrls.size(),
+                    e.getClass().getSimpleName(), AccessTokens.redact(e.getMessage()));
+            throw e;
+        }
+    }
+
+    // Pairs each key with the decoded body of its sub-request, leaving out failures
+    private Map<String, Map<String, Object>> parseBatch(List<String> keys, List<Map<String, Object>> responses,
+                                                        String what) {
+        Map<String, Map<String, Object>> parsed = new LinkedHashMap<>();
+        for (int i = 0; responses != null && i < responses.size() && i < keys.size(); i++) {
+            Map<String, Object> response = responses.get(i);
+            String key = keys.get(i);
+            if (response == null || !Integer.valueOf(200).equals(response.get("code"))) {
+                logger.warn("Batch lookup of {} failed for {}: {}", what, key,
+                        response != null ? response.get("body") : "no response");
+                continue;
+            }
+            try {
+                parsed.put(key, objectMapper.readValue((String) response.get("body"),
+                        new TypeReference<Map<String, Object>>() { }));
+            } catch (JsonProcessingException e) {
+                logger.warn("Unreadable batch response of {} for {}: {}", what, key, e.getMessage());
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * First page of the newest comments on each post, created after the given
+     * unix time (0 for all), newest first. Posts go out {@value #MAX_BATCH_SIZE}
+     * per batch request; follow a page's paging.next with {@link #fetchNextPage}.
+     * Posts whose sub-request failed are left out.
+     */
+    public Map<String, Map<String, Object>> fetchRecentComments(Map<String, Long> sinceByPost) {
+        Map<String, Map<String, Object>> pages = new LinkedHashMap<>();
+        List<String> postIds = new ArrayList<>(sinceByPost.keySet());
+        for (int start = 0; start < postIds.size(); start += MAX_BATCH_SIZE) {
+            List<String> chunk = postIds.subList(start, Math.min(postIds.size(), start + MAX_BATCH_SIZE));
+            List<String> relativeUrls = new ArrayList<>(chunk.size());
+            for (String postId : chunk) {
+                StringBuilder url = new StringBuilder(postId)
+                        .append("/comments?fields=").append(commentFields())
+                        .append("&order=reverse_chronological&limit=")
+                        .append(appProperties.getFb().getPageSize());
+                long since = sinceByPost.get(postId);
+                if (since > 0) {
+                    url.append("&since=").append(since);
+                }
+                relativeUrls.add(url.toString());
             }
-            e.printStackTrace();
+            logger.debug("Fetching recent comments for {} posts in one batch request", chunk.size());
+            pages.putAll(parseBatch(chunk, postBatch(relativeUrls), "recent comments"));
+        }
+        return pages;
+    }
+
+    /**
+     * Follows a paging.next URL returned by Graph.
+     */
+    public Map<String, Object> fetchNextPage(String nextUrl) {
+        return fetchPage(URI.create(nextUrl));
+    }
+
+    /**
+     * The newest posts in the page feed, up to maxPosts, with id, created_time
+     * and updated_time (plus the post detail fields when
+     * app.fb.expand-post-fields is on).
+     */
+    public Stream<Map<String, Object>> streamRecentPosts(int maxPosts) {
+        int limit = Math.max(1, Math.min(appProperties.getFb().getPageSize(), maxPosts));
+        String urlString = String.format("%s/%s/%s/feed?fields=%s&limit=%d&access_token=%s",
+                appProperties.getFb().getGraphBaseUrl(),
+                appProperties.getFb().getApiVersion(),
+                pageId(),
+                appProperties.getFb().isExpandPostFields()
+                        ? "id,updated_time," + POST_DETAIL_FIELDS
+                        : "id,created_time,updated_time",
+                limit,
+                accessToken());
+        int maxPages = (maxPosts + limit - 1) / limit;
+        return new GraphPageIterator(this::fetchPage, URI.create(urlString), maxPages).stream().limit(maxPosts);
+    }
+
+    /**
+     * Lazily streams every post in the page feed, following paging.next for up
+     * to app.fb.max-feed-pages pages. Only id and updated_time (plus the post
+     * detail fields when app.fb.expand-post-fields is on) are requested;
+     * updated_time moves whenever someone comments, so callers can skip posts
+     * with no new activity.
+     */
+    public Stream<Map<String, Object>> streamFeed() {
+        String urlString = String.format("%s/%s/%s/feed?fields=%s&limit=%d&access_token=%s",
+                appProperties.getFb().getGraphBaseUrl(),
+                appProperties.getFb().getApiVersion(),
+                pageId(),
+                appProperties.getFb().isExpandPostFields() ? "id,updated_time," + POST_DETAIL_FIELDS : "id,updated_time",
+                appProperties.getFb().getPageSize(),
+                accessToken());
+        return new GraphPageIterator(this::fetchPage, URI.create(urlString), appProperties.getFb().getMaxFeedPages()).stream();
+    }
+
+    /**
+     * Iterates the comments on a post in chronological order, resuming after the
+     * given cursor (or its since watermark when there is no paging cursor yet).
+     * Pages are fetched on demand and all pages are followed.
+     */
+    public GraphPageIterator iterateComments(String postId, CommentCursorStore.PostCursor cursor) {
+        StringBuilder urlString = new StringBuilder(String.format(
+                "%s/%s/%s/comments?fields=%s&order=chronological&limit=%d&access_token=%s",
+                appProperties.getFb().getGraphBaseUrl(),
+                appProperties.getFb().getApiVersion(),
+                postId,
+                commentFields(),
+                appProperties.getFb().getPageSize(),
+                accessToken()));
+        if (cursor != null && cursor.after() != null) {
+            urlString.append("&after=").append(URLEncoder.encode(cursor.after(), StandardCharsets.UTF_8));
+        } else if (cursor != null && cursor.since() > 0) {
+            urlString.append("&since=").append(cursor.since());
+        }
+        return new GraphPageIterator(this::fetchPage, URI.create(urlString.toString()), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Iterates every reply in a comment's thread, oldest first. filter=stream
+     * flattens the thread, so replies to replies come too; parent.id names the
+     * comment each one answers. Pages are fetched on demand and all are followed.
+     */
+    public GraphPageIterator iterateReplies(String commentId) {
+        String urlString = String.format(
+                "%s/%s/%s/comments?fields=id,created_time,from,message,parent%%7Bid%%7D"
+                        + "&filter=stream&order=chronological&limit=%d&access_token=%s",
+                appProperties.getFb().getGraphBaseUrl(),
+                appProperties.getFb().getApiVersion(),
+                commentId,
+                appProperties.getFb().getPageSize(),
+                accessToken());
+        return new GraphPageIterator(this::fetchPage, URI.create(urlString), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Iterates a post's top-level comments with only their id and
+     * comment_count, so the reply harvester can find threads that grew under
+     * comments a cursor has moved past. All pages are followed.
+     */
+    public GraphPageIterator iterateReplyCounts(String postId) {
+        String urlString = String.format(
+                "%s/%s/%s/comments?fields=id,comment_count&filter=toplevel&limit=%d&access_token=%s",
+                appProperties.getFb().getGraphBaseUrl(),
+                appProperties.getFb().getApiVersion(),
+                postId,
+                appProperties.getFb().getPageSize(),
+                accessToken());
+        return new GraphPageIterator(this::fetchPage, URI.create(urlString), Integer.MAX_VALUE);
+    }
+
+    // Fields of a top-level comment; comment_count tells the reply harvester which threads grew
+    private String commentFields() {
+        return appProperties.getThreads().isEnabled()
+                ? "id,created_time,from,message,comment_count"
+                : "id,created_time,from,message";
+    }
+
+    // The page being synced on this thread, or the app.fb page by default
+    private String pageId() {
+        AppProperties.Page page = GraphCallContext.current();
+        return page != null ? page.getPageId() : appProperties.getFb().getPageId();
+    }
+
+    private String accessToken() {
+        AppProperties.Page page = GraphCallContext.current();
+        return page != null ? page.getAccessToken() : appProperties.getFb().getAccessToken();
+    }
+
+    private Map<String, Object> fetchPage(URI uri) {
+        Timer.Sample sample = metrics.start();
+        try {
+            Map<String, Object> response = pageTemplate.exchange(uri, HttpMethod.GET, null, JSON_OBJECT).getBody();
+            metrics.graphCall(sample, "page", true);
+            return response;
+        } catch (Exception e) {
+            metrics.graphCall(sample, "page", false);
+            logger.error("Graph API page request failed ({}): {}", e.getClass().getSimpleName(),
+                    AccessTokens.redact(e.getMessage()));
             throw e;
         }
     }
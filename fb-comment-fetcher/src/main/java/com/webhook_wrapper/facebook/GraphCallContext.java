@@ -0,0 +1,72 @@
+package com.webhook_wrapper.facebook;
+
+import com.webhook_wrapper.config.AppProperties;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * The page the current thread is syncing. FacebookClient takes the page ID and
+ * access token from here (falling back to app.fb), and GraphUsageBudget uses it
+ * to attribute calls. Work handed to other threads must be wrapped with
+ * {@link #wrap(Callable)} to carry the page along.
+ */
+public final class GraphCallContext {
+    private static final ThreadLocal<AppProperties.Page> CURRENT = new ThreadLocal<>();
+
+    private GraphCallContext() {
+    }
+
+    /**
+     * The page bound to this thread, or null outside a multi-page sync.
+     */
+    public static AppProperties.Page current() {
+        return CURRENT.get();
+    }
+
+    public static String currentPageId() {
+        AppProperties.Page page = CURRENT.get();
+        return page != null ? page.getPageId() : null;
+    }
+
+    public static <T> T callAs(AppProperties.Page page, Supplier<T> work) {
+        AppProperties.Page previous = CURRENT.get();
+        CURRENT.set(page);
+        try {
+            return work.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public static void runAs(AppProperties.Page page, Runnable work) {
+        callAs(page, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Binds the caller's page to the task when it runs on another thread.
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        AppProperties.Page page = CURRENT.get();
+        return () -> {
+            AppProperties.Page previous = CURRENT.get();
+            CURRENT.set(page);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    private static void restore(AppProperties.Page previous) {
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
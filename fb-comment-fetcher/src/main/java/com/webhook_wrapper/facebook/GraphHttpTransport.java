@@ -0,0 +1,121 @@
+package com.webhook_wrapper.facebook;
+
+import com.webhook_wrapper.config.AppProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * One JDK {@link HttpClient} shared by every Graph call. The client keeps
+ * connections alive between calls and multiplexes concurrent requests over a
+ * single HTTP/2 connection where the server supports it, so parallel detail
+ * and comment-page fetches stop paying a TLS handshake each. Each call type
+ * gets its own RestTemplate over that client, differing only in timeout.
+ */
+class GraphHttpTransport {
+    private final HttpClient httpClient;
+    private final List<ClientHttpRequestInterceptor> interceptors;
+
+    GraphHttpTransport(AppProperties.Http http, ClientHttpRequestInterceptor... interceptors) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(http.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(http.getConnectTimeoutMs()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        // The JDK client does not decompress, so ask for gzip and unwrap it ourselves
+        this.interceptors = http.isGzip()
+                ? concat(new GzipInterceptor(), interceptors)
+                : List.of(interceptors);
+    }
+
+    RestTemplate restTemplate(int readTimeoutMs) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        RestTemplate template = new RestTemplate(factory);
+        template.getInterceptors().addAll(interceptors);
+        return template;
+    }
+
+    HttpClient.Version version() {
+        return httpClient.version();
+    }
+
+    private static List<ClientHttpRequestInterceptor> concat(ClientHttpRequestInterceptor first,
+                                                             ClientHttpRequestInterceptor[] rest) {
+        ClientHttpRequestInterceptor[] all = new ClientHttpRequestInterceptor[rest.length + 1];
+        all[0] = first;
+        System.arraycopy(rest, 0, all, 1, rest.length);
+        return List.of(all);
+    }
+
+    static class GzipInterceptor implements ClientHttpRequestInterceptor {
+        @Override
+        public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                            ClientHttpRequestExecution execution) throws IOException {
+            request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+            ClientHttpResponse response = execution.execute(request, body);
+            String encoding = response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+            if (encoding == null || !encoding.trim().equalsIgnoreCase("gzip")
+                    || response.getHeaders().getContentLength() == 0) {
+                return response;
+            }
+            return new GzipResponse(response);
+        }
+    }
+
+    private static class GzipResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final HttpHeaders headers;
+        private InputStream body;
+
+        GzipResponse(ClientHttpResponse delegate) {
+            this.delegate = delegate;
+            // Length and encoding describe the compressed bytes, not what callers will read
+            HttpHeaders copy = new HttpHeaders();
+            copy.putAll(delegate.getHeaders());
+            copy.remove(HttpHeaders.CONTENT_ENCODING);
+            copy.remove(HttpHeaders.CONTENT_LENGTH);
+            this.headers = HttpHeaders.readOnlyHttpHeaders(copy);
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new GZIPInputStream(delegate.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
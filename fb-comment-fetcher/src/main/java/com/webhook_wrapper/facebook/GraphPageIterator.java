@@ -0,0 +1,95 @@
+package com.webhook_wrapper.facebook;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Walks a paged Graph API edge one item at a time. The next page is only
+ * requested once the current one has been consumed, following paging.next
+ * until it is absent or maxPages pages have been read.
+ */
+public class GraphPageIterator implements Iterator<Map<String, Object>> {
+    private final Function<URI, Map<String, Object>> fetcher;
+    private final int maxPages;
+
+    private URI nextPage;
+    private Iterator<Map<String, Object>> current = Collections.emptyIterator();
+    private int pagesFetched;
+    private String lastAfterCursor;
+
+    public GraphPageIterator(Function<URI, Map<String, Object>> fetcher, URI firstPage, int maxPages) {
+        this.fetcher = fetcher;
+        this.nextPage = firstPage;
+        this.maxPages = maxPages;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (nextPage == null || pagesFetched >= maxPages) {
+                return false;
+            }
+            loadPage(nextPage);
+        }
+        return true;
+    }
+
+    @Override
+    public Map<String, Object> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * The paging.cursors.after value of the last non-empty page read so far, or
+     * null if no page had cursors. Resuming from it returns only newer items.
+     */
+    public String getLastAfterCursor() {
+        return lastAfterCursor;
+    }
+
+    public int getPagesFetched() {
+        return pagesFetched;
+    }
+
+    public Stream<Map<String, Object>> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadPage(URI uri) {
+        Map<String, Object> response = fetcher.apply(uri);
+        pagesFetched++;
+        nextPage = null;
+        if (response == null) {
+            current = Collections.emptyIterator();
+            return;
+        }
+
+        List<Map<String, Object>> data = (List<Map<String, Object>>) response.get("data");
+        current = data != null ? data.iterator() : Collections.emptyIterator();
+
+        Map<String, Object> paging = (Map<String, Object>) response.get("paging");
+        if (paging != null) {
+            Map<String, Object> cursors = (Map<String, Object>) paging.get("cursors");
+            if (cursors != null && cursors.get("after") != null && data != null && !data.isEmpty()) {
+                lastAfterCursor = (String) cursors.get("after");
+            }
+            Object next = paging.get("next");
+            if (next != null) {
+                nextPage = URI.create((String) next);
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.webhook_wrapper.facebook;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webhook_wrapper.resilience.ApiGuard;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Innermost interceptor on every Graph call. Hands each attempt's headers to
+ * the usage observer, retries included, and retries rate-limited and
+ * transient failures through the graph {@link ApiGuard}, keyed by page.
+ *
+ * A throttled call waits out the estimated_time_to_regain_access that
+ * X-Business-Use-Case-Usage reports, or Retry-After. When the guard gives up
+ * the last error response is returned as is, so callers see the same
+ * exception as without retries.
+ */
+class GraphRetryInterceptor implements ClientHttpRequestInterceptor {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    static final String BUSINESS_USE_CASE_USAGE = "X-Business-Use-Case-Usage";
+    // Application, user, page and custom rate limits; 80001-80014 are business use case limits
+    private static final Set<Integer> THROTTLE_CODES = Set.of(4, 17, 32, 613);
+
+    private final ApiGuard guard;
+    private final Supplier<String> key;
+    private final Consumer<HttpHeaders> usageObserver;
+
+    GraphRetryInterceptor(ApiGuard guard, Supplier<String> key, Consumer<HttpHeaders> usageObserver) {
+        this.guard = guard;
+        this.key = key;
+        this.usageObserver = usageObserver;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                        ClientHttpRequestExecution execution) throws IOException {
+        String target = key.get();
+        for (int attempt = 1; ; attempt++) {
+            guard.beforeAttempt(target);
+            ClientHttpResponse response;
+            try {
+                // the last interceptor, so each execute sends a fresh request
+                response = execution.execute(request, body);
+            } catch (IOException e) {
+                long delay = guard.afterFailure(target, ApiGuard.Failure.transientError(0), attempt);
+                if (delay < 0) {
+                    throw e;
+                }
+                guard.sleep(delay);
+                continue;
+            }
+            usageObserver.accept(response.getHeaders());
+            if (!response.getStatusCode().isError()) {
+                guard.onSuccess(target);
+                return response;
+            }
+            BufferedResponse error = new BufferedResponse(response);
+            long delay = guard.afterFailure(target, classify(error.getStatusCode().value(), error.getHeaders(),
+                    error.decodedBody()), attempt);
+            if (delay < 0) {
+                return error;
+            }
+            guard.sleep(delay);
+        }
+    }
+
+    /**
+     * Throttled for HTTP 429 and the Graph rate-limit error codes, transient
+     * for 5xx and errors flagged is_transient, permanent otherwise.
+     */
+    static ApiGuard.Failure classify(int status, HttpHeaders headers, byte[] body) {
+        long retryAfter = Math.max(GraphUsageBudget.regainAccessMillis(headers.getFirst(BUSINESS_USE_CASE_USAGE)),
+                ApiGuard.parseRetryAfter(headers.getFirst(HttpHeaders.RETRY_AFTER)));
+        JsonNode error = readError(body);
+        int code = error.path("code").asInt(0);
+        if (status == 429 || THROTTLE_CODES.contains(code) || (code >= 80001 && code <= 80014)) {
+            return ApiGuard.Failure.throttled(retryAfter);
+        }
+        if (status >= 500 || error.path("is_transient").asBoolean(false)) {
+            return ApiGuard.Failure.transientError(retryAfter);
+        }
+        return ApiGuard.Failure.PERMANENT;
+    }
+
+    private static JsonNode readError(byte[] body) {
+        try {
+            return objectMapper.readTree(body).path("error");
+        } catch (Exception e) {
+            return objectMapper.missingNode();
+        }
+    }
+
+    /**
+     * Error response read into memory so it can be classified and still be
+     * handed on; the body stays as sent, compressed or not.
+     */
+    private static class BufferedResponse implements ClientHttpResponse {
+        private final HttpStatusCode status;
+        private final String statusText;
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        BufferedResponse(ClientHttpResponse response) throws IOException {
+            try (response) {
+                this.status = response.getStatusCode();
+                this.statusText = response.getStatusText();
+                this.headers = response.getHeaders();
+                this.body = response.getBody().readAllBytes();
+            }
+        }
+
+        byte[] decodedBody() {
+            String encoding = headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+            if (encoding == null || !encoding.trim().equalsIgnoreCase("gzip") || body.length == 0) {
+                return body;
+            }
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                return in.readAllBytes();
+            } catch (IOException e) {
+                return new byte[0];
+            }
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return status;
+        }
+
+        @Override
+        public String getStatusText() {
+            return statusText;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
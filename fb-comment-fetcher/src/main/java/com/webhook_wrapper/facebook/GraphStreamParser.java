@@ -0,0 +1,194 @@
+package com.webhook_wrapper.facebook;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes a feed response ({"data":[post, ...], "paging":{...}} with comments
+ * embedded in each post) token by token, handing each post and comment to a
+ * {@link FeedVisitor} as soon as it is complete. A post is handed over before
+ * its first comment. No tree of maps is built; unknown fields are skipped
+ * without being materialized.
+ */
+public class GraphStreamParser {
+
+    public interface FeedVisitor {
+        void onPost(Post post);
+
+        void onComment(Comment comment);
+    }
+
+    private final JsonFactory jsonFactory;
+
+    public GraphStreamParser() {
+        this(new JsonFactory());
+    }
+
+    public GraphStreamParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Parses one feed page. Returns the paging.next URL, or null on the last page.
+     */
+    public String parseFeed(InputStream in, FeedVisitor visitor) throws IOException {
+        String next = null;
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("data".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        parsePost(parser, visitor);
+                    }
+                } else if ("paging".equals(field) && value == JsonToken.START_OBJECT) {
+                    next = parsePagingNext(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return next;
+    }
+
+    private void parsePost(JsonParser parser, FeedVisitor visitor) throws IOException {
+        String id = null;
+        String message = null;
+        String permalinkUrl = null;
+        String createdTime = null;
+        String updatedTime = null;
+        // only used if comments arrive before the post id, which Graph does not normally do
+        List<Comment> pending = null;
+        boolean postEmitted = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> id = parser.getValueAsString();
+                case "message" -> message = parser.getValueAsString();
+                case "permalink_url" -> permalinkUrl = parser.getValueAsString();
+                case "created_time" -> createdTime = parser.getValueAsString();
+                case "updated_time" -> updatedTime = parser.getValueAsString();
+                case "comments" -> {
+                    if (value != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                    } else {
+                        // the post goes out before its comments so visitors can prime per-post state;
+                        // Graph returns fields in request order, so the scalar fields are already read
+                        if (id != null && !postEmitted) {
+                            visitor.onPost(new Post(id, message, permalinkUrl, createdTime, updatedTime));
+                            postEmitted = true;
+                        }
+                        pending = parseCommentEdge(parser, id, visitor, pending);
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (!postEmitted) {
+            visitor.onPost(new Post(id, message, permalinkUrl, createdTime, updatedTime));
+        }
+        if (pending != null) {
+            for (Comment comment : pending) {
+                visitor.onComment(new Comment(comment.id(), id, comment.message(), comment.createdTime(),
+                        comment.fromId(), comment.fromName(), comment.commentCount()));
+            }
+        }
+    }
+
+    /**
+     * Reads {"data":[comment, ...], "paging":{...}}. Comments are emitted right
+     * away when the post id is known, otherwise collected into pending.
+     */
+    private List<Comment> parseCommentEdge(JsonParser parser, String postId, FeedVisitor visitor,
+                                           List<Comment> pending) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (!"data".equals(field) || value != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                Comment comment = parseComment(parser, postId);
+                if (postId != null) {
+                    visitor.onComment(comment);
+                } else {
+                    if (pending == null) {
+                        pending = new ArrayList<>();
+                    }
+                    pending.add(comment);
+                }
+            }
+        }
+        return pending;
+    }
+
+    private Comment parseComment(JsonParser parser, String postId) throws IOException {
+        String id = null;
+        String message = null;
+        String createdTime = null;
+        String fromId = null;
+        String fromName = null;
+        int commentCount = 0;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> id = parser.getValueAsString();
+                case "message" -> message = parser.getValueAsString();
+                case "created_time" -> createdTime = parser.getValueAsString();
+                case "comment_count" -> commentCount = parser.getValueAsInt();
+                case "from" -> {
+                    if (value != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        break;
+                    }
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String fromField = parser.currentName();
+                        parser.nextToken();
+                        if ("id".equals(fromField)) {
+                            fromId = parser.getValueAsString();
+                        } else if ("name".equals(fromField)) {
+                            fromName = parser.getValueAsString();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new Comment(id, postId, message, createdTime, fromId, fromName, commentCount);
+    }
+
+    private String parsePagingNext(JsonParser parser) throws IOException {
+        String next = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("next".equals(field)) {
+                next = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return next;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but found " + actual);
+        }
+    }
+}
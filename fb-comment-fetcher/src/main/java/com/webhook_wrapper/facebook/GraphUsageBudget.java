@@ -0,0 +1,245 @@
+package com.webhook_wrapper.facebook;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webhook_wrapper.config.AppProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Shared Graph API call budget for every page synced by this process.
+ *
+ * Each window allows app.engine.calls-per-window calls, split evenly between
+ * the registered pages so one busy page cannot starve the rest. The budget
+ * shrinks as the X-App-Usage header climbs past app.engine.throttle-at-percent,
+ * and a page whose own X-Page-Usage (or X-Business-Use-Case-Usage, for apps
+ * on business use case rate limits) is past that point is held back entirely
+ * until Facebook reports it has recovered.
+ *
+ * Usage is only reported on responses, so a held-back page would never hear
+ * that it recovered. A reading is therefore forgotten one window after it
+ * arrived (or once estimated_time_to_regain_access has passed, if later), and
+ * the next cycle goes ahead as a probe that brings a fresh reading.
+ */
+@Component
+public class GraphUsageBudget {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final int callsPerWindow;
+    private final long windowMillis;
+    private final int throttleAtPercent;
+    private final LongSupplier clock;
+
+    private final Map<String, AtomicInteger> usedByPage = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> totalByPage = new ConcurrentHashMap<>();
+    private final Map<String, Integer> pageUsagePercent = new ConcurrentHashMap<>();
+    // When each page's reading goes stale
+    private final Map<String, Long> pageUsageUntil = new ConcurrentHashMap<>();
+    private int appUsagePercent;
+    private long appUsageUntil;
+    private long windowStart;
+    private int usedInWindow;
+
+    @Autowired
+    public GraphUsageBudget(AppProperties appProperties) {
+        this(appProperties.getEngine().getCallsPerWindow(), appProperties.getEngine().getWindowSeconds() * 1000L,
+                appProperties.getEngine().getThrottleAtPercent(), System::currentTimeMillis);
+    }
+
+    GraphUsageBudget(int callsPerWindow, long windowMillis, int throttleAtPercent, LongSupplier clock) {
+        this.callsPerWindow = callsPerWindow;
+        this.windowMillis = windowMillis;
+        this.throttleAtPercent = throttleAtPercent;
+        this.clock = clock;
+        this.windowStart = clock.getAsLong();
+    }
+
+    /**
+     * Adds a page to the fair split.
+     */
+    public void register(String pageId) {
+        usedByPage.putIfAbsent(pageId, new AtomicInteger());
+    }
+
+    /**
+     * Admission check before a sync cycle: true if the page can spend the
+     * estimated number of calls within its share of the current window.
+     * The calls themselves are counted as they happen by {@link #recordCall}.
+     * An estimate above the fair share counts as the share, so a page whose
+     * last cycle was expensive still gets one cycle in every window rather
+     * than none ever again.
+     */
+    public synchronized boolean tryAcquire(String pageId, int estimatedCalls) {
+        rollWindow();
+        if (pageUsagePercent.getOrDefault(pageId, 0) >= throttleAtPercent) {
+            return false;
+        }
+        int budget = effectiveBudget();
+        int fairShare = Math.max(1, budget / Math.max(1, usedByPage.size()));
+        int estimate = Math.min(estimatedCalls, fairShare);
+        int usedByThisPage = usedByPage.computeIfAbsent(pageId, id -> new AtomicInteger()).get();
+        return usedInWindow + estimate <= budget && usedByThisPage + estimate <= fairShare;
+    }
+
+    /**
+     * Counts one Graph call for the page (null when made outside a page sync)
+     * and takes the latest usage percentages from its response headers, the
+     * page's being the higher of X-Page-Usage and X-Business-Use-Case-Usage.
+     */
+    public synchronized void recordCall(String pageId, String appUsageHeader, String pageUsageHeader,
+                                        String businessUseCaseHeader) {
+        rollWindow();
+        long now = clock.getAsLong();
+        usedInWindow++;
+        if (pageId != null) {
+            usedByPage.computeIfAbsent(pageId, id -> new AtomicInteger()).incrementAndGet();
+            totalByPage.computeIfAbsent(pageId, id -> new AtomicLong()).incrementAndGet();
+        }
+        if (appUsageHeader != null) {
+            appUsagePercent = parseUsagePercent(appUsageHeader);
+            appUsageUntil = now + windowMillis;
+        }
+        if (pageId != null && (pageUsageHeader != null || businessUseCaseHeader != null)) {
+            int usage = pageUsageHeader != null ? parseUsagePercent(pageUsageHeader) : 0;
+            if (businessUseCaseHeader != null) {
+                usage = Math.max(usage, parseBusinessUseCasePercent(businessUseCaseHeader));
+            }
+            pageUsagePercent.put(pageId, usage);
+            pageUsageUntil.put(pageId, now + Math.max(windowMillis, regainAccessMillis(businessUseCaseHeader)));
+        }
+    }
+
+    /**
+     * Calls made for the page since startup; the engine diffs it to learn what a cycle costs.
+     */
+    public long getTotalCalls(String pageId) {
+        AtomicLong total = totalByPage.get(pageId);
+        return total != null ? total.get() : 0;
+    }
+
+    public synchronized int getAppUsagePercent() {
+        expireUsage();
+        return appUsagePercent;
+    }
+
+    public synchronized int getPageUsagePercent(String pageId) {
+        expireUsage();
+        return pageUsagePercent.getOrDefault(pageId, 0);
+    }
+
+    /**
+     * Share of the budget left for the page, from 1 while both its X-Page-Usage
+     * and the app's X-App-Usage are under the throttle point down to 0 at 100%.
+     */
+    public double getHeadroom(String pageId) {
+        int usage = Math.max(getAppUsagePercent(), getPageUsagePercent(pageId));
+        if (usage < throttleAtPercent) {
+            return 1;
+        }
+        return Math.max(0, 100 - usage) / (double) Math.max(1, 100 - throttleAtPercent);
+    }
+
+    /**
+     * Window budget after scaling down linearly from the throttle point to zero at 100% app usage.
+     */
+    synchronized int effectiveBudget() {
+        if (appUsagePercent < throttleAtPercent) {
+            return callsPerWindow;
+        }
+        double headroom = Math.max(0, 100 - appUsagePercent) / (double) Math.max(1, 100 - throttleAtPercent);
+        return (int) (callsPerWindow * headroom);
+    }
+
+    private void rollWindow() {
+        long now = clock.getAsLong();
+        if (now - windowStart >= windowMillis) {
+            windowStart = now;
+            usedInWindow = 0;
+            usedByPage.values().forEach(used -> used.set(0));
+        }
+        expireUsage();
+    }
+
+    // Drops usage readings that are too old to hold anything back
+    private void expireUsage() {
+        long now = clock.getAsLong();
+        if (appUsagePercent > 0 && now >= appUsageUntil) {
+            appUsagePercent = 0;
+        }
+        pageUsageUntil.entrySet().removeIf(until -> {
+            if (now < until.getValue()) {
+                return false;
+            }
+            pageUsagePercent.remove(until.getKey());
+            return true;
+        });
+    }
+
+    /**
+     * X-App-Usage / X-Page-Usage look like {"call_count":28,"total_time":25,"total_cputime":25};
+     * the highest of the three is what Facebook throttles on.
+     */
+    static int parseUsagePercent(String header) {
+        try {
+            JsonNode usage = objectMapper.readTree(header);
+            int max = 0;
+            for (String field : new String[]{"call_count", "total_time", "total_cputime"}) {
+                max = Math.max(max, usage.path(field).asInt(0));
+            }
+            return max;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    /**
+     * X-Business-Use-Case-Usage maps business IDs to one usage object per use
+     * case: {"123":[{"type":"pages","call_count":28,"total_time":25,
+     * "total_cputime":25,"estimated_time_to_regain_access":0}]}. Returns the
+     * highest percentage across all of them.
+     */
+    static int parseBusinessUseCasePercent(String header) {
+        int max = 0;
+        for (JsonNode usage : businessUseCases(header)) {
+            for (String field : new String[]{"call_count", "total_time", "total_cputime"}) {
+                max = Math.max(max, usage.path(field).asInt(0));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Longest estimated_time_to_regain_access in X-Business-Use-Case-Usage, in
+     * milliseconds (Facebook reports minutes); 0 when no use case is blocked.
+     */
+    static long regainAccessMillis(String header) {
+        long minutes = 0;
+        for (JsonNode usage : businessUseCases(header)) {
+            minutes = Math.max(minutes, usage.path("estimated_time_to_regain_access").asLong(0));
+        }
+        return minutes * 60_000;
+    }
+
+    private static List<JsonNode> businessUseCases(String header) {
+        List<JsonNode> useCases = new ArrayList<>();
+        if (header == null || header.isBlank()) {
+            return useCases;
+        }
+        try {
+            for (JsonNode business : objectMapper.readTree(header)) {
+                business.forEach(useCases::add);
+            }
+        } catch (Exception e) {
+            // unreadable usage is treated as none
+        }
+        return useCases;
+    }
+}
@@ -0,0 +1,27 @@
+package com.webhook_wrapper.facebook;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A feed post as decoded by {@link GraphStreamParser}. Detail fields are null
+ * unless they were requested.
+ */
+public record Post(String id, String message, String permalinkUrl, String createdTime, String updatedTime) {
+
+    public boolean hasDetails() {
+        return permalinkUrl != null;
+    }
+
+    /**
+     * Post details in the map shape returned by fetchPostDetails.
+     */
+    public Map<String, Object> toDetails() {
+        Map<String, Object> details = new HashMap<>();
+        details.put("id", id);
+        details.put("message", message);
+        details.put("permalink_url", permalinkUrl);
+        details.put("created_time", createdTime);
+        return details;
+    }
+}
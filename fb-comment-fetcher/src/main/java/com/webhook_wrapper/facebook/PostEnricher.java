@@ -0,0 +1,134 @@
+package com.webhook_wrapper.facebook;
+
+import com.webhook_wrapper.config.AppProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves post details for a set of posts: cache hits are returned directly and
+ * misses are fetched concurrently on a bounded pool of
+ * app.fb.enrich-parallelism threads, grouped into Graph batch requests when
+ * app.fb.use-batch-api is on. Posts whose lookup fails get empty
+ * placeholder details and are not cached, so they are retried next cycle.
+ */
+@Component
+public class PostEnricher {
+    private static final Logger logger = LoggerFactory.getLogger(PostEnricher.class);
+    private final FacebookClient fbClient;
+    private final PostDetailsCache cache;
+    private final ExecutorService executor;
+    private final long timeoutMillis;
+    private final boolean useBatchApi;
+
+    public PostEnricher(FacebookClient fbClient, AppProperties appProperties) {
+        AppProperties.Fb fb = appProperties.getFb();
+        this.fbClient = fbClient;
+        this.cache = new PostDetailsCache(fb.getPostCacheMaxSize(), fb.getPostCacheTtlSeconds() * 1000L);
+        this.timeoutMillis = fb.getEnrichTimeoutSeconds() * 1000L;
+        this.useBatchApi = fb.isUseBatchApi();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, fb.getEnrichParallelism()), runnable -> {
+            Thread thread = new Thread(runnable, "post-enricher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Map<String, Map<String, Object>> enrich(Collection<String> postIds) {
+        Map<String, Map<String, Object>> details = new LinkedHashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String postId : postIds) {
+            Map<String, Object> cached = cache.get(postId);
+            if (cached != null) {
+                details.put(postId, cached);
+            } else {
+                misses.add(postId);
+            }
+        }
+
+        // One task per batch request (up to 50 posts), or one per post without the batch API
+        int chunkSize = useBatchApi ? FacebookClient.MAX_BATCH_SIZE : 1;
+        List<Future<Map<String, Map<String, Object>>>> pending = new ArrayList<>();
+        for (int start = 0; start < misses.size(); start += chunkSize) {
+            List<String> chunk = misses.subList(start, Math.min(misses.size(), start + chunkSize));
+            pending.add(executor.submit(GraphCallContext.wrap(() -> useBatchApi
+                    ? fbClient.fetchPostDetailsBatch(chunk)
+                    : Map.of(chunk.get(0), fbClient.fetchPostDetails(chunk.get(0))))));
+        }
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Future<Map<String, Map<String, Object>>> future : pending) {
+            try {
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                Map<String, Map<String, Object>> fetched = future.get(remaining, TimeUnit.MILLISECONDS);
+                fetched.forEach((postId, postDetails) -> {
+                    cache.put(postId, postDetails);
+                    details.put(postId, postDetails);
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | TimeoutException e) {
+                future.cancel(true);
+                logger.warn("Post details lookup failed: {}", AccessTokens.redact(e.getMessage()));
+            }
+        }
+
+        for (String postId : misses) {
+            if (!details.containsKey(postId)) {
+                logger.warn("Failed to fetch post details for {}, using basic info", postId);
+                details.put(postId, basicPostInfo(postId));
+            }
+        }
+
+        PostDetailsCache.Stats stats = cache.getStats();
+        logger.debug("Post details: {} cached, {} fetched in {} requests (cache size {}, hit rate {})",
+                postIds.size() - misses.size(), misses.size(), pending.size(), stats.size(),
+                String.format("%.2f", stats.hitRate()));
+        return details;
+    }
+
+    /**
+     * Seeds the cache with details that came back with the feed, so no lookup
+     * is needed for the post.
+     */
+    public void prime(String postId, Map<String, Object> postDetails) {
+        cache.put(postId, postDetails);
+    }
+
+    public PostDetailsCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static Map<String, Object> basicPostInfo(String postId) {
+        // Create basic post info if detailed fetch fails
+        Map<String, Object> basicPostInfo = new HashMap<>();
+        basicPostInfo.put("id", postId);
+        basicPostInfo.put("message", "");
+        basicPostInfo.put("permalink_url", "");
+        basicPostInfo.put("created_time", "");
+        return basicPostInfo;
+    }
+}
@@ -0,0 +1,83 @@
+package com.webhook_wrapper.metrics;
+
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.facebook.CommentTracker;
+import com.webhook_wrapper.facebook.GraphUsageBudget;
+import com.webhook_wrapper.outbox.CommentOutbox;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gauges over state other components already keep: tracker size, outbox
+ * depth and the Graph API usage percentages from the X-App-Usage and
+ * X-Page-Usage headers. Sampled when the registry is scraped.
+ */
+@Component
+public class CommentMetricsBinder implements MeterBinder {
+    private final AppProperties appProperties;
+    private final CommentTracker tracker;
+    private final CommentOutbox outbox;
+    private final GraphUsageBudget usageBudget;
+
+    public CommentMetricsBinder(AppProperties appProperties, CommentTracker tracker, CommentOutbox outbox,
+                                GraphUsageBudget usageBudget) {
+        this.appProperties = appProperties;
+        this.tracker = tracker;
+        this.outbox = outbox;
+        this.usageBudget = usageBudget;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("comment.tracker.size", tracker, CommentTracker::size)
+                .description("Comment IDs remembered for dedup")
+                .register(registry);
+        Gauge.builder("comment.outbox.backlog", outbox, CommentOutbox::getBacklogBytes)
+                .description("Outbox bytes not yet delivered to every sink")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("comment.outbox.delivered", outbox, CommentOutbox::getDeliveredRows)
+                .description("Rows the outbox delivered, once per sink")
+                .register(registry);
+        FunctionCounter.builder("comment.outbox.rejected", outbox, CommentOutbox::getRejectedRows)
+                .description("Rows a sink rejected for good and the outbox dropped")
+                .register(registry);
+
+        Gauge.builder("fb.graph.usage", usageBudget, GraphUsageBudget::getAppUsagePercent)
+                .description("Latest Graph API usage percentage reported by Facebook")
+                .tag("scope", "app")
+                .tag("page", "")
+                .baseUnit("percent")
+                .register(registry);
+        for (String pageId : pageIds()) {
+            Gauge.builder("fb.graph.usage", usageBudget, budget -> budget.getPageUsagePercent(pageId))
+                    .description("Latest Graph API usage percentage reported by Facebook")
+                    .tag("scope", "page")
+                    .tag("page", pageId)
+                    .baseUnit("percent")
+                    .register(registry);
+        }
+    }
+
+    private List<String> pageIds() {
+        List<String> pageIds = new ArrayList<>();
+        if (appProperties.getPages().isEmpty()) {
+            if (appProperties.getFb().getPageId() != null) {
+                pageIds.add(appProperties.getFb().getPageId());
+            }
+        } else {
+            for (AppProperties.Page page : appProperties.getPages()) {
+                if (page.getPageId() != null) {
+                    pageIds.add(page.getPageId());
+                }
+            }
+        }
+        return pageIds;
+    }
+}
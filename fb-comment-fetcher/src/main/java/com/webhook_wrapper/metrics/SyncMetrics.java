@@ -0,0 +1,115 @@
+package com.webhook_wrapper.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Meters for the sync hot path, published through Actuator at
+ * /actuator/metrics and /actuator/prometheus.
+ *
+ * Timers: fb.graph.request (tags call, outcome), comment.sink.write (sink)
+ * and comment.sync.cycle (page, outcome). Counters: comments.seen,
+ * comments.new and comments.deduped (source: poll or push), comments.written
+ * (sink), comments.failed (sink, retryable), api.retries (api, reason) and
+ * api.circuit.opened (api). Gauge comment.poll.interval
+ * (page) is the delay before each page's next cycle; the other gauges live in
+ * {@link CommentMetricsBinder}.
+ */
+@Component
+public class SyncMetrics {
+    private final MeterRegistry registry;
+    private final Map<String, AtomicLong> pollIntervals = new ConcurrentHashMap<>();
+
+    public SyncMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * One Graph API call: feed, detail, batch or page.
+     */
+    public void graphCall(Timer.Sample sample, String call, boolean success) {
+        sample.stop(Timer.builder("fb.graph.request")
+                .description("Graph API calls, including reading the response body")
+                .tag("call", call)
+                .tag("outcome", outcome(success))
+                .register(registry));
+    }
+
+    /**
+     * One write call to a sink and what became of its rows.
+     */
+    public void sinkWrite(Timer.Sample sample, String sink, int written, int failedRetryable, int failedForGood) {
+        sample.stop(Timer.builder("comment.sink.write")
+                .description("Batched writes to a comment sink")
+                .tag("sink", sink)
+                .register(registry));
+        increment(Counter.builder("comments.written").tag("sink", sink), written);
+        increment(Counter.builder("comments.failed").tag("sink", sink).tag("retryable", "true"), failedRetryable);
+        increment(Counter.builder("comments.failed").tag("sink", sink).tag("retryable", "false"), failedForGood);
+    }
+
+    public void syncCycle(Timer.Sample sample, String pageId, boolean success) {
+        sample.stop(Timer.builder("comment.sync.cycle")
+                .description("Full sync cycles for a page")
+                .tag("page", String.valueOf(pageId))
+                .tag("outcome", outcome(success))
+                .register(registry));
+    }
+
+    /**
+     * Comments looked at by a sync cycle or webhook delivery, and how many of
+     * them the tracker had not seen before.
+     */
+    public void comments(String source, int seen, int fresh) {
+        increment(Counter.builder("comments.seen").tag("source", source), seen);
+        increment(Counter.builder("comments.new").tag("source", source), fresh);
+        increment(Counter.builder("comments.deduped").tag("source", source), seen - fresh);
+    }
+
+    /**
+     * A Graph or Sheets call about to be retried; reason is throttled or transient.
+     */
+    public void apiRetry(String api, String reason) {
+        increment(Counter.builder("api.retries").tag("api", api).tag("reason", reason), 1);
+    }
+
+    public void circuitOpened(String api) {
+        increment(Counter.builder("api.circuit.opened").tag("api", api), 1);
+    }
+
+    /**
+     * Holder for the page's next poll delay in milliseconds, registered as a gauge on first use.
+     */
+    public AtomicLong pollInterval(String pageId) {
+        return pollIntervals.computeIfAbsent(String.valueOf(pageId), page -> {
+            AtomicLong millis = new AtomicLong();
+            Gauge.builder("comment.poll.interval", millis, value -> value.get() / 1000.0)
+                    .description("Delay before the page's next sync cycle")
+                    .tag("page", page)
+                    .baseUnit("seconds")
+                    .register(registry);
+            return millis;
+        });
+    }
+
+    private void increment(Counter.Builder counter, int amount) {
+        if (amount > 0) {
+            counter.register(registry).increment(amount);
+        }
+    }
+
+    private static String outcome(boolean success) {
+        return success ? "success" : "error";
+    }
+}
@@ -0,0 +1,243 @@
+package com.webhook_wrapper.outbox;
+
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.sheets.BatchAppendResult;
+import com.webhook_wrapper.sheets.CommentRow;
+import com.webhook_wrapper.sink.CommentSink;
+import com.webhook_wrapper.sink.CommentSinks;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-ahead outbox between comment detection and the sinks.
+ *
+ * Detected rows are appended to an {@link OutboxLog} and fsynced before the
+ * caller moves on. Each {@link CommentSink} then has a drain thread of its
+ * own that delivers them in log order from that sink's checkpoint. Rows that
+ * fail for retryable reasons (quota, outage) are retried with exponential
+ * backoff, and a sink's checkpoint only moves past a batch once it has taken
+ * every row in it. A crash or restart redelivers each sink's rows from its own
+ * checkpoint, and a sink that is down holds back nobody but itself. Rows a
+ * sink rejects outright are logged and skipped for that sink.
+ */
+@Component
+public class CommentOutbox {
+    private static final Logger logger = LoggerFactory.getLogger(CommentOutbox.class);
+
+    private final CommentSinks sinks;
+    private final boolean enabled;
+    private final Path dir;
+    private final long segmentBytes;
+    private final boolean fsync;
+    private final int drainBatchSize;
+    private final long retryInitialMs;
+    private final long retryMaxMs;
+
+    private final Object appended = new Object();
+    private final AtomicLong deliveredRows = new AtomicLong();
+    private final AtomicLong rejectedRows = new AtomicLong();
+    private OutboxLog log;
+    private final List<Thread> drainThreads = new ArrayList<>();
+    private volatile boolean running;
+
+    public CommentOutbox(AppProperties appProperties, CommentSinks sinks) {
+        AppProperties.Outbox outbox = appProperties.getOutbox();
+        this.sinks = sinks;
+        this.enabled = outbox.isEnabled();
+        this.dir = Path.of(outbox.getDir());
+        this.segmentBytes = outbox.getSegmentBytes();
+        this.fsync = outbox.isFsync();
+        this.drainBatchSize = Math.max(1, outbox.getDrainBatchSize());
+        this.retryInitialMs = Math.max(1, outbox.getRetryInitialMs());
+        this.retryMaxMs = Math.max(this.retryInitialMs, outbox.getRetryMaxMs());
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            logger.info("Comment outbox disabled; rows go straight to the sinks");
+            return;
+        }
+        if (sinks.isEmpty()) {
+            // rows stay in the log until a sink is configured
+            log = OutboxLog.open(dir, segmentBytes, fsync);
+            return;
+        }
+        List<String> consumers = consumerNames();
+        log = OutboxLog.open(dir, segmentBytes, fsync, consumers);
+        running = true;
+        for (int i = 0; i < consumers.size(); i++) {
+            int sinkIndex = i;
+            String consumer = consumers.get(i);
+            logger.info("Comment outbox opened at {}: {} bytes waiting for sink {} from a previous run",
+                    dir, log.getBacklogBytes(consumer), consumer);
+            Thread drainThread = new Thread(() -> drainLoop(sinkIndex, consumer), "comment-outbox-drain-" + consumer);
+            drainThread.setDaemon(true);
+            drainThread.start();
+            drainThreads.add(drainThread);
+        }
+    }
+
+    // One checkpoint per sink, named after it; a second sink of the same name gets a suffix
+    private List<String> consumerNames() {
+        List<String> consumers = new ArrayList<>();
+        for (String name : sinks.names()) {
+            String consumer = name.replaceAll("[^A-Za-z0-9_-]", "_");
+            String unique = consumer;
+            for (int n = 2; consumers.contains(unique); n++) {
+                unique = consumer + "-" + n;
+            }
+            consumers.add(unique);
+        }
+        return consumers;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Durably queues rows for the given sheet (null for the default target).
+     * Returns once the rows are on disk; delivery happens on the drain thread.
+     */
+    public void enqueue(String sheetId, String range, List<CommentRow> rows) throws IOException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<byte[]> payloads = new ArrayList<>(rows.size());
+        for (CommentRow row : rows) {
+            payloads.add(new OutboxEntry(sheetId, range, row).encode());
+        }
+        log.append(payloads);
+        synchronized (appended) {
+            appended.notifyAll();
+        }
+    }
+
+    /**
+     * Bytes not yet delivered to every sink.
+     */
+    public long getBacklogBytes() {
+        return log != null ? log.getBacklogBytes() : 0;
+    }
+
+    /**
+     * Rows written since startup, counted once per sink that took them.
+     */
+    public long getDeliveredRows() {
+        return deliveredRows.get();
+    }
+
+    public long getRejectedRows() {
+        return rejectedRows.get();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        running = false;
+        for (Thread drainThread : drainThreads) {
+            drainThread.interrupt();
+        }
+        for (Thread drainThread : drainThreads) {
+            try {
+                drainThread.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    private void drainLoop(int sinkIndex, String consumer) {
+        while (running) {
+            try {
+                List<OutboxLog.Record> batch = log.read(log.getCheckpoint(consumer), drainBatchSize);
+                if (batch.isEmpty()) {
+                    synchronized (appended) {
+                        if (log.getBacklogBytes(consumer) == 0) {
+                            appended.wait(1000);
+                        }
+                    }
+                    continue;
+                }
+                deliver(batch, sinkIndex);
+                log.commit(consumer, batch.get(batch.size() - 1).nextOffset());
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | UncheckedIOException e) {
+                logger.error("Outbox drain for sink {} failed, retrying in {} ms: {}", consumer, retryMaxMs,
+                        e.getMessage());
+                try {
+                    Thread.sleep(retryMaxMs);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Delivers one batch to the sinkIndex-th sink, grouped by target sheet,
+     * and returns only when it has either taken or rejected for good every row.
+     */
+    void deliver(List<OutboxLog.Record> batch, int sinkIndex) throws InterruptedException {
+        Map<String, List<OutboxEntry>> byTarget = new LinkedHashMap<>();
+        for (OutboxLog.Record record : batch) {
+            try {
+                OutboxEntry entry = OutboxEntry.decode(record.payload());
+                byTarget.computeIfAbsent(entry.target(), target -> new ArrayList<>()).add(entry);
+            } catch (IOException e) {
+                logger.error("Skipping unreadable outbox record at offset {}: {}", record.offset(), e.getMessage());
+            }
+        }
+
+        for (List<OutboxEntry> entries : byTarget.values()) {
+            OutboxEntry first = entries.get(0);
+            List<CommentRow> rows = new ArrayList<>(entries.size());
+            for (OutboxEntry entry : entries) {
+                rows.add(entry.row());
+            }
+            deliverTo(sinks.forTarget(first.sheetId(), first.range()).get(sinkIndex), rows);
+        }
+    }
+
+    private void deliverTo(CommentSink sink, List<CommentRow> rows) throws InterruptedException {
+        List<CommentRow> pending = rows;
+        long delay = retryInitialMs;
+        while (!pending.isEmpty()) {
+            BatchAppendResult result = sinks.writeChunked(sink, pending);
+            deliveredRows.addAndGet(result.getAppendedRows());
+            List<CommentRow> retry = new ArrayList<>();
+            for (BatchAppendResult.RowFailure failure : result.getFailures()) {
+                if (failure.retryable()) {
+                    retry.add(failure.row());
+                } else {
+                    rejectedRows.incrementAndGet();
+                    logger.error("Sink {} rejected comment {}, dropping it from the outbox: {}",
+                            sink.name(), failure.row().commentId(), failure.error());
+                }
+            }
+            if (!retry.isEmpty()) {
+                logger.warn("{} rows could not be written to sink {}, retrying in {} ms: {}",
+                        retry.size(), sink.name(), delay, result.getFailures().get(0).error());
+                Thread.sleep(delay);
+                delay = Math.min(delay * 2, retryMaxMs);
+            }
+            pending = retry;
+        }
+    }
+}
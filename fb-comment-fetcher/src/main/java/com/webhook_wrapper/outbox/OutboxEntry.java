@@ -0,0 +1,97 @@
+package com.webhook_wrapper.outbox;
+
+import com.webhook_wrapper.sheets.CommentRow;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A row waiting in the outbox, with the sheet it is going to. A null sheetId
+ * or range means the default google.* target.
+ */
+public record OutboxEntry(String sheetId, String range, CommentRow row) {
+    private static final byte VERSION = 1;
+
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            writeString(out, sheetId);
+            writeString(out, range);
+            writeString(out, row.timestamp());
+            writeString(out, row.pageId());
+            writeString(out, row.commentId());
+            writeString(out, row.name());
+            writeString(out, row.fromId());
+            writeString(out, row.message());
+            writeString(out, row.phone());
+            out.writeInt(row.extras().size());
+            for (String extra : row.extras()) {
+                writeString(out, extra);
+            }
+            writeString(out, row.parentId());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static OutboxEntry decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unknown outbox entry version " + version);
+        }
+        String sheetId = readString(in);
+        String range = readString(in);
+        String timestamp = readString(in);
+        String pageId = readString(in);
+        String commentId = readString(in);
+        String name = readString(in);
+        String fromId = readString(in);
+        String message = readString(in);
+        String phone = readString(in);
+        List<String> extras = new ArrayList<>();
+        for (int count = in.readInt(); count > 0; count--) {
+            extras.add(readString(in));
+        }
+        String parentId = readString(in);
+        return new OutboxEntry(sheetId, range,
+                new CommentRow(timestamp, pageId, commentId, name, fromId, message, phone, extras, parentId));
+    }
+
+    /**
+     * Key of the sheet this entry goes to, for grouping a batch by target.
+     */
+    String target() {
+        return sheetId + "|" + range;
+    }
+
+    // Length-prefixed UTF-8, -1 for null; writeUTF caps out at 64KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,357 @@
+package com.webhook_wrapper.outbox;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Segmented append-only log of opaque records, read by one or more named
+ * consumers that each keep their own checkpoint.
+ *
+ * Records are framed as (int length, int crc32, payload) and addressed by a
+ * logical offset: the segment's base offset plus the position inside it.
+ * Segments are named after their base offset and rolled once they pass
+ * segmentBytes. A batch of records is written with one write and made durable
+ * with one fsync, and only durable records are visible to {@link #read}.
+ *
+ * On open a torn record at the end of the last segment (crash mid-write) is
+ * truncated away. Segments that lie entirely before every consumer's
+ * checkpoint are deleted when a checkpoint moves. A consumer without a
+ * checkpoint of its own starts from the single shared checkpoint of the
+ * default consumer, which is what logs written before consumers had names
+ * recorded.
+ */
+public class OutboxLog implements Closeable {
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final Pattern CONSUMER_NAME = Pattern.compile("[A-Za-z0-9_-]+");
+    /**
+     * The consumer of {@link #open(Path, long, boolean)}, checkpointed in the shared file.
+     */
+    public static final String DEFAULT_CONSUMER = "";
+    private static final int FRAME_BYTES = 8;
+    static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final boolean fsync;
+    private final NavigableMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+
+    private FileChannel channel;
+    private long segmentBase;
+    // End of the records readers may see: written and, with fsync on, forced
+    private volatile long endOffset;
+    private final Map<String, Long> checkpoints = new ConcurrentHashMap<>();
+
+    public record Record(long offset, long nextOffset, byte[] payload) {
+    }
+
+    private OutboxLog(Path dir, long segmentBytes, boolean fsync) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+    }
+
+    public static OutboxLog open(Path dir, long segmentBytes, boolean fsync) throws IOException {
+        return open(dir, segmentBytes, fsync, List.of(DEFAULT_CONSUMER));
+    }
+
+    /**
+     * Opens the log for the given consumers, each reading from its own checkpoint.
+     */
+    public static OutboxLog open(Path dir, long segmentBytes, boolean fsync, Collection<String> consumers)
+            throws IOException {
+        if (consumers.isEmpty()) {
+            throw new IllegalArgumentException("An outbox log needs at least one consumer");
+        }
+        for (String consumer : consumers) {
+            if (!consumer.equals(DEFAULT_CONSUMER) && !CONSUMER_NAME.matcher(consumer).matches()) {
+                throw new IllegalArgumentException("Outbox consumer names are letters, digits, _ and -: " + consumer);
+            }
+        }
+        Files.createDirectories(dir);
+        OutboxLog log = new OutboxLog(dir, Math.max(FRAME_BYTES + 1, segmentBytes), fsync);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                log.segments.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        }
+        if (log.segments.isEmpty()) {
+            log.segments.put(0L, log.segmentPath(0));
+        }
+
+        Map.Entry<Long, Path> last = log.segments.lastEntry();
+        log.segmentBase = last.getKey();
+        log.channel = FileChannel.open(last.getValue(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long valid = validLength(log.channel);
+        if (valid < log.channel.size()) {
+            log.channel.truncate(valid);
+            log.channel.force(true);
+        }
+        log.channel.position(valid);
+        log.endOffset = log.segmentBase + valid;
+
+        long shared = log.readCheckpoint(CHECKPOINT_FILE);
+        for (String consumer : consumers) {
+            long saved = consumer.equals(DEFAULT_CONSUMER) ? shared : log.readCheckpoint(checkpointFile(consumer));
+            if (saved < 0) {
+                saved = Math.max(0, shared);
+            }
+            log.checkpoints.put(consumer, Math.max(log.segments.firstKey(), Math.min(saved, log.endOffset)));
+        }
+        return log;
+    }
+
+    /**
+     * Appends the payloads as consecutive records and makes them durable.
+     *
+     * @return the offset just past the last record written
+     */
+    public synchronized long append(List<byte[]> payloads) throws IOException {
+        if (payloads.isEmpty()) {
+            return endOffset;
+        }
+        long position = channel.position();
+        ByteBuffer batch = null;
+        for (byte[] payload : payloads) {
+            if (payload.length > MAX_RECORD_BYTES) {
+                throw new IOException("Outbox record of " + payload.length + " bytes exceeds " + MAX_RECORD_BYTES);
+            }
+            int frame = FRAME_BYTES + payload.length;
+            if (position > 0 && position + frame > segmentBytes) {
+                writeFully(batch);
+                batch = null;
+                roll(segmentBase + position);
+                position = 0;
+            }
+            if (batch == null) {
+                batch = ByteBuffer.allocate(batchCapacity(payloads));
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            batch.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            position += frame;
+        }
+        writeFully(batch);
+        if (fsync) {
+            channel.force(false);
+        }
+        endOffset = segmentBase + position;
+        return endOffset;
+    }
+
+    /**
+     * Reads up to maxRecords durable records starting at offset.
+     */
+    public List<Record> read(long offset, int maxRecords) throws IOException {
+        List<Record> records = new ArrayList<>();
+        long end = endOffset;
+        while (records.size() < maxRecords && offset < end) {
+            Map.Entry<Long, Path> segment = segments.floorEntry(offset);
+            if (segment == null) {
+                throw new IOException("Outbox offset " + offset + " is before the oldest segment");
+            }
+            Long nextBase = segments.higherKey(segment.getKey());
+            long segmentEnd = nextBase != null ? nextBase : end;
+            if (offset >= segmentEnd) {
+                offset = nextBase;
+                continue;
+            }
+            try (FileChannel reader = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+                long position = offset - segment.getKey();
+                ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES);
+                while (records.size() < maxRecords && offset < segmentEnd) {
+                    frame.clear();
+                    readFully(reader, frame, position);
+                    int length = frame.getInt(0);
+                    if (length < 0 || length > MAX_RECORD_BYTES) {
+                        throw new IOException("Corrupt outbox record at offset " + offset);
+                    }
+                    ByteBuffer payload = ByteBuffer.allocate(length);
+                    readFully(reader, payload, position + FRAME_BYTES);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload.array());
+                    if ((int) crc.getValue() != frame.getInt(4)) {
+                        throw new IOException("Checksum mismatch in outbox record at offset " + offset);
+                    }
+                    long next = offset + FRAME_BYTES + length;
+                    records.add(new Record(offset, next, payload.array()));
+                    offset = next;
+                    position += FRAME_BYTES + length;
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Moves the default consumer's checkpoint and drops segments that are fully consumed.
+     */
+    public void commit(long offset) throws IOException {
+        commit(DEFAULT_CONSUMER, offset);
+    }
+
+    /**
+     * Moves the consumer's checkpoint and drops segments that every consumer is past.
+     */
+    public synchronized void commit(String consumer, long offset) throws IOException {
+        if (offset <= getCheckpoint(consumer)) {
+            return;
+        }
+        String file = checkpointFile(consumer);
+        Path tmp = dir.resolve(file + ".tmp");
+        Files.writeString(tmp, Long.toString(offset), StandardCharsets.UTF_8);
+        Files.move(tmp, dir.resolve(file), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpoints.put(consumer, offset);
+
+        long consumed = getCheckpoint();
+        for (Map.Entry<Long, Path> segment : segments.headMap(segmentBase, false).entrySet()) {
+            Long nextBase = segments.higherKey(segment.getKey());
+            if (nextBase != null && nextBase <= consumed) {
+                segments.remove(segment.getKey());
+                Files.deleteIfExists(segment.getValue());
+            }
+        }
+    }
+
+    /**
+     * The checkpoint of the consumer furthest behind: everything before it has been read by all.
+     */
+    public long getCheckpoint() {
+        long oldest = Long.MAX_VALUE;
+        for (long checkpoint : checkpoints.values()) {
+            oldest = Math.min(oldest, checkpoint);
+        }
+        return oldest;
+    }
+
+    public long getCheckpoint(String consumer) {
+        Long checkpoint = checkpoints.get(consumer);
+        if (checkpoint == null) {
+            throw new IllegalArgumentException("Not a consumer of this outbox log: " + consumer);
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Bytes written but not yet consumed by every consumer.
+     */
+    public long getBacklogBytes() {
+        return endOffset - getCheckpoint();
+    }
+
+    public long getBacklogBytes(String consumer) {
+        return endOffset - getCheckpoint(consumer);
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    private void roll(long newBase) throws IOException {
+        channel.force(false);
+        channel.close();
+        Path path = segmentPath(newBase);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segmentBase = newBase;
+        segments.put(newBase, path);
+    }
+
+    private void writeFully(ByteBuffer batch) throws IOException {
+        if (batch == null) {
+            return;
+        }
+        batch.flip();
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+    }
+
+    // -1 when the file does not exist
+    private long readCheckpoint(String name) throws IOException {
+        Path file = dir.resolve(name);
+        if (!Files.exists(file)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(Files.readString(file, StandardCharsets.UTF_8).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Unreadable outbox checkpoint " + file, e);
+        }
+    }
+
+    private static String checkpointFile(String consumer) {
+        return consumer.equals(DEFAULT_CONSUMER) ? CHECKPOINT_FILE : CHECKPOINT_FILE + "-" + consumer;
+    }
+
+    private Path segmentPath(long base) {
+        return dir.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+    }
+
+    // Length of the prefix of whole, checksummed records
+    private static long validLength(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES);
+        while (position + FRAME_BYTES <= size) {
+            frame.clear();
+            readFully(channel, frame, position);
+            int length = frame.getInt(0);
+            if (length < 0 || length > MAX_RECORD_BYTES || position + FRAME_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, position + FRAME_BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != frame.getInt(4)) {
+                break;
+            }
+            position += FRAME_BYTES + length;
+        }
+        return position;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of outbox segment");
+            }
+        }
+    }
+
+    private static int batchCapacity(List<byte[]> payloads) {
+        long total = 0;
+        for (byte[] payload : payloads) {
+            total += FRAME_BYTES + payload.length;
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE - 8);
+    }
+}
@@ -0,0 +1,231 @@
+package com.webhook_wrapper.resilience;
+
+import com.webhook_wrapper.config.AppProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Retries and circuit breaking for calls to one API, with a
+ * {@link CircuitBreaker} per key (a page, a spreadsheet).
+ *
+ * A throttled call that says when its quota resets is retried just after
+ * that time plus some jitter, so concurrent callers do not all come back at
+ * once; if the reset is further off than app.resilience.max-wait-ms the
+ * circuit opens until then instead. Other transient failures back off
+ * exponentially with jitter. Sustained failure opens the circuit, and calls
+ * fail fast with {@link CircuitOpenException} until a probe gets through.
+ * A failure the API will repeat, such as a bad request, is not retried and
+ * does not count against the circuit.
+ */
+public class ApiGuard {
+    private static final Logger logger = LoggerFactory.getLogger(ApiGuard.class);
+
+    public enum Kind {
+        THROTTLED, TRANSIENT, PERMANENT
+    }
+
+    /**
+     * What a failed attempt means for retrying it.
+     *
+     * @param retryAfterMillis how long the API asked us to wait, 0 if it did not say
+     */
+    public record Failure(Kind kind, long retryAfterMillis) {
+        public static final Failure PERMANENT = new Failure(Kind.PERMANENT, 0);
+
+        public static Failure throttled(long retryAfterMillis) {
+            return new Failure(Kind.THROTTLED, retryAfterMillis);
+        }
+
+        public static Failure transientError(long retryAfterMillis) {
+            return new Failure(Kind.TRANSIENT, retryAfterMillis);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Hears about retries and opened circuits, for metrics.
+     */
+    public interface Listener {
+        Listener NONE = new Listener() {
+        };
+
+        default void onRetry(String api, Kind kind) {
+        }
+
+        default void onCircuitOpened(String api, String key) {
+        }
+    }
+
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    private final String api;
+    private final AppProperties.Resilience settings;
+    private final Listener listener;
+    private final LongSupplier clock;
+    private final Sleeper sleeper;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public ApiGuard(String api, AppProperties.Resilience settings, Listener listener) {
+        this(api, settings, listener, System::currentTimeMillis, Thread::sleep);
+    }
+
+    ApiGuard(String api, AppProperties.Resilience settings, Listener listener, LongSupplier clock, Sleeper sleeper) {
+        this.api = api;
+        this.settings = settings;
+        this.listener = listener;
+        this.clock = clock;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * Runs the attempt until it succeeds, the classifier calls its failure
+     * permanent, attempts run out or the circuit opens; then the last
+     * exception is rethrown.
+     */
+    public <T> T call(String key, Attempt<T> attempt, Function<IOException, Failure> classifier) throws IOException {
+        for (int n = 1; ; n++) {
+            beforeAttempt(key);
+            try {
+                T result = attempt.run();
+                onSuccess(key);
+                return result;
+            } catch (IOException e) {
+                long delay = afterFailure(key, classifier.apply(e), n);
+                if (delay < 0) {
+                    throw e;
+                }
+                sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Fails fast while the key's circuit is open.
+     */
+    public void beforeAttempt(String key) throws CircuitOpenException {
+        CircuitBreaker breaker = breaker(key);
+        if (!breaker.tryAcquire()) {
+            long remaining = breaker.remainingOpenMillis();
+            throw new CircuitOpenException(api + " circuit open for " + key + ", next try in " + remaining + " ms",
+                    remaining);
+        }
+    }
+
+    public void onSuccess(String key) {
+        breaker(key).onSuccess();
+    }
+
+    /**
+     * Records a failed attempt and returns how long to wait before the next
+     * one, or -1 to give up.
+     *
+     * @param attempt 1 for the first attempt
+     */
+    public long afterFailure(String key, Failure failure, int attempt) {
+        CircuitBreaker breaker = breaker(key);
+        if (failure.kind() == Kind.PERMANENT) {
+            // the API answered properly, it just will not take this call
+            breaker.onSuccess();
+            return -1;
+        }
+        if (failure.retryAfterMillis() > settings.getMaxWaitMs()) {
+            if (breaker.openUntil(clock.getAsLong() + failure.retryAfterMillis())) {
+                circuitOpened(key, failure.retryAfterMillis(), "quota resets in");
+            }
+            return -1;
+        }
+        if (breaker.onFailure()) {
+            circuitOpened(key, breaker.remainingOpenMillis(), "failing, pausing for");
+            return -1;
+        }
+        if (attempt >= settings.getMaxAttempts()) {
+            return -1;
+        }
+        long delay = failure.retryAfterMillis() > 0
+                ? failure.retryAfterMillis() + ThreadLocalRandom.current().nextLong(settings.getInitialBackoffMs() + 1)
+                : backoffMillis(attempt);
+        listener.onRetry(api, failure.kind());
+        logger.debug("{} call for {} {} on attempt {}, retrying in {} ms", api, key,
+                failure.kind() == Kind.THROTTLED ? "throttled" : "failed", attempt, delay);
+        return delay;
+    }
+
+    /**
+     * Exponential backoff with equal jitter: half the step is fixed, the other half random.
+     */
+    long backoffMillis(int attempt) {
+        long step = settings.getInitialBackoffMs() << Math.min(20, Math.max(0, attempt - 1));
+        long cap = Math.max(1, Math.min(settings.getMaxBackoffMs(), step));
+        return cap / 2 + ThreadLocalRandom.current().nextLong(cap - cap / 2 + 1);
+    }
+
+    /**
+     * How long the key's circuit stays open, 0 when it is not.
+     */
+    public long remainingOpenMillis(String key) {
+        CircuitBreaker breaker = breakers.get(key);
+        return breaker != null ? breaker.remainingOpenMillis() : 0;
+    }
+
+    public CircuitBreaker.State getState(String key) {
+        CircuitBreaker breaker = breakers.get(key);
+        return breaker != null ? breaker.getState() : CircuitBreaker.State.CLOSED;
+    }
+
+    public void sleep(long millis) throws InterruptedIOException {
+        try {
+            sleeper.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting to retry " + api + " call");
+        }
+    }
+
+    /**
+     * Retry-After in milliseconds, given either as seconds or as an HTTP
+     * date; 0 when absent or unreadable.
+     */
+    public static long parseRetryAfter(String header) {
+        if (header == null || header.isBlank()) {
+            return 0;
+        }
+        String value = header.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                long at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+                return Math.max(0, at - System.currentTimeMillis());
+            } catch (DateTimeParseException notADate) {
+                return 0;
+            }
+        }
+    }
+
+    private void circuitOpened(String key, long millis, String reason) {
+        listener.onCircuitOpened(api, key);
+        logger.warn("{} circuit opened for {}: {} {} ms", api, key, reason, millis);
+    }
+
+    private CircuitBreaker breaker(String key) {
+        return breakers.computeIfAbsent(key, k -> new CircuitBreaker(settings.getFailureThreshold(),
+                settings.getOpenSeconds() * 1000L, clock));
+    }
+}
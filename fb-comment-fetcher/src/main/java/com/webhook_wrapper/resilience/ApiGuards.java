@@ -0,0 +1,39 @@
+package com.webhook_wrapper.resilience;
+
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.metrics.SyncMetrics;
+import org.springframework.stereotype.Component;
+
+/**
+ * The {@link ApiGuard}s shared by everything calling Graph and Sheets, so a
+ * circuit opened by one caller holds back the others too.
+ */
+@Component
+public class ApiGuards {
+    private final ApiGuard graph;
+    private final ApiGuard sheets;
+
+    public ApiGuards(AppProperties appProperties, SyncMetrics metrics) {
+        ApiGuard.Listener listener = new ApiGuard.Listener() {
+            @Override
+            public void onRetry(String api, ApiGuard.Kind kind) {
+                metrics.apiRetry(api, kind.name().toLowerCase());
+            }
+
+            @Override
+            public void onCircuitOpened(String api, String key) {
+                metrics.circuitOpened(api);
+            }
+        };
+        this.graph = new ApiGuard("graph", appProperties.getResilience(), listener);
+        this.sheets = new ApiGuard("sheets", appProperties.getResilience(), listener);
+    }
+
+    public ApiGuard graph() {
+        return graph;
+    }
+
+    public ApiGuard sheets() {
+        return sheets;
+    }
+}
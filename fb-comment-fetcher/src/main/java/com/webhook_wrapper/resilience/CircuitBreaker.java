@@ -0,0 +1,102 @@
+package com.webhook_wrapper.resilience;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Consecutive-failure circuit breaker for one API target.
+ *
+ * Closed, calls go through. After failureThreshold failures in a row the
+ * circuit opens for openMillis, or until the reset time the API reported
+ * when that is later, and calls fail fast. Once that has passed one probe
+ * call is let through (half open): success closes the circuit, failure opens
+ * it again. A probe that never reports back is replaced after openMillis.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+    private long probeStartedAt;
+
+    public CircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(0, openMillis);
+        this.clock = clock;
+    }
+
+    /**
+     * True if a call may go out now. In the half-open state only the first
+     * caller gets through until its outcome is recorded.
+     */
+    public synchronized boolean tryAcquire() {
+        long now = clock.getAsLong();
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now < openUntil) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probeStartedAt = now;
+                return true;
+            default:
+                if (now - probeStartedAt < openMillis) {
+                    return false;
+                }
+                probeStartedAt = now;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Counts a failure and returns true if it opened the circuit.
+     */
+    public synchronized boolean onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            open(clock.getAsLong() + openMillis);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Opens the circuit until at least the given time, for an API that has
+     * said when its quota resets. Returns true if the circuit was not open already.
+     */
+    public synchronized boolean openUntil(long resetAt) {
+        boolean wasOpen = state == State.OPEN;
+        open(Math.max(resetAt, wasOpen ? openUntil : 0));
+        return !wasOpen;
+    }
+
+    private void open(long until) {
+        state = State.OPEN;
+        openUntil = until;
+    }
+
+    /**
+     * Time left before a probe may go out, 0 unless the circuit is open.
+     */
+    public synchronized long remainingOpenMillis() {
+        return state == State.OPEN ? Math.max(0, openUntil - clock.getAsLong()) : 0;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
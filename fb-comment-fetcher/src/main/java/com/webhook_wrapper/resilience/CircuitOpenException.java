@@ -0,0 +1,22 @@
+package com.webhook_wrapper.resilience;
+
+import java.io.IOException;
+
+/**
+ * A call refused without being sent because the target's circuit is open.
+ */
+public class CircuitOpenException extends IOException {
+    private final long retryAfterMillis;
+
+    public CircuitOpenException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * How long until the circuit lets a probe call through.
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,56 @@
+package com.webhook_wrapper.scheduler;
+
+import com.webhook_wrapper.config.AppProperties;
+
+/**
+ * Picks the delay before a page's next sync cycle.
+ *
+ * While comments are arriving the delay is sized so that a poll picks up
+ * about target-comments-per-poll of them. After a cycle that found nothing
+ * the previous delay grows by backoff-multiplier instead. Either way the
+ * result is kept between the min and max interval and then stretched by the
+ * share of the Graph API budget still available, so pages slow down before
+ * Facebook starts throttling them.
+ */
+class AdaptivePollPolicy {
+    private final long minMillis;
+    private final long maxMillis;
+    private final double targetCommentsPerPoll;
+    private final double backoffMultiplier;
+
+    AdaptivePollPolicy(AppProperties.Polling polling) {
+        this.minMillis = Math.max(1, polling.getMinIntervalSeconds()) * 1000L;
+        this.maxMillis = Math.max(this.minMillis, polling.getMaxIntervalSeconds() * 1000L);
+        this.targetCommentsPerPoll = Math.max(1, polling.getTargetCommentsPerPoll());
+        this.backoffMultiplier = Math.max(1, polling.getBackoffMultiplier());
+    }
+
+    /**
+     * @param previousMillis   delay used before the cycle that just finished
+     * @param newComments      new comments that cycle found
+     * @param ratePerSecond    the page's current comment rate
+     * @param budgetHeadroom   share of the Graph API budget available, 0 to 1
+     */
+    long nextDelayMillis(long previousMillis, int newComments, double ratePerSecond, double budgetHeadroom) {
+        double delay;
+        if (ratePerSecond <= 0) {
+            delay = newComments > 0 ? previousMillis : previousMillis * backoffMultiplier;
+        } else {
+            double byRate = targetCommentsPerPoll / ratePerSecond * 1000;
+            delay = newComments > 0 ? byRate : Math.max(previousMillis * backoffMultiplier, byRate);
+        }
+        delay = clamp(delay);
+        if (budgetHeadroom < 1) {
+            delay = budgetHeadroom > 0 ? delay / budgetHeadroom : maxMillis;
+        }
+        return (long) clamp(delay);
+    }
+
+    long clampMillis(long millis) {
+        return (long) clamp(millis);
+    }
+
+    private double clamp(double millis) {
+        return Math.max(minMillis, Math.min(maxMillis, millis));
+    }
+}
@@ -0,0 +1,197 @@
+package com.webhook_wrapper.scheduler;
+
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.extract.CommentFieldExtraction;
+import com.webhook_wrapper.extract.GraphTimestamps;
+import com.webhook_wrapper.facebook.AccessTokens;
+import com.webhook_wrapper.facebook.CommentTracker;
+import com.webhook_wrapper.facebook.GraphCallContext;
+import com.webhook_wrapper.facebook.PostEnricher;
+import com.webhook_wrapper.metrics.SyncMetrics;
+import com.webhook_wrapper.outbox.CommentOutbox;
+import com.webhook_wrapper.sheets.BatchAppendResult;
+import com.webhook_wrapper.sheets.CommentRow;
+import com.webhook_wrapper.sink.CommentSinks;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The shared back half of every ingestion path: enrich the posts that have new
+ * comments, turn each comment into a row and write the rows in batches to
+ * every configured sink.
+ * Used by the polling scheduler and by the webhook receiver.
+ */
+@Component
+public class CommentIngestService {
+    private static final Logger logger = LoggerFactory.getLogger(CommentIngestService.class);
+
+    private final CommentTracker tracker;
+    private final CommentSinks sinks;
+    private final PostEnricher postEnricher;
+    private final CommentOutbox outbox;
+    private final CommentFieldExtraction fieldExtraction;
+    private final SyncMetrics metrics;
+    // Push deliveries are handed off here so the webhook can acknowledge immediately
+    private final ExecutorService pushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "comment-push-ingest");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CommentIngestService(CommentTracker tracker, CommentSinks sinks, PostEnricher postEnricher,
+                                CommentOutbox outbox, CommentFieldExtraction fieldExtraction, SyncMetrics metrics) {
+        this.tracker = tracker;
+        this.sinks = sinks;
+        this.postEnricher = postEnricher;
+        this.outbox = outbox;
+        this.fieldExtraction = fieldExtraction;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Writes comments that have already been claimed in the tracker, to the
+     * sheet of the page being synced on this thread (or the default sheet)
+     * and any other sinks. With the outbox enabled the rows are only made
+     * durable here and reach the sinks from the outbox drain thread.
+     */
+    public void ingest(Map<String, List<Map<String, Object>>> newCommentsByPost) {
+        Set<String> postsWithNewComments = newCommentsByPost.keySet();
+        if (postsWithNewComments.isEmpty()) {
+            return;
+        }
+
+        // Fetch post details for posts with new comments (cached, in parallel)
+        postEnricher.enrich(postsWithNewComments);
+        write(newCommentsByPost);
+    }
+
+    /**
+     * The sink half of {@link #ingest}: builds rows for comments whose posts
+     * have already been enriched and hands them to the outbox or the sinks.
+     */
+    public void write(Map<String, List<Map<String, Object>>> newCommentsByPost) {
+        AppProperties.Page page = GraphCallContext.current();
+        List<CommentRow> rows = new ArrayList<>();
+        newCommentsByPost.forEach((postId, comments) -> {
+            for (Map<String, Object> comment : comments) {
+                rows.add(toRow(postId, comment));
+            }
+        });
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        String sheetId = page != null ? page.getSheetId() : null;
+        String range = page != null ? page.getRange() : null;
+        if (outbox.isEnabled()) {
+            try {
+                outbox.enqueue(sheetId, range, rows);
+                tracker.flush();
+                return;
+            } catch (IOException e) {
+                logger.error("Could not write {} comments to the outbox, sending them to the sinks directly: {}",
+                        rows.size(), e.getMessage());
+            }
+        }
+
+        // Each sink is fed in chunks of its own preferred batch size
+        reportFailures(sinks.write(sheetId, range, rows));
+        tracker.flush();
+    }
+
+    /**
+     * Claims pushed comments in the tracker and writes the new ones on a
+     * background thread, along with edits of comments already written, as
+     * the page bound to the calling thread. Returns as soon as the work is
+     * queued.
+     */
+    public void ingestPushed(Map<String, List<Map<String, Object>>> commentsByPost) {
+        pushExecutor.submit(GraphCallContext.wrap(() -> {
+            Map<String, List<Map<String, Object>>> newCommentsByPost = new LinkedHashMap<>();
+            int seen = 0;
+            int fresh = 0;
+            for (Map.Entry<String, List<Map<String, Object>>> post : commentsByPost.entrySet()) {
+                for (Map<String, Object> comment : post.getValue()) {
+                    seen++;
+                    long createdAt = GraphTimestamps.toEpochSecondsOrZero((String) comment.get("created_time"));
+                    boolean claimed = tracker.claim((String) comment.get("id"), createdAt);
+                    if (claimed) {
+                        fresh++;
+                    }
+                    if (claimed || Boolean.TRUE.equals(comment.get("edited"))) {
+                        newCommentsByPost.computeIfAbsent(post.getKey(), id -> new ArrayList<>()).add(comment);
+                    }
+                }
+            }
+            metrics.comments("push", seen, fresh);
+            try {
+                ingest(newCommentsByPost);
+            } catch (Exception e) {
+                logger.error("Error ingesting pushed comments: {}", AccessTokens.redact(e.getMessage()));
+            }
+            return null;
+        }));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pushExecutor.shutdown();
+    }
+
+    @SuppressWarnings("unchecked")
+    private CommentRow toRow(String postId, Map<String, Object> comment) {
+        String commentId = (String) comment.get("id");
+        String message = (String) comment.get("message");
+        String createdTime = (String) comment.get("created_time");
+        Map<String, Object> from = (Map<String, Object>) comment.get("from");
+        String user = from != null ? (String) from.get("name") : "Unknown";
+        String fromId = from != null ? (String) from.get("id") : "Unknown";
+
+        // Phone number and any configured extra fields (see app.extract)
+        String phone = fieldExtraction.phone(message);
+
+        // Format timestamp for Google Sheets
+        String formattedTimestamp = formatTimestamp(createdTime);
+
+        return new CommentRow(
+            formattedTimestamp,  // timestamp
+            postId,              // pageId (using postId as pageId)
+            commentId,           // commentId
+            user,                // name
+            fromId,              // fromId
+            message,             // message
+            phone,               // phone
+            fieldExtraction.extras(message),
+            (String) comment.get("parent_id") // the comment a reply answers, null for top-level comments
+        );
+    }
+
+    private void reportFailures(BatchAppendResult result) {
+        for (BatchAppendResult.RowFailure failure : result.getFailures()) {
+            logger.error("Error saving comment {}: {}", failure.row().commentId(), failure.error());
+        }
+    }
+
+    /**
+     * Sheet timestamp in ISO-8601 UTC. Text that is not a Graph timestamp is
+     * passed through unchanged rather than replaced with the current time.
+     */
+    private static String formatTimestamp(String facebookTimestamp) {
+        long epochSeconds = GraphTimestamps.parseEpochSeconds(facebookTimestamp);
+        if (epochSeconds == GraphTimestamps.INVALID) {
+            return facebookTimestamp != null ? facebookTimestamp : "";
+        }
+        return GraphTimestamps.formatIsoInstant(epochSeconds);
+    }
+}
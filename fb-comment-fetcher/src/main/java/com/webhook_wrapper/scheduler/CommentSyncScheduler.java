@@ -1,155 +1,399 @@
 package com.webhook_wrapper.scheduler;
 
 import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.extract.GraphTimestamps;
+import com.webhook_wrapper.facebook.AccessTokens;
+import com.webhook_wrapper.facebook.Comment;
+import com.webhook_wrapper.facebook.CommentCursorStore;
 import com.webhook_wrapper.facebook.CommentTracker;
 import com.webhook_wrapper.facebook.FacebookClient;
-import com.webhook_wrapper.sheets.SheetsAppender;
+import com.webhook_wrapper.facebook.GraphCallContext;
+import com.webhook_wrapper.facebook.GraphPageIterator;
+import com.webhook_wrapper.facebook.GraphStreamParser;
+import com.webhook_wrapper.facebook.Post;
+import com.webhook_wrapper.facebook.PostEnricher;
+import com.webhook_wrapper.metrics.SyncMetrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.time.Instant;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Component
 public class CommentSyncScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(CommentSyncScheduler.class);
+
     private final FacebookClient fbClient;
     private final CommentTracker tracker;
-    private final SheetsAppender sheetsAppender;
     private final AppProperties appProperties;
+    private final CommentCursorStore cursorStore;
+    private final PostEnricher postEnricher;
+    private final CommentIngestService ingestService;
+    private final SyncMetrics metrics;
+    private final CommentVelocity velocity;
+    private final SyncPipeline pipeline;
+    // Pages with a cycle in progress; a second cycle for the same page is skipped, never run alongside
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    // Hot-post working set per page, for app.hot-posts
+    private final Map<String, HotPostSet> hotPosts = new ConcurrentHashMap<>();
+    // Stage workers for every running cycle; cached so concurrent pages never wait on each other's stages
+    private final ExecutorService stageWorkers;
+    private final ReplyHarvester replyHarvester;
 
-    public CommentSyncScheduler(FacebookClient fbClient, CommentTracker tracker, SheetsAppender sheetsAppender, AppProperties appProperties) {
+    public CommentSyncScheduler(FacebookClient fbClient, CommentTracker tracker, AppProperties appProperties,
+                                CommentCursorStore cursorStore, PostEnricher postEnricher,
+                                CommentIngestService ingestService, SyncMetrics metrics, CommentVelocity velocity) {
         this.fbClient = fbClient;
         this.tracker = tracker;
-        this.sheetsAppender = sheetsAppender;
         this.appProperties = appProperties;
+        this.cursorStore = cursorStore;
+        this.postEnricher = postEnricher;
+        this.ingestService = ingestService;
+        this.metrics = metrics;
+        this.velocity = velocity;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.stageWorkers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "sync-stage-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pipeline = new SyncPipeline(tracker, postEnricher, ingestService::write,
+                appProperties.getPipeline(), stageWorkers);
+        this.replyHarvester = new ReplyHarvester(fbClient::iterateReplies, fbClient::iterateReplyCounts,
+                appProperties.getThreads(), stageWorkers);
     }
 
-    @Scheduled(fixedRateString = "#{${app.fb.fetch-interval-seconds} * 1000}")
+    // With the webhook receiving comments in real time, polling only runs as a slow reconciliation sweep
+    @Scheduled(fixedRateString = "#{${app.webhook.enabled:false} ? ${app.webhook.reconcile-interval-seconds:900} * 1000 : ${app.fb.fetch-interval-seconds} * 1000}")
     public void syncComments() {
+        if (MultiPageSyncEngine.schedulesPages(appProperties)) {
+            return; // app.pages and adaptive polling are run by MultiPageSyncEngine
+        }
+        try {
+            syncPage(appProperties.getFb().toPage());
+        } catch (Exception e) {
+            // the message can carry the request URL, so log it redacted instead of letting it escape
+            logger.error("Sync cycle failed for page {}: {}", appProperties.getFb().getPageId(),
+                    AccessTokens.redact(e.getMessage()));
+        }
+    }
+
+    /**
+     * Runs one sync cycle for the given page and returns how many new comments
+     * it found. Safe to call for different pages from different threads; a
+     * call for a page whose previous cycle is still running returns 0 at once.
+     */
+    public int syncPage(AppProperties.Page page) {
+        String pageId = page.getPageId();
+        if (!running.add(String.valueOf(pageId))) {
+            logger.info("Skipping sync for page {}: the previous cycle is still running", pageId);
+            return 0;
+        }
+        Timer.Sample sample = metrics.start();
+        boolean success = false;
+        try {
+            Map<String, Integer> newByPost = GraphCallContext.callAs(page, this::runCycle);
+            velocity.record(pageId, newByPost);
+            success = true;
+            int total = 0;
+            for (int count : newByPost.values()) {
+                total += count;
+            }
+            return total;
+        } finally {
+            metrics.syncCycle(sample, pageId, success);
+            running.remove(String.valueOf(pageId));
+        }
+    }
+
+    // One cycle on the page bound to this thread; returns new comments by post
+    private Map<String, Integer> runCycle() {
+        if (appProperties.getPipeline().isEnabled()) {
+            // Fetch, dedup, enrich and write overlap as pipeline stages
+            SyncPipeline.Stats stats = pipeline.run(this::fetchComments);
+            metrics.comments("poll", stats.fetched(), stats.fresh());
+            return stats.freshByPost();
+        }
+
+        // Step 1: Identify posts with new comments and collect new comments
+        Map<String, List<Map<String, Object>>> newCommentsByPost = new LinkedHashMap<>();
+        AtomicInteger seen = new AtomicInteger();
+        try {
+            fetchComments(comment -> {
+                seen.incrementAndGet();
+                if (tracker.claim(comment.commentId(), comment.createdAt())) {
+                    newCommentsByPost.computeIfAbsent(comment.postId(), id -> new ArrayList<>()).add(comment.body().get());
+                }
+            });
+        } finally {
+            // Steps 2-4: enrich, build rows and write them to the sinks; comments
+            // claimed before a failed fetch are written too, the tracker will not offer them again
+            ingestService.ingest(newCommentsByPost);
+        }
+        Map<String, Integer> newByPost = new HashMap<>();
+        newCommentsByPost.forEach((postId, comments) -> newByPost.put(postId, comments.size()));
+        metrics.comments("poll", seen.get(), newByPost.values().stream().mapToInt(Integer::intValue).sum());
+        return newByPost;
+    }
+
+    /**
+     * Stops running cycles from fetching and claiming, then waits up to
+     * app.pipeline.shutdown-timeout-seconds for the comments they already
+     * claimed to reach the sinks; the tracker will not offer those again.
+     */
+    @PreDestroy
+    public void shutdown() {
+        pipeline.stop();
+        stageWorkers.shutdown();
+        try {
+            long timeout = Math.max(0, appProperties.getPipeline().getShutdownTimeoutSeconds());
+            if (!stageWorkers.awaitTermination(timeout, TimeUnit.SECONDS)) {
+                logger.warn("Sync stages still running after {} s, abandoning them", timeout);
+                stageWorkers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            stageWorkers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fetches the cycle's comments and, with app.threads on, the replies under
+     * every comment whose thread grew; threads load alongside the fetch.
+     */
+    private void fetchComments(Consumer<SyncPipeline.FetchedComment> emit) {
+        if (!appProperties.getThreads().isEnabled()) {
+            fetchTopLevelComments(emit, postId -> { });
+            return;
+        }
+        ReplyHarvester.Round replies = replyHarvester.start(emit);
+        boolean fetched = false;
+        try {
+            fetchTopLevelComments(comment -> {
+                emit.accept(comment);
+                replies.offer(comment);
+            }, replies::relist);
+            replies.finish();
+            fetched = true;
+        } finally {
+            if (!fetched) {
+                replies.cancel();
+            }
+        }
+    }
+
+    /**
+     * relist is told about each post a cursor or watermark fetch visits, whose
+     * older comments it will not emit again.
+     */
+    private void fetchTopLevelComments(Consumer<SyncPipeline.FetchedComment> emit, Consumer<String> relist) {
+        if (appProperties.getHotPosts().isEnabled()) {
+            fetchHotPostComments(emit, relist);
+        } else if (appProperties.getFb().isIncremental()) {
+            fetchCommentsIncrementally(emit, relist);
+        } else if (appProperties.getFb().isStreamingParse()) {
+            fetchCommentsFromFeedStream(emit);
+        } else {
+            fetchCommentsFromFeed(emit);
+        }
+    }
+
+    /**
+     * Single feed request with the first page of comments embedded in each post.
+     */
+    @SuppressWarnings("unchecked")
+    private void fetchCommentsFromFeed(Consumer<SyncPipeline.FetchedComment> emit) {
         Map<String, Object> response = fbClient.fetchPostsAndComments();
         List<Map<String, Object>> posts = (List<Map<String, Object>>) response.get("data");
+        if (posts == null) {
+            return;
+        }
 
-        if (posts != null) {
-            // Step 1: Identify posts with new comments and collect new comments
-            Set<String> postsWithNewComments = new HashSet<>();
-            Map<String, List<Map<String, Object>>> newCommentsByPost = new HashMap<>();
-            
-            for (Map<String, Object> post : posts) {
-                String postId = (String) post.get("id");
-                List<Map<String, Object>> newComments = new java.util.ArrayList<>();
-
-                Map<String, Object> commentsWrapper = (Map<String, Object>) post.get("comments");
-                if (commentsWrapper != null) {
-                    List<Map<String, Object>> comments = (List<Map<String, Object>>) commentsWrapper.get("data");
-                    if (comments != null) {
-                        for (Map<String, Object> comment : comments) {
-                            String commentId = (String) comment.get("id");
-                            if (tracker.isNewComment(commentId)) {
-                                newComments.add(comment);
-                            }
-                        }
+        for (Map<String, Object> post : posts) {
+            String postId = (String) post.get("id");
+            primePostDetails(post);
+
+            Map<String, Object> commentsWrapper = (Map<String, Object>) post.get("comments");
+            if (commentsWrapper != null) {
+                List<Map<String, Object>> comments = (List<Map<String, Object>>) commentsWrapper.get("data");
+                if (comments != null) {
+                    for (Map<String, Object> comment : comments) {
+                        emit.accept(fetched(postId, comment));
                     }
                 }
-                
-                if (!newComments.isEmpty()) {
-                    postsWithNewComments.add(postId);
-                    newCommentsByPost.put(postId, newComments);
-                }
             }
+        }
+    }
 
-            // Step 2: Fetch post details for posts with new comments
-            Map<String, Map<String, Object>> postDetailsCache = new HashMap<>();
-            for (String postId : postsWithNewComments) {
-                try {
-                    Map<String, Object> postDetails = fbClient.fetchPostDetails(postId);
-                    postDetailsCache.put(postId, postDetails);
-                } catch (Exception e) {
-                    System.err.println("Failed to fetch post details for " + postId + ", using basic info");
-                    // Create basic post info if detailed fetch fails
-                    Map<String, Object> basicPostInfo = new HashMap<>();
-                    basicPostInfo.put("id", postId);
-                    basicPostInfo.put("message", "");
-                    basicPostInfo.put("permalink_url", "");
-                    basicPostInfo.put("created_time", "");
-                    postDetailsCache.put(postId, basicPostInfo);
+    /**
+     * Streaming variant of {@link #fetchCommentsFromFeed}: posts and comments
+     * arrive as records while the response is decoded, and only comments that turn
+     * out to be new are converted to maps for the ingest path.
+     */
+    private void fetchCommentsFromFeedStream(Consumer<SyncPipeline.FetchedComment> emit) {
+        fbClient.streamPostsAndComments(new GraphStreamParser.FeedVisitor() {
+            @Override
+            public void onPost(Post post) {
+                if (post.hasDetails()) {
+                    postEnricher.prime(post.id(), post.toDetails());
                 }
             }
 
-            // Step 3: Save comments to Google Sheets
-            for (String postId : postsWithNewComments) {
-                Map<String, Object> postDetails = postDetailsCache.get(postId);
-                List<Map<String, Object>> comments = newCommentsByPost.get(postId);
-                
-                for (Map<String, Object> comment : comments) {
-                    String commentId = (String) comment.get("id");
-                    String message = (String) comment.get("message");
-                    String createdTime = (String) comment.get("created_time");
-                    Map<String, Object> from = (Map<String, Object>) comment.get("from");
-                    String user = from != null ? (String) from.get("name") : "Unknown";
-                    String fromId = from != null ? (String) from.get("id") : "Unknown";
-
-                    // Extract phone number from message if present (you can customize this logic)
-                    String phone = extractPhoneNumber(message);
-                    
-                    // Format timestamp for Google Sheets
-                    String formattedTimestamp = formatTimestamp(createdTime);
-
-                    try {
-                        sheetsAppender.appendRow(
-                            formattedTimestamp,  // timestamp
-                            postId,              // pageId (using postId as pageId)
-                            commentId,           // commentId
-                            user,                // name
-                            fromId,              // fromId
-                            message,             // message
-                            phone                // phone
-                        );
-                        System.out.println("Successfully saved comment to Google Sheets: " + commentId);
-                    } catch (Exception e) {
-                        System.err.println("Error saving to Google Sheets: " + e.getMessage());
+            @Override
+            public void onComment(Comment comment) {
+                emit.accept(new SyncPipeline.FetchedComment(comment.postId(), comment.id(),
+                        GraphTimestamps.toEpochSecondsOrZero(comment.createdTime()), comment::toMap,
+                        null, comment.commentCount()));
+            }
+        });
+    }
+
+    /**
+     * Pages through the feed and, for each post whose updated_time moved since the
+     * last cycle, pages through only the comments after its stored cursor.
+     * Cursors are persisted at the end so the next cycle (or a restart) resumes
+     * from the new watermark.
+     */
+    private void fetchCommentsIncrementally(Consumer<SyncPipeline.FetchedComment> emit, Consumer<String> relist) {
+        fbClient.streamFeed().forEach(post -> {
+            String postId = (String) post.get("id");
+            String updatedTime = (String) post.get("updated_time");
+            // replies under comments behind the cursor, whether or not updated_time moved
+            relist.accept(postId);
+            CommentCursorStore.PostCursor cursor = cursorStore.get(postId);
+            if (cursor != null && updatedTime != null && updatedTime.equals(cursor.updatedTime())) {
+                return; // no comment activity since the last scan
+            }
+            primePostDetails(post);
+
+            GraphPageIterator comments = fbClient.iterateComments(postId, cursor);
+            long since = cursor != null ? cursor.since() : 0;
+            while (comments.hasNext()) {
+                SyncPipeline.FetchedComment comment = fetched(postId, comments.next());
+                since = Math.max(since, comment.createdAt());
+                emit.accept(comment);
+            }
+
+            String after = comments.getLastAfterCursor() != null
+                    ? comments.getLastAfterCursor()
+                    : cursor != null ? cursor.after() : null;
+            cursorStore.put(postId, new CommentCursorStore.PostCursor(after, since, updatedTime));
+        });
+
+        cursorStore.save();
+    }
+
+    /**
+     * Polls the /comments edge of each due post in the page's hot-post set,
+     * newest first and only after the post's stored watermark (less
+     * app.hot-posts.overlap-seconds), up to 50 posts per batch request. The
+     * feed itself is only read every feed-refresh-seconds to add new posts
+     * and to flag posts whose updated_time moved.
+     */
+    @SuppressWarnings("unchecked")
+    private void fetchHotPostComments(Consumer<SyncPipeline.FetchedComment> emit, Consumer<String> relist) {
+        AppProperties.HotPosts settings = appProperties.getHotPosts();
+        String pageId = GraphCallContext.currentPageId();
+        HotPostSet posts = hotPosts.computeIfAbsent(String.valueOf(pageId),
+                id -> new HotPostSet(settings, new AdaptivePollPolicy(appProperties.getPolling())));
+        long now = System.currentTimeMillis();
+
+        if (posts.feedRefreshDue(now)) {
+            fbClient.streamRecentPosts(settings.getMaxActivePosts()).forEach(post -> {
+                primePostDetails(post);
+                long createdAt = GraphTimestamps.toEpochSecondsOrZero((String) post.get("created_time")) * 1000;
+                posts.offer((String) post.get("id"), createdAt, (String) post.get("updated_time"), now);
+            });
+            posts.feedRefreshed(now);
+            logger.debug("Refreshed hot posts for page {}: {} in the working set", pageId, posts.size());
+        }
+
+        List<String> due = posts.due(now, postId -> velocity.postRate(pageId, postId));
+        if (due.isEmpty()) {
+            return;
+        }
+        Map<String, Long> sinceByPost = new LinkedHashMap<>();
+        for (String postId : due) {
+            CommentCursorStore.PostCursor cursor = cursorStore.get(postId);
+            sinceByPost.put(postId, cursor != null ? Math.max(0, cursor.since() - settings.getOverlapSeconds()) : 0);
+        }
+
+        Map<String, Map<String, Object>> firstPages = fbClient.fetchRecentComments(sinceByPost);
+        for (String postId : due) {
+            CommentCursorStore.PostCursor cursor = cursorStore.get(postId);
+            long watermark = cursor != null ? cursor.since() : 0;
+            long newest = watermark;
+            int newer = 0;
+            Map<String, Object> page = firstPages.get(postId);
+            while (page != null) {
+                List<Map<String, Object>> comments = (List<Map<String, Object>>) page.get("data");
+                for (Map<String, Object> comment : comments != null ? comments : List.<Map<String, Object>>of()) {
+                    SyncPipeline.FetchedComment fetched = fetched(postId, comment);
+                    if (fetched.createdAt() > watermark) {
+                        newer++;
                     }
+                    newest = Math.max(newest, fetched.createdAt());
+                    emit.accept(fetched);
                 }
+                page = nextPage(page);
+            }
+            // replies under comments older than the watermark
+            relist.accept(postId);
+            // newer than the watermark is what the post gained since its last poll; the overlap is re-reads
+            posts.polled(postId, newer, velocity.postRate(pageId, postId), now);
+            if (newest > watermark || cursor == null) {
+                cursorStore.put(postId, new CommentCursorStore.PostCursor(
+                        cursor != null ? cursor.after() : null, newest, posts.updatedTime(postId)));
             }
         }
+
+        cursorStore.save();
     }
 
-    /**
-     * Extract phone number from message text
-     * You can customize this logic based on your needs
-     */
-    private String extractPhoneNumber(String message) {
-        if (message == null || message.trim().isEmpty()) {
-            return "";
-        }
-        
-        // Simple regex to find phone numbers (you can enhance this)
-        String phoneRegex = "(\\+?\\d{1,3}[-\\s]?)?\\(?\\d{3}\\)?[-\\s]?\\d{3}[-\\s]?\\d{4}";
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(phoneRegex);
-        java.util.regex.Matcher matcher = pattern.matcher(message);
-        
-        if (matcher.find()) {
-            return matcher.group();
-        }
-        
-        return "";
+    // The next page of a Graph edge, or null after the last one
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> nextPage(Map<String, Object> page) {
+        Map<String, Object> paging = (Map<String, Object>) page.get("paging");
+        String next = paging != null ? (String) paging.get("next") : null;
+        return next != null ? fbClient.fetchNextPage(next) : null;
+    }
+
+    private static SyncPipeline.FetchedComment fetched(String postId, Map<String, Object> comment) {
+        Object replyCount = comment.get("comment_count");
+        return new SyncPipeline.FetchedComment(postId, (String) comment.get("id"),
+                GraphTimestamps.toEpochSecondsOrZero((String) comment.get("created_time")), () -> comment,
+                null, replyCount instanceof Number count ? count.intValue() : 0);
     }
 
     /**
-     * Format timestamp for Google Sheets
+     * With app.fb.expand-post-fields the feed already carries the post details,
+     * so hand them to the enricher instead of looking them up again.
      */
-    private String formatTimestamp(String facebookTimestamp) {
-        try {
-            // Facebook timestamp format: "2025-08-30T10:00:00+0000"
-            Instant instant = Instant.parse(facebookTimestamp);
-            return DateTimeFormatter.ISO_INSTANT.format(instant);
-        } catch (Exception e) {
-            // Fallback to current time if parsing fails
-            return DateTimeFormatter.ISO_INSTANT.format(Instant.now());
+    private void primePostDetails(Map<String, Object> post) {
+        if (!post.containsKey("permalink_url")) {
+            return;
         }
+        Map<String, Object> postDetails = new HashMap<>();
+        postDetails.put("id", post.get("id"));
+        postDetails.put("message", post.get("message"));
+        postDetails.put("permalink_url", post.get("permalink_url"));
+        postDetails.put("created_time", post.get("created_time"));
+        postEnricher.prime((String) post.get("id"), postDetails);
     }
+
 }
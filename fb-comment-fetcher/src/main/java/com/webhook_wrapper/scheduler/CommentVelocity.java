@@ -0,0 +1,91 @@
+package com.webhook_wrapper.scheduler;
+
+import com.webhook_wrapper.config.AppProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Comment arrival rate per page and per post, from the new comments each
+ * sync cycle finds.
+ *
+ * Each rate is an exponentially decaying event rate: every new comment adds
+ * 1/tau and the total decays by e^(-dt/tau), so a burst fades with the
+ * configured half-life and a page that has gone quiet drifts towards zero.
+ * Posts whose rate has decayed to nothing are forgotten.
+ */
+@Component
+public class CommentVelocity {
+    // Below this (about one comment a week) a post is treated as cold and dropped
+    private static final double NEGLIGIBLE_PER_SECOND = 1.0 / (7 * 24 * 3600);
+
+    private final double tauSeconds;
+    private final LongSupplier clock;
+    private final Map<String, Rate> pages = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Rate>> postsByPage = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CommentVelocity(AppProperties appProperties) {
+        this(appProperties.getPolling().getRateHalfLifeSeconds(), System::currentTimeMillis);
+    }
+
+    CommentVelocity(int halfLifeSeconds, LongSupplier clock) {
+        this.tauSeconds = Math.max(1, halfLifeSeconds) / Math.log(2);
+        this.clock = clock;
+    }
+
+    /**
+     * Records the new comments one cycle found for a page, by post.
+     */
+    public void record(String pageId, Map<String, Integer> newCommentsByPost) {
+        long now = clock.getAsLong();
+        int total = 0;
+        Map<String, Rate> posts = postsByPage.computeIfAbsent(pageId, id -> new ConcurrentHashMap<>());
+        for (Map.Entry<String, Integer> post : newCommentsByPost.entrySet()) {
+            total += post.getValue();
+            posts.computeIfAbsent(post.getKey(), id -> new Rate(now)).add(post.getValue(), now, tauSeconds);
+        }
+        pages.computeIfAbsent(pageId, id -> new Rate(now)).add(total, now, tauSeconds);
+        posts.values().removeIf(rate -> rate.perSecond(now, tauSeconds) < NEGLIGIBLE_PER_SECOND);
+    }
+
+    /**
+     * New comments per second on the page, decayed to now.
+     */
+    public double pageRate(String pageId) {
+        Rate rate = pages.get(pageId);
+        return rate != null ? rate.perSecond(clock.getAsLong(), tauSeconds) : 0;
+    }
+
+    public double postRate(String pageId, String postId) {
+        Map<String, Rate> posts = postsByPage.get(pageId);
+        Rate rate = posts != null ? posts.get(postId) : null;
+        return rate != null ? rate.perSecond(clock.getAsLong(), tauSeconds) : 0;
+    }
+
+    private static final class Rate {
+        private double value;
+        private long updatedAt;
+
+        Rate(long now) {
+            this.updatedAt = now;
+        }
+
+        synchronized void add(int events, long now, double tauSeconds) {
+            value = decayed(now, tauSeconds) + events / tauSeconds;
+            updatedAt = now;
+        }
+
+        synchronized double perSecond(long now, double tauSeconds) {
+            return decayed(now, tauSeconds);
+        }
+
+        private double decayed(long now, double tauSeconds) {
+            double elapsedSeconds = Math.max(0, now - updatedAt) / 1000.0;
+            return value * Math.exp(-elapsedSeconds / tauSeconds);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.webhook_wrapper.scheduler;
+
+import com.webhook_wrapper.config.AppProperties;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The posts of one page whose comments are polled directly, each with its
+ * own next poll time.
+ *
+ * Posts join from the occasional feed refresh. A post is due again after a
+ * delay from {@link AdaptivePollPolicy}, so busy posts are polled every
+ * cycle and quiet ones drift towards the max interval; a post whose
+ * updated_time moved in the feed is due at once. When more posts are due
+ * than max-active-posts, the fastest-moving and then the newest win. Posts
+ * older than max-post-age-hours leave once a poll finds nothing new, or
+ * when they are due and miss the cut, since they would rank last forever.
+ */
+class HotPostSet {
+    private final int maxActivePosts;
+    private final long feedRefreshMillis;
+    private final long maxAgeMillis;
+    private final AdaptivePollPolicy policy;
+    private final Map<String, ActivePost> posts = new HashMap<>();
+    private long lastFeedRefresh = Long.MIN_VALUE;
+
+    private static final class ActivePost {
+        final long createdAt;
+        String updatedTime;
+        long nextPollAt;
+        long delayMillis;
+
+        ActivePost(long createdAt, String updatedTime, long nextPollAt, long delayMillis) {
+            this.createdAt = createdAt;
+            this.updatedTime = updatedTime;
+            this.nextPollAt = nextPollAt;
+            this.delayMillis = delayMillis;
+        }
+    }
+
+    HotPostSet(AppProperties.HotPosts settings, AdaptivePollPolicy policy) {
+        this.maxActivePosts = Math.max(1, settings.getMaxActivePosts());
+        this.feedRefreshMillis = Math.max(0, settings.getFeedRefreshSeconds()) * 1000L;
+        this.maxAgeMillis = Math.max(1, settings.getMaxPostAgeHours()) * 3600_000L;
+        this.policy = policy;
+    }
+
+    synchronized boolean feedRefreshDue(long now) {
+        return lastFeedRefresh == Long.MIN_VALUE || now - lastFeedRefresh >= feedRefreshMillis;
+    }
+
+    synchronized void feedRefreshed(long now) {
+        lastFeedRefresh = now;
+    }
+
+    /**
+     * A post seen in the feed. New posts (unless already too old) are due at
+     * once; known posts are due at once if their updated_time moved.
+     *
+     * @param createdAt post creation time in epoch millis, 0 if unknown
+     */
+    synchronized void offer(String postId, long createdAt, String updatedTime, long now) {
+        ActivePost post = posts.get(postId);
+        if (post == null) {
+            if (createdAt > 0 && now - createdAt > maxAgeMillis) {
+                return;
+            }
+            posts.put(postId, new ActivePost(createdAt, updatedTime, now, policy.clampMillis(0)));
+        } else if (updatedTime != null && !updatedTime.equals(post.updatedTime)) {
+            post.updatedTime = updatedTime;
+            post.nextPollAt = Math.min(post.nextPollAt, now);
+        }
+    }
+
+    /**
+     * Posts due for a poll, fastest first and then newest, at most
+     * max-active-posts of them. Due posts past the age limit that miss the
+     * cut are dropped.
+     */
+    synchronized List<String> due(long now, ToDoubleFunction<String> ratePerSecond) {
+        List<Map.Entry<String, ActivePost>> due = new ArrayList<>();
+        for (Map.Entry<String, ActivePost> entry : posts.entrySet()) {
+            if (entry.getValue().nextPollAt <= now) {
+                due.add(entry);
+            }
+        }
+        Map<String, Double> rates = new HashMap<>();
+        for (Map.Entry<String, ActivePost> entry : due) {
+            rates.put(entry.getKey(), ratePerSecond.applyAsDouble(entry.getKey()));
+        }
+        due.sort(Comparator.<Map.Entry<String, ActivePost>>comparingDouble(entry -> rates.get(entry.getKey()))
+                .reversed()
+                .thenComparing(entry -> entry.getValue().createdAt, Comparator.reverseOrder()));
+        List<String> postIds = new ArrayList<>(Math.min(maxActivePosts, due.size()));
+        for (int i = 0; i < due.size() && i < maxActivePosts; i++) {
+            postIds.add(due.get(i).getKey());
+        }
+        for (int i = maxActivePosts; i < due.size(); i++) {
+            if (isExpired(due.get(i).getValue(), now)) {
+                posts.remove(due.get(i).getKey());
+            }
+        }
+        return postIds;
+    }
+
+    /**
+     * Schedules the post's next poll after one that found newComments, and
+     * drops it if it is past the age limit and has gone quiet.
+     */
+    synchronized void polled(String postId, int newComments, double ratePerSecond, long now) {
+        ActivePost post = posts.get(postId);
+        if (post == null) {
+            return;
+        }
+        if (newComments == 0 && isExpired(post, now)) {
+            posts.remove(postId);
+            return;
+        }
+        post.delayMillis = policy.nextDelayMillis(post.delayMillis, newComments, ratePerSecond, 1);
+        post.nextPollAt = now + post.delayMillis;
+    }
+
+    private boolean isExpired(ActivePost post, long now) {
+        return post.createdAt > 0 && now - post.createdAt > maxAgeMillis;
+    }
+
+    synchronized String updatedTime(String postId) {
+        ActivePost post = posts.get(postId);
+        return post != null ? post.updatedTime : null;
+    }
+
+    synchronized int size() {
+        return posts.size();
+    }
+}
@@ -0,0 +1,199 @@
+package com.webhook_wrapper.scheduler;
+
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.facebook.AccessTokens;
+import com.webhook_wrapper.facebook.GraphUsageBudget;
+import com.webhook_wrapper.metrics.SyncMetrics;
+import com.webhook_wrapper.resilience.ApiGuards;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Syncs every page in app.pages on a shared pool of app.engine.worker-threads;
+ * with app.polling.adaptive on it also runs the single app.fb page.
+ *
+ * Each page has its own chain of one-shot tasks: the next cycle is scheduled
+ * only when the current one has finished, so a page's cycles never overlap
+ * however long one takes. First runs are staggered across the interval so
+ * pages do not all hit the Graph API at once. Before a cycle the page must
+ * get admission from the shared {@link GraphUsageBudget}, estimated from what
+ * its last cycle cost; otherwise the cycle is skipped until the next tick.
+ *
+ * With adaptive polling the delay to the next tick comes from
+ * {@link AdaptivePollPolicy} and the page's {@link CommentVelocity}; without
+ * it every page keeps its fixed fetch-interval-seconds. With the webhook on,
+ * polling is only a reconciliation sweep, so no page polls more often than
+ * app.webhook.reconcile-interval-seconds. Either way a page whose Graph
+ * circuit is open waits until it lets calls through again.
+ */
+@Component
+public class MultiPageSyncEngine {
+    private static final Logger logger = LoggerFactory.getLogger(MultiPageSyncEngine.class);
+
+    private final AppProperties appProperties;
+    private final CommentSyncScheduler syncScheduler;
+    private final GraphUsageBudget usageBudget;
+    private final CommentVelocity velocity;
+    private final SyncMetrics metrics;
+    private final AdaptivePollPolicy pollPolicy;
+    private final ApiGuards guards;
+    private final Map<String, Integer> lastCycleCalls = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastDelayMillis = new ConcurrentHashMap<>();
+    private ScheduledExecutorService executor;
+
+    public MultiPageSyncEngine(AppProperties appProperties, CommentSyncScheduler syncScheduler,
+                               GraphUsageBudget usageBudget, CommentVelocity velocity, SyncMetrics metrics,
+                               ApiGuards guards) {
+        this.appProperties = appProperties;
+        this.syncScheduler = syncScheduler;
+        this.usageBudget = usageBudget;
+        this.velocity = velocity;
+        this.metrics = metrics;
+        this.guards = guards;
+        this.pollPolicy = new AdaptivePollPolicy(appProperties.getPolling());
+    }
+
+    /**
+     * True when this engine, not the fixed-rate single-page schedule, runs the
+     * sync cycles: always for app.pages, and for app.fb when adaptive polling
+     * is on (unless the webhook is on and polling is only a reconcile sweep).
+     */
+    static boolean schedulesPages(AppProperties appProperties) {
+        return !appProperties.getPages().isEmpty()
+                || (appProperties.getPolling().isAdaptive() && !appProperties.getWebhook().isEnabled());
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!schedulesPages(appProperties)) {
+            return;
+        }
+        List<AppProperties.Page> pages = appProperties.getPages().isEmpty()
+                ? List.of(appProperties.getFb().toPage())
+                : appProperties.getPages();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(Math.max(1, appProperties.getEngine().getWorkerThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "page-sync-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (int i = 0; i < pages.size(); i++) {
+            AppProperties.Page page = pages.get(i);
+            usageBudget.register(page.getPageId());
+            long intervalMillis = initialDelayMillis(page);
+            long offsetMillis = intervalMillis * i / pages.size();
+            lastDelayMillis.put(page.getPageId(), intervalMillis);
+            schedule(page, offsetMillis);
+        }
+        logger.info("Page sync started for {} pages on {} workers, {} polling", pages.size(),
+                appProperties.getEngine().getWorkerThreads(), appProperties.getPolling().isAdaptive() ? "adaptive" : "fixed");
+    }
+
+    private void schedule(AppProperties.Page page, long delayMillis) {
+        try {
+            executor.schedule(() -> {
+                long next = fixedDelayMillis(page);
+                try {
+                    next = runCycle(page);
+                } finally {
+                    // chained only after the cycle finishes, so cycles of a page never overlap
+                    schedule(page, next);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // shutting down
+        }
+    }
+
+    /**
+     * Runs one admitted cycle for the page and returns the delay before its next one.
+     */
+    long runCycle(AppProperties.Page page) {
+        String pageId = page.getPageId();
+        long previousDelay = lastDelayMillis.getOrDefault(pageId, initialDelayMillis(page));
+        int estimate = lastCycleCalls.getOrDefault(pageId, 1);
+        if (!usageBudget.tryAcquire(pageId, estimate)) {
+            logger.info("Skipping cycle for page {}: over its Graph API budget (app usage {}%, page usage {}%)",
+                    pageId, usageBudget.getAppUsagePercent(), usageBudget.getPageUsagePercent(pageId));
+            return untilCircuitCloses(pageId, recordDelay(pageId, nextDelayMillis(page, previousDelay, 0)));
+        }
+
+        long callsBefore = usageBudget.getTotalCalls(pageId);
+        long started = System.currentTimeMillis();
+        int newComments = 0;
+        try {
+            newComments = syncScheduler.syncPage(page);
+        } catch (Exception e) {
+            // never let an exception cancel the page's schedule
+            logger.error("Sync cycle failed for page {}: {}", pageId, AccessTokens.redact(e.getMessage()));
+        }
+        int calls = (int) (usageBudget.getTotalCalls(pageId) - callsBefore);
+        lastCycleCalls.put(pageId, Math.max(1, calls));
+        long next = untilCircuitCloses(pageId, recordDelay(pageId, nextDelayMillis(page, previousDelay, newComments)));
+        logger.debug("Page {} cycle took {} ms and {} Graph calls, found {} new comments; next in {} ms",
+                pageId, System.currentTimeMillis() - started, calls, newComments, next);
+        return next;
+    }
+
+    private long nextDelayMillis(AppProperties.Page page, long previousDelay, int newComments) {
+        if (!appProperties.getPolling().isAdaptive()) {
+            return fixedDelayMillis(page);
+        }
+        String pageId = page.getPageId();
+        return atLeastReconcileInterval(pollPolicy.nextDelayMillis(previousDelay, newComments,
+                velocity.pageRate(pageId), usageBudget.getHeadroom(pageId)));
+    }
+
+    /**
+     * Holds the page back while its Graph circuit is open. The poll policy
+     * keeps its own delay, so the page is back at its usual pace as soon as
+     * the quota resets.
+     */
+    private long untilCircuitCloses(String pageId, long delayMillis) {
+        return Math.max(delayMillis, guards.graph().remainingOpenMillis(pageId));
+    }
+
+    private long recordDelay(String pageId, long delayMillis) {
+        lastDelayMillis.put(pageId, delayMillis);
+        metrics.pollInterval(pageId).set(delayMillis);
+        return delayMillis;
+    }
+
+    private long initialDelayMillis(AppProperties.Page page) {
+        long fixed = fixedDelayMillis(page);
+        return appProperties.getPolling().isAdaptive() ? atLeastReconcileInterval(pollPolicy.clampMillis(fixed)) : fixed;
+    }
+
+    private long fixedDelayMillis(AppProperties.Page page) {
+        return atLeastReconcileInterval(Math.max(1, page.getFetchIntervalSeconds()) * 1000L);
+    }
+
+    // The webhook delivers comments as they happen; polling only has to catch what it missed
+    private long atLeastReconcileInterval(long delayMillis) {
+        AppProperties.Webhook webhook = appProperties.getWebhook();
+        return webhook.isEnabled()
+                ? Math.max(delayMillis, Math.max(1, webhook.getReconcileIntervalSeconds()) * 1000L)
+                : delayMillis;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
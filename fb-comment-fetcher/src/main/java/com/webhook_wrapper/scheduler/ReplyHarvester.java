@@ -0,0 +1,329 @@
+package com.webhook_wrapper.scheduler;
+
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.extract.GraphTimestamps;
+import com.webhook_wrapper.facebook.AccessTokens;
+import com.webhook_wrapper.facebook.GraphCallContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Fetches the replies under top-level comments, for app.threads.
+ *
+ * A cycle's fetcher offers every comment it sees; one that reports more
+ * replies (comment_count) than when its thread was last read is queued, and
+ * at most parallelism threads are read at once on the worker pool while the
+ * fetcher carries on. Replies are handed to the cycle's emitter on the
+ * fetcher's own thread, tagged with the comment they answer, so the emitter
+ * needs no locking.
+ *
+ * Fetchers that resume from a cursor or watermark never see an older
+ * comment again, so its thread cannot be noticed growing from the fetch.
+ * For those the fetcher asks for a {@link Round#relist} of each post it
+ * visits, which at most every relist-interval-seconds lists the post's
+ * top-level comments with only their reply counts. Threads put off by
+ * max-threads-per-cycle or that failed to load stay pending for their page
+ * and go first in its next cycle, whether or not they are offered again.
+ */
+class ReplyHarvester {
+    private static final Logger logger = LoggerFactory.getLogger(ReplyHarvester.class);
+
+    @FunctionalInterface
+    interface ThreadSource {
+        Iterator<Map<String, Object>> replies(String commentId);
+    }
+
+    /**
+     * A post's top-level comments with their id and comment_count.
+     */
+    @FunctionalInterface
+    interface CountSource {
+        Iterator<Map<String, Object>> topLevel(String postId);
+    }
+
+    private final ThreadSource source;
+    private final CountSource counts;
+    private final AppProperties.Threads settings;
+    private final ExecutorService workers;
+    private final LongSupplier clock;
+    private final int tracked;
+    // Reply count each thread had when it was last read, oldest first out
+    private final Map<String, Integer> readCounts;
+    // Per page, threads that grew but were not read yet, oldest first
+    private final Map<String, Map<String, CommentThread>> pending = new ConcurrentHashMap<>();
+    // When each post's reply counts were last listed
+    private final Map<String, Long> relistedAt;
+
+    ReplyHarvester(ThreadSource source, CountSource counts, AppProperties.Threads settings, ExecutorService workers) {
+        this(source, counts, settings, workers, System::currentTimeMillis);
+    }
+
+    ReplyHarvester(ThreadSource source, CountSource counts, AppProperties.Threads settings, ExecutorService workers,
+                   LongSupplier clock) {
+        this.source = source;
+        this.counts = counts;
+        this.settings = settings;
+        this.workers = workers;
+        this.clock = clock;
+        this.tracked = Math.max(1, settings.getTrackedThreads());
+        this.readCounts = boundedMap();
+        this.relistedAt = boundedMap();
+    }
+
+    // Access-ordered, dropping the least recently used entry past tracked-threads
+    private <V> Map<String, V> boundedMap() {
+        return new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > tracked;
+            }
+        };
+    }
+
+    /**
+     * Starts harvesting for one cycle on the calling thread's page.
+     */
+    Round start(Consumer<SyncPipeline.FetchedComment> emit) {
+        return new Round(emit);
+    }
+
+    private boolean grew(String commentId, int replyCount) {
+        synchronized (readCounts) {
+            Integer read = readCounts.get(commentId);
+            return read == null || replyCount > read;
+        }
+    }
+
+    private void markRead(String commentId, int replyCount) {
+        synchronized (readCounts) {
+            readCounts.put(commentId, replyCount);
+        }
+    }
+
+    private Map<String, CommentThread> pendingFor(String pageId) {
+        return pending.computeIfAbsent(pageId, id -> new LinkedHashMap<>());
+    }
+
+    // Left for the page's next cycle; the oldest pending thread gives way past tracked-threads
+    private void defer(String pageId, CommentThread thread) {
+        Map<String, CommentThread> threads = pendingFor(pageId);
+        synchronized (threads) {
+            threads.merge(thread.commentId(), thread,
+                    (old, grown) -> grown.replyCount() >= old.replyCount() ? grown : old);
+            Iterator<String> oldest = threads.keySet().iterator();
+            while (threads.size() > tracked && oldest.hasNext()) {
+                oldest.next();
+                oldest.remove();
+            }
+        }
+    }
+
+    private void undefer(String pageId, String commentId) {
+        Map<String, CommentThread> threads = pendingFor(pageId);
+        synchronized (threads) {
+            threads.remove(commentId);
+        }
+    }
+
+    private boolean relistDue(String postId) {
+        long intervalMillis = settings.getRelistIntervalSeconds() * 1000L;
+        if (intervalMillis <= 0) {
+            return false;
+        }
+        long now = clock.getAsLong();
+        synchronized (relistedAt) {
+            Long last = relistedAt.get(postId);
+            if (last != null && now - last < intervalMillis) {
+                return false;
+            }
+            relistedAt.put(postId, now);
+            return true;
+        }
+    }
+
+    private record CommentThread(String postId, String commentId, int replyCount) {
+    }
+
+    private record Harvest(CommentThread thread, List<SyncPipeline.FetchedComment> replies) {
+    }
+
+    /**
+     * The threads of one cycle. Not thread-safe: offer and finish are called
+     * from the fetcher's thread only.
+     */
+    final class Round {
+        private final Consumer<SyncPipeline.FetchedComment> emit;
+        private final String pageId = String.valueOf(GraphCallContext.currentPageId());
+        private final ExecutorCompletionService<Harvest> completions = new ExecutorCompletionService<>(workers);
+        private final Queue<CommentThread> queued = new ArrayDeque<>();
+        // Threads queued this cycle, so one offered again is not read twice
+        private final Set<String> inRound = new HashSet<>();
+        private final Map<Future<Harvest>, CommentThread> running = new LinkedHashMap<>();
+        private final int parallelism = Math.max(1, settings.getParallelism());
+        private int budget = Math.max(0, settings.getMaxThreadsPerCycle());
+        private int threads;
+        private int replies;
+
+        private Round(Consumer<SyncPipeline.FetchedComment> emit) {
+            this.emit = emit;
+            Map<String, CommentThread> deferred = pendingFor(pageId);
+            synchronized (deferred) {
+                for (CommentThread thread : deferred.values()) {
+                    if (budget == 0) {
+                        break;
+                    }
+                    budget--;
+                    queued.add(thread);
+                    inRound.add(thread.commentId());
+                }
+            }
+        }
+
+        /**
+         * Queues the comment's thread if it has grown, and hands on the
+         * replies of any thread that has finished loading meanwhile.
+         */
+        void offer(SyncPipeline.FetchedComment comment) {
+            if (comment.parentId() == null && comment.replyCount() > 0
+                    && !inRound.contains(comment.commentId())
+                    && grew(comment.commentId(), comment.replyCount())) {
+                CommentThread thread = new CommentThread(comment.postId(), comment.commentId(), comment.replyCount());
+                if (budget > 0) {
+                    budget--;
+                    queued.add(thread);
+                    inRound.add(thread.commentId());
+                } else {
+                    defer(pageId, thread);
+                }
+            }
+            drain(false);
+        }
+
+        /**
+         * For fetchers that do not see old comments again: lists the post's
+         * top-level reply counts, if its relist interval has passed, and
+         * offers every thread that grew.
+         */
+        void relist(String postId) {
+            if (!relistDue(postId)) {
+                return;
+            }
+            Iterator<Map<String, Object>> comments = counts.topLevel(postId);
+            while (comments.hasNext()) {
+                Map<String, Object> comment = comments.next();
+                Object replyCount = comment.get("comment_count");
+                offer(new SyncPipeline.FetchedComment(postId, (String) comment.get("id"), 0, () -> comment,
+                        null, replyCount instanceof Number count ? count.intValue() : 0));
+            }
+        }
+
+        /**
+         * Waits for the queued threads and hands on their replies.
+         */
+        void finish() {
+            drain(true);
+            if (threads > 0) {
+                logger.debug("Read {} comment threads for page {}: {} replies", threads,
+                        GraphCallContext.currentPageId(), replies);
+            }
+        }
+
+        /**
+         * Stops the threads still queued or loading, after a failed cycle;
+         * they are read in the page's next cycle instead.
+         */
+        void cancel() {
+            for (CommentThread thread : queued) {
+                defer(pageId, thread);
+            }
+            queued.clear();
+            running.forEach((future, thread) -> {
+                future.cancel(true);
+                defer(pageId, thread);
+            });
+            running.clear();
+        }
+
+        private void drain(boolean wait) {
+            while (true) {
+                while (running.size() < parallelism && !queued.isEmpty()) {
+                    CommentThread thread = queued.poll();
+                    running.put(completions.submit(GraphCallContext.wrap(() -> read(thread))), thread);
+                }
+                if (running.isEmpty()) {
+                    return;
+                }
+                Future<Harvest> done;
+                try {
+                    done = wait ? completions.take() : completions.poll();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancel();
+                    throw new CancellationException("Interrupted waiting for comment threads");
+                }
+                if (done == null) {
+                    return;
+                }
+                collect(done, running.remove(done));
+            }
+        }
+
+        private void collect(Future<Harvest> done, CommentThread thread) {
+            Harvest harvest;
+            try {
+                harvest = done.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted reading a comment thread");
+            } catch (ExecutionException e) {
+                logger.warn("Could not read a comment thread on page {}: {}", GraphCallContext.currentPageId(),
+                        AccessTokens.redact(String.valueOf(e.getCause().getMessage())));
+                defer(pageId, thread);
+                return;
+            }
+            threads++;
+            for (SyncPipeline.FetchedComment reply : harvest.replies()) {
+                replies++;
+                emit.accept(reply);
+            }
+            markRead(thread.commentId(), thread.replyCount());
+            undefer(pageId, thread.commentId());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Harvest read(CommentThread thread) {
+        List<SyncPipeline.FetchedComment> replies = new ArrayList<>();
+        Iterator<Map<String, Object>> comments = source.replies(thread.commentId());
+        while (comments.hasNext()) {
+            Map<String, Object> reply = comments.next();
+            Map<String, Object> parent = (Map<String, Object>) reply.get("parent");
+            String parentId = parent != null && parent.get("id") != null
+                    ? (String) parent.get("id")
+                    : thread.commentId();
+            reply.put("parent_id", parentId);
+            replies.add(new SyncPipeline.FetchedComment(thread.postId(), (String) reply.get("id"),
+                    GraphTimestamps.toEpochSecondsOrZero((String) reply.get("created_time")), () -> reply,
+                    parentId, 0));
+        }
+        return new Harvest(thread, replies);
+    }
+}
@@ -0,0 +1,345 @@
+package com.webhook_wrapper.scheduler;
+
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.facebook.CommentTracker;
+import com.webhook_wrapper.facebook.GraphCallContext;
+import com.webhook_wrapper.facebook.PostEnricher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * One sync cycle as four stages joined by bounded queues:
+ *
+ *   fetch (caller's thread) -> dedup -> enrich -> sink
+ *
+ * Comments flow through as soon as they are parsed, so the Graph download,
+ * the tracker, post lookups and the sheet write overlap instead of running
+ * one after the other, and only about queue-capacity comments per stage are
+ * in memory at once. A stage that cannot keep up fills its input queue and
+ * blocks the stage in front of it. The first failure in any stage stops the
+ * fetch and dedup, so no more comments are claimed, but every comment dedup
+ * has already claimed still goes through enrich and on to the sink before
+ * the failure is rethrown from {@link #run}; claimed comments dropped here
+ * would count as seen and never be written. {@link #stop()} and an
+ * interrupted caller stop a cycle the same way.
+ */
+class SyncPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(SyncPipeline.class);
+    private static final long POLL_MILLIS = 50;
+
+    private final CommentTracker tracker;
+    private final PostEnricher postEnricher;
+    private final Consumer<Map<String, List<Map<String, Object>>>> sink;
+    private final AppProperties.Pipeline settings;
+    private final ExecutorService workers;
+    // Cycles in progress, so stop() can reach them
+    private final Set<Abort> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopping;
+
+    /**
+     * A comment as the fetch stage saw it. The map form is only built for
+     * comments that pass dedup. parentId is the comment a reply answers (null
+     * for top-level comments); replyCount is how many replies Graph reported.
+     */
+    record FetchedComment(String postId, String commentId, long createdAt, Supplier<Map<String, Object>> body,
+                          String parentId, int replyCount) {
+
+        FetchedComment(String postId, String commentId, long createdAt, Supplier<Map<String, Object>> body) {
+            this(postId, commentId, createdAt, body, null, 0);
+        }
+    }
+
+    record NewComment(String postId, Map<String, Object> comment) {
+    }
+
+    record Stats(int fetched, int fresh, int written, long millis, Map<String, Integer> freshByPost) {
+    }
+
+    @FunctionalInterface
+    interface Fetcher {
+        void fetch(Consumer<FetchedComment> emit);
+    }
+
+    SyncPipeline(CommentTracker tracker, PostEnricher postEnricher,
+                 Consumer<Map<String, List<Map<String, Object>>>> sink,
+                 AppProperties.Pipeline settings, ExecutorService workers) {
+        this.tracker = tracker;
+        this.postEnricher = postEnricher;
+        this.sink = sink;
+        this.settings = settings;
+        this.workers = workers;
+    }
+
+    /**
+     * Runs the fetcher on the calling thread and the other stages on the
+     * worker pool (bound to the caller's page), returning once every fetched
+     * comment has been written or dropped as a duplicate.
+     */
+    Stats run(Fetcher fetcher) {
+        long started = System.currentTimeMillis();
+        int capacity = Math.max(1, settings.getQueueCapacity());
+        int dedupWorkers = Math.max(1, settings.getDedupParallelism());
+        int enrichWorkers = Math.max(1, settings.getEnrichParallelism());
+        int sinkWorkers = Math.max(1, settings.getSinkParallelism());
+
+        // stopped: no more claims after a failure; cancelled: drop everything, on interrupt only
+        AtomicBoolean stopped = new AtomicBoolean();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Abort abort = new Abort(stopped, cancelled, new AtomicReference<>());
+        running.add(abort);
+        if (stopping) {
+            abort.fail(new CancellationException("Sync pipeline is shutting down"));
+        }
+        Channel<FetchedComment> fetched = new Channel<>(capacity, 1, stopped);
+        Channel<NewComment> fresh = new Channel<>(capacity, dedupWorkers, cancelled);
+        Channel<NewComment> enriched = new Channel<>(capacity, enrichWorkers, cancelled);
+        AtomicInteger fetchedCount = new AtomicInteger();
+        AtomicInteger freshCount = new AtomicInteger();
+        AtomicInteger writtenCount = new AtomicInteger();
+        Map<String, Integer> freshByPost = new ConcurrentHashMap<>();
+
+        List<Future<?>> stages = new ArrayList<>();
+        for (int i = 0; i < dedupWorkers; i++) {
+            stages.add(submit(() -> dedup(fetched, fresh, freshCount, freshByPost), abort));
+        }
+        for (int i = 0; i < enrichWorkers; i++) {
+            stages.add(submit(() -> enrich(fresh, enriched, abort), abort));
+        }
+        for (int i = 0; i < sinkWorkers; i++) {
+            stages.add(submit(() -> write(enriched, writtenCount, abort), abort));
+        }
+
+        try {
+            fetcher.fetch(comment -> {
+                fetched.put(comment);
+                fetchedCount.incrementAndGet();
+            });
+        } catch (RuntimeException e) {
+            abort.fail(e);
+        } finally {
+            fetched.producerDone();
+        }
+
+        boolean interrupted = false;
+        try {
+            for (Future<?> stage : stages) {
+                while (true) {
+                    try {
+                        stage.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        // the claimed comments still have to drain; keep waiting for them
+                        interrupted = true;
+                        abort.fail(new CancellationException("Interrupted waiting for sync stages"));
+                    } catch (ExecutionException e) {
+                        // already recorded by the stage itself
+                        break;
+                    }
+                }
+            }
+        } finally {
+            running.remove(abort);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (abort.failure().get() != null) {
+            throw abort.failure().get();
+        }
+
+        Stats stats = new Stats(fetchedCount.get(), freshCount.get(), writtenCount.get(),
+                System.currentTimeMillis() - started, Map.copyOf(freshByPost));
+        logger.info("Sync pipeline for page {}: {} comments fetched, {} new, {} written in {} ms",
+                GraphCallContext.currentPageId(), stats.fetched(), stats.fresh(), stats.written(), stats.millis());
+        return stats;
+    }
+
+    /**
+     * Stops every running cycle and any started later like a failure does:
+     * no more comments are fetched or claimed, and those already claimed
+     * still drain to the sink. Called before the worker pool shuts down.
+     */
+    void stop() {
+        stopping = true;
+        for (Abort abort : running) {
+            abort.fail(new CancellationException("Sync pipeline is shutting down"));
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageBody {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * The first failure of a cycle and how far it stops the stages.
+     */
+    private record Abort(AtomicBoolean stopped, AtomicBoolean cancelled, AtomicReference<RuntimeException> failure) {
+
+        // Stops fetching and claiming; what dedup has claimed still drains to the sink
+        void fail(RuntimeException e) {
+            // a fetcher stopped by the abort reports CancellationException; keep the cause that started it
+            failure.compareAndSet(null, e);
+            stopped.set(true);
+        }
+
+        // A stage was interrupted, the pool is going away: every stage gives up at once
+        void cancel(RuntimeException e) {
+            fail(e);
+            cancelled.set(true);
+        }
+    }
+
+    // Runs a stage bound to the caller's page; its failure stops the cycle
+    private Future<?> submit(StageBody body, Abort abort) {
+        return workers.submit(GraphCallContext.wrap(() -> {
+            try {
+                body.run();
+            } catch (InterruptedException e) {
+                abort.cancel(new CancellationException("Sync stage interrupted"));
+            } catch (RuntimeException e) {
+                abort.fail(e);
+            }
+            return null;
+        }));
+    }
+
+    private void dedup(Channel<FetchedComment> in, Channel<NewComment> out, AtomicInteger freshCount,
+                       Map<String, Integer> freshByPost) throws InterruptedException {
+        try {
+            List<FetchedComment> batch;
+            while (!(batch = in.take(settings.getQueueCapacity())).isEmpty()) {
+                for (FetchedComment comment : batch) {
+                    if (tracker.claim(comment.commentId(), comment.createdAt())) {
+                        freshCount.incrementAndGet();
+                        freshByPost.merge(comment.postId(), 1, Integer::sum);
+                        out.put(new NewComment(comment.postId(), comment.body().get()));
+                    }
+                }
+            }
+        } finally {
+            out.producerDone();
+        }
+    }
+
+    private void enrich(Channel<NewComment> in, Channel<NewComment> out, Abort abort) throws InterruptedException {
+        try {
+            List<NewComment> batch;
+            while (!(batch = in.take(Math.max(1, settings.getEnrichBatchSize()))).isEmpty()) {
+                Set<String> postIds = new LinkedHashSet<>();
+                for (NewComment comment : batch) {
+                    postIds.add(comment.postId());
+                }
+                // cached posts return at once; the rest go out as one batch lookup
+                try {
+                    postEnricher.enrich(postIds);
+                } catch (RuntimeException e) {
+                    // the comments are claimed already: write them without post details rather than lose them
+                    abort.fail(e);
+                }
+                for (NewComment comment : batch) {
+                    out.put(comment);
+                }
+            }
+        } finally {
+            out.producerDone();
+        }
+    }
+
+    private void write(Channel<NewComment> in, AtomicInteger writtenCount, Abort abort) throws InterruptedException {
+        List<NewComment> batch;
+        while (!(batch = in.take(Math.max(1, settings.getSinkBatchSize()))).isEmpty()) {
+            Map<String, List<Map<String, Object>>> byPost = new LinkedHashMap<>();
+            for (NewComment comment : batch) {
+                byPost.computeIfAbsent(comment.postId(), id -> new ArrayList<>()).add(comment.comment());
+            }
+            try {
+                sink.accept(byPost);
+                writtenCount.addAndGet(batch.size());
+            } catch (RuntimeException e) {
+                // stop claiming more, but still offer the batches already claimed
+                abort.fail(e);
+            }
+        }
+    }
+
+    /**
+     * Bounded queue that knows when all of its producers have finished.
+     */
+    private static class Channel<T> {
+        private final BlockingQueue<T> queue;
+        private final AtomicInteger openProducers;
+        private final AtomicBoolean aborted;
+
+        /**
+         * aborted is the flag that makes this channel give up: put throws
+         * and take reports the end of the stream.
+         */
+        Channel(int capacity, int producers, AtomicBoolean aborted) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.openProducers = new AtomicInteger(producers);
+            this.aborted = aborted;
+        }
+
+        /**
+         * Blocks while the queue is full; gives up once the channel is aborted.
+         */
+        void put(T item) {
+            try {
+                while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (aborted.get()) {
+                        throw new CancellationException("Sync cycle aborted");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while queueing a comment");
+            }
+        }
+
+        /**
+         * Up to max items, waiting for at least one. Empty means the stream
+         * is finished (or aborted).
+         */
+        List<T> take(int max) throws InterruptedException {
+            while (!aborted.get()) {
+                T first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    List<T> items = new ArrayList<>(Math.min(max, queue.size() + 1));
+                    items.add(first);
+                    queue.drainTo(items, max - 1);
+                    return items;
+                }
+                // a producer's last put happens before it counts down, so checking the count first misses nothing
+                if (openProducers.get() == 0 && queue.isEmpty()) {
+                    return List.of();
+                }
+            }
+            return List.of();
+        }
+
+        void producerDone() {
+            openProducers.decrementAndGet();
+        }
+    }
+}
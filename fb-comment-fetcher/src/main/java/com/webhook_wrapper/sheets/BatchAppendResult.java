@@ -0,0 +1,89 @@
+package com.webhook_wrapper.sheets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a batched write to a sink: how many rows landed and which ones did not.
+ */
+public class BatchAppendResult {
+    private int appendedRows;
+    private int requests;
+    private int updatedRows;
+    private int skippedRows;
+    private final List<RowFailure> failures = new ArrayList<>();
+
+    /**
+     * A row that was not written. Retryable failures (quota, outage, auth) may
+     * succeed later; the rest were rejected by Sheets because of the row itself.
+     */
+    public record RowFailure(CommentRow row, String error, boolean retryable) {
+        public RowFailure(CommentRow row, String error) {
+            this(row, error, true);
+        }
+    }
+
+    public static BatchAppendResult empty() {
+        return new BatchAppendResult();
+    }
+
+    public void recordAppended(int rows) {
+        this.appendedRows += rows;
+        this.requests++;
+    }
+
+    /**
+     * Rows written over the sheet rows their comments already had (upsert).
+     */
+    public void recordUpdated(int rows) {
+        this.updatedRows += rows;
+        this.requests++;
+    }
+
+    /**
+     * Rows left out because the sink already holds their comment.
+     */
+    public void recordSkipped(int rows) {
+        this.skippedRows += rows;
+    }
+
+    public void recordFailure(CommentRow row, String error, boolean retryable) {
+        failures.add(new RowFailure(row, error, retryable));
+    }
+
+    public void merge(BatchAppendResult other) {
+        this.appendedRows += other.appendedRows;
+        this.requests += other.requests;
+        this.updatedRows += other.updatedRows;
+        this.skippedRows += other.skippedRows;
+        this.failures.addAll(other.failures);
+    }
+
+    public int getAppendedRows() {
+        return appendedRows;
+    }
+
+    public int getUpdatedRows() {
+        return updatedRows;
+    }
+
+    public int getSkippedRows() {
+        return skippedRows;
+    }
+
+    /**
+     * Number of successful write calls (values.append, INSERT, ...) made for this result.
+     */
+    public int getRequests() {
+        return requests;
+    }
+
+    public List<RowFailure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+}
@@ -0,0 +1,55 @@
+package com.webhook_wrapper.sheets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One comment as it is written to the sheet (columns A:G, followed by one
+ * column per extra extracted field configured under app.extract). A reply
+ * carries the ID of the comment it answers in parentId, written in the
+ * column after the extra fields; it is null for top-level comments, whose
+ * parent cell is left empty.
+ */
+public record CommentRow(String timestamp, String pageId, String commentId,
+                         String name, String fromId, String message, String phone,
+                         List<String> extras, String parentId) {
+
+    public CommentRow {
+        extras = extras != null ? List.copyOf(extras) : List.of();
+    }
+
+    public CommentRow(String timestamp, String pageId, String commentId,
+                      String name, String fromId, String message, String phone,
+                      List<String> extras) {
+        this(timestamp, pageId, commentId, name, fromId, message, phone, extras, null);
+    }
+
+    public CommentRow(String timestamp, String pageId, String commentId,
+                      String name, String fromId, String message, String phone) {
+        this(timestamp, pageId, commentId, name, fromId, message, phone, List.of(), null);
+    }
+
+    /**
+     * Cell values in column order. Nulls become empty cells, so every row
+     * is the same width whether or not it is a reply.
+     */
+    public List<Object> toValues() {
+        List<Object> values = new ArrayList<>(8 + extras.size());
+        values.add(nullToEmpty(timestamp));
+        values.add(nullToEmpty(pageId));
+        values.add(nullToEmpty(commentId));
+        values.add(nullToEmpty(name));
+        values.add(nullToEmpty(fromId));
+        values.add(nullToEmpty(message));
+        values.add(nullToEmpty(phone));
+        for (String extra : extras) {
+            values.add(nullToEmpty(extra));
+        }
+        values.add(nullToEmpty(parentId));
+        return values;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -0,0 +1,68 @@
+package com.webhook_wrapper.sheets;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A1 notation around a configured append range such as Sheet1!A:G or
+ * 'Sales Leads'!B2:I: single columns and rows inside it, and the first row
+ * of the range a values.append reports having written.
+ */
+final class SheetRange {
+    private static final Pattern START_COLUMN = Pattern.compile("^([A-Za-z]+)");
+    private static final Pattern FIRST_ROW = Pattern.compile("^[A-Za-z]*(\\d+)");
+
+    // "Sheet1!" or "'Sales Leads'!", or empty for the first sheet
+    private final String sheetPrefix;
+    private final int startColumn;
+
+    SheetRange(String range) {
+        int bang = range.lastIndexOf('!');
+        this.sheetPrefix = bang >= 0 ? range.substring(0, bang + 1) : "";
+        Matcher column = START_COLUMN.matcher(range.substring(bang + 1));
+        this.startColumn = column.find() ? columnIndex(column.group(1)) : 0;
+    }
+
+    /**
+     * Rows fromRow to toRow of the column offset columns right of the range's first.
+     */
+    String column(int offset, int fromRow, int toRow) {
+        String letter = columnLetters(startColumn + offset);
+        return sheetPrefix + letter + fromRow + ":" + letter + toRow;
+    }
+
+    /**
+     * The cells of one row, width columns from the range's first.
+     */
+    String row(int row, int width) {
+        return sheetPrefix + columnLetters(startColumn) + row + ":"
+                + columnLetters(startColumn + Math.max(1, width) - 1) + row;
+    }
+
+    /**
+     * First row of a range like Sheet1!A101:G150, or -1 if it has none.
+     */
+    static int firstRow(String a1Range) {
+        if (a1Range == null) {
+            return -1;
+        }
+        Matcher row = FIRST_ROW.matcher(a1Range.substring(a1Range.lastIndexOf('!') + 1));
+        return row.find() ? Integer.parseInt(row.group(1)) : -1;
+    }
+
+    static int columnIndex(String letters) {
+        int index = 0;
+        for (char c : letters.toUpperCase().toCharArray()) {
+            index = index * 26 + (c - 'A' + 1);
+        }
+        return index - 1;
+    }
+
+    static String columnLetters(int index) {
+        StringBuilder letters = new StringBuilder();
+        for (int n = index + 1; n > 0; n = (n - 1) / 26) {
+            letters.insert(0, (char) ('A' + (n - 1) % 26));
+        }
+        return letters.toString();
+    }
+}
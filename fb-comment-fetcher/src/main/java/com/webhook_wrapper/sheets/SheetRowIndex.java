@@ -0,0 +1,81 @@
+package com.webhook_wrapper.sheets;
+
+import com.webhook_wrapper.dedup.CommentIdHash;
+import com.webhook_wrapper.dedup.LongHashSet;
+
+/**
+ * Which comments one sheet already holds, and on which row: 64-bit hashes of
+ * the comment IDs in a {@link LongHashSet} whose stamps are row numbers,
+ * about 20 bytes a row. Built by reading the sheet from the top and kept up
+ * to date from the rows this process appends.
+ *
+ * The tail goes stale when an append fails in a way that may have written
+ * the rows anyway (a timeout, a 5xx); the rows from {@link #nextRow()} on
+ * must then be read again before appending.
+ */
+class SheetRowIndex {
+    static final int ABSENT = -1;
+    // Indexed from an append whose target rows were not reported
+    static final int ROW_UNKNOWN = 0;
+
+    private final LongHashSet rows = new LongHashSet(1024);
+    private int nextRow = 1;
+    private boolean loaded;
+    private boolean tailStale;
+
+    synchronized int rowOf(String commentId) {
+        return rows.stamp(CommentIdHash.hash(commentId), ABSENT);
+    }
+
+    synchronized void put(String commentId, int row) {
+        rows.put(CommentIdHash.hash(commentId), row);
+    }
+
+    /**
+     * First row not read from the sheet yet.
+     */
+    synchronized int nextRow() {
+        return nextRow;
+    }
+
+    /**
+     * Rows before nextRow have been read; once the read reaches the end of
+     * the sheet the index is loaded and its tail fresh.
+     */
+    synchronized void readUpTo(int nextRow, boolean reachedEnd) {
+        this.nextRow = Math.max(this.nextRow, nextRow);
+        if (reachedEnd) {
+            loaded = true;
+            tailStale = false;
+        }
+    }
+
+    /**
+     * Records rows this process appended, starting at firstRow (or -1 if the
+     * response did not say). The read position only moves past them if they
+     * directly follow what was read, so rows written by anyone else in
+     * between are still picked up by the next read.
+     */
+    synchronized void appended(Iterable<CommentRow> appended, int firstRow) {
+        int row = firstRow;
+        for (CommentRow comment : appended) {
+            rows.put(CommentIdHash.hash(comment.commentId()), firstRow > 0 ? row++ : ROW_UNKNOWN);
+        }
+        if (firstRow > 0 && firstRow == nextRow) {
+            nextRow = row;
+        } else {
+            tailStale = true;
+        }
+    }
+
+    synchronized void markTailStale() {
+        tailStale = true;
+    }
+
+    /**
+     * True until the sheet has been read to the end, and again after an append may have written unseen rows.
+     */
+    synchronized boolean needsRead() {
+        return !loaded || tailStale;
+    }
+}
@@ -1,75 +1,421 @@
 package com.webhook_wrapper.sheets;
 
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.AppendValuesResponse;
+import com.google.api.services.sheets.v4.model.BatchUpdateValuesRequest;
+import com.google.api.services.sheets.v4.model.Sheet;
+import com.google.api.services.sheets.v4.model.Spreadsheet;
 import com.google.api.services.sheets.v4.model.ValueRange;
 import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.facebook.CommentTracker;
+import com.webhook_wrapper.resilience.ApiGuard;
+import com.webhook_wrapper.resilience.ApiGuards;
+import com.webhook_wrapper.sink.CommentSink;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 @Service
 @ConditionalOnProperty(name = "google.sheetId", matchIfMissing = false)
-public class SheetsAppender {
+public class SheetsAppender implements CommentSink {
     private static final Logger logger = LoggerFactory.getLogger(SheetsAppender.class);
+    // Position of the comment ID in CommentRow.toValues(), counted from the range's first column
+    private static final int COMMENT_ID_COLUMN = 2;
     
-    private Sheets sheets;
+    // Shared with every target; empty when google.sheetId is unset or until a deferred start finishes
+    private final SharedClient client;
     private final String sheetId;
     private final String range;
-    private boolean initialized;
+    // Retries 429s and server errors; one circuit per spreadsheet
+    private final ApiGuard guard;
 
+    // Comment IDs already in the sheet (app.sheet-index), null when off
+    private final AppProperties.SheetIndex indexSettings;
+    private final SheetRowIndex index;
+    private final SheetRange sheetRange;
+    // Told about every comment ID found in the sheet, to seed the tracker
+    private Consumer<String> onIndexedComment = commentId -> { };
+    private List<AppProperties.Page> pages = List.of();
+    private final Map<String, SheetsAppender> targets = new ConcurrentHashMap<>();
+
+    // app.startup.lazy-sheets: rows held in the buffer until the client is up, 0 to refuse them
+    private final AppProperties.Startup startup;
+    private final int maxPendingRows;
+    private Thread starter;
+
+    // Rows per values.append call
+    private final int batchMaxRows;
+    // Rows written while the client is still starting, appended once it is up
+    private final long flushIntervalMs;
+    private final Object bufferLock = new Object();
+    private List<CommentRow> buffer = new ArrayList<>();
+    private long oldestBufferedAt;
+
+    @Autowired
     public SheetsAppender(
             @Value("${google.sheetId:}") String sheetId,
-            @Value("${google.range:Sheet1!A:G}") String range
+            @Value("${google.range:Sheet1!A:H}") String range,
+            @Value("${google.batch.max-rows:500}") int batchMaxRows,
+            @Value("${google.batch.flush-interval-ms:5000}") long flushIntervalMs,
+            AppProperties appProperties,
+            ApiGuards guards,
+            CommentTracker tracker
     ) throws Exception {
-        this.sheetId = sheetId;
-        this.range = range;
+        // with the outbox on, rows wait there instead, where they survive a restart
+        this(settings(sheetId, range)
+                .batchMaxRows(batchMaxRows)
+                .flushIntervalMs(flushIntervalMs)
+                .guard(guards.sheets())
+                .sheetIndex(appProperties.getSheetIndex())
+                .startup(appProperties.getStartup(), !appProperties.getOutbox().isEnabled()));
+        this.onIndexedComment = commentId -> tracker.claim(commentId, 0);
+        this.pages = appProperties.getPages();
+    }
+
+    /**
+     * For subclasses that stand in for Google. With startup.lazySheets the
+     * client is not built here but by {@link #start()}; holdRowsWhileStarting
+     * keeps rows written before then in the append buffer.
+     */
+    protected SheetsAppender(Settings settings) throws Exception {
+        this.client = new SharedClient();
+        this.sheetId = settings.sheetId;
+        this.guard = settings.guard;
+        this.range = settings.range;
+        this.indexSettings = settings.indexSettings;
+        this.index = indexSettings.isEnabled() ? new SheetRowIndex() : null;
+        this.sheetRange = new SheetRange(range);
+        this.batchMaxRows = Math.max(1, settings.batchMaxRows);
+        this.flushIntervalMs = settings.flushIntervalMs;
+        this.startup = settings.startup;
+        this.maxPendingRows = settings.holdRowsWhileStarting ? Math.max(0, startup.getMaxPendingRows()) : 0;
         
         // Check if we have the required configuration
         if (sheetId == null || sheetId.trim().isEmpty()) {
             logger.warn("Google Sheets integration disabled: google.sheetId not configured");
-            this.sheets = null;
-            this.initialized = false;
+            return;
+        }
+
+        if (startup.isLazySheets()) {
+            // credentials and the TLS transport are resolved off the startup path
+            logger.info("Deferring the Google Sheets client for sheet {} until after startup", sheetId);
+            client.starting = true;
             return;
         }
 
         logger.info("Initializing Google Sheets client for sheet: {}", sheetId);
         
         try {
-            GoogleCredentials creds = GoogleCredentials.getApplicationDefault()
-                    .createScoped(List.of("https://www.googleapis.com/auth/spreadsheets"));
-
-            this.sheets = new Sheets.Builder(
-                    GoogleNetHttpTransport.newTrustedTransport(),
-                    GsonFactory.getDefaultInstance(),
-                    new HttpCredentialsAdapter(creds))
-                    .setApplicationName("fb-comment-sheets")
-                    .build();
-                    
-            this.initialized = true;
+            client.sheets = createClient();
             logger.info("Google Sheets client initialized successfully");
         } catch (Exception e) {
             logger.error("Failed to initialize Google Sheets client: {}", e.getMessage());
-            this.sheets = null;
-            this.initialized = false;
             throw e;
         }
     }
 
+    /**
+     * Constructor arguments for the given sheet and range, defaulting to
+     * 500-row batches, held rows flushed after five seconds, the default
+     * app.resilience settings without retry metrics, no sheet index and an
+     * eager client.
+     */
+    protected static Settings settings(String sheetId, String range) {
+        return new Settings(sheetId, range);
+    }
+
+    protected static final class Settings {
+        private final String sheetId;
+        private final String range;
+        private int batchMaxRows = 500;
+        private long flushIntervalMs = 5_000;
+        private ApiGuard guard = new ApiGuard("sheets", new AppProperties.Resilience(), ApiGuard.Listener.NONE);
+        private AppProperties.SheetIndex indexSettings = new AppProperties.SheetIndex();
+        private AppProperties.Startup startup = new AppProperties.Startup();
+        private boolean holdRowsWhileStarting;
+
+        private Settings(String sheetId, String range) {
+            this.sheetId = sheetId;
+            this.range = range;
+        }
+
+        public Settings batchMaxRows(int batchMaxRows) {
+            this.batchMaxRows = batchMaxRows;
+            return this;
+        }
+
+        public Settings flushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+            return this;
+        }
+
+        public Settings guard(ApiGuard guard) {
+            this.guard = guard;
+            return this;
+        }
+
+        public Settings sheetIndex(AppProperties.SheetIndex indexSettings) {
+            this.indexSettings = indexSettings;
+            return this;
+        }
+
+        public Settings startup(AppProperties.Startup startup, boolean holdRowsWhileStarting) {
+            this.startup = startup;
+            this.holdRowsWhileStarting = holdRowsWhileStarting;
+            return this;
+        }
+    }
+
+    /**
+     * Resolves application default credentials and builds the Sheets client.
+     */
+    protected Sheets createClient() throws Exception {
+        GoogleCredentials creds = GoogleCredentials.getApplicationDefault()
+                .createScoped(List.of("https://www.googleapis.com/auth/spreadsheets"));
+
+        return new Sheets.Builder(
+                GoogleNetHttpTransport.newTrustedTransport(),
+                GsonFactory.getDefaultInstance(),
+                new HttpCredentialsAdapter(creds))
+                .setApplicationName("fb-comment-sheets")
+                .build();
+    }
+
+    /**
+     * Appender for another sheet that shares this one's Sheets client and batch settings.
+     */
+    private SheetsAppender(SheetsAppender base, String sheetId, String range) {
+        this.client = base.client;
+        this.sheetId = sheetId;
+        this.range = range;
+        this.guard = base.guard;
+        this.batchMaxRows = base.batchMaxRows;
+        this.flushIntervalMs = base.flushIntervalMs;
+        this.startup = base.startup;
+        this.maxPendingRows = base.maxPendingRows;
+        this.indexSettings = base.indexSettings;
+        this.index = base.index != null ? new SheetRowIndex() : null;
+        this.sheetRange = new SheetRange(range);
+        this.onIndexedComment = base.onIndexedComment;
+    }
+
+    /**
+     * Returns the appender writing to the given sheet and range, with its own
+     * buffer and sheet index; one per target, kept for reuse. Blank values
+     * fall back to this appender's target.
+     */
+    public SheetsAppender withTarget(String sheetId, String range) {
+        String targetSheet = sheetId == null || sheetId.isBlank() ? this.sheetId : sheetId;
+        String targetRange = range == null || range.isBlank() ? this.range : range;
+        if (targetSheet.equals(this.sheetId) && targetRange.equals(this.range)) {
+            return this;
+        }
+        return targets.computeIfAbsent(targetSheet + "\u0000" + targetRange,
+                key -> new SheetsAppender(this, targetSheet, targetRange));
+    }
+
+    /**
+     * Reads the sheet index now, or with app.startup.lazy-sheets builds the
+     * client on a background thread first, retrying until the credentials
+     * resolve, and then appends the rows held meanwhile.
+     */
+    @PostConstruct
+    public void start() {
+        if (!client.starting) {
+            warmUpIndex();
+            return;
+        }
+        starter = new Thread(this::startClient, "sheets-client-init");
+        starter.setDaemon(true);
+        starter.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (starter != null) {
+            starter.interrupt();
+        }
+    }
+
+    private void startClient() {
+        long started = System.currentTimeMillis();
+        long delay = Math.max(1, Math.min(startup.getInitRetryMaxMs(), startup.getInitRetryInitialMs()));
+        while (client.sheets == null) {
+            try {
+                client.sheets = createClient();
+            } catch (Exception e) {
+                logger.warn("Google Sheets client for sheet {} not ready, retrying in {} ms: {}",
+                        sheetId, delay, e.getMessage());
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                delay = Math.min(startup.getInitRetryMaxMs(), delay * 2);
+            }
+        }
+        logger.info("Google Sheets client initialized in {} ms", System.currentTimeMillis() - started);
+        warmUpIndex();
+        client.starting = false;
+        flushHeldRows();
+        for (SheetsAppender target : targets.values()) {
+            target.flushHeldRows();
+        }
+    }
+
+    private void flushHeldRows() {
+        BatchAppendResult result = flush();
+        for (BatchAppendResult.RowFailure failure : result.getFailures()) {
+            logger.error("Failed to append held row for commentId={}: {}",
+                    failure.row().commentId(), failure.error());
+        }
+    }
+
+    /**
+     * With app.sheet-index on, reads the comment IDs already in the default
+     * sheet and every app.pages sheet before any sync runs, and seeds the
+     * tracker with them. A sheet that cannot be read now is read before its
+     * first append instead.
+     */
+    public void warmUpIndex() {
+        if (index == null || client.sheets == null) {
+            return;
+        }
+        loadIndexQuietly();
+        for (AppProperties.Page page : pages) {
+            withTarget(page.getSheetId(), page.getRange()).loadIndexQuietly();
+        }
+    }
+
+    private void loadIndexQuietly() {
+        long started = System.currentTimeMillis();
+        try {
+            int found = loadIndex();
+            logger.info("Indexed {} comment IDs from sheet {} ({}) in {} ms", found, sheetId, range,
+                    System.currentTimeMillis() - started);
+        } catch (IOException e) {
+            logger.warn("Could not read comment IDs from sheet {} yet, will retry before appending: {}",
+                    sheetId, e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the comment ID column from the first unread row to the last row
+     * of the sheet's grid, in values.get calls of app.sheet-index.chunk-rows
+     * rows, and returns how many IDs it found. Blank ID cells say nothing
+     * about where the sheet ends; values.get drops them at the end of a chunk.
+     */
+    int loadIndex() throws IOException {
+        // one reader at a time; appends wait for the index rather than guess
+        synchronized (index) {
+            int chunk = Math.max(1, indexSettings.getChunkRows());
+            int rowCount = guard.call(sheetId, this::readRowCount, SheetsAppender::classify);
+            int found = 0;
+            int from = index.nextRow();
+            while (true) {
+                int to = Math.min(rowCount, from + chunk - 1);
+                String column = sheetRange.column(COMMENT_ID_COLUMN, from, to);
+                List<Object> ids = to >= from
+                        ? guard.call(sheetId, () -> readColumn(column), SheetsAppender::classify)
+                        : List.of();
+                for (int i = 0; i < ids.size(); i++) {
+                    String commentId = String.valueOf(ids.get(i)).trim();
+                    if (commentId.isEmpty()) {
+                        continue;
+                    }
+                    if (index.rowOf(commentId) == SheetRowIndex.ABSENT) {
+                        onIndexedComment.accept(commentId);
+                    }
+                    index.put(commentId, from + i);
+                    found++;
+                }
+                boolean reachedEnd = to >= rowCount;
+                // the read position stays after the last ID, where the next append lands
+                index.readUpTo(ids.isEmpty() ? 0 : from + ids.size(), reachedEnd);
+                if (reachedEnd) {
+                    return found;
+                }
+                from = to + 1;
+            }
+        }
+    }
+
+    @Override
+    public CommentSink forTarget(String sheetId, String range) {
+        return withTarget(sheetId, range);
+    }
+
+    @Override
+    public String name() {
+        return "sheets";
+    }
+
+    @Override
+    public int preferredBatchSize() {
+        return batchMaxRows;
+    }
+
+    @Override
+    public BatchAppendResult write(List<CommentRow> rows) {
+        if (client.starting) {
+            return holdUntilStarted(rows);
+        }
+        return appendRows(rows);
+    }
+
+    /**
+     * Keeps rows in the append buffer while the client is still starting, up
+     * to app.startup.max-pending-rows; rows beyond that, or all of them when
+     * the outbox is on, fail as retryable.
+     */
+    private BatchAppendResult holdUntilStarted(List<CommentRow> rows) {
+        boolean held = false;
+        synchronized (bufferLock) {
+            if (buffer.size() + rows.size() <= maxPendingRows) {
+                if (buffer.isEmpty()) {
+                    oldestBufferedAt = System.currentTimeMillis();
+                }
+                buffer.addAll(rows);
+                held = true;
+            }
+        }
+        if (!held) {
+            BatchAppendResult result = new BatchAppendResult();
+            for (CommentRow row : rows) {
+                result.recordFailure(row, "Google Sheets client is still starting", true);
+            }
+            return result;
+        }
+        // the client may have come up while the rows went in, after its own flush
+        return client.starting ? BatchAppendResult.empty() : flush();
+    }
+
     /**
      * Health check: verifies API + sheet access
      */
     public void readiness() throws IOException {
-        if (!initialized) {
-            throw new IOException("Google Sheets integration not initialized");
-        }
+        Sheets sheets = sheets();
         
         logger.debug("Performing readiness check for sheet: {}", sheetId);
         try {
@@ -86,26 +432,325 @@ public class SheetsAppender {
      */
     public void appendRow(String timestamp, String pageId, String commentId,
                          String name, String fromId, String message, String phone) throws IOException {
-        if (!initialized) {
-            throw new IOException("Google Sheets integration not initialized");
-        }
+        Sheets sheets = sheets();
         
         logger.debug("Appending row to sheet {}: timestamp={}, pageId={}, commentId={}", 
                     sheetId, timestamp, pageId, commentId);
         
         try {
-            List<Object> row = List.of(timestamp, pageId, commentId, name, fromId, message, phone);
+            List<Object> row = new CommentRow(timestamp, pageId, commentId, name, fromId, message, phone).toValues();
             ValueRange body = new ValueRange().setValues(List.of(row));
             
-            sheets.spreadsheets().values()
+            guard.call(sheetId, () -> sheets.spreadsheets().values()
                     .append(sheetId, range, body)
                     .setValueInputOption("USER_ENTERED")
-                    .execute();
-                    
+                    .execute(), SheetsAppender::classify);
+
             logger.info("Successfully appended row to sheet {}: commentId={}", sheetId, commentId);
         } catch (IOException e) {
             logger.error("Failed to append row to sheet {}: {}", sheetId, e.getMessage());
             throw e;
         }
     }
+
+    /**
+     * Writes every buffered row now.
+     */
+    public BatchAppendResult flush() {
+        List<CommentRow> toWrite;
+        synchronized (bufferLock) {
+            toWrite = drainBuffer();
+        }
+        return appendRows(toWrite);
+    }
+
+    /**
+     * Time-based flush so rows held during startup do not sit in the buffer
+     * if the flush after the client came up missed them.
+     */
+    @Scheduled(fixedDelayString = "${google.batch.flush-interval-ms:5000}")
+    public void flushIfDue() {
+        if (client.starting) {
+            return;
+        }
+        List<CommentRow> toWrite;
+        synchronized (bufferLock) {
+            if (buffer.isEmpty() || System.currentTimeMillis() - oldestBufferedAt < flushIntervalMs) {
+                return;
+            }
+            toWrite = drainBuffer();
+        }
+        BatchAppendResult result = appendRows(toWrite);
+        for (BatchAppendResult.RowFailure failure : result.getFailures()) {
+            logger.error("Failed to append buffered row for commentId={}: {}",
+                    failure.row().commentId(), failure.error());
+        }
+    }
+
+    public int getBufferedRowCount() {
+        synchronized (bufferLock) {
+            return buffer.size();
+        }
+    }
+
+    /**
+     * Appends rows in chunks of google.batch.max-rows, one values.append call per
+     * chunk. A rejected chunk is split in half and retried so a single bad row
+     * only fails itself; quota and server errors fail the chunk as a whole
+     * since splitting would just spend more quota. Each call is retried through
+     * the sheets {@link ApiGuard} first, waiting out the Retry-After of a 429.
+     */
+    public BatchAppendResult appendRows(List<CommentRow> rows) {
+        BatchAppendResult result = new BatchAppendResult();
+        List<CommentRow> toAppend = rows;
+        if (index != null && !rows.isEmpty()) {
+            try {
+                toAppend = withoutIndexedRows(rows, result);
+            } catch (IOException e) {
+                // without the index there is no telling which rows the sheet already has
+                for (CommentRow row : rows) {
+                    result.recordFailure(row, "Sheet index unavailable: " + e.getMessage(), true);
+                }
+                return result;
+            }
+        }
+        for (int start = 0; start < toAppend.size(); start += batchMaxRows) {
+            List<CommentRow> chunk = toAppend.subList(start, Math.min(toAppend.size(), start + batchMaxRows));
+            appendChunk(chunk, result);
+        }
+        if (!rows.isEmpty()) {
+            logger.info("Batched append to sheet {}: {} rows in {} requests, {} updated, {} already there, {} failed",
+                    sheetId, result.getAppendedRows(), result.getRequests(), result.getUpdatedRows(),
+                    result.getSkippedRows(), result.getFailures().size());
+        }
+        return result;
+    }
+
+    /**
+     * Sorts rows against the sheet index: comments the sheet does not have
+     * are returned for appending, the rest are skipped, or with
+     * app.sheet-index.upsert written over their existing row.
+     */
+    private List<CommentRow> withoutIndexedRows(List<CommentRow> rows, BatchAppendResult result) throws IOException {
+        if (index.needsRead()) {
+            loadIndex();
+        }
+        List<CommentRow> fresh = new ArrayList<>(rows.size());
+        List<CommentRow> existing = new ArrayList<>();
+        List<Integer> existingRows = new ArrayList<>();
+        Set<String> inThisBatch = new HashSet<>();
+        int skipped = 0;
+        for (CommentRow row : rows) {
+            int at = index.rowOf(row.commentId());
+            if (at == SheetRowIndex.ABSENT && inThisBatch.add(row.commentId())) {
+                fresh.add(row);
+            } else if (at > 0 && indexSettings.isUpsert()) {
+                existing.add(row);
+                existingRows.add(at);
+            } else {
+                skipped++;
+            }
+        }
+        result.recordSkipped(skipped);
+        for (int start = 0; start < existing.size(); start += batchMaxRows) {
+            int end = Math.min(existing.size(), start + batchMaxRows);
+            updateChunk(existing.subList(start, end), existingRows.subList(start, end), result);
+        }
+        return fresh;
+    }
+
+    /**
+     * Writes rows over the sheet rows their comments already occupy, in one values.batchUpdate call.
+     */
+    private void updateChunk(List<CommentRow> chunk, List<Integer> sheetRows, BatchAppendResult result) {
+        List<ValueRange> data = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            List<Object> values = chunk.get(i).toValues();
+            data.add(new ValueRange().setRange(sheetRange.row(sheetRows.get(i), values.size()))
+                    .setValues(List.of(values)));
+        }
+        try {
+            guard.call(sheetId, () -> {
+                executeBatchUpdate(data);
+                return null;
+            }, SheetsAppender::classify);
+            result.recordUpdated(chunk.size());
+        } catch (IOException e) {
+            for (CommentRow row : chunk) {
+                result.recordFailure(row, e.getMessage(), !isRowSpecific(e));
+            }
+        }
+    }
+
+    private void appendChunk(List<CommentRow> chunk, BatchAppendResult result) {
+        try {
+            guard.call(sheetId, () -> {
+                appendOnce(chunk, result);
+                return null;
+            }, SheetsAppender::classify);
+        } catch (IOException e) {
+            boolean rowSpecific = isRowSpecific(e);
+            if (chunk.size() > 1 && rowSpecific) {
+                int mid = chunk.size() / 2;
+                appendChunk(chunk.subList(0, mid), result);
+                appendChunk(chunk.subList(mid, chunk.size()), result);
+                return;
+            }
+            for (CommentRow row : chunk) {
+                result.recordFailure(row, e.getMessage(), !rowSpecific);
+            }
+        }
+    }
+
+    /**
+     * One values.append attempt. With the sheet index on, an attempt after
+     * one that may have written its rows anyway first reads the new rows
+     * and only sends what is still missing.
+     */
+    private void appendOnce(List<CommentRow> chunk, BatchAppendResult result) throws IOException {
+        List<CommentRow> pending = chunk;
+        if (index != null && index.needsRead()) {
+            loadIndex();
+            pending = new ArrayList<>(chunk.size());
+            for (CommentRow row : chunk) {
+                if (index.rowOf(row.commentId()) == SheetRowIndex.ABSENT) {
+                    pending.add(row);
+                }
+            }
+            result.recordSkipped(chunk.size() - pending.size());
+            if (pending.isEmpty()) {
+                return;
+            }
+        }
+        List<List<Object>> values = new ArrayList<>(pending.size());
+        for (CommentRow row : pending) {
+            values.add(row.toValues());
+        }
+        String updatedRange;
+        try {
+            updatedRange = executeAppend(values);
+        } catch (IOException e) {
+            // a timeout or 5xx may still have written the rows; a 429 or 4xx did not
+            if (index != null && classify(e).kind() == ApiGuard.Kind.TRANSIENT) {
+                index.markTailStale();
+            }
+            throw e;
+        }
+        if (index != null) {
+            index.appended(pending, SheetRange.firstRow(updatedRange));
+        }
+        result.recordAppended(pending.size());
+    }
+
+    /**
+     * 429 is throttling and 5xx transient, both worth retrying; other HTTP
+     * errors will not go away by themselves. Anything without a status is a
+     * network failure and transient.
+     */
+    static ApiGuard.Failure classify(IOException e) {
+        if (!(e instanceof HttpResponseException)) {
+            return ApiGuard.Failure.transientError(0);
+        }
+        HttpResponseException response = (HttpResponseException) e;
+        long retryAfter = response.getHeaders() != null
+                ? ApiGuard.parseRetryAfter(response.getHeaders().getFirstHeaderStringValue("Retry-After"))
+                : 0;
+        if (response.getStatusCode() == 429) {
+            return ApiGuard.Failure.throttled(retryAfter);
+        }
+        if (response.getStatusCode() >= 500) {
+            return ApiGuard.Failure.transientError(retryAfter);
+        }
+        return ApiGuard.Failure.PERMANENT;
+    }
+
+    /**
+     * Only a 400 can be caused by the content of a particular row.
+     */
+    private boolean isRowSpecific(IOException e) {
+        return e instanceof GoogleJsonResponseException
+                && ((GoogleJsonResponseException) e).getStatusCode() == 400;
+    }
+
+    /**
+     * Single values.append call for a block of rows. Returns the range the
+     * rows were written to (Sheet1!A101:G150), or null if not reported.
+     */
+    protected String executeAppend(List<List<Object>> values) throws IOException {
+        ValueRange body = new ValueRange().setValues(values);
+        AppendValuesResponse response = sheets().spreadsheets().values()
+                .append(sheetId, range, body)
+                .setValueInputOption("USER_ENTERED")
+                .setInsertDataOption("INSERT_ROWS")
+                .execute();
+        return response.getUpdates() != null ? response.getUpdates().getUpdatedRange() : null;
+    }
+
+    /**
+     * Single values.batchUpdate call writing each range in place.
+     */
+    protected void executeBatchUpdate(List<ValueRange> data) throws IOException {
+        sheets().spreadsheets().values()
+                .batchUpdate(sheetId, new BatchUpdateValuesRequest()
+                        .setValueInputOption("USER_ENTERED")
+                        .setData(data))
+                .execute();
+    }
+
+    /**
+     * Single values.get call for a range one column wide; blank cells come
+     * back as empty strings and the list stops at the last non-blank one.
+     */
+    protected List<Object> readColumn(String a1Range) throws IOException {
+        ValueRange response = sheets().spreadsheets().values()
+                .get(sheetId, a1Range)
+                .setMajorDimension("COLUMNS")
+                .execute();
+        List<List<Object>> columns = response.getValues();
+        return columns == null || columns.isEmpty() ? List.of() : columns.get(0);
+    }
+
+    /**
+     * Single spreadsheets.get call for the number of rows in the grid of the
+     * sheet the range is on, blank rows included.
+     */
+    protected int readRowCount() throws IOException {
+        Spreadsheet spreadsheet = sheets().spreadsheets().get(sheetId)
+                .setRanges(List.of(range))
+                .setIncludeGridData(false)
+                .setFields("sheets.properties.gridProperties.rowCount")
+                .execute();
+        List<Sheet> tabs = spreadsheet.getSheets();
+        if (tabs == null || tabs.isEmpty() || tabs.get(0).getProperties() == null
+                || tabs.get(0).getProperties().getGridProperties() == null) {
+            throw new IOException("Sheet " + sheetId + " reported no grid for range " + range);
+        }
+        Integer rowCount = tabs.get(0).getProperties().getGridProperties().getRowCount();
+        return rowCount != null ? rowCount : 0;
+    }
+
+    private Sheets sheets() throws IOException {
+        Sheets sheets = client.sheets;
+        if (sheets == null) {
+            throw new IOException(client.starting
+                    ? "Google Sheets client is still starting"
+                    : "Google Sheets integration not initialized");
+        }
+        return sheets;
+    }
+
+    private List<CommentRow> drainBuffer() {
+        List<CommentRow> drained = buffer;
+        buffer = new ArrayList<>();
+        return drained;
+    }
+
+    /**
+     * The Sheets client behind an appender and all of its targets.
+     */
+    private static final class SharedClient {
+        volatile Sheets sheets;
+        // set while a deferred client is being built
+        volatile boolean starting;
+    }
 }
@@ -0,0 +1,39 @@
+package com.webhook_wrapper.sink;
+
+import com.webhook_wrapper.sheets.BatchAppendResult;
+import com.webhook_wrapper.sheets.CommentRow;
+
+import java.util.List;
+
+/**
+ * A destination for comment rows. Every enabled sink bean receives every row;
+ * see {@link CommentSinks}.
+ */
+public interface CommentSink {
+
+    /**
+     * Short name used in logs and metrics, e.g. "sheets".
+     */
+    String name();
+
+    /**
+     * Rows per {@link #write} call this sink handles most efficiently. Callers
+     * feed it in chunks of this size; larger lists are still accepted.
+     */
+    int preferredBatchSize();
+
+    /**
+     * Writes the rows and reports the ones that did not land, marking each
+     * failure retryable or not. Must not throw for ordinary write errors.
+     */
+    BatchAppendResult write(List<CommentRow> rows);
+
+    /**
+     * The sink for a page-specific destination from app.pages (sheet-id and
+     * range). Blank values mean the default; sinks without per-page
+     * destinations return themselves.
+     */
+    default CommentSink forTarget(String sheetId, String range) {
+        return this;
+    }
+}
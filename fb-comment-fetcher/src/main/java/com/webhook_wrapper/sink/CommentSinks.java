@@ -0,0 +1,103 @@
+package com.webhook_wrapper.sink;
+
+import com.webhook_wrapper.metrics.SyncMetrics;
+import com.webhook_wrapper.sheets.BatchAppendResult;
+import com.webhook_wrapper.sheets.CommentRow;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fan-out over every {@link CommentSink} bean. Writes go to each sink in turn,
+ * in chunks of that sink's preferred batch size.
+ */
+@Component
+public class CommentSinks {
+    private static final Logger logger = LoggerFactory.getLogger(CommentSinks.class);
+
+    private final List<CommentSink> sinks;
+    private final SyncMetrics metrics;
+    private final Map<String, List<CommentSink>> byTarget = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CommentSinks(ObjectProvider<CommentSink> sinks, SyncMetrics metrics) {
+        this(sinks.orderedStream().toList(), metrics);
+    }
+
+    public CommentSinks(List<CommentSink> sinks, SyncMetrics metrics) {
+        this.sinks = List.copyOf(sinks);
+        this.metrics = metrics;
+        if (this.sinks.isEmpty()) {
+            logger.warn("No comment sinks configured: set google.sheetId or enable app.sinks.file / app.sinks.jdbc");
+        } else {
+            logger.info("Comment sinks: {}", names());
+        }
+    }
+
+    /**
+     * Every sink, resolved for the given page destination (null for the default).
+     */
+    public List<CommentSink> forTarget(String sheetId, String range) {
+        return byTarget.computeIfAbsent(sheetId + "|" + range, key -> {
+            List<CommentSink> resolved = new ArrayList<>(sinks.size());
+            for (CommentSink sink : sinks) {
+                resolved.add(sink.forTarget(sheetId, range));
+            }
+            return List.copyOf(resolved);
+        });
+    }
+
+    /**
+     * Writes the rows to every sink. Failures from all sinks are merged, so a
+     * row may appear once per sink that could not take it.
+     */
+    public BatchAppendResult write(String sheetId, String range, List<CommentRow> rows) {
+        BatchAppendResult result = new BatchAppendResult();
+        for (CommentSink sink : forTarget(sheetId, range)) {
+            result.merge(writeChunked(sink, rows));
+        }
+        return result;
+    }
+
+    /**
+     * Feeds one sink in chunks of its preferred batch size, timing each write.
+     */
+    public BatchAppendResult writeChunked(CommentSink sink, List<CommentRow> rows) {
+        BatchAppendResult result = new BatchAppendResult();
+        int chunkSize = Math.max(1, sink.preferredBatchSize());
+        for (int start = 0; start < rows.size(); start += chunkSize) {
+            Timer.Sample sample = metrics.start();
+            BatchAppendResult chunk = sink.write(rows.subList(start, Math.min(rows.size(), start + chunkSize)));
+            int retryable = 0;
+            for (BatchAppendResult.RowFailure failure : chunk.getFailures()) {
+                if (failure.retryable()) {
+                    retryable++;
+                }
+            }
+            metrics.sinkWrite(sample, sink.name(), chunk.getAppendedRows(), retryable,
+                    chunk.getFailures().size() - retryable);
+            result.merge(chunk);
+        }
+        return result;
+    }
+
+    public List<String> names() {
+        List<String> names = new ArrayList<>(sinks.size());
+        for (CommentSink sink : sinks) {
+            names.add(sink.name());
+        }
+        return names;
+    }
+
+    public boolean isEmpty() {
+        return sinks.isEmpty();
+    }
+}
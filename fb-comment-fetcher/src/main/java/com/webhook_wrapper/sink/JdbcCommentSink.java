@@ -0,0 +1,281 @@
+package com.webhook_wrapper.sink;
+
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.sheets.BatchAppendResult;
+import com.webhook_wrapper.sheets.CommentRow;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Inserts rows into a database table over plain JDBC, one multi-row
+ * INSERT ... VALUES (...), (...) per batch-size rows in a single transaction.
+ *
+ * The comment id is the primary key, so a row the outbox redelivers after a
+ * restart is recognised as already stored. When a batch fails on a constraint
+ * or bad value it is retried row by row: duplicates count as written, rows
+ * the database rejects are failed for good, and connection problems fail the
+ * whole batch as retryable and reconnect on the next write. Defaults to an
+ * embedded H2 file database; any driver on the classpath works.
+ *
+ * With create-table on, a missing table is created on connect, using TEXT
+ * for the long columns: fine on H2, PostgreSQL, MySQL and SQL Server, while
+ * on Oracle the table has to be created beforehand. A reply stores the
+ * comment it answers in parent_id, which a table created before that column
+ * existed has added on connect.
+ */
+@Component
+@ConditionalOnProperty(name = "app.sinks.jdbc.enabled", havingValue = "true")
+public class JdbcCommentSink implements CommentSink {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcCommentSink.class);
+    private static final Pattern TABLE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+    private static final String COLUMNS = "comment_id, created_at, page_id, name, from_id, message, phone, extras, parent_id";
+    private static final int COLUMN_COUNT = 9;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String table;
+    private final int batchSize;
+    private final boolean createTable;
+
+    private Connection connection;
+    // INSERT text for a full batch; shorter tails build theirs on demand
+    private String fullBatchSql;
+
+    @Autowired
+    public JdbcCommentSink(AppProperties appProperties) {
+        this(appProperties.getSinks().getJdbc());
+    }
+
+    JdbcCommentSink(AppProperties.Sinks.Jdbc settings) {
+        if (!TABLE_NAME.matcher(settings.getTable()).matches()) {
+            throw new IllegalArgumentException("app.sinks.jdbc.table is not a plain table name: " + settings.getTable());
+        }
+        this.url = settings.getUrl();
+        this.username = settings.getUsername();
+        this.password = settings.getPassword();
+        this.table = settings.getTable();
+        this.batchSize = Math.max(1, settings.getBatchSize());
+        this.createTable = settings.isCreateTable();
+    }
+
+    @Override
+    public String name() {
+        return "jdbc";
+    }
+
+    @Override
+    public int preferredBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public synchronized BatchAppendResult write(List<CommentRow> rows) {
+        BatchAppendResult result = new BatchAppendResult();
+        for (int start = 0; start < rows.size(); start += batchSize) {
+            List<CommentRow> chunk = rows.subList(start, Math.min(rows.size(), start + batchSize));
+            try {
+                insertChunk(chunk, result);
+            } catch (SQLException e) {
+                logger.error("Could not insert {} rows into {}: {}", chunk.size(), table, e.getMessage());
+                disconnect();
+                for (CommentRow row : chunk) {
+                    result.recordFailure(row, e.getMessage(), true);
+                }
+            }
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        disconnect();
+    }
+
+    private void insertChunk(List<CommentRow> chunk, BatchAppendResult result) throws SQLException {
+        Connection db = connection();
+        try (PreparedStatement insert = db.prepareStatement(insertSql(chunk.size()))) {
+            int index = 1;
+            for (CommentRow row : chunk) {
+                index = bind(insert, index, row);
+            }
+            insert.executeUpdate();
+            db.commit();
+            result.recordAppended(chunk.size());
+        } catch (SQLException e) {
+            db.rollback();
+            if (isConnectionProblem(e)) {
+                throw e;
+            }
+            // a duplicate or bad value fails the whole statement; find out which rows it was
+            insertOneByOne(db, chunk, result);
+        }
+    }
+
+    private void insertOneByOne(Connection db, List<CommentRow> chunk, BatchAppendResult result) throws SQLException {
+        try (PreparedStatement insert = db.prepareStatement(insertSql(1))) {
+            for (CommentRow row : chunk) {
+                try {
+                    bind(insert, 1, row);
+                    insert.executeUpdate();
+                    db.commit();
+                    result.recordAppended(1);
+                } catch (SQLException e) {
+                    db.rollback();
+                    if (isConnectionProblem(e)) {
+                        throw e;
+                    }
+                    if (isDuplicateKey(e)) {
+                        // stored by an earlier delivery
+                        result.recordAppended(1);
+                    } else {
+                        result.recordFailure(row, e.getMessage(), false);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int bind(PreparedStatement insert, int index, CommentRow row) throws SQLException {
+        insert.setString(index++, row.commentId());
+        insert.setString(index++, row.timestamp());
+        insert.setString(index++, row.pageId());
+        insert.setString(index++, row.name());
+        insert.setString(index++, row.fromId());
+        insert.setString(index++, row.message());
+        insert.setString(index++, row.phone());
+        insert.setString(index++, String.join("\t", row.extras()));
+        insert.setString(index++, row.parentId());
+        return index;
+    }
+
+    private String insertSql(int rows) {
+        if (rows == batchSize && fullBatchSql != null) {
+            return fullBatchSql;
+        }
+        StringBuilder sql = new StringBuilder(64 + rows * (COLUMN_COUNT * 2 + 4))
+                .append("INSERT INTO ").append(table).append(" (").append(COLUMNS).append(") VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(" : ", (");
+            for (int c = 0; c < COLUMN_COUNT; c++) {
+                sql.append(c == 0 ? "?" : ", ?");
+            }
+            sql.append(')');
+        }
+        if (rows == batchSize) {
+            fullBatchSql = sql.toString();
+        }
+        return sql.toString();
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection != null) {
+            return connection;
+        }
+        Connection db = DriverManager.getConnection(url, username, password);
+        try {
+            db.setAutoCommit(false);
+            if (createTable) {
+                createTable(db);
+            }
+        } catch (SQLException e) {
+            db.close();
+            throw e;
+        }
+        logger.info("Connected comment sink to {} (table {})", url, table);
+        connection = db;
+        return db;
+    }
+
+    /**
+     * Creates the table, or adds parent_id to one from before replies were
+     * synced, after looking both up in the driver's metadata rather than
+     * relying on IF NOT EXISTS, which MySQL, SQL Server and Oracle lack.
+     */
+    private void createTable(Connection db) throws SQLException {
+        DatabaseMetaData meta = db.getMetaData();
+        int dot = table.indexOf('.');
+        String schema = dot >= 0 ? identifier(meta, table.substring(0, dot)) : db.getSchema();
+        String name = identifier(meta, table.substring(dot + 1));
+        String escape = meta.getSearchStringEscape();
+        try (Statement ddl = db.createStatement()) {
+            if (!exists(meta.getTables(db.getCatalog(), pattern(schema, escape), pattern(name, escape), null))) {
+                ddl.execute("CREATE TABLE " + table + " ("
+                        + "comment_id VARCHAR(255) PRIMARY KEY, "
+                        + "created_at VARCHAR(64), "
+                        + "page_id VARCHAR(255), "
+                        + "name VARCHAR(1024), "
+                        + "from_id VARCHAR(255), "
+                        + "message TEXT, "
+                        + "phone VARCHAR(64), "
+                        + "extras TEXT, "
+                        + "parent_id VARCHAR(255))");
+            } else if (!exists(meta.getColumns(db.getCatalog(), pattern(schema, escape), pattern(name, escape),
+                    pattern(identifier(meta, "parent_id"), escape)))) {
+                ddl.execute("ALTER TABLE " + table + " ADD parent_id VARCHAR(255)");
+            }
+        }
+        db.commit();
+    }
+
+    private static boolean exists(ResultSet found) throws SQLException {
+        try (found) {
+            return found.next();
+        }
+    }
+
+    // unquoted names are stored folded to upper case on H2 and Oracle, lower case on PostgreSQL
+    private static String identifier(DatabaseMetaData meta, String name) throws SQLException {
+        if (meta.storesUpperCaseIdentifiers()) {
+            return name.toUpperCase(Locale.ROOT);
+        }
+        return meta.storesLowerCaseIdentifiers() ? name.toLowerCase(Locale.ROOT) : name;
+    }
+
+    // _ matches any character in a metadata pattern
+    private static String pattern(String name, String escape) {
+        if (name == null || escape == null || escape.isEmpty()) {
+            return name;
+        }
+        return name.replace(escape, escape + escape).replace("_", escape + "_").replace("%", escape + "%");
+    }
+
+    private void disconnect() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.warn("Could not close connection to {}: {}", url, e.getMessage());
+        }
+        connection = null;
+    }
+
+    // SQLSTATE class 08 is a connection exception; transient covers timeouts and lost locks
+    private static boolean isConnectionProblem(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTransientException || (state != null && state.startsWith("08"));
+    }
+
+    // 23505 is the standard unique-violation state; MySQL reports 23000 with vendor code 1062
+    private static boolean isDuplicateKey(SQLException e) {
+        return "23505".equals(e.getSQLState()) || e.getErrorCode() == 1062;
+    }
+}
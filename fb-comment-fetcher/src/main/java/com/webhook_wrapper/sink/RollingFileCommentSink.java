@@ -0,0 +1,283 @@
+package com.webhook_wrapper.sink;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.sheets.BatchAppendResult;
+import com.webhook_wrapper.sheets.CommentRow;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends rows to local CSV or NDJSON files under app.sinks.file.dir.
+ *
+ * A new file is started once the current one passes max-bytes or has been
+ * open for rotate-interval-minutes; finished files are gzipped when compress
+ * is on. Each write call is one buffered write and one flush, so a batch is
+ * either in the file or reported as failed. Delivery through the outbox is
+ * at-least-once, so a file may repeat rows after a restart.
+ */
+@Component
+@ConditionalOnProperty(name = "app.sinks.file.enabled", havingValue = "true")
+public class RollingFileCommentSink implements CommentSink {
+    private static final Logger logger = LoggerFactory.getLogger(RollingFileCommentSink.class);
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+    private static final List<String> COLUMNS = List.of(
+            "timestamp", "page_id", "comment_id", "name", "from_id", "message", "phone");
+
+    private final Path dir;
+    private final boolean ndjson;
+    private final long maxBytes;
+    private final long rotateIntervalMs;
+    private final boolean compress;
+    private final int batchSize;
+    private final List<String> extraFields;
+    private final Clock clock;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private OutputStream out;
+    private Path current;
+    private long currentBytes;
+    private long openedAt;
+    private int sequence;
+
+    @Autowired
+    public RollingFileCommentSink(AppProperties appProperties) {
+        this(appProperties.getSinks().getFile(), appProperties.getExtract().getExtraFields(), Clock.systemUTC());
+    }
+
+    RollingFileCommentSink(AppProperties.Sinks.File settings, List<String> extraFields, Clock clock) {
+        String format = settings.getFormat() == null ? "csv" : settings.getFormat().trim().toLowerCase();
+        if (!format.equals("csv") && !format.equals("ndjson")) {
+            throw new IllegalArgumentException("app.sinks.file.format must be csv or ndjson, not " + settings.getFormat());
+        }
+        this.dir = Path.of(settings.getDir());
+        this.ndjson = format.equals("ndjson");
+        this.maxBytes = Math.max(1, settings.getMaxBytes());
+        this.rotateIntervalMs = settings.getRotateIntervalMinutes() * 60_000L;
+        this.compress = settings.isCompress();
+        this.batchSize = Math.max(1, settings.getBatchSize());
+        this.extraFields = List.copyOf(extraFields);
+        this.clock = clock;
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public int preferredBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public synchronized BatchAppendResult write(List<CommentRow> rows) {
+        BatchAppendResult result = new BatchAppendResult();
+        if (rows.isEmpty()) {
+            return result;
+        }
+        try {
+            rotateIfDue();
+            if (out == null) {
+                open();
+            }
+            byte[] bytes = ndjson ? toNdjson(rows) : toCsv(rows);
+            out.write(bytes);
+            out.flush();
+            currentBytes += bytes.length;
+            result.recordAppended(rows.size());
+        } catch (IOException e) {
+            logger.error("Could not write {} rows to {}: {}", rows.size(), current, e.getMessage());
+            // the file may end in a partial batch; carry on in a fresh one
+            closeQuietly();
+            for (CommentRow row : rows) {
+                result.recordFailure(row, e.getMessage(), true);
+            }
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        finishCurrent();
+    }
+
+    /**
+     * The file being written, or null before the first write.
+     */
+    synchronized Path getCurrentFile() {
+        return current;
+    }
+
+    private void rotateIfDue() throws IOException {
+        if (out == null) {
+            return;
+        }
+        boolean full = currentBytes >= maxBytes;
+        boolean old = rotateIntervalMs > 0 && clock.millis() - openedAt >= rotateIntervalMs;
+        if (full || old) {
+            finishCurrent();
+        }
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(dir);
+        openedAt = clock.millis();
+        String stamp = FILE_TIME.format(clock.instant());
+        Path file;
+        do {
+            file = dir.resolve(String.format("comments-%s-%04d.%s", stamp, sequence++, ndjson ? "ndjson" : "csv"));
+        } while (Files.exists(file) || Files.exists(gzipPath(file)));
+        out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), 64 * 1024);
+        current = file;
+        currentBytes = 0;
+        if (!ndjson) {
+            byte[] header = csvHeader();
+            out.write(header);
+            currentBytes += header.length;
+        }
+        logger.info("Writing comments to {}", file);
+    }
+
+    private void finishCurrent() throws IOException {
+        if (out == null) {
+            return;
+        }
+        Path finished = current;
+        out.close();
+        out = null;
+        current = null;
+        if (compress) {
+            Path gzip = gzipPath(finished);
+            try (InputStream in = Files.newInputStream(finished);
+                 OutputStream zipped = new GZIPOutputStream(Files.newOutputStream(gzip), 64 * 1024)) {
+                in.transferTo(zipped);
+            }
+            Files.delete(finished);
+            logger.info("Rotated {} to {}", finished, gzip);
+        } else {
+            logger.info("Rotated {}", finished);
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (out != null) {
+                out.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Could not close {}: {}", current, e.getMessage());
+        }
+        out = null;
+        current = null;
+    }
+
+    private byte[] csvHeader() {
+        StringBuilder line = new StringBuilder();
+        for (String column : COLUMNS) {
+            appendCsv(line, column);
+        }
+        for (String field : extraFields) {
+            appendCsv(line, field);
+        }
+        // always present, like the sheet's parent column, so every file has the same layout
+        appendCsv(line, "parent_id");
+        line.setCharAt(line.length() - 1, '\n');
+        return line.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] toCsv(List<CommentRow> rows) {
+        StringBuilder text = new StringBuilder(rows.size() * 128);
+        for (CommentRow row : rows) {
+            appendCsv(text, row.timestamp());
+            appendCsv(text, row.pageId());
+            appendCsv(text, row.commentId());
+            appendCsv(text, row.name());
+            appendCsv(text, row.fromId());
+            appendCsv(text, row.message());
+            appendCsv(text, row.phone());
+            for (String extra : row.extras()) {
+                appendCsv(text, extra);
+            }
+            appendCsv(text, row.parentId());
+            text.setCharAt(text.length() - 1, '\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // One RFC 4180 field plus a trailing comma; quoted only when it has to be
+    private static void appendCsv(StringBuilder line, String value) {
+        if (value != null) {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (quote) {
+                line.append('"');
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '"') {
+                        line.append('"');
+                    }
+                    line.append(c);
+                }
+                line.append('"');
+            } else {
+                line.append(value);
+            }
+        }
+        line.append(',');
+    }
+
+    private byte[] toNdjson(List<CommentRow> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(rows.size() * 192);
+        try (JsonGenerator json = jsonFactory.createGenerator(bytes)) {
+            json.setRootValueSeparator(null);
+            for (CommentRow row : rows) {
+                json.writeStartObject();
+                json.writeStringField("timestamp", row.timestamp());
+                json.writeStringField("pageId", row.pageId());
+                json.writeStringField("commentId", row.commentId());
+                json.writeStringField("name", row.name());
+                json.writeStringField("fromId", row.fromId());
+                json.writeStringField("message", row.message());
+                json.writeStringField("phone", row.phone());
+                for (int i = 0; i < row.extras().size(); i++) {
+                    String field = i < extraFields.size() ? extraFields.get(i) : "extra" + i;
+                    json.writeStringField(field, row.extras().get(i));
+                }
+                if (row.parentId() != null) {
+                    json.writeStringField("parentId", row.parentId());
+                }
+                json.writeEndObject();
+                json.writeRaw('\n');
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Path gzipPath(Path file) {
+        return file.resolveSibling(file.getFileName() + ".gz");
+    }
+}
@@ -0,0 +1,93 @@
+package com.webhook_wrapper.webhook;
+
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.facebook.GraphCallContext;
+import com.webhook_wrapper.scheduler.CommentIngestService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receiver for Facebook page webhooks (the "feed" field). New comments are
+ * pushed straight into the ingest path; the polling scheduler then only runs
+ * as a slow reconciliation sweep. Each delivery entry is ingested as the
+ * configured page it names (app.pages, or app.fb), so its rows go to that
+ * page's sheet and its Graph calls use that page's token; entries for other
+ * pages are ignored.
+ */
+@RestController
+@RequestMapping("/webhook")
+@ConditionalOnProperty(name = "app.webhook.enabled", havingValue = "true")
+public class FacebookWebhookController {
+    private static final Logger logger = LoggerFactory.getLogger(FacebookWebhookController.class);
+
+    private final AppProperties appProperties;
+    private final CommentIngestService ingestService;
+    private final WebhookSignatureVerifier signatureVerifier;
+    private final WebhookEventParser eventParser;
+    private final Map<String, AppProperties.Page> pagesById = new HashMap<>();
+
+    public FacebookWebhookController(AppProperties appProperties, CommentIngestService ingestService) {
+        this.appProperties = appProperties;
+        this.ingestService = ingestService;
+        this.signatureVerifier = new WebhookSignatureVerifier(appProperties.getWebhook().getAppSecret());
+        // edits are only worth passing on when the sheet can take them in place
+        this.eventParser = new WebhookEventParser(appProperties.getSheetIndex().isUpsert());
+        List<AppProperties.Page> pages = appProperties.getPages().isEmpty()
+                ? List.of(appProperties.getFb().toPage())
+                : appProperties.getPages();
+        for (AppProperties.Page page : pages) {
+            if (page.getPageId() != null) {
+                pagesById.put(page.getPageId(), page);
+            }
+        }
+    }
+
+    /**
+     * Subscription handshake: echo hub.challenge back if the verify token matches.
+     */
+    @GetMapping
+    public ResponseEntity<String> verify(@RequestParam(name = "hub.mode", required = false) String mode,
+                                         @RequestParam(name = "hub.verify_token", required = false) String verifyToken,
+                                         @RequestParam(name = "hub.challenge", required = false) String challenge) {
+        if ("subscribe".equals(mode) && verifyToken != null
+                && verifyToken.equals(appProperties.getWebhook().getVerifyToken())) {
+            logger.info("Webhook subscription verified");
+            return ResponseEntity.ok(challenge);
+        }
+        logger.warn("Webhook verification rejected (mode={})", mode);
+        return ResponseEntity.status(403).body("Verification failed");
+    }
+
+    @PostMapping
+    public ResponseEntity<String> receive(@RequestBody byte[] body,
+                                          @RequestHeader(name = "X-Hub-Signature-256", required = false) String signature) {
+        if (!signatureVerifier.isValid(body, signature)) {
+            logger.warn("Rejected webhook delivery with invalid signature");
+            return ResponseEntity.status(403).body("Invalid signature");
+        }
+        try {
+            eventParser.parseCommentsByPage(body).forEach((pageId, commentsByPost) -> {
+                int count = commentsByPost.values().stream().mapToInt(List::size).sum();
+                AppProperties.Page page = pagesById.get(pageId);
+                if (page == null) {
+                    logger.warn("Ignoring {} webhook comments for page {}, which is not configured", count, pageId);
+                    return;
+                }
+                logger.info("Webhook delivered {} comments on {} posts for page {}", count, commentsByPost.size(),
+                        pageId);
+                GraphCallContext.runAs(page, () -> ingestService.ingestPushed(commentsByPost));
+            });
+        } catch (Exception e) {
+            // Acknowledge anyway; Facebook retries failed deliveries and the poll sweep reconciles
+            logger.error("Could not parse webhook delivery: {}", e.getMessage());
+        }
+        return ResponseEntity.ok("EVENT_RECEIVED");
+    }
+}
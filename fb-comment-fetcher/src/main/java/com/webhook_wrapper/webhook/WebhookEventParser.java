@@ -0,0 +1,97 @@
+package com.webhook_wrapper.webhook;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns a page webhook delivery into comments grouped by page (the entry's
+ * id) and post, in the same map shape the Graph API returns for a comment
+ * (id, message, created_time, from) so they can go through the regular ingest
+ * path.
+ *
+ * Only "feed" changes with item "comment" and verb "add" are kept, plus
+ * verb "edited" when edits are wanted (app.sheet-index.upsert); those carry
+ * an "edited" flag. Removals are ignored. A reply, whose parent_id is a
+ * comment rather than the post, keeps it as "parent_id".
+ */
+public class WebhookEventParser {
+    private static final DateTimeFormatter GRAPH_TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ").withZone(ZoneOffset.UTC);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final boolean includeEdits;
+
+    public WebhookEventParser(boolean includeEdits) {
+        this.includeEdits = includeEdits;
+    }
+
+    /**
+     * Comments by page ID, then by post. Pages without comments are left out.
+     */
+    public Map<String, Map<String, List<Map<String, Object>>>> parseCommentsByPage(byte[] body) throws IOException {
+        Map<String, Map<String, List<Map<String, Object>>>> commentsByPage = new LinkedHashMap<>();
+        JsonNode root = objectMapper.readTree(body);
+        if (!"page".equals(root.path("object").asText())) {
+            return commentsByPage;
+        }
+
+        for (JsonNode entry : root.path("entry")) {
+            String pageId = entry.path("id").asText("");
+            for (JsonNode change : entry.path("changes")) {
+                JsonNode value = change.path("value");
+                String verb = value.path("verb").asText();
+                boolean edited = includeEdits && "edited".equals(verb);
+                if (!"feed".equals(change.path("field").asText())
+                        || !"comment".equals(value.path("item").asText())
+                        || !("add".equals(verb) || edited)) {
+                    continue;
+                }
+                String postId = value.path("post_id").asText(null);
+                String commentId = value.path("comment_id").asText(null);
+                if (postId == null || commentId == null) {
+                    continue;
+                }
+                Map<String, Object> comment = toComment(value);
+                String parentId = value.path("parent_id").asText(null);
+                if (parentId != null && !parentId.equals(postId)) {
+                    comment.put("parent_id", parentId);
+                }
+                if (edited) {
+                    comment.put("edited", true);
+                }
+                commentsByPage.computeIfAbsent(pageId, id -> new LinkedHashMap<>())
+                        .computeIfAbsent(postId, id -> new ArrayList<>()).add(comment);
+            }
+        }
+        return commentsByPage;
+    }
+
+    private static Map<String, Object> toComment(JsonNode value) {
+        Map<String, Object> comment = new HashMap<>();
+        comment.put("id", value.path("comment_id").asText());
+        comment.put("message", value.path("message").asText(""));
+        // webhooks send created_time as unix seconds; the feed uses 2025-08-30T10:00:00+0000
+        JsonNode createdTime = value.path("created_time");
+        comment.put("created_time", createdTime.isNumber()
+                ? GRAPH_TIME.format(Instant.ofEpochSecond(createdTime.asLong()))
+                : createdTime.asText(null));
+        JsonNode from = value.path("from");
+        if (from.isObject()) {
+            Map<String, Object> fromMap = new HashMap<>();
+            fromMap.put("id", from.path("id").asText(null));
+            fromMap.put("name", from.path("name").asText(null));
+            comment.put("from", fromMap);
+        }
+        return comment;
+    }
+}
@@ -0,0 +1,52 @@
+package com.webhook_wrapper.webhook;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * Checks the X-Hub-Signature-256 header Facebook sends with every webhook
+ * delivery: "sha256=" followed by the hex HMAC-SHA256 of the raw body, keyed
+ * with the app secret.
+ */
+public class WebhookSignatureVerifier {
+    private static final String PREFIX = "sha256=";
+
+    private final byte[] appSecret;
+
+    public WebhookSignatureVerifier(String appSecret) {
+        this.appSecret = appSecret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public boolean isValid(byte[] body, String signatureHeader) {
+        if (appSecret.length == 0 || signatureHeader == null || !signatureHeader.startsWith(PREFIX)) {
+            return false;
+        }
+        byte[] expected = sign(body);
+        byte[] actual;
+        try {
+            actual = HexFormat.of().parseHex(signatureHeader.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // constant time, so the comparison does not leak how many bytes matched
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    public String signatureFor(byte[] body) {
+        return PREFIX + HexFormat.of().formatHex(sign(body));
+    }
+
+    private byte[] sign(byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(appSecret, "HmacSHA256"));
+            return mac.doFinal(body);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.webhook_wrapper.config;
+
+import com.webhook_wrapper.sheets.SheetsAppender;
+import com.webhook_wrapper.sheets.SheetsTestController;
+import com.webhook_wrapper.sink.JdbcCommentSink;
+import com.webhook_wrapper.webhook.FacebookWebhookController;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AotConditionCheckTest {
+
+    @Test
+    void testComponentsMatchingTheirConditionsPass() {
+        // what the default fast-start build has: the Sheets sink, nothing else
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("google.sheetId", "sheet")
+                .withProperty("app.webhook.enabled", "false");
+
+        assertEquals(List.of(), new AotConditionCheck(environment, built(SheetsAppender.class,
+                SheetsTestController.class)).mismatches());
+    }
+
+    @Test
+    void testWebhookEnabledAfterTheBuildIsReported() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("google.sheetId", "sheet")
+                .withProperty("app.webhook.enabled", "true");
+
+        List<String> mismatches = new AotConditionCheck(environment, built(SheetsAppender.class,
+                SheetsTestController.class)).mismatches();
+
+        assertEquals(List.of("FacebookWebhookController was left out but app.webhook.enabled=true now enables it"),
+                mismatches);
+    }
+
+    @Test
+    void testComponentsDisabledAfterTheBuildAreReported() {
+        MockEnvironment environment = new MockEnvironment().withProperty("google.sheetId", "false");
+
+        List<String> mismatches = new AotConditionCheck(environment, built(SheetsAppender.class,
+                SheetsTestController.class, JdbcCommentSink.class, FacebookWebhookController.class)).mismatches();
+
+        assertEquals(4, mismatches.size());
+        assertTrue(mismatches.contains(
+                "JdbcCommentSink was built in but app.sinks.jdbc.enabled=(unset) now disables it"));
+    }
+
+    private static DefaultListableBeanFactory built(Class<?>... types) {
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        for (Class<?> type : types) {
+            beans.registerBeanDefinition(type.getSimpleName(), new RootBeanDefinition(type));
+        }
+        return beans;
+    }
+}
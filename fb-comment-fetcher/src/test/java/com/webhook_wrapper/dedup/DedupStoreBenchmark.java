@@ -0,0 +1,100 @@
+package com.webhook_wrapper.dedup;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contended claim throughput of the striped {@link DedupStore} against the
+ * original CommentTracker set (a HashSet, here synchronized so it is correct
+ * under concurrency). Each op claims a random ID from a fixed pool, so the
+ * mix moves from mostly-new to mostly-duplicate over an iteration.
+ *
+ * Run with:
+ *   mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *        com.webhook_wrapper.dedup.DedupStoreBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DedupStoreBenchmark {
+
+    @Param({"1000000"})
+    int poolSize;
+
+    @Param({"64"})
+    int stripes;
+
+    String[] ids;
+    Set<String> synchronizedHashSet;
+    DedupStore stripedStore;
+
+    @Setup(Level.Trial)
+    public void createIds() {
+        ids = new String[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            ids[i] = "681857498348124_" + (1_000_000_000_000L + i);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetSets() {
+        synchronizedHashSet = Collections.synchronizedSet(new HashSet<>());
+        stripedStore = DedupStore.inMemory(null, stripes);
+    }
+
+    private String nextId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean hashSetSingleThread() {
+        return synchronizedHashSet.add(nextId());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean stripedSingleThread() {
+        return stripedStore.claim(nextId(), 0);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean hashSetEightThreads() {
+        return synchronizedHashSet.add(nextId());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean stripedEightThreads() {
+        return stripedStore.claim(nextId(), 0);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DedupStoreBenchmark.class.getSimpleName()).build()).run();
+    }
+}
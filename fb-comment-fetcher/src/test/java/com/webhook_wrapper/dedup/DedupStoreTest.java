@@ -0,0 +1,120 @@
+package com.webhook_wrapper.dedup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DedupStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testSeenIdsSurviveReopen() throws Exception {
+        Path file = dir.resolve("seen.log");
+        try (DedupStore store = DedupStore.open(file, null)) {
+            assertTrue(store.claim("111_1", 0));
+            assertTrue(store.claim("111_2", 0));
+            assertFalse(store.claim("111_1", 0));
+        }
+
+        try (DedupStore store = DedupStore.open(file, null)) {
+            assertEquals(2, store.size());
+            assertFalse(store.claim("111_1", 0));
+            assertFalse(store.claim("111_2", 0));
+            assertTrue(store.claim("111_3", 0));
+        }
+    }
+
+    @Test
+    void testLogGrowsPastInitialMapping() throws Exception {
+        Path file = dir.resolve("seen.log");
+        int count = 200_000;
+        try (DedupStore store = DedupStore.open(file, null)) {
+            for (int i = 0; i < count; i++) {
+                assertTrue(store.claim("post_" + i, 0));
+            }
+        }
+        try (DedupStore store = DedupStore.open(file, null)) {
+            assertEquals(count, store.size());
+            assertTrue(store.contains("post_" + (count - 1)));
+        }
+    }
+
+    @Test
+    void testWindowEvictsOldCommentsAndRejectsStaleOnes() throws Exception {
+        Path file = dir.resolve("seen.log");
+        long now = System.currentTimeMillis() / 1000;
+        long twoDaysAgo = now - Duration.ofDays(2).toSeconds();
+
+        try (DedupStore store = DedupStore.open(file, null)) {
+            store.claim("old", twoDaysAgo);
+            store.claim("recent", now);
+        }
+
+        try (DedupStore store = DedupStore.open(file, Duration.ofDays(1))) {
+            assertEquals(1, store.size());
+            assertTrue(store.contains("recent"));
+            assertFalse(store.claim("old", twoDaysAgo), "comments outside the window are not re-tracked");
+        }
+
+        try (DedupStore store = DedupStore.open(file, null)) {
+            assertEquals(1, store.size(), "eviction compacts the log");
+        }
+    }
+
+    @Test
+    void testInMemoryStore() {
+        DedupStore store = DedupStore.inMemory(null);
+        assertTrue(store.claim("a", 0));
+        assertFalse(store.claim("a", 0));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void testConcurrentClaimsHaveExactlyOneWinnerPerId() throws Exception {
+        Path file = dir.resolve("seen.log");
+        int threads = 8;
+        int ids = 100_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (DedupStore store = DedupStore.open(file, null, 16)) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> wins = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                wins.add(pool.submit(() -> {
+                    start.await();
+                    int won = 0;
+                    for (int i = 0; i < ids; i++) {
+                        if (store.claim("c_" + i, 0)) {
+                            won++;
+                        }
+                    }
+                    return won;
+                }));
+            }
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> win : wins) {
+                total += win.get();
+            }
+            assertEquals(ids, total);
+            assertEquals(ids, store.size());
+        } finally {
+            pool.shutdown();
+        }
+
+        try (DedupStore store = DedupStore.open(file, null)) {
+            assertEquals(ids, store.size(), "every claim was persisted exactly once");
+        }
+    }
+}
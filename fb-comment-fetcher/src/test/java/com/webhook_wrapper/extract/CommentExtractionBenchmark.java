@@ -0,0 +1,98 @@
+package com.webhook_wrapper.extract;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-comment cost of the phone and timestamp fields, old code path versus
+ * the extraction stage, over a mix of comments where about one in five has a
+ * phone number. Scores are per comment; 100k comments/s needs well under
+ * 10 us/op. Run with -prof gc and compare gc.alloc.rate.norm, which should
+ * be a small constant for the new path (the formatted timestamp string).
+ *
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *        org.openjdk.jmh.Main CommentExtractionBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CommentExtractionBenchmark {
+    private static final int COMMENTS = 1024;
+
+    private final String[] messages = new String[COMMENTS];
+    private final String[] timestamps = new String[COMMENTS];
+    private final PhoneNumberExtractor phone = new PhoneNumberExtractor();
+
+    @Setup
+    public void buildComments() {
+        SplittableRandom random = new SplittableRandom(7);
+        String[] templates = {
+                "Love this! Where can I buy it?",
+                "Interested, please DM me the price",
+                "Tagging my friend, she needs this for her birthday on the 12th",
+                "Is it still available in size 42?",
+                "Call me at 555-%03d-%04d please",
+        };
+        for (int i = 0; i < COMMENTS; i++) {
+            String template = templates[random.nextInt(templates.length)];
+            messages[i] = String.format(template, random.nextInt(1000), random.nextInt(10000));
+            timestamps[i] = String.format("2025-%02d-%02dT%02d:%02d:%02d+0000", 1 + random.nextInt(12),
+                    1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMENTS)
+    public void legacy(Blackhole blackhole) {
+        for (int i = 0; i < COMMENTS; i++) {
+            // what toRow did before: compile per call, Instant.parse throws on +0000 and falls back to now()
+            Matcher matcher = Pattern.compile("(\\+?\\d{1,3}[-\\s]?)?\\(?\\d{3}\\)?[-\\s]?\\d{3}[-\\s]?\\d{4}")
+                    .matcher(messages[i]);
+            blackhole.consume(matcher.find() ? matcher.group() : "");
+            String timestamp;
+            try {
+                timestamp = DateTimeFormatter.ISO_INSTANT.format(Instant.parse(timestamps[i]));
+            } catch (Exception e) {
+                timestamp = DateTimeFormatter.ISO_INSTANT.format(Instant.now());
+            }
+            blackhole.consume(timestamp);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMENTS)
+    public void extractionStage(Blackhole blackhole) {
+        for (int i = 0; i < COMMENTS; i++) {
+            blackhole.consume(phone.extract(messages[i]));
+            blackhole.consume(GraphTimestamps.formatIsoInstant(GraphTimestamps.parseEpochSeconds(timestamps[i])));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CommentExtractionBenchmark.class.getSimpleName())
+                .addProfiler("gc").build()).run();
+    }
+}
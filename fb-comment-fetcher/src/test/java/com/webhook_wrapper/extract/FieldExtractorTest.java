@@ -0,0 +1,50 @@
+package com.webhook_wrapper.extract;
+
+import com.webhook_wrapper.config.AppProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FieldExtractorTest {
+
+    @Test
+    void testPhoneNumbers() {
+        PhoneNumberExtractor phone = new PhoneNumberExtractor();
+        assertEquals("555-123-4567", phone.extract("Call me 555-123-4567 today"));
+        assertEquals("(555) 123 4567", phone.extract("office: (555) 123 4567"));
+        assertEquals("+1 5551234567", phone.extract("+1 5551234567"));
+        assertEquals("", phone.extract("Order 12345 arrives on 2025-08-30"));
+        assertEquals("", phone.extract(""));
+        assertEquals("", phone.extract(null));
+    }
+
+    @Test
+    void testEmailsAndOrderNumbers() {
+        assertEquals("jane.doe+shop@example.co.uk", new EmailExtractor().extract("mail jane.doe+shop@example.co.uk pls"));
+        assertEquals("", new EmailExtractor().extract("@everyone check this"));
+
+        OrderNumberExtractor order = new OrderNumberExtractor();
+        assertEquals("A1234", order.extract("Where is my order #A1234?"));
+        assertEquals("88123", order.extract("Order no. 88123 never came"));
+        assertEquals("2025-0042", order.extract("order: 2025-0042"));
+        assertEquals("", order.extract("I'd like to order 2"));
+    }
+
+    @Test
+    void testExtraFieldsFollowConfiguredOrder() {
+        AppProperties properties = new AppProperties();
+        properties.getExtract().setExtraFields(List.of("order", "email"));
+        CommentFieldExtraction extraction = new CommentFieldExtraction(properties,
+                List.of(new PhoneNumberExtractor(), new EmailExtractor(), new OrderNumberExtractor()));
+
+        String message = "order #A1234, reach me at a@b.io or 555-123-4567";
+        assertEquals("555-123-4567", extraction.phone(message));
+        assertEquals(List.of("A1234", "a@b.io"), extraction.extras(message));
+
+        properties.getExtract().setExtraFields(List.of("fax"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CommentFieldExtraction(properties, List.of(new PhoneNumberExtractor())));
+    }
+}
@@ -0,0 +1,45 @@
+package com.webhook_wrapper.extract;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphTimestampsTest {
+    private static final DateTimeFormatter GRAPH_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
+
+    @Test
+    void testGraphOffsetFormatIsParsed() {
+        assertEquals(1756548000L, GraphTimestamps.parseEpochSeconds("2025-08-30T10:00:00+0000"));
+        assertEquals(1756548000L, GraphTimestamps.parseEpochSeconds("2025-08-30T12:00:00+02:00"));
+        assertEquals(1756548000L, GraphTimestamps.parseEpochSeconds("2025-08-30T05:30:00-0430"));
+        assertEquals(1756548000L, GraphTimestamps.parseEpochSeconds("2025-08-30T10:00:00.250Z"));
+        assertEquals("2025-08-30T10:00:00Z", GraphTimestamps.formatIsoInstant(1756548000L));
+    }
+
+    @Test
+    void testAgreesWithJavaTimeAcrossYears() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 10_000; i++) {
+            long seconds = random.nextLong(-2_000_000_000L, 8_000_000_000L);
+            String text = GRAPH_TIME.format(Instant.ofEpochSecond(seconds).atOffset(ZoneOffset.UTC));
+            assertEquals(OffsetDateTime.parse(text, GRAPH_TIME).toEpochSecond(), GraphTimestamps.parseEpochSeconds(text), text);
+            assertEquals(DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochSecond(seconds)),
+                    GraphTimestamps.formatIsoInstant(seconds));
+        }
+    }
+
+    @Test
+    void testBadInputIsReportedWithoutThrowing() {
+        for (String text : new String[] {null, "", "yesterday", "2025-02-30T10:00:00+0000", "2025-08-30 10:00:00+0000",
+                "2025-08-30T24:00:00+0000", "2025-08-30T10:00:00", "2025-08-30T10:00:00+00", "2025-08-30T10:00:00.Z"}) {
+            assertEquals(GraphTimestamps.INVALID, GraphTimestamps.parseEpochSeconds(text), String.valueOf(text));
+        }
+        assertEquals(0, GraphTimestamps.toEpochSecondsOrZero("not a time"));
+    }
+}
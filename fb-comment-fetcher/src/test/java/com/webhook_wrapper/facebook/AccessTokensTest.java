@@ -0,0 +1,26 @@
+package com.webhook_wrapper.facebook;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessTokensTest {
+
+    @Test
+    void testTokenIsRedactedWhereverItAppears() {
+        String message = "I/O error on GET request for \"https://graph.facebook.com/v21.0/1/feed?fields=id&access_token=EAAB123xyz\": "
+                + "Connection reset; retry https://graph.facebook.com/2?access_token=EAAB456&limit=5";
+
+        String redacted = AccessTokens.redact(message);
+
+        assertFalse(redacted.contains("EAAB"));
+        assertTrue(redacted.contains("feed?fields=id&access_token=REDACTED\": Connection reset"));
+        assertTrue(redacted.endsWith("?access_token=REDACTED&limit=5"));
+    }
+
+    @Test
+    void testTextWithoutTokenIsUnchanged() {
+        assertEquals("400 Bad Request", AccessTokens.redact("400 Bad Request"));
+        assertNull(AccessTokens.redact(null));
+    }
+}
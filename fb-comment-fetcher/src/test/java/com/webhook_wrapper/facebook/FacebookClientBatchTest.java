@@ -0,0 +1,115 @@
+package com.webhook_wrapper.facebook;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.metrics.SyncMetrics;
+import com.webhook_wrapper.resilience.ApiGuards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs FacebookClient against a local stub that answers the Graph batch
+ * endpoint in the same shape as graph.facebook.com.
+ */
+class FacebookClientBatchTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private HttpServer server;
+    private final AtomicInteger batchCalls = new AtomicInteger();
+    private FacebookClient client;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v21.0/", exchange -> {
+            batchCalls.incrementAndGet();
+            Map<String, String> form = parseForm(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            List<Map<String, String>> requests = objectMapper.readValue(form.get("batch"),
+                    new TypeReference<List<Map<String, String>>>() { });
+            assertTrue(requests.size() <= FacebookClient.MAX_BATCH_SIZE);
+            assertEquals("token", form.get("access_token"));
+
+            List<Object> responses = new ArrayList<>();
+            for (Map<String, String> request : requests) {
+                String postId = request.get("relative_url").split("\\?")[0];
+                if (postId.startsWith("missing")) {
+                    responses.add(Map.of("code", 404, "body", "{\"error\":{\"message\":\"not found\"}}"));
+                } else {
+                    Map<String, Object> body = Map.of("id", postId, "message", "post " + postId,
+                            "permalink_url", "https://facebook.com/" + postId);
+                    responses.add(Map.of("code", 200, "body", objectMapper.writeValueAsString(body)));
+                }
+            }
+            byte[] payload = objectMapper.writeValueAsBytes(responses);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, payload.length);
+            exchange.getResponseBody().write(payload);
+            exchange.close();
+        });
+        server.start();
+
+        AppProperties properties = new AppProperties();
+        properties.getFb().setGraphBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        properties.getFb().setApiVersion("v21.0");
+        properties.getFb().setAccessToken("token");
+        registry = new SimpleMeterRegistry();
+        SyncMetrics metrics = new SyncMetrics(registry);
+        client = new FacebookClient(properties, new GraphUsageBudget(properties), metrics,
+                new ApiGuards(properties, metrics));
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void testPostDetailsAreFetchedFiftyPerRequest() {
+        List<String> postIds = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            postIds.add("page_" + i);
+        }
+
+        Map<String, Map<String, Object>> details = client.fetchPostDetailsBatch(postIds);
+
+        assertEquals(3, batchCalls.get());
+        assertEquals(120, details.size());
+        assertEquals("post page_7", details.get("page_7").get("message"));
+        assertEquals("https://facebook.com/page_119", details.get("page_119").get("permalink_url"));
+        assertEquals(3, registry.get("fb.graph.request").tags("call", "batch", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void testFailedSubRequestsAreLeftOut() {
+        Map<String, Map<String, Object>> details = client.fetchPostDetailsBatch(List.of("page_1", "missing_2", "page_3"));
+
+        assertEquals(1, batchCalls.get());
+        assertEquals(List.of("page_1", "page_3"), new ArrayList<>(details.keySet()));
+    }
+
+    private static Map<String, String> parseForm(String body) {
+        Map<String, String> form = new LinkedHashMap<>();
+        for (String pair : body.split("&")) {
+            String[] parts = pair.split("=", 2);
+            form.put(URLDecoder.decode(parts[0], StandardCharsets.UTF_8),
+                    parts.length > 1 ? URLDecoder.decode(parts[1], StandardCharsets.UTF_8) : "");
+        }
+        return form;
+    }
+}
@@ -0,0 +1,85 @@
+package com.webhook_wrapper.facebook;
+
+import com.sun.net.httpserver.HttpServer;
+import com.webhook_wrapper.config.AppProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphHttpTransportTest {
+    private HttpServer server;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private volatile String acceptEncoding;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/gzip", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write("{\"id\":\"page_1\",\"message\":\"hello\"}".getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, compressed.size());
+            exchange.getResponseBody().write(compressed.toByteArray());
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void testGzipResponsesAreDecodedOverOneKeptAliveConnection() {
+        RestTemplate template = new GraphHttpTransport(new AppProperties.Http()).restTemplate(5000);
+
+        for (int i = 0; i < 5; i++) {
+            Map<?, ?> body = template.getForObject(uri("/gzip"), Map.class);
+            assertEquals("hello", body.get("message"));
+        }
+
+        assertEquals("gzip", acceptEncoding);
+        assertEquals(1, clientPorts.size(), "calls should reuse the pooled connection");
+    }
+
+    @Test
+    void testEachTemplateUsesItsOwnTimeout() {
+        GraphHttpTransport transport = new GraphHttpTransport(new AppProperties.Http());
+
+        assertThrows(ResourceAccessException.class,
+                () -> transport.restTemplate(200).getForObject(uri("/slow"), String.class));
+        assertDoesNotThrow(() -> transport.restTemplate(5000).getForObject(uri("/slow"), String.class));
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+}
@@ -0,0 +1,76 @@
+package com.webhook_wrapper.facebook;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphPageIteratorTest {
+
+    @Test
+    void testFollowsPagingNextLazily() {
+        List<URI> requested = new ArrayList<>();
+        Map<URI, Map<String, Object>> pages = new HashMap<>();
+        pages.put(URI.create("https://graph/p1"), page(List.of("a", "b"), "c1", "https://graph/p2"));
+        pages.put(URI.create("https://graph/p2"), page(List.of("c"), "c2", null));
+
+        GraphPageIterator iterator = new GraphPageIterator(uri -> {
+            requested.add(uri);
+            return pages.get(uri);
+        }, URI.create("https://graph/p1"), 10);
+
+        assertTrue(requested.isEmpty(), "nothing is fetched before the first hasNext");
+        assertEquals("a", iterator.next().get("id"));
+        assertEquals(1, requested.size());
+
+        List<Object> rest = iterator.stream().map(item -> item.get("id")).collect(Collectors.toList());
+        assertEquals(List.of("b", "c"), rest);
+        assertEquals(2, iterator.getPagesFetched());
+        assertEquals("c2", iterator.getLastAfterCursor());
+    }
+
+    @Test
+    void testStopsAtMaxPages() {
+        GraphPageIterator iterator = new GraphPageIterator(
+                uri -> page(List.of(uri.getPath()), "c", "https://graph/next"),
+                URI.create("https://graph/first"), 3);
+
+        assertEquals(3, iterator.stream().count());
+        assertEquals(3, iterator.getPagesFetched());
+    }
+
+    @Test
+    void testEmptyPageKeepsPreviousCursor() {
+        Map<URI, Map<String, Object>> pages = new HashMap<>();
+        pages.put(URI.create("https://graph/p1"), page(List.of("a"), "c1", "https://graph/p2"));
+        pages.put(URI.create("https://graph/p2"), page(List.of(), null, null));
+
+        GraphPageIterator iterator = new GraphPageIterator(pages::get, URI.create("https://graph/p1"), 10);
+        assertEquals(1, iterator.stream().count());
+        assertEquals("c1", iterator.getLastAfterCursor());
+    }
+
+    private static Map<String, Object> page(List<String> ids, String after, String next) {
+        Map<String, Object> page = new HashMap<>();
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (String id : ids) {
+            data.add(Map.of("id", id));
+        }
+        page.put("data", data);
+        Map<String, Object> paging = new HashMap<>();
+        if (after != null) {
+            paging.put("cursors", Map.of("after", after));
+        }
+        if (next != null) {
+            paging.put("next", next);
+        }
+        page.put("paging", paging);
+        return page;
+    }
+}
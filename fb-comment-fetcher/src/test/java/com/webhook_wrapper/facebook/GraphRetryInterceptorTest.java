@@ -0,0 +1,120 @@
+package com.webhook_wrapper.facebook;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.resilience.ApiGuard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphRetryInterceptorTest {
+    private static final String RATE_LIMITED = "{\"error\":{\"message\":\"(#80001) Too many calls\",\"code\":80001}}";
+    private static final String BAD_REQUEST = "{\"error\":{\"message\":\"(#100) Unknown field\",\"code\":100}}";
+
+    private HttpServer server;
+    private final AtomicInteger flakyCalls = new AtomicInteger();
+    private final AtomicInteger badCalls = new AtomicInteger();
+    private final List<String> usageSeen = new ArrayList<>();
+    private RestTemplate template;
+
+    @BeforeEach
+    void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/flaky", exchange -> {
+            exchange.getResponseHeaders().add("X-Business-Use-Case-Usage",
+                    "{\"1\":[{\"type\":\"pages\",\"call_count\":100,\"estimated_time_to_regain_access\":0}]}");
+            if (flakyCalls.incrementAndGet() <= 2) {
+                respond(exchange, 400, RATE_LIMITED);
+            } else {
+                respond(exchange, 200, "{\"id\":\"page_1\"}");
+            }
+        });
+        server.createContext("/bad", exchange -> {
+            badCalls.incrementAndGet();
+            respond(exchange, 400, BAD_REQUEST);
+        });
+        server.start();
+
+        AppProperties.Resilience settings = new AppProperties.Resilience();
+        settings.setInitialBackoffMs(1);
+        ApiGuard guard = new ApiGuard("graph", settings, ApiGuard.Listener.NONE);
+        template = new GraphHttpTransport(new AppProperties.Http(), new GraphRetryInterceptor(guard, () -> "page_1",
+                headers -> usageSeen.add(headers.getFirst("X-Business-Use-Case-Usage")))).restTemplate(5000);
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void testRateLimitedCallIsRetriedAndEveryAttemptReportsUsage() {
+        Map<?, ?> body = template.getForObject(uri("/flaky"), Map.class);
+
+        assertEquals("page_1", body.get("id"));
+        assertEquals(3, flakyCalls.get());
+        assertEquals(3, usageSeen.size());
+    }
+
+    @Test
+    void testOtherErrorsReachTheCallerUntouched() {
+        HttpClientErrorException error = assertThrows(HttpClientErrorException.class,
+                () -> template.getForObject(uri("/bad"), Map.class));
+
+        assertEquals(1, badCalls.get());
+        assertTrue(error.getResponseBodyAsString().contains("Unknown field"));
+    }
+
+    @Test
+    void testClassify() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Business-Use-Case-Usage",
+                "{\"1\":[{\"type\":\"pages\",\"call_count\":100,\"estimated_time_to_regain_access\":3}]}");
+
+        ApiGuard.Failure throttled = GraphRetryInterceptor.classify(403, headers,
+                "{\"error\":{\"code\":32}}".getBytes(StandardCharsets.UTF_8));
+        assertEquals(ApiGuard.Kind.THROTTLED, throttled.kind());
+        assertEquals(180_000, throttled.retryAfterMillis());
+
+        assertEquals(ApiGuard.Kind.TRANSIENT, GraphRetryInterceptor.classify(500, new HttpHeaders(),
+                "oops".getBytes(StandardCharsets.UTF_8)).kind());
+        assertEquals(ApiGuard.Kind.TRANSIENT, GraphRetryInterceptor.classify(400, new HttpHeaders(),
+                "{\"error\":{\"code\":2,\"is_transient\":true}}".getBytes(StandardCharsets.UTF_8)).kind());
+        assertEquals(ApiGuard.Kind.PERMANENT, GraphRetryInterceptor.classify(400, new HttpHeaders(),
+                BAD_REQUEST.getBytes(StandardCharsets.UTF_8)).kind());
+    }
+
+    // Compressed like Graph does, so the retry layer has to look inside the gzip
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(status, compressed.size());
+        exchange.getResponseBody().write(compressed.toByteArray());
+        exchange.close();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+}
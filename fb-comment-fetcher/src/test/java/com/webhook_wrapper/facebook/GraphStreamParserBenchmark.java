@@ -0,0 +1,122 @@
+package com.webhook_wrapper.facebook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a synthetic feed page (posts with embedded comments) through the
+ * original Map-tree path versus {@link GraphStreamParser}. Run with the GC
+ * profiler to compare allocation per page (gc.alloc.rate.norm):
+ *
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *        org.openjdk.jmh.Main GraphStreamParserBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphStreamParserBenchmark {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Param({"200"})
+    int posts;
+
+    @Param({"25"})
+    int commentsPerPost;
+
+    byte[] feed;
+    GraphStreamParser parser;
+
+    @Setup
+    public void buildFeed() {
+        feed = syntheticFeed(posts, commentsPerPost).getBytes(StandardCharsets.UTF_8);
+        parser = new GraphStreamParser(objectMapper.getFactory());
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void mapTree(Blackhole blackhole) throws IOException {
+        // what FacebookClient + CommentSyncScheduler did before: readValue to Map, then walk the casts
+        Map<String, Object> response = objectMapper.readValue(feed, Map.class);
+        for (Map<String, Object> post : (List<Map<String, Object>>) response.get("data")) {
+            Map<String, Object> wrapper = (Map<String, Object>) post.get("comments");
+            if (wrapper == null) {
+                continue;
+            }
+            for (Map<String, Object> comment : (List<Map<String, Object>>) wrapper.get("data")) {
+                blackhole.consume(comment.get("id"));
+                blackhole.consume(comment.get("created_time"));
+            }
+        }
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) throws IOException {
+        parser.parseFeed(new ByteArrayInputStream(feed), new GraphStreamParser.FeedVisitor() {
+            @Override
+            public void onPost(Post post) {
+                blackhole.consume(post);
+            }
+
+            @Override
+            public void onComment(Comment comment) {
+                blackhole.consume(comment.id());
+                blackhole.consume(comment.createdTime());
+            }
+        });
+    }
+
+    static String syntheticFeed(int posts, int commentsPerPost) {
+        StringBuilder json = new StringBuilder("{\"data\":[");
+        for (int p = 0; p < posts; p++) {
+            if (p > 0) {
+                json.append(',');
+            }
+            json.append("{\"message\":\"Post number ").append(p).append(" with some text to make it realistic\",")
+                .append("\"permalink_url\":\"https://www.facebook.com/681857498348124/posts/").append(p).append("\",")
+                .append("\"created_time\":\"2025-08-30T10:00:00+0000\",")
+                .append("\"id\":\"681857498348124_").append(p).append("\",")
+                .append("\"comments\":{\"data\":[");
+            for (int c = 0; c < commentsPerPost; c++) {
+                if (c > 0) {
+                    json.append(',');
+                }
+                json.append("{\"created_time\":\"2025-08-30T10:").append(String.format("%02d", c % 60)).append(":00+0000\",")
+                    .append("\"from\":{\"name\":\"Commenter ").append(c).append("\",\"id\":\"").append(100000 + c).append("\"},")
+                    .append("\"message\":\"Interested! Call me at +1 555-123-").append(String.format("%04d", c)).append("\",")
+                    .append("\"id\":\"").append(p).append('_').append(1_000_000 + c).append("\"}");
+            }
+            json.append("],\"paging\":{\"cursors\":{\"before\":\"QVFIUm\",\"after\":\"QVFIUn\"}}}}");
+        }
+        json.append("],\"paging\":{\"cursors\":{\"before\":\"a\",\"after\":\"b\"},\"next\":\"https://graph.facebook.com/next\"}}");
+        return json.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(GraphStreamParserBenchmark.class.getSimpleName())
+                .addProfiler("gc").build()).run();
+    }
+}
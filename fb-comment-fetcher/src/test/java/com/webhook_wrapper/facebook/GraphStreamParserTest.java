@@ -0,0 +1,100 @@
+package com.webhook_wrapper.facebook;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphStreamParserTest {
+
+    private static final String FEED = """
+            {"data":[
+              {"message":"First post","permalink_url":"https://fb.com/1","created_time":"2025-08-30T09:00:00+0000",
+               "id":"page_1","shares":{"count":3},
+               "comments":{"data":[
+                 {"created_time":"2025-08-30T10:00:00+0000","from":{"name":"Alice","id":"42"},
+                  "message":"Call 555-123-4567","id":"1_100","attachment":{"type":"photo","media":{"src":"x"}}},
+                 {"created_time":"2025-08-30T10:05:00+0000","message":"No sender","id":"1_101"}
+               ],"paging":{"cursors":{"before":"a","after":"b"}}}},
+              {"comments":{"data":[{"id":"2_200","message":"before id","from":{"id":"7","name":"Bob"}}]},
+               "id":"page_2"},
+              {"id":"page_3"}
+            ],
+            "paging":{"cursors":{"before":"x","after":"y"},"next":"https://graph.facebook.com/next-page"}}
+            """;
+
+    @Test
+    void testPostsAndCommentsAreEmittedAsRecords() throws Exception {
+        List<Post> posts = new ArrayList<>();
+        List<Comment> comments = new ArrayList<>();
+
+        String next = new GraphStreamParser().parseFeed(
+                new ByteArrayInputStream(FEED.getBytes(StandardCharsets.UTF_8)),
+                new GraphStreamParser.FeedVisitor() {
+                    @Override
+                    public void onPost(Post post) {
+                        posts.add(post);
+                    }
+
+                    @Override
+                    public void onComment(Comment comment) {
+                        comments.add(comment);
+                    }
+                });
+
+        assertEquals("https://graph.facebook.com/next-page", next);
+        assertEquals(3, posts.size());
+        assertEquals(new Post("page_1", "First post", "https://fb.com/1", "2025-08-30T09:00:00+0000", null), posts.get(0));
+        assertFalse(posts.get(2).hasDetails());
+
+        assertEquals(3, comments.size());
+        assertEquals(new Comment("1_100", "page_1", "Call 555-123-4567", "2025-08-30T10:00:00+0000", "42", "Alice"),
+                comments.get(0));
+        assertNull(comments.get(1).fromName());
+        assertEquals("page_2", comments.get(2).postId(), "comments before the post id are tagged once it is known");
+    }
+
+    @Test
+    void testEachPostArrivesBeforeItsComments() throws Exception {
+        List<String> events = new ArrayList<>();
+
+        new GraphStreamParser().parseFeed(
+                new ByteArrayInputStream(FEED.getBytes(StandardCharsets.UTF_8)),
+                new GraphStreamParser.FeedVisitor() {
+                    @Override
+                    public void onPost(Post post) {
+                        events.add("post " + post.id());
+                    }
+
+                    @Override
+                    public void onComment(Comment comment) {
+                        events.add("comment " + comment.id());
+                    }
+                });
+
+        assertEquals(List.of("post page_1", "comment 1_100", "comment 1_101", "post page_2", "comment 2_200",
+                "post page_3"), events);
+    }
+
+    @Test
+    void testLastPageHasNoNext() throws Exception {
+        String next = new GraphStreamParser().parseFeed(
+                new ByteArrayInputStream("{\"data\":[]}".getBytes(StandardCharsets.UTF_8)),
+                new GraphStreamParser.FeedVisitor() {
+                    @Override
+                    public void onPost(Post post) {
+                        fail("no posts expected");
+                    }
+
+                    @Override
+                    public void onComment(Comment comment) {
+                        fail("no comments expected");
+                    }
+                });
+        assertNull(next);
+    }
+}
@@ -0,0 +1,126 @@
+package com.webhook_wrapper.facebook;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphUsageBudgetTest {
+
+    @Test
+    void testBudgetIsSplitFairlyBetweenPages() {
+        AtomicLong now = new AtomicLong();
+        GraphUsageBudget budget = new GraphUsageBudget(100, 60_000, 75, now::get);
+        budget.register("busy");
+        budget.register("quiet");
+
+        for (int i = 0; i < 50; i++) {
+            budget.recordCall("busy", null, null, null);
+        }
+        assertFalse(budget.tryAcquire("busy", 1), "busy page has used its half");
+        assertTrue(budget.tryAcquire("quiet", 10), "quiet page still has its share");
+
+        now.addAndGet(60_000);
+        assertTrue(budget.tryAcquire("busy", 1), "shares reset with the window");
+    }
+
+    @Test
+    void testPageWhoseLastCycleCostMoreThanItsShareIsStillPolled() {
+        AtomicLong now = new AtomicLong();
+        GraphUsageBudget budget = new GraphUsageBudget(100, 60_000, 75, now::get);
+        budget.register("busy");
+        budget.register("quiet");
+
+        // the busy page's previous cycle took 80 calls, more than its share of 50
+        assertTrue(budget.tryAcquire("busy", 80), "nothing spent this window yet");
+        for (int i = 0; i < 80; i++) {
+            budget.recordCall("busy", null, null, null);
+        }
+        assertFalse(budget.tryAcquire("busy", 80), "share spent for this window");
+
+        now.addAndGet(60_000);
+        assertTrue(budget.tryAcquire("busy", 80), "admitted again once the window moves on");
+        assertTrue(budget.tryAcquire("quiet", 10));
+    }
+
+    @Test
+    void testAppUsageScalesTheBudgetDown() {
+        GraphUsageBudget budget = new GraphUsageBudget(100, 60_000, 75, () -> 0L);
+        budget.register("page");
+
+        budget.recordCall("page", "{\"call_count\":40,\"total_time\":20,\"total_cputime\":10}", null, null);
+        assertEquals(100, budget.effectiveBudget());
+
+        budget.recordCall("page", "{\"call_count\":10,\"total_time\":90,\"total_cputime\":10}", null, null);
+        assertEquals(90, budget.getAppUsagePercent());
+        assertEquals(40, budget.effectiveBudget());
+
+        budget.recordCall("page", "{\"call_count\":100}", null, null);
+        assertFalse(budget.tryAcquire("page", 1));
+    }
+
+    @Test
+    void testThrottledPageIsHeldBack() {
+        GraphUsageBudget budget = new GraphUsageBudget(100, 60_000, 75, () -> 0L);
+        budget.register("hot");
+        budget.register("cold");
+
+        budget.recordCall("hot", null, "{\"call_count\":80}", null);
+        assertFalse(budget.tryAcquire("hot", 1));
+        assertTrue(budget.tryAcquire("cold", 1));
+    }
+
+    @Test
+    void testThrottledPageIsAdmittedAgainOnceItsUsageIsAWindowOld() {
+        AtomicLong now = new AtomicLong();
+        GraphUsageBudget budget = new GraphUsageBudget(100, 60_000, 75, now::get);
+        budget.register("page");
+        budget.recordCall("page", "{\"call_count\":100}", "{\"call_count\":90}", null);
+        assertFalse(budget.tryAcquire("page", 1));
+
+        now.set(59_999);
+        assertFalse(budget.tryAcquire("page", 1), "still within the window of the reading");
+
+        now.set(60_000);
+        assertTrue(budget.tryAcquire("page", 1), "a probe cycle goes ahead to refresh the usage");
+        assertEquals(0, budget.getAppUsagePercent());
+        assertEquals(0, budget.getPageUsagePercent("page"));
+        assertEquals(1, budget.getHeadroom("page"));
+
+        // the probe's response reports the page still throttled: held back for another window
+        budget.recordCall("page", null, "{\"call_count\":80}", null);
+        assertFalse(budget.tryAcquire("page", 1));
+    }
+
+    @Test
+    void testPageIsHeldUntilItRegainsAccess() {
+        AtomicLong now = new AtomicLong();
+        GraphUsageBudget budget = new GraphUsageBudget(100, 60_000, 75, now::get);
+        budget.register("page");
+        budget.recordCall("page", null, null, "{\"1234\":[{\"type\":\"pages\",\"call_count\":100,"
+                + "\"estimated_time_to_regain_access\":5}]}");
+
+        now.set(60_000);
+        assertFalse(budget.tryAcquire("page", 1), "Facebook said five minutes");
+        now.set(5 * 60_000);
+        assertTrue(budget.tryAcquire("page", 1));
+    }
+
+    @Test
+    void testBusinessUseCaseUsageHoldsThePageBack() {
+        GraphUsageBudget budget = new GraphUsageBudget(100, 60_000, 75, () -> 0L);
+        budget.register("page");
+        String header = "{\"1234\":[{\"type\":\"pages\",\"call_count\":12,\"total_cputime\":5,"
+                + "\"total_time\":9,\"estimated_time_to_regain_access\":0},"
+                + "{\"type\":\"messenger\",\"call_count\":96,\"estimated_time_to_regain_access\":7}]}";
+
+        budget.recordCall("page", null, "{\"call_count\":10}", header);
+
+        assertEquals(96, budget.getPageUsagePercent("page"));
+        assertFalse(budget.tryAcquire("page", 1));
+        assertEquals(7 * 60_000, GraphUsageBudget.regainAccessMillis(header));
+        assertEquals(0, GraphUsageBudget.regainAccessMillis("not json"));
+        assertEquals(0, GraphUsageBudget.regainAccessMillis(null));
+    }
+}
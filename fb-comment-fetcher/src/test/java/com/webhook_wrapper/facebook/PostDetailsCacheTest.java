@@ -0,0 +1,44 @@
+package com.webhook_wrapper.facebook;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostDetailsCacheTest {
+
+    @Test
+    void testEntriesExpireAfterTtl() {
+        AtomicLong now = new AtomicLong(1_000);
+        PostDetailsCache cache = new PostDetailsCache(10, 500, now::get);
+        cache.put("p1", Map.of("id", "p1"));
+
+        now.addAndGet(499);
+        assertNotNull(cache.get("p1"));
+
+        now.addAndGet(1);
+        assertNull(cache.get("p1"));
+
+        PostDetailsCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.evictions());
+        assertEquals(0, stats.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsDroppedAtMaxSize() {
+        PostDetailsCache cache = new PostDetailsCache(2, 60_000);
+        cache.put("p1", Map.of("id", "p1"));
+        cache.put("p2", Map.of("id", "p2"));
+        cache.get("p1");
+        cache.put("p3", Map.of("id", "p3"));
+
+        assertNotNull(cache.get("p1"));
+        assertNull(cache.get("p2"));
+        assertNotNull(cache.get("p3"));
+        assertEquals(2, cache.getStats().size());
+    }
+}
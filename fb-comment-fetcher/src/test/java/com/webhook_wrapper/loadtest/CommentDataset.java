@@ -0,0 +1,240 @@
+package com.webhook_wrapper.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webhook_wrapper.extract.GraphTimestamps;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * The posts and comments a {@link GraphApiStub} serves, each comment with
+ * the point in the replay at which it becomes visible.
+ *
+ * Either synthetic (comment counts per post follow a Zipf curve, so a few
+ * posts get most of the traffic) or replayed from an NDJSON recording of
+ * Graph comment objects with an extra post_id field, one per line.
+ */
+final class CommentDataset {
+    private static final String[] NAMES = {"Asha Rao", "Ben Ortiz", "Chen Wei", "Dana Kim", "Eli Novak", "Fatima Zahra"};
+    private static final String[] MESSAGES = {
+            "Is this still available?",
+            "Price please",
+            "Call me on +91 98765 43210",
+            "Interested, what sizes do you have?",
+            "Order #A12345 has not arrived yet",
+            "Love it! Sending to my sister",
+            "Can you ship to Pune? My number is 9123456789",
+    };
+
+    record Post(String id, long createdAt, String message) {
+    }
+
+    /**
+     * @param post          index into {@link #posts()}
+     * @param createdAt     created_time in epoch seconds
+     * @param visibleAtMs   replay time at which the comment appears
+     */
+    record Comment(String id, int post, long createdAt, long visibleAtMs, String fromId, String fromName,
+                   String message) {
+    }
+
+    private final String pageId;
+    private final List<Post> posts;
+    // Per post, ordered by created_time (and so by visibleAtMs)
+    private final List<List<Comment>> commentsByPost;
+    private final Map<String, Integer> postIndex = new HashMap<>();
+    private final Map<String, Comment> commentsById = new HashMap<>();
+    private final int totalComments;
+    private final long lastVisibleAt;
+
+    private CommentDataset(String pageId, List<Post> posts, List<List<Comment>> commentsByPost) {
+        this.pageId = pageId;
+        this.posts = posts;
+        this.commentsByPost = commentsByPost;
+        int total = 0;
+        long last = 0;
+        for (int i = 0; i < posts.size(); i++) {
+            postIndex.put(posts.get(i).id(), i);
+            for (Comment comment : commentsByPost.get(i)) {
+                commentsById.put(comment.id(), comment);
+                last = Math.max(last, comment.visibleAtMs());
+            }
+            total += commentsByPost.get(i).size();
+        }
+        this.totalComments = total;
+        this.lastVisibleAt = last;
+    }
+
+    /**
+     * Spreads comments over posts by a Zipf curve with exponent 1 and over
+     * durationMs of replay uniformly; 0 makes every comment visible at once.
+     * Posts were created up to two days before the replay starts.
+     */
+    static CommentDataset synthetic(String pageId, int postCount, int commentCount, long durationMs, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long start = System.currentTimeMillis() / 1000;
+
+        List<Post> posts = new ArrayList<>(postCount);
+        double[] cumulative = new double[postCount];
+        double sum = 0;
+        for (int i = 0; i < postCount; i++) {
+            // newest posts first, the way the feed lists them, and the newest are the busiest
+            posts.add(new Post(pageId + "_" + (1_000_000 + i), start - 60 - i * (172_800L / Math.max(1, postCount)),
+                    "Post " + i));
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+
+        long[] offsets = new long[commentCount];
+        for (int i = 0; i < commentCount; i++) {
+            offsets[i] = durationMs > 0 ? random.nextLong(durationMs) : 0;
+        }
+        Arrays.sort(offsets);
+
+        List<List<Comment>> byPost = new ArrayList<>(postCount);
+        for (int i = 0; i < postCount; i++) {
+            byPost.add(new ArrayList<>());
+        }
+        for (int i = 0; i < commentCount; i++) {
+            int post = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            post = post >= 0 ? post : Math.min(postCount - 1, -post - 1);
+            int from = random.nextInt(NAMES.length);
+            byPost.get(post).add(new Comment(posts.get(post).id() + "_" + i, post,
+                    Math.max(posts.get(post).createdAt() + 1, start + offsets[i] / 1000), offsets[i],
+                    String.valueOf(100_000 + from), NAMES[from], MESSAGES[random.nextInt(MESSAGES.length)]));
+        }
+        return new CommentDataset(pageId, posts, byPost);
+    }
+
+    /**
+     * Reads a recording: one Graph comment object per line ({"post_id", "id",
+     * "created_time", "from": {"id", "name"}, "message"}). Comments keep their
+     * relative timing, compressed by speed (2 replays twice as fast); speed
+     * 0 makes every comment visible at once.
+     */
+    static CommentDataset replay(String pageId, Path ndjson, double speed) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<JsonNode> lines = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(ndjson, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    lines.add(objectMapper.readTree(line));
+                }
+            }
+        }
+        lines.sort(Comparator.comparingLong(node -> GraphTimestamps.toEpochSecondsOrZero(node.path("created_time").asText())));
+        long first = lines.isEmpty() ? 0 : GraphTimestamps.toEpochSecondsOrZero(lines.get(0).path("created_time").asText());
+
+        Map<String, Integer> indexByPost = new LinkedHashMap<>();
+        List<Post> posts = new ArrayList<>();
+        List<List<Comment>> byPost = new ArrayList<>();
+        for (JsonNode node : lines) {
+            String postId = node.path("post_id").asText();
+            long createdAt = GraphTimestamps.toEpochSecondsOrZero(node.path("created_time").asText());
+            int post = indexByPost.computeIfAbsent(postId, id -> {
+                posts.add(new Post(id, createdAt - 1, ""));
+                byPost.add(new ArrayList<>());
+                return posts.size() - 1;
+            });
+            long visibleAt = speed > 0 ? (long) ((createdAt - first) * 1000 / speed) : 0;
+            byPost.get(post).add(new Comment(node.path("id").asText(), post, createdAt, visibleAt,
+                    node.path("from").path("id").asText(null), node.path("from").path("name").asText(null),
+                    node.path("message").asText(null)));
+        }
+        // the feed lists the newest posts first
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < posts.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingLong((Integer i) -> posts.get(i).createdAt()).reversed());
+        List<Post> sortedPosts = new ArrayList<>();
+        List<List<Comment>> sortedComments = new ArrayList<>();
+        for (int i : order) {
+            int newIndex = sortedPosts.size();
+            sortedPosts.add(posts.get(i));
+            List<Comment> comments = new ArrayList<>();
+            for (Comment comment : byPost.get(i)) {
+                comments.add(new Comment(comment.id(), newIndex, comment.createdAt(), comment.visibleAtMs(),
+                        comment.fromId(), comment.fromName(), comment.message()));
+            }
+            sortedComments.add(comments);
+        }
+        return new CommentDataset(pageId, sortedPosts, sortedComments);
+    }
+
+    String pageId() {
+        return pageId;
+    }
+
+    List<Post> posts() {
+        return posts;
+    }
+
+    int totalComments() {
+        return totalComments;
+    }
+
+    /**
+     * Replay time at which the last comment appears.
+     */
+    long lastVisibleAt() {
+        return lastVisibleAt;
+    }
+
+    /**
+     * Index of the post with this id, or -1.
+     */
+    int postIndex(String postId) {
+        return postIndex.getOrDefault(postId, -1);
+    }
+
+    /**
+     * The post's comments visible at the given replay time, oldest first.
+     */
+    List<Comment> visibleComments(int post, long replayMs) {
+        List<Comment> comments = commentsByPost.get(post);
+        int low = 0;
+        int high = comments.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comments.get(mid).visibleAtMs() <= replayMs) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return comments.subList(0, low);
+    }
+
+    /**
+     * Visible comments across every post at the given replay time.
+     */
+    int visibleCount(long replayMs) {
+        int count = 0;
+        for (int post = 0; post < posts.size(); post++) {
+            count += visibleComments(post, replayMs).size();
+        }
+        return count;
+    }
+
+    /**
+     * When the comment with this id became visible, or -1 if it is not in the dataset.
+     */
+    long visibleAt(String commentId) {
+        Comment comment = commentsById.get(commentId);
+        return comment != null ? comment.visibleAtMs() : -1;
+    }
+}
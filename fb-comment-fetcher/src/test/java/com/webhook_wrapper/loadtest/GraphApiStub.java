@@ -0,0 +1,477 @@
+package com.webhook_wrapper.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local stand-in for graph.facebook.com and the Sheets values.append
+ * endpoint, serving a {@link CommentDataset} as it unfolds in replay time.
+ *
+ * Graph: GET /{version}/{page}/feed (with or without embedded comments),
+ * GET /{version}/{post}/comments (chronological or reverse_chronological,
+ * since, after cursors), GET /{version}/{post} and the POST /{version}/
+ * batch endpoint. Every response carries X-App-Usage computed from the calls
+ * in the last usage window; past 100% Graph calls fail with error code 4
+ * until the window moves on.
+ *
+ * Sheets: POST /v4/spreadsheets/{id}/values/{range}:append, answering 429
+ * with a Retry-After above sheets-writes-per-window. Each appended row is matched to the
+ * dataset by comment id to measure end-to-end latency.
+ */
+final class GraphApiStub implements AutoCloseable {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final DateTimeFormatter GRAPH_TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ").withZone(ZoneOffset.UTC);
+    private static final int DEFAULT_LIMIT = 25;
+    private static final int MAX_LIMIT = 100;
+    private static final Map<String, Object> THROTTLED = Map.of("error", Map.of(
+            "message", "(#4) Application request limit reached", "type", "OAuthException",
+            "code", 4, "is_transient", true));
+
+    /**
+     * @param latencyMs           added to every response
+     * @param jitterMs            random extra latency, 0 to jitterMs
+     * @param errorRate           share of Graph and Sheets calls answered with a 500
+     * @param callsPerWindow      Graph calls that make X-App-Usage 100%
+     * @param writesPerWindow     Sheets appends accepted before 429s, 0 for no limit
+     * @param windowMs            rolling window for both limits
+     */
+    record Settings(long latencyMs, long jitterMs, double errorRate, int callsPerWindow, int writesPerWindow,
+                    long windowMs, long seed) {
+    }
+
+    private final CommentDataset dataset;
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final SplittableRandom random;
+    private final Deque<Long> graphCallTimes = new ArrayDeque<>();
+    private final Deque<Long> sheetsWriteTimes = new ArrayDeque<>();
+    private volatile long startedAt;
+
+    final AtomicLong graphCalls = new AtomicLong();
+    final AtomicLong graphErrors = new AtomicLong();
+    final AtomicLong graphThrottled = new AtomicLong();
+    final AtomicLong sheetsAppends = new AtomicLong();
+    private final AtomicInteger sheetRows = new AtomicInteger();
+    final AtomicLong sheetsErrors = new AtomicLong();
+    final AtomicLong sheetsThrottled = new AtomicLong();
+    final AtomicLong duplicateRows = new AtomicLong();
+    // Epoch millis of the first comment served and the first row appended, 0 until then
+    final AtomicLong firstCommentServedAt = new AtomicLong();
+    final AtomicLong firstRowAppendedAt = new AtomicLong();
+    private final Set<String> delivered = ConcurrentHashMap.newKeySet();
+    private final List<Long> latenciesMs = new ArrayList<>();
+
+    GraphApiStub(CommentDataset dataset, Settings settings) throws IOException {
+        this.dataset = dataset;
+        this.settings = settings;
+        this.random = new SplittableRandom(settings.seed());
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.executor = Executors.newFixedThreadPool(32, runnable -> {
+            Thread thread = new Thread(runnable, "graph-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Starts serving; replay time 0 is now.
+     */
+    GraphApiStub start() {
+        startedAt = System.currentTimeMillis();
+        server.start();
+        return this;
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    long replayMillis() {
+        return System.currentTimeMillis() - startedAt;
+    }
+
+    int deliveredCount() {
+        return delivered.size();
+    }
+
+    /**
+     * Visible-to-appended latency of each distinct row, in arrival order.
+     */
+    List<Long> latencies() {
+        synchronized (latenciesMs) {
+            return new ArrayList<>(latenciesMs);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            simulateLatency();
+            String path = exchange.getRequestURI().getPath();
+            if (path.startsWith("/v4/spreadsheets/")) {
+                handleSheets(exchange);
+            } else {
+                handleGraph(exchange);
+            }
+        } catch (RuntimeException e) {
+            respond(exchange, 500, Map.of("error", Map.of("message", String.valueOf(e.getMessage()), "code", 1)), null);
+        }
+    }
+
+    private void handleGraph(HttpExchange exchange) throws IOException {
+        if ("POST".equals(exchange.getRequestMethod())) {
+            Map<String, String> form = query(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            List<Map<String, String>> requests = objectMapper.readValue(form.get("batch"),
+                    new TypeReference<List<Map<String, String>>>() { });
+            String usage = recordGraphCalls(requests.size());
+            if (usage == null) {
+                graphThrottled.incrementAndGet();
+                respond(exchange, 403, THROTTLED, null);
+                return;
+            }
+            List<Object> responses = new ArrayList<>(requests.size());
+            for (Map<String, String> request : requests) {
+                Response response = graphGet(URI.create("/" + request.get("relative_url")), exchange, usage);
+                responses.add(Map.of("code", response.status(), "body", objectMapper.writeValueAsString(response.body())));
+            }
+            respond(exchange, 200, responses, usage);
+            return;
+        }
+        String usage = recordGraphCalls(1);
+        Response response = graphGet(exchange.getRequestURI(), exchange, usage);
+        respond(exchange, response.status(), response.body(), usage);
+    }
+
+    private record Response(int status, Object body) {
+    }
+
+    // path is /{version}/{id}[/{edge}] for direct calls, /{id}[/{edge}] inside a batch
+    private Response graphGet(URI uri, HttpExchange exchange, String usage) {
+        if (usage == null) {
+            graphThrottled.incrementAndGet();
+            return new Response(403, THROTTLED);
+        }
+        if (settings.errorRate() > 0 && nextDouble() < settings.errorRate()) {
+            graphErrors.incrementAndGet();
+            return new Response(500, Map.of("error", Map.of("message", "An unexpected error has occurred",
+                    "type", "OAuthException", "code", 2, "is_transient", true)));
+        }
+        List<String> parts = new ArrayList<>(List.of(uri.getPath().replaceFirst("^/", "").split("/")));
+        if (!parts.isEmpty() && parts.get(0).startsWith("v") && parts.get(0).contains(".")) {
+            parts.remove(0);
+        }
+        Map<String, String> params = query(uri.getRawQuery());
+        String base = baseUrl() + "/" + exchange.getRequestURI().getPath().split("/")[1] + "/";
+        if (parts.size() == 2 && parts.get(1).equals("feed")) {
+            return new Response(200, feed(params, base));
+        }
+        int post = parts.isEmpty() ? -1 : dataset.postIndex(parts.get(0));
+        if (post < 0) {
+            return new Response(404, Map.of("error", Map.of("message", "Unsupported get request", "code", 100)));
+        }
+        if (parts.size() == 2 && parts.get(1).equals("comments")) {
+            return new Response(200, comments(post, params, base + parts.get(0) + "/comments"));
+        }
+        return new Response(200, postFields(post, params.getOrDefault("fields", "id")));
+    }
+
+    private Map<String, Object> feed(Map<String, String> params, String base) {
+        int limit = limit(params);
+        int offset = parseInt(params.get("after"), 0);
+        String fields = params.getOrDefault("fields", "id");
+        boolean embedComments = fields.contains("comments{");
+        List<CommentDataset.Post> posts = dataset.posts();
+
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (int i = offset; i < posts.size() && i < offset + limit; i++) {
+            Map<String, Object> post = postFields(i, fields);
+            if (embedComments) {
+                Map<String, String> commentParams = new HashMap<>();
+                commentParams.put("fields", "id,created_time,from,message");
+                post.put("comments", comments(i, commentParams, base + posts.get(i).id() + "/comments"));
+            }
+            data.add(post);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("data", data);
+        int end = Math.min(posts.size(), offset + limit);
+        Map<String, Object> paging = new LinkedHashMap<>();
+        paging.put("cursors", Map.of("before", String.valueOf(offset), "after", String.valueOf(end)));
+        if (end < posts.size()) {
+            Map<String, String> next = new LinkedHashMap<>(params);
+            next.put("after", String.valueOf(end));
+            paging.put("next", base + dataset.pageId() + "/feed?" + encode(next));
+        }
+        response.put("paging", paging);
+        return response;
+    }
+
+    private Map<String, Object> postFields(int index, String fields) {
+        CommentDataset.Post post = dataset.posts().get(index);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", post.id());
+        if (fields.contains("message")) {
+            body.put("message", post.message());
+        }
+        if (fields.contains("permalink_url")) {
+            body.put("permalink_url", "https://www.facebook.com/" + post.id().replace('_', '/'));
+        }
+        if (fields.contains("created_time")) {
+            body.put("created_time", GRAPH_TIME.format(Instant.ofEpochSecond(post.createdAt())));
+        }
+        if (fields.contains("updated_time")) {
+            List<CommentDataset.Comment> visible = dataset.visibleComments(index, replayMillis());
+            long updated = visible.isEmpty() ? post.createdAt() : visible.get(visible.size() - 1).createdAt();
+            body.put("updated_time", GRAPH_TIME.format(Instant.ofEpochSecond(updated)));
+        }
+        return body;
+    }
+
+    // after is a position in the chosen order; since filters on created_time
+    private Map<String, Object> comments(int post, Map<String, String> params, String edgeUrl) {
+        List<CommentDataset.Comment> visible = dataset.visibleComments(post, replayMillis());
+        boolean reverse = "reverse_chronological".equals(params.get("order"));
+        long since = parseLong(params.get("since"), 0);
+        List<CommentDataset.Comment> matching = visible;
+        if (since > 0) {
+            matching = new ArrayList<>();
+            for (CommentDataset.Comment comment : visible) {
+                if (comment.createdAt() >= since) {
+                    matching.add(comment);
+                }
+            }
+        }
+        int limit = limit(params);
+        int offset = parseInt(params.get("after"), 0);
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (int i = offset; i < matching.size() && i < offset + limit; i++) {
+            CommentDataset.Comment comment = matching.get(reverse ? matching.size() - 1 - i : i);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("id", comment.id());
+            body.put("created_time", GRAPH_TIME.format(Instant.ofEpochSecond(comment.createdAt())));
+            if (comment.fromId() != null) {
+                body.put("from", Map.of("id", comment.fromId(), "name", String.valueOf(comment.fromName())));
+            }
+            body.put("message", comment.message());
+            data.add(body);
+        }
+        if (!data.isEmpty()) {
+            firstCommentServedAt.compareAndSet(0, System.currentTimeMillis());
+        }
+        int end = Math.min(matching.size(), offset + limit);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("data", data);
+        Map<String, Object> paging = new LinkedHashMap<>();
+        // Graph hands out an after cursor even on the last page; it resumes there once more comments arrive
+        paging.put("cursors", Map.of("before", String.valueOf(offset), "after", String.valueOf(end)));
+        if (end < matching.size()) {
+            Map<String, String> next = new LinkedHashMap<>(params);
+            next.put("after", String.valueOf(end));
+            paging.put("next", edgeUrl + "?" + encode(next));
+        }
+        response.put("paging", paging);
+        return response;
+    }
+
+    private void handleSheets(HttpExchange exchange) throws IOException {
+        if (!throttle(sheetsWriteTimes, settings.writesPerWindow(), settings.windowMs())) {
+            sheetsThrottled.incrementAndGet();
+            exchange.getResponseHeaders().add("Retry-After", String.valueOf(secondsUntilFree(sheetsWriteTimes)));
+            respond(exchange, 429, Map.of("error", Map.of("code", 429, "status", "RESOURCE_EXHAUSTED",
+                    "message", "Quota exceeded for quota metric 'Write requests'")), null);
+            return;
+        }
+        if (settings.errorRate() > 0 && nextDouble() < settings.errorRate()) {
+            sheetsErrors.incrementAndGet();
+            respond(exchange, 503, Map.of("error", Map.of("code", 503, "status", "UNAVAILABLE",
+                    "message", "The service is currently unavailable.")), null);
+            return;
+        }
+        JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+        List<List<Object>> values = body.has("values")
+                ? objectMapper.convertValue(body.get("values"), new TypeReference<List<List<Object>>>() { })
+                : List.of();
+        long now = replayMillis();
+        for (List<Object> row : values) {
+            String commentId = row.size() > 2 ? String.valueOf(row.get(2)) : "";
+            if (!delivered.add(commentId)) {
+                duplicateRows.incrementAndGet();
+                continue;
+            }
+            long visibleAt = dataset.visibleAt(commentId);
+            if (visibleAt >= 0) {
+                synchronized (latenciesMs) {
+                    latenciesMs.add(Math.max(0, now - visibleAt));
+                }
+            }
+        }
+        if (!values.isEmpty()) {
+            firstRowAppendedAt.compareAndSet(0, System.currentTimeMillis());
+        }
+        sheetsAppends.incrementAndGet();
+        // like Sheets, report where the rows went: {sheet}!A{first}:G{last}
+        String range = exchange.getRequestURI().getPath().replaceFirst(".*/values/", "").replaceFirst(":append$", "");
+        int firstRow = sheetRows.getAndAdd(values.size()) + 1;
+        String updatedRange = range.substring(0, range.lastIndexOf('!') + 1)
+                + "A" + firstRow + ":G" + (firstRow + values.size() - 1);
+        respond(exchange, 200, Map.of("updates", Map.of("updatedRows", values.size(), "updatedRange", updatedRange)), null);
+    }
+
+    // Records calls against the usage window; null once the window is over its limit
+    private String recordGraphCalls(int calls) {
+        graphCalls.addAndGet(calls);
+        long now = System.currentTimeMillis();
+        int percent;
+        synchronized (graphCallTimes) {
+            while (!graphCallTimes.isEmpty() && graphCallTimes.peekFirst() <= now - settings.windowMs()) {
+                graphCallTimes.pollFirst();
+            }
+            if (graphCallTimes.size() >= settings.callsPerWindow()) {
+                return null;
+            }
+            for (int i = 0; i < calls; i++) {
+                graphCallTimes.addLast(now);
+            }
+            percent = (int) Math.min(100, graphCallTimes.size() * 100L / Math.max(1, settings.callsPerWindow()));
+        }
+        return "{\"call_count\":" + percent + ",\"total_time\":" + percent / 2 + ",\"total_cputime\":" + percent / 2 + "}";
+    }
+
+    private static boolean throttle(Deque<Long> times, int limit, long windowMs) {
+        if (limit <= 0) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (times) {
+            while (!times.isEmpty() && times.peekFirst() <= now - windowMs) {
+                times.pollFirst();
+            }
+            if (times.size() >= limit) {
+                return false;
+            }
+            times.addLast(now);
+            return true;
+        }
+    }
+
+    // Whole seconds until the oldest write leaves the window, as a Retry-After
+    private long secondsUntilFree(Deque<Long> times) {
+        synchronized (times) {
+            long wait = times.isEmpty() ? 0 : times.peekFirst() + settings.windowMs() - System.currentTimeMillis();
+            return Math.max(1, (wait + 999) / 1000);
+        }
+    }
+
+    private void simulateLatency() {
+        long delay = settings.latencyMs();
+        if (settings.jitterMs() > 0) {
+            synchronized (random) {
+                delay += random.nextLong(settings.jitterMs() + 1);
+            }
+        }
+        if (delay > 0) {
+            LockSupport.parkNanos(delay * 1_000_000);
+        }
+    }
+
+    private double nextDouble() {
+        synchronized (random) {
+            return random.nextDouble();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, Object body, String appUsage) throws IOException {
+        byte[] payload = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        if (appUsage != null) {
+            exchange.getResponseHeaders().add("X-App-Usage", appUsage);
+        }
+        exchange.sendResponseHeaders(status, payload.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(payload);
+        }
+    }
+
+    private static int limit(Map<String, String> params) {
+        return Math.max(1, Math.min(MAX_LIMIT, parseInt(params.get("limit"), DEFAULT_LIMIT)));
+    }
+
+    private static int parseInt(String value, int fallback) {
+        return (int) parseLong(value, fallback);
+    }
+
+    private static long parseLong(String value, long fallback) {
+        if (value == null || value.isEmpty()) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (raw == null || raw.isEmpty()) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static String encode(Map<String, String> params) {
+        StringBuilder query = new StringBuilder();
+        params.forEach((key, value) -> {
+            if (query.length() > 0) {
+                query.append('&');
+            }
+            query.append(key).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+        });
+        return query.toString();
+    }
+}
@@ -0,0 +1,312 @@
+package com.webhook_wrapper.loadtest;
+
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.extract.CommentFieldExtraction;
+import com.webhook_wrapper.extract.EmailExtractor;
+import com.webhook_wrapper.extract.OrderNumberExtractor;
+import com.webhook_wrapper.extract.PhoneNumberExtractor;
+import com.webhook_wrapper.facebook.CommentCursorStore;
+import com.webhook_wrapper.facebook.CommentTracker;
+import com.webhook_wrapper.facebook.FacebookClient;
+import com.webhook_wrapper.facebook.GraphUsageBudget;
+import com.webhook_wrapper.facebook.PostEnricher;
+import com.webhook_wrapper.metrics.SyncMetrics;
+import com.webhook_wrapper.outbox.CommentOutbox;
+import com.webhook_wrapper.resilience.ApiGuards;
+import com.webhook_wrapper.scheduler.CommentIngestService;
+import com.webhook_wrapper.scheduler.CommentSyncScheduler;
+import com.webhook_wrapper.scheduler.CommentVelocity;
+import com.webhook_wrapper.sink.CommentSinks;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a comment stream from a {@link GraphApiStub} through the real
+ * sync path (FacebookClient, tracker, pipeline, outbox, SheetsAppender
+ * chunking) and reports throughput, latency percentiles and heap usage.
+ *
+ * Run from the test classpath, like the JMH benchmarks:
+ *
+ *   java -Xmx2g -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *       com.webhook_wrapper.loadtest.ReplayDriver posts=10000 comments=1000000
+ *
+ * Arguments are key=value. Driver and stub settings are listed in
+ * {@link Options}; anything starting with app. is bound onto AppProperties
+ * the way application.yml would be, e.g. app.hot-posts.enabled=true.
+ */
+public final class ReplayDriver {
+
+    /**
+     * @param replay          NDJSON recording to replay instead of synthetic data
+     * @param speed           replay speed-up for recordings; 0 shows everything at once
+     * @param durationSeconds spread of synthetic comments over the replay; 0 for all at once
+     * @param intervalMs      pause between sync cycles
+     * @param timeoutSeconds  gives up after this long
+     * @param sheetsBatchRows rows per values.append call
+     */
+    record Options(int posts, int comments, long durationSeconds, String replay, double speed, long seed,
+                   long latencyMs, long jitterMs, double errorRate, int graphCallsPerWindow,
+                   int sheetsWritesPerWindow, long windowSeconds, long intervalMs, long timeoutSeconds,
+                   int sheetsBatchRows, Map<String, String> app) {
+
+        static Options parse(String... args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            Map<String, String> app = new LinkedHashMap<>();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("Expected key=value, got " + arg);
+                }
+                String key = arg.substring(0, eq).replaceFirst("^--", "");
+                (key.startsWith("app.") ? app : values).put(key, arg.substring(eq + 1));
+            }
+            Options options = new Options(
+                    Integer.parseInt(values.getOrDefault("posts", "1000")),
+                    Integer.parseInt(values.getOrDefault("comments", "100000")),
+                    Long.parseLong(values.getOrDefault("duration-seconds", "0")),
+                    values.get("replay"),
+                    Double.parseDouble(values.getOrDefault("speed", "1")),
+                    Long.parseLong(values.getOrDefault("seed", "42")),
+                    Long.parseLong(values.getOrDefault("latency-ms", "20")),
+                    Long.parseLong(values.getOrDefault("jitter-ms", "10")),
+                    Double.parseDouble(values.getOrDefault("error-rate", "0")),
+                    Integer.parseInt(values.getOrDefault("graph-calls-per-window", "100000")),
+                    Integer.parseInt(values.getOrDefault("sheets-writes-per-window", "0")),
+                    Long.parseLong(values.getOrDefault("window-seconds", "60")),
+                    Long.parseLong(values.getOrDefault("interval-ms", "1000")),
+                    Long.parseLong(values.getOrDefault("timeout-seconds", "300")),
+                    Integer.parseInt(values.getOrDefault("sheets-batch-rows", "500")),
+                    app);
+            values.keySet().removeAll(List.of("posts", "comments", "duration-seconds", "replay", "speed", "seed",
+                    "latency-ms", "jitter-ms", "error-rate", "graph-calls-per-window", "sheets-writes-per-window",
+                    "window-seconds", "interval-ms", "timeout-seconds", "sheets-batch-rows"));
+            if (!values.isEmpty()) {
+                throw new IllegalArgumentException("Unknown options " + values.keySet());
+            }
+            return options;
+        }
+    }
+
+    record Report(int total, int delivered, long duplicates, long elapsedMs, int cycles, int failedCycles,
+                  List<Long> latenciesMs, List<Long> cycleMs, Map<String, String> graphLatency,
+                  long graphCalls, long graphErrors, long graphThrottled,
+                  long sheetsAppends, long sheetsErrors, long sheetsThrottled,
+                  long baselineHeapBytes, long peakHeapBytes, long gcCount, long gcMillis) {
+
+        double throughputPerSecond() {
+            return elapsedMs > 0 ? delivered * 1000.0 / elapsedMs : 0;
+        }
+
+        void print(PrintStream out) {
+            out.printf("Delivered %d of %d comments in %.1f s (%.0f comments/s), %d duplicate rows%n",
+                    delivered, total, elapsedMs / 1000.0, throughputPerSecond(), duplicates);
+            out.printf("Visible-to-sheet latency ms: p50 %d, p90 %d, p99 %d, max %d%n",
+                    percentile(latenciesMs, 0.5), percentile(latenciesMs, 0.9),
+                    percentile(latenciesMs, 0.99), percentile(latenciesMs, 1));
+            out.printf("Sync cycles: %d (%d failed), ms p50 %d, p99 %d, max %d%n", cycles, failedCycles,
+                    percentile(cycleMs, 0.5), percentile(cycleMs, 0.99), percentile(cycleMs, 1));
+            out.printf("Graph calls: %d, errors %d, throttled %d%n", graphCalls, graphErrors, graphThrottled);
+            graphLatency.forEach((call, summary) -> out.printf("  %-6s %s%n", call, summary));
+            out.printf("Sheets appends: %d, errors %d, throttled %d%n", sheetsAppends, sheetsErrors, sheetsThrottled);
+            out.printf("Heap MB: %d before the run, peak %d; GC %d collections, %d ms%n",
+                    baselineHeapBytes >> 20, peakHeapBytes >> 20, gcCount, gcMillis);
+        }
+    }
+
+    private ReplayDriver() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        run(Options.parse(args)).print(System.out);
+    }
+
+    static Report run(Options options) throws Exception {
+        CommentDataset dataset = options.replay() != null
+                ? CommentDataset.replay("stub-page", Path.of(options.replay()), options.speed())
+                : CommentDataset.synthetic("stub-page", options.posts(), options.comments(),
+                options.durationSeconds() * 1000, options.seed());
+        GraphApiStub.Settings stubSettings = new GraphApiStub.Settings(options.latencyMs(), options.jitterMs(),
+                options.errorRate(), options.graphCallsPerWindow(), options.sheetsWritesPerWindow(),
+                options.windowSeconds() * 1000, options.seed());
+        Path workDir = Files.createTempDirectory("replay-");
+
+        try (GraphApiStub stub = new GraphApiStub(dataset, stubSettings)) {
+            AppProperties props = properties(options, dataset, stub.baseUrl(), workDir);
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            registry.config().meterFilter(new MeterFilter() {
+                @Override
+                public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                    return DistributionStatisticConfig.builder().percentiles(0.5, 0.99).build().merge(config);
+                }
+            });
+            SyncMetrics metrics = new SyncMetrics(registry);
+            ApiGuards guards = new ApiGuards(props, metrics);
+            FacebookClient fbClient = new FacebookClient(props, new GraphUsageBudget(props), metrics, guards);
+            CommentTracker tracker = new CommentTracker(props);
+            CommentCursorStore cursorStore = new CommentCursorStore(props);
+            PostEnricher postEnricher = new PostEnricher(fbClient, props);
+            CommentSinks sinks = new CommentSinks(
+                    List.of(new StubSheetsAppender(stub.baseUrl(), "Sheet1!A:G", options.sheetsBatchRows(),
+                            guards.sheets())), metrics);
+            CommentOutbox outbox = new CommentOutbox(props, sinks);
+            CommentFieldExtraction extraction = new CommentFieldExtraction(props,
+                    List.of(new PhoneNumberExtractor(), new EmailExtractor(), new OrderNumberExtractor()));
+            CommentIngestService ingestService = new CommentIngestService(tracker, sinks, postEnricher, outbox,
+                    extraction, metrics);
+            CommentSyncScheduler scheduler = new CommentSyncScheduler(fbClient, tracker, props, cursorStore,
+                    postEnricher, ingestService, metrics, new CommentVelocity(props));
+
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            System.gc();
+            long baselineHeap = memory.getHeapMemoryUsage().getUsed();
+            long[] gcBefore = gcTotals();
+            AtomicLong peakHeap = new AtomicLong(baselineHeap);
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+            sampler.scheduleAtFixedRate(() -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                    0, 20, TimeUnit.MILLISECONDS);
+
+            outbox.start();
+            stub.start();
+            AppProperties.Page page = props.getFb().toPage();
+            long startedAt = System.currentTimeMillis();
+            long deadline = startedAt + options.timeoutSeconds() * 1000;
+            List<Long> cycleMs = new ArrayList<>();
+            int failedCycles = 0;
+            int lastDelivered = -1;
+            long lastProgressAt = startedAt;
+            try {
+                while (System.currentTimeMillis() < deadline) {
+                    long cycleStart = System.nanoTime();
+                    try {
+                        scheduler.syncPage(page);
+                    } catch (RuntimeException e) {
+                        failedCycles++;
+                    }
+                    cycleMs.add((System.nanoTime() - cycleStart) / 1_000_000);
+
+                    int delivered = stub.deliveredCount();
+                    long now = System.currentTimeMillis();
+                    if (delivered != lastDelivered) {
+                        lastDelivered = delivered;
+                        lastProgressAt = now;
+                    }
+                    boolean replayOver = stub.replayMillis() > dataset.lastVisibleAt();
+                    if (delivered >= dataset.totalComments()
+                            || (replayOver && outbox.getBacklogBytes() == 0 && now - lastProgressAt > 30_000)) {
+                        break; // done, or everything reachable in this mode has been fetched
+                    }
+                    Thread.sleep(options.intervalMs());
+                }
+            } finally {
+                sampler.shutdownNow();
+                outbox.stop();
+                scheduler.shutdown();
+                ingestService.shutdown();
+                postEnricher.shutdown();
+                tracker.close();
+            }
+            long elapsed = System.currentTimeMillis() - startedAt;
+            long[] gcAfter = gcTotals();
+
+            Map<String, String> graphLatency = new LinkedHashMap<>();
+            for (Timer timer : registry.find("fb.graph.request").timers()) {
+                String key = timer.getId().getTag("call") + "/" + timer.getId().getTag("outcome");
+                double p50 = 0;
+                double p99 = 0;
+                for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+                    if (value.percentile() == 0.5) {
+                        p50 = value.value(TimeUnit.MILLISECONDS);
+                    } else if (value.percentile() == 0.99) {
+                        p99 = value.value(TimeUnit.MILLISECONDS);
+                    }
+                }
+                graphLatency.put(key, String.format("%d calls, ms p50 %.0f, p99 %.0f, max %.0f", timer.count(),
+                        p50, p99, timer.max(TimeUnit.MILLISECONDS)));
+            }
+
+            return new Report(dataset.totalComments(), stub.deliveredCount(), stub.duplicateRows.get(), elapsed,
+                    cycleMs.size(), failedCycles, stub.latencies(), cycleMs, graphLatency,
+                    stub.graphCalls.get(), stub.graphErrors.get(), stub.graphThrottled.get(),
+                    stub.sheetsAppends.get(), stub.sheetsErrors.get(), stub.sheetsThrottled.get(),
+                    baselineHeap, peakHeap.get(), gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+        } finally {
+            deleteRecursively(workDir);
+        }
+    }
+
+    // Incremental polling against the stub, state under workDir; app.* arguments override any of it
+    private static AppProperties properties(Options options, CommentDataset dataset, String baseUrl, Path workDir) {
+        AppProperties props = new AppProperties();
+        AppProperties.Fb fb = props.getFb();
+        fb.setPageId(dataset.pageId());
+        fb.setAccessToken("stub-token");
+        fb.setApiVersion("v21.0");
+        fb.setGraphBaseUrl(baseUrl);
+        fb.setFetchIntervalSeconds(1);
+        fb.setIncremental(true);
+        fb.setMaxFeedPages(dataset.posts().size() / fb.getPageSize() + 1);
+        fb.setCursorFile(workDir.resolve("comment-cursors.properties").toString());
+        props.getDedup().setFile(workDir.resolve("seen-comments.log").toString());
+        props.getOutbox().setDir(workDir.resolve("outbox").toString());
+        props.getOutbox().setFsync(false);
+        props.getOutbox().setRetryInitialMs(200);
+        props.getOutbox().setRetryMaxMs(5_000);
+        props.getHttp().setHttp2(false);
+        props.getHotPosts().setMaxPostAgeHours(24 * 365);
+
+        new Binder(new MapConfigurationPropertySource(options.app())).bind("app", Bindable.ofInstance(props));
+        return props;
+    }
+
+    static long percentile(List<Long> values, double percentile) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[] {count, millis};
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (var paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Collections.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.webhook_wrapper.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Small replays through the stub, to keep the harness itself honest.
+ */
+class ReplayDriverTest {
+
+    @Test
+    void testIncrementalReplayDeliversEveryCommentOnce() throws Exception {
+        ReplayDriver.Report report = ReplayDriver.run(ReplayDriver.Options.parse(
+                "posts=120", "comments=3000", "latency-ms=0", "jitter-ms=0", "interval-ms=50", "timeout-seconds=60"));
+
+        assertEquals(3000, report.total());
+        assertEquals(3000, report.delivered());
+        assertEquals(0, report.duplicates());
+        assertEquals(3000, report.latenciesMs().size());
+        assertTrue(report.graphCalls() > 0);
+    }
+
+    @Test
+    void testOutboxRetriesThroughSheetsThrottlingAndErrors() throws Exception {
+        ReplayDriver.Report report = ReplayDriver.run(ReplayDriver.Options.parse(
+                "posts=20", "comments=1000", "latency-ms=0", "jitter-ms=0", "interval-ms=50",
+                "error-rate=0.05", "sheets-writes-per-window=3", "window-seconds=1", "sheets-batch-rows=50",
+                "timeout-seconds=60"));
+
+        assertEquals(1000, report.delivered());
+        assertTrue(report.sheetsThrottled() > 0 || report.sheetsErrors() > 0);
+    }
+
+    @Test
+    void testHotPostModeFollowsCommentsAsTheyArrive() throws Exception {
+        ReplayDriver.Report report = ReplayDriver.run(ReplayDriver.Options.parse(
+                "posts=30", "comments=600", "duration-seconds=3", "latency-ms=0", "jitter-ms=0",
+                "interval-ms=100", "timeout-seconds=60",
+                "app.fb.incremental=false", "app.hot-posts.enabled=true", "app.hot-posts.max-active-posts=30",
+                "app.polling.min-interval-seconds=1", "app.polling.max-interval-seconds=2"));
+
+        assertEquals(600, report.delivered());
+        assertEquals(0, report.duplicates());
+    }
+
+    @Test
+    void testPercentile() {
+        assertEquals(0, ReplayDriver.percentile(java.util.List.of(), 0.5));
+        assertEquals(5, ReplayDriver.percentile(java.util.List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), 0.5));
+        assertEquals(10, ReplayDriver.percentile(java.util.List.of(10L, 1L), 1));
+    }
+}
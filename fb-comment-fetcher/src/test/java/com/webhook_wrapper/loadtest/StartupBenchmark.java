@@ -0,0 +1,279 @@
+package com.webhook_wrapper.loadtest;
+
+import com.google.api.services.sheets.v4.Sheets;
+import com.webhook_wrapper.DemoApplication;
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.resilience.ApiGuards;
+import com.webhook_wrapper.sheets.SheetsAppender;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToLongFunction;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Cold-start timings of the whole application against a {@link GraphApiStub}:
+ * each run launches a fresh JVM that boots DemoApplication with a stub sheet
+ * whose client takes init-delay-ms to build, standing in for credential
+ * resolution and the TLS transport, and exits once its first row is appended.
+ * Eager and lazy (app.startup.lazy-sheets) client startup are compared on
+ * the time from launch to the context being ready, the first comment being
+ * fetched and the first row being appended.
+ *
+ * Run from the test classpath, like the JMH benchmarks:
+ *
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *       com.webhook_wrapper.loadtest.StartupBenchmark runs=5
+ *
+ * Arguments are key=value: runs, init-delay-ms, posts, comments,
+ * timeout-seconds, and cds=true to first record a class-data-sharing archive
+ * from a training run and start every measured JVM from it.
+ */
+public final class StartupBenchmark {
+    private static final String READY = "startup-probe ready=";
+    // In the probe: counted down once the ready time is out, which the exit waits for
+    private static final CountDownLatch reported = new CountDownLatch(1);
+
+    record Options(int runs, long initDelayMs, int posts, int comments, long timeoutSeconds, boolean cds) {
+
+        static Options parse(String... args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("Expected key=value, got " + arg);
+                }
+                values.put(arg.substring(0, eq).replaceFirst("^--", ""), arg.substring(eq + 1));
+            }
+            Options options = new Options(
+                    Integer.parseInt(values.getOrDefault("runs", "3")),
+                    Long.parseLong(values.getOrDefault("init-delay-ms", "1500")),
+                    Integer.parseInt(values.getOrDefault("posts", "20")),
+                    Integer.parseInt(values.getOrDefault("comments", "200")),
+                    Long.parseLong(values.getOrDefault("timeout-seconds", "120")),
+                    Boolean.parseBoolean(values.getOrDefault("cds", "false")));
+            values.keySet().removeAll(List.of("runs", "init-delay-ms", "posts", "comments", "timeout-seconds", "cds"));
+            if (!values.isEmpty()) {
+                throw new IllegalArgumentException("Unknown options " + values.keySet());
+            }
+            return options;
+        }
+    }
+
+    /**
+     * Milliseconds from launching the JVM; -1 when it never got there.
+     */
+    record Sample(long readyMs, long firstCommentMs, long firstRowMs) {
+    }
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("probe")) {
+            probe(args[1], Boolean.parseBoolean(args[2]), Long.parseLong(args[3]), Path.of(args[4]));
+            return;
+        }
+        Options options = Options.parse(args);
+        Path workDir = Files.createTempDirectory("startup-");
+        try {
+            String classpath = System.getProperty("java.class.path");
+            List<String> jvmOptions = new ArrayList<>();
+            if (options.cds()) {
+                classpath = jarClasspath(classpath, workDir);
+                Path archive = workDir.resolve("startup.jsa");
+                launch(options, classpath, List.of("-XX:ArchiveClassesAtExit=" + archive), true, workDir);
+                if (!Files.exists(archive)) {
+                    throw new IllegalStateException("The training run did not write " + archive);
+                }
+                jvmOptions.add("-XX:SharedArchiveFile=" + archive);
+            }
+            Map<String, List<Sample>> samples = new LinkedHashMap<>();
+            for (int run = 0; run < options.runs(); run++) {
+                // alternate, so neither mode gets the warmer page cache
+                samples.computeIfAbsent("eager", mode -> new ArrayList<>())
+                        .add(launch(options, classpath, jvmOptions, false, workDir));
+                samples.computeIfAbsent("lazy", mode -> new ArrayList<>())
+                        .add(launch(options, classpath, jvmOptions, true, workDir));
+            }
+            System.out.printf("Sheets client takes %d ms to build%s; median ms after launch of %d runs%n",
+                    options.initDelayMs(), options.cds() ? ", CDS archive on" : "", options.runs());
+            System.out.printf("%-6s %8s %14s %10s%n", "mode", "ready", "first comment", "first row");
+            samples.forEach((mode, runs) -> System.out.printf("%-6s %8d %14d %10d%n", mode,
+                    median(runs, Sample::readyMs), median(runs, Sample::firstCommentMs),
+                    median(runs, Sample::firstRowMs)));
+        } finally {
+            deleteRecursively(workDir);
+        }
+    }
+
+    // One child JVM against a fresh stub, so every run starts from an empty sheet
+    private static Sample launch(Options options, String classpath, List<String> jvmOptions, boolean lazy,
+                                 Path workDir) throws Exception {
+        CommentDataset dataset = CommentDataset.synthetic("stub-page", options.posts(), options.comments(), 0, 42);
+        GraphApiStub.Settings settings = new GraphApiStub.Settings(0, 0, 0, 100_000, 0, 60_000, 42);
+        Path runDir = Files.createTempDirectory(workDir, "run-");
+        Path log = runDir.resolve("probe.log");
+        try (GraphApiStub stub = new GraphApiStub(dataset, settings).start()) {
+            List<String> command = new ArrayList<>();
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(jvmOptions);
+            command.addAll(List.of("-cp", classpath, StartupBenchmark.class.getName(),
+                    "probe", stub.baseUrl(), String.valueOf(lazy), String.valueOf(options.initDelayMs()),
+                    runDir.toString()));
+            ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile());
+            long launchedAt = System.currentTimeMillis();
+            Process process = builder.start();
+            if (!process.waitFor(options.timeoutSeconds(), TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IllegalStateException("Probe did not append a row within " + options.timeoutSeconds()
+                        + " s; see its output:\n" + Files.readString(log));
+            }
+            long readyAt = 0;
+            for (String line : Files.readAllLines(log)) {
+                if (line.startsWith(READY)) {
+                    readyAt = Long.parseLong(line.substring(READY.length()).trim());
+                }
+            }
+            if (readyAt == 0 || stub.firstRowAppendedAt.get() == 0) {
+                throw new IllegalStateException("Probe exited with " + process.exitValue()
+                        + " before appending a row; see its output:\n" + Files.readString(log));
+            }
+            return new Sample(since(launchedAt, readyAt), since(launchedAt, stub.firstCommentServedAt.get()),
+                    since(launchedAt, stub.firstRowAppendedAt.get()));
+        }
+    }
+
+    // CDS only archives classes loaded from jars, so classpath directories are packed into jars under workDir
+    private static String jarClasspath(String classpath, Path workDir) throws IOException {
+        List<String> entries = new ArrayList<>();
+        for (String entry : classpath.split(File.pathSeparator)) {
+            Path dir = Path.of(entry);
+            if (!Files.isDirectory(dir)) {
+                entries.add(entry);
+                continue;
+            }
+            Path jar = workDir.resolve("classpath-" + entries.size() + ".jar");
+            try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar));
+                 var paths = Files.walk(dir)) {
+                for (Path path : paths.skip(1).toList()) {
+                    String name = dir.relativize(path).toString().replace(File.separatorChar, '/');
+                    // directory entries too, or component scanning finds nothing in the jar
+                    out.putNextEntry(new JarEntry(Files.isDirectory(path) ? name + "/" : name));
+                    if (!Files.isDirectory(path)) {
+                        Files.copy(path, out);
+                    }
+                    out.closeEntry();
+                }
+            }
+            entries.add(jar.toString());
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static long since(long launchedAt, long at) {
+        return at > 0 ? at - launchedAt : -1;
+    }
+
+    /**
+     * The child JVM: the application with its Sheets sink replaced by a
+     * {@link SlowClientAppender} pointed at the stub, state under workDir.
+     */
+    private static void probe(String baseUrl, boolean lazy, long initDelayMs, Path workDir) {
+        SlowClientAppender.initDelayMs = initDelayMs;
+        SpringApplication application = new SpringApplication(DemoApplication.class);
+        application.addInitializers(context -> ((GenericApplicationContext) context).registerBean(
+                "sheetsAppender", SheetsAppender.class, () -> {
+                    AppProperties properties = context.getBean(AppProperties.class);
+                    try {
+                        return new SlowClientAppender(baseUrl, context.getBean(ApiGuards.class),
+                                properties.getStartup(), !properties.getOutbox().isEnabled());
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Could not create the stub sheet", e);
+                    }
+                }));
+        application.run(
+                "--app.fb.page-id=stub-page",
+                "--app.fb.access-token=stub-token",
+                "--app.fb.api-version=v21.0",
+                "--app.fb.graph-base-url=" + baseUrl,
+                "--app.fb.fetch-interval-seconds=1",
+                "--app.fb.cursor-file=" + workDir.resolve("comment-cursors.properties"),
+                "--app.dedup.persistent=false",
+                "--app.outbox.enabled=false",
+                "--app.http.http2=false",
+                "--app.startup.lazy-sheets=" + lazy,
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN");
+        System.out.println(READY + System.currentTimeMillis());
+        reported.countDown();
+    }
+
+    /**
+     * Stub sheet whose client takes initDelayMs to build, and which ends
+     * the JVM once its first rows are in.
+     */
+    private static final class SlowClientAppender extends StubSheetsAppender {
+        // static: the eager constructor builds the client before any field of ours is set
+        static volatile long initDelayMs;
+        private final AtomicBoolean appended = new AtomicBoolean();
+
+        SlowClientAppender(String baseUrl, ApiGuards guards, AppProperties.Startup startup,
+                           boolean holdRowsWhileStarting) throws Exception {
+            super(baseUrl, "Sheet1!A:G", 500, guards.sheets(), startup, holdRowsWhileStarting);
+        }
+
+        @Override
+        protected Sheets createClient() throws Exception {
+            Thread.sleep(initDelayMs);
+            return super.createClient();
+        }
+
+        @Override
+        protected String executeAppend(List<List<Object>> values) throws IOException {
+            String updatedRange = super.executeAppend(values);
+            if (appended.compareAndSet(false, true)) {
+                Thread exit = new Thread(() -> {
+                    try {
+                        reported.await(60, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    System.exit(0);
+                }, "startup-probe-exit");
+                exit.start();
+            }
+            return updatedRange;
+        }
+    }
+
+    private static long median(List<Sample> samples, ToLongFunction<Sample> metric) {
+        List<Long> values = new ArrayList<>();
+        for (Sample sample : samples) {
+            values.add(metric.applyAsLong(sample));
+        }
+        return ReplayDriver.percentile(values, 0.5);
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (var paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Collections.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
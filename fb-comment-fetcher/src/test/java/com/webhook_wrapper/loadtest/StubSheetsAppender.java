@@ -0,0 +1,91 @@
+package com.webhook_wrapper.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.sheets.v4.Sheets;
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.resilience.ApiGuard;
+import com.webhook_wrapper.sheets.SheetsAppender;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SheetsAppender whose values.append calls go to a {@link GraphApiStub}
+ * over plain HTTP instead of through the Google client, so it needs no
+ * credentials. Chunking, splitting, retries and failure classification are
+ * the real ones.
+ */
+class StubSheetsAppender extends SheetsAppender {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final URI appendUri;
+
+    StubSheetsAppender(String baseUrl, String range, int batchMaxRows, ApiGuard guard) throws Exception {
+        super(settings("", range).batchMaxRows(batchMaxRows).guard(guard));
+        this.appendUri = appendUri(baseUrl, range);
+    }
+
+    /**
+     * Appender that goes through client startup like a configured sheet,
+     * eagerly or with app.startup.lazy-sheets, building its client with
+     * {@link #createClient()}.
+     */
+    StubSheetsAppender(String baseUrl, String range, int batchMaxRows, ApiGuard guard,
+                       AppProperties.Startup startup, boolean holdRowsWhileStarting) throws Exception {
+        super(settings("stub-sheet", range).batchMaxRows(batchMaxRows).guard(guard)
+                .startup(startup, holdRowsWhileStarting));
+        this.appendUri = appendUri(baseUrl, range);
+    }
+
+    private static URI appendUri(String baseUrl, String range) {
+        return URI.create(baseUrl + "/v4/spreadsheets/stub-sheet/values/"
+                + URLEncoder.encode(range, StandardCharsets.UTF_8)
+                + ":append?valueInputOption=USER_ENTERED&insertDataOption=INSERT_ROWS");
+    }
+
+    // appends never go through it, so it needs no credentials
+    @Override
+    protected Sheets createClient() throws Exception {
+        return new Sheets.Builder(new NetHttpTransport(), GsonFactory.getDefaultInstance(), null)
+                .setApplicationName("stub")
+                .build();
+    }
+
+    @Override
+    protected String executeAppend(List<List<Object>> values) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(appendUri)
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(Map.of("values", values))))
+                .build();
+        HttpResponse<String> response;
+        try {
+            response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted appending to the stub sheet", e);
+        }
+        if (response.statusCode() / 100 != 2) {
+            HttpHeaders headers = new HttpHeaders();
+            response.headers().firstValue("Retry-After").ifPresent(value -> headers.set("Retry-After", value));
+            throw new GoogleJsonResponseException(new HttpResponseException.Builder(
+                    response.statusCode(), null, headers)
+                    .setMessage(response.statusCode() + " " + response.body()), null);
+        }
+        return objectMapper.readTree(response.body()).path("updates").path("updatedRange").asText(null);
+    }
+}
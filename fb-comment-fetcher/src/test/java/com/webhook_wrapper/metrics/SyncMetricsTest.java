@@ -0,0 +1,71 @@
+package com.webhook_wrapper.metrics;
+
+import com.webhook_wrapper.sheets.BatchAppendResult;
+import com.webhook_wrapper.sheets.CommentRow;
+import com.webhook_wrapper.sink.CommentSink;
+import com.webhook_wrapper.sink.CommentSinks;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyncMetricsTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SyncMetrics metrics = new SyncMetrics(registry);
+
+    @Test
+    void testCommentCountersSplitSeenIntoNewAndDeduped() {
+        metrics.comments("poll", 10, 3);
+        metrics.comments("poll", 5, 5);
+        metrics.comments("push", 2, 0);
+
+        assertEquals(15, registry.get("comments.seen").tag("source", "poll").counter().count());
+        assertEquals(8, registry.get("comments.new").tag("source", "poll").counter().count());
+        assertEquals(7, registry.get("comments.deduped").tag("source", "poll").counter().count());
+        assertEquals(2, registry.get("comments.deduped").tag("source", "push").counter().count());
+    }
+
+    @Test
+    void testSinkWritesAreTimedPerChunkWithTheirFailures() {
+        CommentSink sink = new CommentSink() {
+            @Override
+            public String name() {
+                return "test";
+            }
+
+            @Override
+            public int preferredBatchSize() {
+                return 4;
+            }
+
+            @Override
+            public BatchAppendResult write(List<CommentRow> rows) {
+                BatchAppendResult result = new BatchAppendResult();
+                for (CommentRow row : rows) {
+                    if (row.commentId().startsWith("bad")) {
+                        result.recordFailure(row, "rejected", false);
+                    } else if (row.commentId().startsWith("slow")) {
+                        result.recordFailure(row, "quota", true);
+                    } else {
+                        result.recordAppended(1);
+                    }
+                }
+                return result;
+            }
+        };
+        List<CommentRow> rows = new ArrayList<>();
+        for (String id : List.of("c1", "c2", "bad3", "c4", "slow5", "c6", "c7", "c8", "c9", "c10")) {
+            rows.add(new CommentRow("2025-08-30T10:00:00Z", "PAGE", id, "Alice", "123", "hi", ""));
+        }
+
+        new CommentSinks(List.of(sink), metrics).write(null, null, rows);
+
+        assertEquals(3, registry.get("comment.sink.write").tag("sink", "test").timer().count());
+        assertEquals(8, registry.get("comments.written").tag("sink", "test").counter().count());
+        assertEquals(1, registry.get("comments.failed").tags("sink", "test", "retryable", "true").counter().count());
+        assertEquals(1, registry.get("comments.failed").tags("sink", "test", "retryable", "false").counter().count());
+    }
+}
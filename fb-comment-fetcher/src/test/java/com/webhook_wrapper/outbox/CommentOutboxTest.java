@@ -0,0 +1,242 @@
+package com.webhook_wrapper.outbox;
+
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.metrics.SyncMetrics;
+import com.webhook_wrapper.sheets.BatchAppendResult;
+import com.webhook_wrapper.sheets.CommentRow;
+import com.webhook_wrapper.sheets.SheetsAppender;
+import com.webhook_wrapper.sink.CommentSink;
+import com.webhook_wrapper.sink.CommentSinks;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommentOutboxTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRowsAreRetriedUntilTheSheetRecovers() throws Exception {
+        FlakyAppender sheet = new FlakyAppender(3);
+        CommentOutbox outbox = new CommentOutbox(properties(), sinks(sheet));
+        outbox.start();
+        try {
+            outbox.enqueue(null, null, List.of(row("c1"), row("c2")));
+            awaitDelivered(outbox, 2);
+        } finally {
+            outbox.stop();
+        }
+
+        assertEquals(4, sheet.attempts.get(), "three outages, then one successful append");
+        assertEquals(List.of("c1", "c2"), sheet.written);
+    }
+
+    @Test
+    void testUndeliveredRowsAreSentAfterRestart() throws Exception {
+        FlakyAppender down = new FlakyAppender(Integer.MAX_VALUE);
+        CommentOutbox first = new CommentOutbox(properties(), sinks(down));
+        first.start();
+        first.enqueue(null, null, List.of(row("c1"), row("c2")));
+        while (down.attempts.get() == 0) {
+            Thread.sleep(5);
+        }
+        first.stop();
+
+        FlakyAppender up = new FlakyAppender(0);
+        CommentOutbox second = new CommentOutbox(properties(), sinks(up));
+        second.start();
+        try {
+            awaitDelivered(second, 2);
+        } finally {
+            second.stop();
+        }
+        assertEquals(List.of("c1", "c2"), up.written);
+    }
+
+    @Test
+    void testRejectedRowDoesNotBlockTheRest() throws Exception {
+        FlakyAppender sheet = new FlakyAppender(0);
+        sheet.rejectCommentId = "bad";
+        CommentOutbox outbox = new CommentOutbox(properties(), sinks(sheet));
+        outbox.start();
+        try {
+            outbox.enqueue(null, null, List.of(row("c1"), row("bad"), row("c3")));
+            awaitDelivered(outbox, 2);
+            assertEquals(1, outbox.getRejectedRows());
+        } finally {
+            outbox.stop();
+        }
+        assertEquals(List.of("c1", "c3"), sheet.written);
+    }
+
+    @Test
+    void testEverySinkGetsEveryRowWhileOneIsDown() throws Exception {
+        FlakyAppender sheet = new FlakyAppender(2);
+        List<String> stored = new CopyOnWriteArrayList<>();
+        CommentSink table = new CommentSink() {
+            @Override
+            public String name() {
+                return "memory";
+            }
+
+            @Override
+            public int preferredBatchSize() {
+                return 2;
+            }
+
+            @Override
+            public BatchAppendResult write(List<CommentRow> rows) {
+                BatchAppendResult result = new BatchAppendResult();
+                rows.forEach(row -> stored.add(row.commentId()));
+                result.recordAppended(rows.size());
+                return result;
+            }
+        };
+        CommentOutbox outbox = new CommentOutbox(properties(), sinks(sheet, table));
+        outbox.start();
+        try {
+            outbox.enqueue(null, null, List.of(row("c1"), row("c2"), row("c3")));
+            awaitDelivered(outbox, 6);
+        } finally {
+            outbox.stop();
+        }
+        assertEquals(List.of("c1", "c2", "c3"), sheet.written);
+        assertEquals(List.of("c1", "c2", "c3"), stored);
+    }
+
+    @Test
+    void testSinkThatIsDownHoldsBackNoOtherSink() throws Exception {
+        FlakyAppender down = new FlakyAppender(Integer.MAX_VALUE);
+        MemorySink table = new MemorySink();
+        CommentOutbox first = new CommentOutbox(properties(), sinks(down, table));
+        first.start();
+        try {
+            first.enqueue(null, null, List.of(row("c1"), row("c2")));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (table.stored.size() < 2) {
+                assertTrue(System.currentTimeMillis() < deadline, "the healthy sink waited on the one that is down");
+                Thread.sleep(5);
+            }
+            assertTrue(first.getBacklogBytes() > 0, "kept for the sheet");
+        } finally {
+            first.stop();
+        }
+
+        FlakyAppender up = new FlakyAppender(0);
+        MemorySink reopened = new MemorySink();
+        CommentOutbox second = new CommentOutbox(properties(), sinks(up, reopened));
+        second.start();
+        try {
+            awaitDelivered(second, 2);
+        } finally {
+            second.stop();
+        }
+        assertEquals(List.of("c1", "c2"), up.written);
+        assertEquals(List.of(), reopened.stored, "rows the sink already took are not sent to it again");
+    }
+
+    @Test
+    void testReplyParentSurvivesTheOutbox() throws Exception {
+        CommentRow reply = new CommentRow("2025-08-30T10:00:00Z", "PAGE", "c1_r1", "Bob", "456", "same here", "",
+                List.of("bob@example.com"), "c1");
+
+        OutboxEntry decoded = OutboxEntry.decode(new OutboxEntry("sheet", "Sheet1!A:H", reply).encode());
+
+        assertEquals(reply, decoded.row());
+        assertEquals(List.of("2025-08-30T10:00:00Z", "PAGE", "c1_r1", "Bob", "456", "same here", "",
+                "bob@example.com", "c1"), reply.toValues());
+        assertNull(OutboxEntry.decode(new OutboxEntry(null, null, row("c2")).encode()).row().parentId());
+    }
+
+    private static CommentSinks sinks(CommentSink... sinks) {
+        return new CommentSinks(List.of(sinks), new SyncMetrics(new SimpleMeterRegistry()));
+    }
+
+    private AppProperties properties() {
+        AppProperties properties = new AppProperties();
+        properties.getOutbox().setDir(dir.toString());
+        properties.getOutbox().setRetryInitialMs(5);
+        properties.getOutbox().setRetryMaxMs(20);
+        return properties;
+    }
+
+    private static void awaitDelivered(CommentOutbox outbox, long rows) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (outbox.getDeliveredRows() < rows || outbox.getBacklogBytes() > 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "outbox did not drain");
+            Thread.sleep(5);
+        }
+    }
+
+    private static CommentRow row(String commentId) {
+        return new CommentRow("2025-08-30T10:00:00Z", "PAGE", commentId, "Alice", "123", "hi", "");
+    }
+
+    private static class MemorySink implements CommentSink {
+        final List<String> stored = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String name() {
+            return "memory";
+        }
+
+        @Override
+        public int preferredBatchSize() {
+            return 100;
+        }
+
+        @Override
+        public BatchAppendResult write(List<CommentRow> rows) {
+            rows.forEach(row -> stored.add(row.commentId()));
+            BatchAppendResult result = new BatchAppendResult();
+            result.recordAppended(rows.size());
+            return result;
+        }
+    }
+
+    /**
+     * Fails with a 503 for the first outages appends, then records what it is given.
+     */
+    private static class FlakyAppender extends SheetsAppender {
+        final AtomicInteger attempts = new AtomicInteger();
+        final List<String> written = new CopyOnWriteArrayList<>();
+        private final int outages;
+        String rejectCommentId;
+
+        FlakyAppender(int outages) throws Exception {
+            super(settings("", "Sheet1!A:G"));
+            this.outages = outages;
+        }
+
+        @Override
+        protected String executeAppend(List<List<Object>> values) throws IOException {
+            if (attempts.incrementAndGet() <= outages) {
+                throw new GoogleJsonResponseException(
+                        new HttpResponseException.Builder(503, "Service Unavailable", new HttpHeaders()), null);
+            }
+            List<String> ids = new ArrayList<>();
+            for (List<Object> value : values) {
+                if (value.get(2).equals(rejectCommentId)) {
+                    throw new GoogleJsonResponseException(
+                            new HttpResponseException.Builder(400, "Bad Request", new HttpHeaders()), null);
+                }
+                ids.add((String) value.get(2));
+            }
+            written.addAll(ids);
+            return null;
+        }
+    }
+}
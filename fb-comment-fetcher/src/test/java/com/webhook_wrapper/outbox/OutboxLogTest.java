@@ -0,0 +1,132 @@
+package com.webhook_wrapper.outbox;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboxLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRecordsAndCheckpointSurviveReopen() throws Exception {
+        try (OutboxLog log = OutboxLog.open(dir, 1 << 20, true)) {
+            log.append(payloads("a", "b", "c"));
+            List<OutboxLog.Record> records = log.read(0, 2);
+            assertEquals(List.of("a", "b"), strings(records));
+            log.commit(records.get(1).nextOffset());
+        }
+
+        try (OutboxLog log = OutboxLog.open(dir, 1 << 20, true)) {
+            assertEquals(List.of("c"), strings(log.read(log.getCheckpoint(), 10)));
+            log.append(payloads("d"));
+            assertEquals(List.of("c", "d"), strings(log.read(log.getCheckpoint(), 10)));
+        }
+    }
+
+    @Test
+    void testTornTailIsTruncatedOnOpen() throws Exception {
+        try (OutboxLog log = OutboxLog.open(dir, 1 << 20, true)) {
+            log.append(payloads("a", "b"));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(file -> file.toString().endsWith(".seg")).findFirst().orElseThrow();
+        }
+        // half a frame, as if the process died mid-write
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 42, 1, 2}));
+        }
+
+        try (OutboxLog log = OutboxLog.open(dir, 1 << 20, true)) {
+            assertEquals(List.of("a", "b"), strings(log.read(0, 10)));
+            log.append(payloads("c"));
+            assertEquals(List.of("a", "b", "c"), strings(log.read(0, 10)));
+        }
+    }
+
+    @Test
+    void testSegmentsRollAndAreDeletedOnceConsumed() throws Exception {
+        try (OutboxLog log = OutboxLog.open(dir, 64, true)) {
+            List<String> written = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                written.add("record-" + i);
+            }
+            log.append(payloads(written.toArray(new String[0])));
+            assertTrue(log.getSegmentCount() > 3);
+
+            List<OutboxLog.Record> records = log.read(0, 100);
+            assertEquals(written, strings(records));
+
+            log.commit(records.get(records.size() - 1).nextOffset());
+            assertEquals(1, log.getSegmentCount());
+            assertEquals(0, log.getBacklogBytes());
+        }
+    }
+
+    @Test
+    void testEachConsumerKeepsItsOwnCheckpoint() throws Exception {
+        try (OutboxLog log = OutboxLog.open(dir, 64, true, List.of("sheets", "jdbc"))) {
+            List<String> written = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                written.add("record-" + i);
+            }
+            log.append(payloads(written.toArray(new String[0])));
+            int segments = log.getSegmentCount();
+
+            List<OutboxLog.Record> records = log.read(0, 100);
+            log.commit("jdbc", records.get(records.size() - 1).nextOffset());
+            assertEquals(0, log.getBacklogBytes("jdbc"));
+            assertEquals(segments, log.getSegmentCount(), "sheets has not read them yet");
+            assertEquals(0, log.getCheckpoint());
+
+            log.commit("sheets", records.get(9).nextOffset());
+        }
+
+        try (OutboxLog log = OutboxLog.open(dir, 64, true, List.of("sheets", "jdbc"))) {
+            assertEquals("record-10", strings(log.read(log.getCheckpoint("sheets"), 1)).get(0));
+            assertTrue(log.read(log.getCheckpoint("jdbc"), 1).isEmpty());
+        }
+    }
+
+    @Test
+    void testNamedConsumersStartFromTheSharedCheckpoint() throws Exception {
+        try (OutboxLog log = OutboxLog.open(dir, 1 << 20, true)) {
+            log.append(payloads("a", "b", "c"));
+            log.commit(log.read(0, 2).get(1).nextOffset());
+        }
+
+        try (OutboxLog log = OutboxLog.open(dir, 1 << 20, true, List.of("sheets", "file"))) {
+            assertEquals(List.of("c"), strings(log.read(log.getCheckpoint("sheets"), 10)));
+            assertEquals(List.of("c"), strings(log.read(log.getCheckpoint("file"), 10)));
+        }
+    }
+
+    private static List<byte[]> payloads(String... values) {
+        List<byte[]> payloads = new ArrayList<>();
+        for (String value : values) {
+            payloads.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return payloads;
+    }
+
+    private static List<String> strings(List<OutboxLog.Record> records) {
+        List<String> values = new ArrayList<>();
+        for (OutboxLog.Record record : records) {
+            values.add(new String(record.payload(), StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,117 @@
+package com.webhook_wrapper.resilience;
+
+import com.webhook_wrapper.config.AppProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiGuardTest {
+    private final AtomicLong now = new AtomicLong();
+    private final List<Long> sleeps = new ArrayList<>();
+    private AppProperties.Resilience settings;
+    private ApiGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        settings = new AppProperties.Resilience();
+        settings.setMaxAttempts(4);
+        settings.setInitialBackoffMs(100);
+        settings.setMaxBackoffMs(1_000);
+        settings.setMaxWaitMs(30_000);
+        settings.setFailureThreshold(3);
+        settings.setOpenSeconds(60);
+        guard = new ApiGuard("test", settings, ApiGuard.Listener.NONE, now::get, millis -> {
+            sleeps.add(millis);
+            now.addAndGet(millis);
+        });
+    }
+
+    @Test
+    void testThrottledCallWaitsForTheReportedReset() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        String result = guard.call("page", () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IOException("429");
+            }
+            return "ok";
+        }, e -> ApiGuard.Failure.throttled(5_000));
+
+        assertEquals("ok", result);
+        assertEquals(1, sleeps.size());
+        assertTrue(sleeps.get(0) >= 5_000 && sleeps.get(0) <= 5_100, "reset plus jitter: " + sleeps.get(0));
+    }
+
+    @Test
+    void testTransientFailuresBackOffUntilAttemptsRunOut() {
+        settings.setFailureThreshold(10);
+        AtomicInteger calls = new AtomicInteger();
+        assertThrows(IOException.class, () -> guard.call("page", () -> {
+            calls.incrementAndGet();
+            throw new IOException("503");
+        }, e -> ApiGuard.Failure.transientError(0)));
+
+        assertEquals(4, calls.get());
+        assertEquals(3, sleeps.size());
+        assertTrue(sleeps.get(0) >= 50 && sleeps.get(0) <= 100);
+        assertTrue(sleeps.get(1) >= 100 && sleeps.get(1) <= 200);
+        assertTrue(sleeps.get(2) >= 200 && sleeps.get(2) <= 400);
+    }
+
+    @Test
+    void testPermanentFailureIsNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+        assertThrows(IOException.class, () -> guard.call("page", () -> {
+            calls.incrementAndGet();
+            throw new IOException("400");
+        }, e -> ApiGuard.Failure.PERMANENT));
+
+        assertEquals(1, calls.get());
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getState("page"));
+    }
+
+    @Test
+    void testSustainedFailureOpensTheCircuitAndFailsFast() {
+        assertThrows(IOException.class, () -> guard.call("page", () -> {
+            throw new IOException("503");
+        }, e -> ApiGuard.Failure.transientError(0)));
+        assertEquals(CircuitBreaker.State.OPEN, guard.getState("page"));
+        assertEquals(2, sleeps.size(), "third failure opens the circuit instead of retrying");
+
+        AtomicInteger calls = new AtomicInteger();
+        CircuitOpenException open = assertThrows(CircuitOpenException.class,
+                () -> guard.call("page", calls::incrementAndGet, e -> ApiGuard.Failure.PERMANENT));
+        assertEquals(0, calls.get());
+        assertEquals(60_000, open.getRetryAfterMillis());
+        assertEquals(60_000, guard.remainingOpenMillis("page"));
+        assertEquals(0, guard.remainingOpenMillis("other"), "other keys are unaffected");
+    }
+
+    @Test
+    void testDistantResetOpensTheCircuitUntilThen() throws IOException {
+        assertThrows(IOException.class, () -> guard.call("page", () -> {
+            throw new IOException("throttled");
+        }, e -> ApiGuard.Failure.throttled(10 * 60_000)));
+
+        assertTrue(sleeps.isEmpty());
+        assertEquals(10 * 60_000, guard.remainingOpenMillis("page"));
+
+        now.addAndGet(10 * 60_000);
+        assertEquals("ok", guard.call("page", () -> "ok", e -> ApiGuard.Failure.PERMANENT));
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getState("page"));
+    }
+
+    @Test
+    void testParseRetryAfter() {
+        assertEquals(0, ApiGuard.parseRetryAfter(null));
+        assertEquals(0, ApiGuard.parseRetryAfter("soon"));
+        assertEquals(30_000, ApiGuard.parseRetryAfter(" 30 "));
+        assertEquals(0, ApiGuard.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"), "dates in the past mean now");
+    }
+}
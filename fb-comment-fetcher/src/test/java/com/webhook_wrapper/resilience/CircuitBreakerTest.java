@@ -0,0 +1,65 @@
+package com.webhook_wrapper.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    @Test
+    void testOpensAfterConsecutiveFailuresAndProbesOnce() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(3, 10_000, now::get);
+
+        assertFalse(breaker.onFailure());
+        assertFalse(breaker.onFailure());
+        breaker.onSuccess();
+        assertFalse(breaker.onFailure(), "a success resets the count");
+        assertFalse(breaker.onFailure());
+        assertTrue(breaker.onFailure());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(10_000, breaker.remainingOpenMillis());
+
+        now.addAndGet(10_000);
+        assertTrue(breaker.tryAcquire(), "first caller after the pause is the probe");
+        assertFalse(breaker.tryAcquire(), "everyone else waits for the probe");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        assertTrue(breaker.onFailure(), "a failed probe opens it again");
+        now.addAndGet(10_000);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void testStaysOpenUntilTheReportedReset() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(5, 1_000, now::get);
+
+        assertTrue(breaker.openUntil(120_000));
+        assertFalse(breaker.openUntil(60_000), "an earlier reset does not shorten the pause");
+        now.set(119_999);
+        assertFalse(breaker.tryAcquire());
+        now.set(120_000);
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void testLostProbeIsReplaced() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(1, 5_000, now::get);
+        breaker.onFailure();
+        now.addAndGet(5_000);
+        assertTrue(breaker.tryAcquire());
+
+        now.addAndGet(4_999);
+        assertFalse(breaker.tryAcquire());
+        now.addAndGet(1);
+        assertTrue(breaker.tryAcquire());
+    }
+}
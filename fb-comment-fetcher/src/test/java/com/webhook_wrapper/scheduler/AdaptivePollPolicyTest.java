@@ -0,0 +1,50 @@
+package com.webhook_wrapper.scheduler;
+
+import com.webhook_wrapper.config.AppProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptivePollPolicyTest {
+    private final AdaptivePollPolicy policy = new AdaptivePollPolicy(polling());
+
+    @Test
+    void testBusyPagePollsOftenEnoughToCatchTheTargetPerPoll() {
+        // 1 comment/s with a target of 10 per poll -> every 10 s, floored at the 15 s minimum
+        assertEquals(15_000, policy.nextDelayMillis(60_000, 40, 1.0, 1.0));
+        // 0.1 comment/s -> 100 s
+        assertEquals(100_000, policy.nextDelayMillis(60_000, 5, 0.1, 1.0));
+    }
+
+    @Test
+    void testQuietPageBacksOffExponentiallyUpToTheMaximum() {
+        long delay = 15_000;
+        delay = policy.nextDelayMillis(delay, 0, 0, 1.0);
+        assertEquals(30_000, delay);
+        delay = policy.nextDelayMillis(delay, 0, 0, 1.0);
+        assertEquals(60_000, delay);
+        for (int i = 0; i < 10; i++) {
+            delay = policy.nextDelayMillis(delay, 0, 0, 1.0);
+        }
+        assertEquals(900_000, delay);
+
+        // the first new comments bring it straight back down
+        assertEquals(100_000, policy.nextDelayMillis(delay, 3, 0.1, 1.0));
+    }
+
+    @Test
+    void testLowBudgetHeadroomStretchesTheInterval() {
+        assertEquals(200_000, policy.nextDelayMillis(60_000, 5, 0.1, 0.5));
+        assertEquals(900_000, policy.nextDelayMillis(60_000, 5, 0.1, 0.05));
+        assertEquals(900_000, policy.nextDelayMillis(60_000, 5, 0.1, 0));
+    }
+
+    private static AppProperties.Polling polling() {
+        AppProperties.Polling polling = new AppProperties.Polling();
+        polling.setMinIntervalSeconds(15);
+        polling.setMaxIntervalSeconds(900);
+        polling.setTargetCommentsPerPoll(10);
+        polling.setBackoffMultiplier(2.0);
+        return polling;
+    }
+}
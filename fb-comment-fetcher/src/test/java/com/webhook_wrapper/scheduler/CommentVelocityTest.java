@@ -0,0 +1,43 @@
+package com.webhook_wrapper.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommentVelocityTest {
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final CommentVelocity velocity = new CommentVelocity(600, now::get);
+
+    @Test
+    void testSteadyArrivalsConvergeOnTheTrueRate() {
+        // 6 comments every 60 s is 0.1 per second
+        for (int i = 0; i < 200; i++) {
+            now.addAndGet(60_000);
+            velocity.record("page", Map.of("post", 6));
+        }
+        assertEquals(0.1, velocity.pageRate("page"), 0.01);
+        assertEquals(0.1, velocity.postRate("page", "post"), 0.01);
+    }
+
+    @Test
+    void testRateHalvesEveryHalfLifeOnceQuiet() {
+        velocity.record("page", Map.of("post", 50));
+        double start = velocity.pageRate("page");
+        now.addAndGet(600_000);
+        assertEquals(start / 2, velocity.pageRate("page"), start * 0.001);
+    }
+
+    @Test
+    void testColdPostsAreForgotten() {
+        velocity.record("page", Map.of("old", 1));
+        now.addAndGet(24 * 3600_000L);
+        velocity.record("page", Map.of("hot", 20));
+
+        assertTrue(velocity.postRate("page", "hot") > 0);
+        assertEquals(0, velocity.postRate("page", "old"));
+        assertEquals(0, velocity.postRate("other", "hot"));
+    }
+}
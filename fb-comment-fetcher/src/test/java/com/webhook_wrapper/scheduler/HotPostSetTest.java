@@ -0,0 +1,92 @@
+package com.webhook_wrapper.scheduler;
+
+import com.webhook_wrapper.config.AppProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotPostSetTest {
+    private static final long HOUR = 3600_000L;
+    private static final long NOW = 1_000 * HOUR;
+
+    @Test
+    void testNewPostsAreDueAtOnceAndBackOffWhenQuiet() {
+        HotPostSet posts = new HotPostSet(settings(10), new AdaptivePollPolicy(new AppProperties.Polling()));
+        posts.offer("p1", NOW - HOUR, "t1", NOW);
+        assertEquals(List.of("p1"), posts.due(NOW, postId -> 0));
+
+        posts.polled("p1", 0, 0, NOW);
+        // minimum 15 s doubled after a poll that found nothing
+        assertEquals(List.of(), posts.due(NOW + 29_000, postId -> 0));
+        assertEquals(List.of("p1"), posts.due(NOW + 30_000, postId -> 0));
+    }
+
+    @Test
+    void testMovedUpdatedTimeMakesAPostDueAgain() {
+        HotPostSet posts = new HotPostSet(settings(10), new AdaptivePollPolicy(new AppProperties.Polling()));
+        posts.offer("p1", NOW - HOUR, "t1", NOW);
+        posts.polled("p1", 0, 0, NOW);
+
+        posts.offer("p1", NOW - HOUR, "t1", NOW + 1_000);
+        assertEquals(List.of(), posts.due(NOW + 1_000, postId -> 0));
+        posts.offer("p1", NOW - HOUR, "t2", NOW + 1_000);
+        assertEquals(List.of("p1"), posts.due(NOW + 1_000, postId -> 0));
+        assertEquals("t2", posts.updatedTime("p1"));
+    }
+
+    @Test
+    void testDuePostsAreRankedByRateThenAgeAndCapped() {
+        HotPostSet posts = new HotPostSet(settings(2), new AdaptivePollPolicy(new AppProperties.Polling()));
+        posts.offer("old", NOW - 10 * HOUR, "t", NOW);
+        posts.offer("new", NOW - HOUR, "t", NOW);
+        posts.offer("busy", NOW - 20 * HOUR, "t", NOW);
+
+        Map<String, Double> rates = Map.of("busy", 0.5);
+        assertEquals(List.of("busy", "new"), posts.due(NOW, postId -> rates.getOrDefault(postId, 0.0)));
+    }
+
+    @Test
+    void testOldPostsAreSkippedAndEvictedOnceQuiet() {
+        HotPostSet posts = new HotPostSet(settings(10), new AdaptivePollPolicy(new AppProperties.Polling()));
+        posts.offer("ancient", NOW - 100 * HOUR, "t", NOW);
+        assertEquals(0, posts.size());
+
+        posts.offer("p1", NOW - 71 * HOUR, "t", NOW);
+        posts.polled("p1", 3, 0.01, NOW + 2 * HOUR);
+        assertEquals(1, posts.size());
+        posts.polled("p1", 0, 0.01, NOW + 3 * HOUR);
+        assertEquals(0, posts.size());
+    }
+
+    @Test
+    void testOldPostsThatMissTheCutAreEvicted() {
+        HotPostSet posts = new HotPostSet(settings(1), new AdaptivePollPolicy(new AppProperties.Polling()));
+        posts.offer("old", NOW - 71 * HOUR, "t", NOW);
+        posts.offer("young", NOW - 70 * HOUR, "t", NOW);
+        posts.offer("busy", NOW - HOUR, "t", NOW);
+
+        Map<String, Double> rates = Map.of("busy", 0.5);
+        assertEquals(List.of("busy"), posts.due(NOW + 90 * 60_000, postId -> rates.getOrDefault(postId, 0.0)));
+        assertEquals(2, posts.size(), "only the post past the age limit leaves");
+        assertEquals(List.of("busy"), posts.due(NOW + 3 * HOUR, postId -> rates.getOrDefault(postId, 0.0)));
+        assertEquals(1, posts.size());
+    }
+
+    @Test
+    void testFeedRefreshFollowsTheConfiguredInterval() {
+        HotPostSet posts = new HotPostSet(settings(10), new AdaptivePollPolicy(new AppProperties.Polling()));
+        assertTrue(posts.feedRefreshDue(NOW));
+        posts.feedRefreshed(NOW);
+        assertFalse(posts.feedRefreshDue(NOW + 599_000));
+        assertTrue(posts.feedRefreshDue(NOW + 600_000));
+    }
+
+    private static AppProperties.HotPosts settings(int maxActivePosts) {
+        AppProperties.HotPosts settings = new AppProperties.HotPosts();
+        settings.setMaxActivePosts(maxActivePosts);
+        return settings;
+    }
+}
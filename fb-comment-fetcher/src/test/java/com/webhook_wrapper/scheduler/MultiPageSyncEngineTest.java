@@ -0,0 +1,51 @@
+package com.webhook_wrapper.scheduler;
+
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.facebook.GraphUsageBudget;
+import com.webhook_wrapper.metrics.SyncMetrics;
+import com.webhook_wrapper.resilience.ApiGuards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class MultiPageSyncEngineTest {
+    private final AppProperties properties = new AppProperties();
+    private final AppProperties.Page page = new AppProperties.Page();
+
+    MultiPageSyncEngineTest() {
+        page.setPageId("page");
+        page.setFetchIntervalSeconds(60);
+        properties.setPages(List.of(page));
+        properties.getPolling().setAdaptive(false);
+        properties.getWebhook().setReconcileIntervalSeconds(900);
+    }
+
+    private MultiPageSyncEngine engine() {
+        SyncMetrics metrics = new SyncMetrics(new SimpleMeterRegistry());
+        GraphUsageBudget budget = new GraphUsageBudget(properties);
+        budget.register(page.getPageId());
+        AtomicLong now = new AtomicLong(1_000_000);
+        return new MultiPageSyncEngine(properties, mock(CommentSyncScheduler.class), budget,
+                new CommentVelocity(600, now::get), metrics, new ApiGuards(properties, metrics));
+    }
+
+    @Test
+    void testPagesPollAtTheirOwnIntervalWithoutTheWebhook() {
+        assertEquals(60_000, engine().runCycle(page));
+    }
+
+    @Test
+    void testWebhookStretchesPagesToTheReconcileInterval() {
+        properties.getWebhook().setEnabled(true);
+        assertEquals(900_000, engine().runCycle(page), "fixed polling should wait the reconcile interval");
+
+        properties.getPolling().setAdaptive(true);
+        properties.getPolling().setMinIntervalSeconds(15);
+        assertTrue(engine().runCycle(page) >= 900_000, "adaptive polling should not undercut the reconcile interval");
+    }
+}
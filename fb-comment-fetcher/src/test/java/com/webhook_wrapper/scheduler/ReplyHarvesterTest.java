@@ -0,0 +1,219 @@
+package com.webhook_wrapper.scheduler;
+
+import com.webhook_wrapper.config.AppProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplyHarvesterTest {
+    private final ExecutorService workers = Executors.newCachedThreadPool();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final List<String> reads = new ArrayList<>();
+    private final Set<String> failing = ConcurrentHashMap.newKeySet();
+    // Reply count of each top-level comment on "post", as a relist reports it
+    private final Map<String, Integer> replyCounts = new LinkedHashMap<>();
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private int relists;
+
+    @AfterEach
+    void stopWorkers() {
+        workers.shutdownNow();
+    }
+
+    @Test
+    void testRepliesArriveOnTheFetcherThreadWithTheirParent() {
+        ReplyHarvester harvester = harvester(settings(4, 200));
+        Thread fetcher = Thread.currentThread();
+        List<SyncPipeline.FetchedComment> emitted = new ArrayList<>();
+
+        ReplyHarvester.Round round = harvester.start(comment -> {
+            assertSame(fetcher, Thread.currentThread());
+            emitted.add(comment);
+        });
+        round.offer(topLevel("c1", 2));
+        round.offer(topLevel("c2", 0));
+        round.finish();
+
+        assertEquals(List.of("c1"), reads, "threads without replies are not read");
+        assertEquals(2, emitted.size());
+        SyncPipeline.FetchedComment reply = emitted.get(0);
+        assertEquals("post", reply.postId());
+        assertEquals("c1_r1", reply.commentId());
+        assertEquals("c1", reply.parentId());
+        assertEquals("c1", reply.body().get().get("parent_id"));
+        assertEquals("c1_r1", emitted.get(1).parentId(), "a reply to a reply names the reply it answers");
+    }
+
+    @Test
+    void testThreadsAreReadWithBoundedFanOut() {
+        ReplyHarvester harvester = harvester(settings(3, 200));
+        List<String> parents = new ArrayList<>();
+
+        ReplyHarvester.Round round = harvester.start(comment -> parents.add(comment.parentId()));
+        for (int i = 0; i < 20; i++) {
+            round.offer(topLevel("c" + i, 2));
+        }
+        round.finish();
+
+        assertEquals(20, reads.size());
+        assertEquals(40, parents.size());
+        assertTrue(maxInFlight.get() <= 3, "at most 3 threads at once, saw " + maxInFlight.get());
+        assertTrue(maxInFlight.get() > 1, "threads should overlap");
+    }
+
+    @Test
+    void testOnlyGrownThreadsAreReadAgain() {
+        ReplyHarvester harvester = harvester(settings(2, 200));
+        failing.add("c3");
+        ReplyHarvester.Round first = harvester.start(comment -> { });
+        first.offer(topLevel("c1", 2));
+        first.offer(topLevel("c2", 2));
+        first.offer(topLevel("c3", 2));
+        first.finish();
+        reads.clear();
+
+        ReplyHarvester.Round second = harvester.start(comment -> { });
+        second.offer(topLevel("c1", 2));
+        second.offer(topLevel("c2", 3));
+        second.offer(topLevel("c3", 2));
+        second.finish();
+
+        assertEquals(Set.of("c2", "c3"), Set.copyOf(reads), "c2 grew and c3 failed last time");
+    }
+
+    @Test
+    void testThreadsBeyondTheCycleBudgetWaitForTheNextCycle() {
+        ReplyHarvester harvester = harvester(settings(2, 2));
+        ReplyHarvester.Round first = harvester.start(comment -> { });
+        for (int i = 0; i < 5; i++) {
+            first.offer(topLevel("c" + i, 1));
+        }
+        first.finish();
+        assertEquals(2, reads.size());
+
+        ReplyHarvester.Round second = harvester.start(comment -> { });
+        for (int i = 0; i < 5; i++) {
+            second.offer(topLevel("c" + i, 1));
+        }
+        second.finish();
+        assertEquals(4, reads.size());
+    }
+
+    @Test
+    void testReplyOnAnOldCommentIsFoundByTheRelist() {
+        ReplyHarvester harvester = harvester(settings(2, 200));
+        replyCounts.put("c1", 1);
+        replyCounts.put("c2", 0);
+        ReplyHarvester.Round first = harvester.start(comment -> { });
+        first.offer(topLevel("c1", 1));
+        first.relist("post");
+        first.finish();
+        assertEquals(List.of("c1"), reads, "a thread already read is not read again by the relist");
+
+        // an incremental fetch resumes after c2 and never emits c1 again
+        replyCounts.put("c1", 2);
+        ReplyHarvester.Round early = harvester.start(comment -> { });
+        early.relist("post");
+        early.finish();
+        assertEquals(1, relists, "reply counts are only listed once per interval");
+
+        now.addAndGet(900_000);
+        List<String> emitted = new ArrayList<>();
+        ReplyHarvester.Round later = harvester.start(comment -> emitted.add(comment.commentId()));
+        later.offer(topLevel("c3", 0));
+        later.relist("post");
+        later.finish();
+        assertEquals(List.of("c1", "c1"), reads);
+        assertEquals(List.of("c1_r1", "c1_r2"), emitted);
+    }
+
+    @Test
+    void testPutOffAndFailedThreadsAreReadWithoutBeingOfferedAgain() {
+        ReplyHarvester harvester = harvester(settings(2, 2));
+        failing.add("c0");
+        ReplyHarvester.Round first = harvester.start(comment -> { });
+        for (int i = 0; i < 4; i++) {
+            first.offer(topLevel("c" + i, 1));
+        }
+        first.finish();
+        assertEquals(Set.of("c0", "c1"), Set.copyOf(reads));
+        reads.clear();
+
+        // a cursor fetch offers none of them again
+        harvester.start(comment -> { }).finish();
+        assertEquals(Set.of("c2", "c3"), Set.copyOf(reads));
+        reads.clear();
+
+        harvester.start(comment -> { }).finish();
+        assertEquals(List.of("c0"), reads, "the failed thread is tried again");
+        reads.clear();
+
+        harvester.start(comment -> { }).finish();
+        assertEquals(List.of(), reads);
+    }
+
+    private ReplyHarvester harvester(AppProperties.Threads settings) {
+        return new ReplyHarvester(commentId -> {
+            synchronized (reads) {
+                reads.add(commentId);
+            }
+            int now = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            if (failing.remove(commentId)) {
+                throw new IllegalStateException("Graph said no");
+            }
+            // a direct reply, then a reply to it; with filter=stream both come back flat
+            List<Map<String, Object>> replies = new ArrayList<>();
+            replies.add(reply(commentId + "_r1", commentId));
+            replies.add(reply(commentId + "_r2", commentId + "_r1"));
+            return replies.iterator();
+        }, postId -> {
+            relists++;
+            List<Map<String, Object>> comments = new ArrayList<>();
+            replyCounts.forEach((id, count) -> comments.add(Map.of("id", id, "comment_count", count)));
+            return comments.iterator();
+        }, settings, workers, now::get);
+    }
+
+    private static AppProperties.Threads settings(int parallelism, int maxThreadsPerCycle) {
+        AppProperties.Threads settings = new AppProperties.Threads();
+        settings.setEnabled(true);
+        settings.setParallelism(parallelism);
+        settings.setMaxThreadsPerCycle(maxThreadsPerCycle);
+        return settings;
+    }
+
+    private static SyncPipeline.FetchedComment topLevel(String commentId, int replyCount) {
+        return new SyncPipeline.FetchedComment("post", commentId, 0, Map::of, null, replyCount);
+    }
+
+    private static Map<String, Object> reply(String id, String parentId) {
+        Map<String, Object> reply = new HashMap<>();
+        reply.put("id", id);
+        reply.put("created_time", "2025-08-30T10:00:00+0000");
+        reply.put("message", "reply");
+        reply.put("parent", Map.of("id", parentId));
+        return reply;
+    }
+}
@@ -0,0 +1,248 @@
+package com.webhook_wrapper.scheduler;
+
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.facebook.CommentTracker;
+import com.webhook_wrapper.facebook.PostEnricher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyncPipelineTest {
+    private final ExecutorService workers = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void stopWorkers() {
+        workers.shutdownNow();
+    }
+
+    @Test
+    void testOnlyNewCommentsReachTheSink() throws Exception {
+        AppProperties properties = properties();
+        CommentTracker tracker = new CommentTracker(properties);
+        tracker.claim("c2", 0); // seen in an earlier cycle
+        RecordingEnricher enricher = new RecordingEnricher(properties, 0);
+        List<String> written = new CopyOnWriteArrayList<>();
+
+        SyncPipeline pipeline = new SyncPipeline(tracker, enricher, sink(written), properties.getPipeline(), workers);
+        SyncPipeline.Stats stats = pipeline.run(emit -> {
+            for (int i = 1; i <= 5; i++) {
+                emit.accept(comment("post" + (i % 2), "c" + i));
+            }
+        });
+
+        assertEquals(5, stats.fetched());
+        assertEquals(4, stats.fresh());
+        // enrich workers run side by side, so order across batches is not fixed
+        assertEquals(List.of("c1", "c3", "c4", "c5"), written.stream().sorted().toList());
+        assertTrue(enricher.enriched.containsAll(List.of("post0", "post1")));
+    }
+
+    @Test
+    void testSlowSinkHoldsBackTheFetcher() throws Exception {
+        AppProperties properties = properties();
+        properties.getPipeline().setQueueCapacity(2);
+        properties.getPipeline().setSinkBatchSize(1);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        SyncPipeline pipeline = new SyncPipeline(new CommentTracker(properties), new RecordingEnricher(properties, 0),
+                batch -> {
+                    sleep(1);
+                    batch.values().forEach(comments -> inFlight.addAndGet(-comments.size()));
+                }, properties.getPipeline(), workers);
+        pipeline.run(emit -> {
+            for (int i = 0; i < 200; i++) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                emit.accept(comment("post", "c" + i));
+            }
+        });
+
+        // bounded by three queues of two plus what each stage worker holds, not by the 200 fetched
+        assertTrue(maxInFlight.get() <= 20, "fetcher ran ahead of the sink by " + maxInFlight.get());
+    }
+
+    @Test
+    void testSinkFailureAbortsTheCycle() throws Exception {
+        AppProperties properties = properties();
+        properties.getPipeline().setQueueCapacity(1);
+        SyncPipeline pipeline = new SyncPipeline(new CommentTracker(properties), new RecordingEnricher(properties, 0),
+                batch -> {
+                    throw new IllegalStateException("sheet down");
+                }, properties.getPipeline(), workers);
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> pipeline.run(emit -> {
+            for (int i = 0; i < 1000; i++) {
+                emit.accept(comment("post", "c" + i));
+            }
+        }));
+        assertEquals("sheet down", failure.getMessage());
+    }
+
+    @Test
+    void testCommentsClaimedBeforeAFetchFailureAreStillWritten() throws Exception {
+        AppProperties properties = properties();
+        properties.getPipeline().setQueueCapacity(4);
+        properties.getPipeline().setSinkBatchSize(2);
+        CommentTracker tracker = new CommentTracker(properties);
+        List<String> written = new CopyOnWriteArrayList<>();
+        Consumer<Map<String, List<Map<String, Object>>>> slowSink = sink(written).andThen(batch -> sleep(5));
+        List<String> emitted = new ArrayList<>();
+
+        SyncPipeline pipeline = new SyncPipeline(tracker, new RecordingEnricher(properties, 0), slowSink,
+                properties.getPipeline(), workers);
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> pipeline.run(emit -> {
+            for (int i = 0; i < 40; i++) {
+                emit.accept(comment("post", "c" + i));
+                emitted.add("c" + i);
+            }
+            throw new IllegalStateException("Graph went away");
+        }));
+
+        assertEquals("Graph went away", failure.getMessage());
+        List<String> claimed = emitted.stream().filter(id -> !tracker.claim(id, 0)).sorted().toList();
+        assertFalse(claimed.isEmpty());
+        assertEquals(claimed, written.stream().sorted().toList(), "every claimed comment reaches the sink");
+    }
+
+    @Test
+    void testCommentsClaimedBeforeASinkFailureAreStillOffered() throws Exception {
+        AppProperties properties = properties();
+        properties.getPipeline().setQueueCapacity(2);
+        properties.getPipeline().setSinkBatchSize(1);
+        CommentTracker tracker = new CommentTracker(properties);
+        List<String> offered = new CopyOnWriteArrayList<>();
+        AtomicInteger calls = new AtomicInteger();
+        List<String> emitted = new CopyOnWriteArrayList<>();
+
+        SyncPipeline pipeline = new SyncPipeline(tracker, new RecordingEnricher(properties, 0), batch -> {
+            sink(offered).accept(batch);
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("sheet down");
+            }
+        }, properties.getPipeline(), workers);
+        assertThrows(IllegalStateException.class, () -> pipeline.run(emit -> {
+            for (int i = 0; i < 1000; i++) {
+                emit.accept(comment("post", "c" + i));
+                emitted.add("c" + i);
+            }
+        }));
+
+        List<String> claimed = emitted.stream().filter(id -> !tracker.claim(id, 0)).sorted().toList();
+        assertTrue(claimed.size() < 1000, "claiming stops after the failure");
+        assertEquals(claimed, offered.stream().sorted().toList());
+    }
+
+    @Test
+    void testStoppingMidCycleStillWritesEveryClaimedComment() throws Exception {
+        AppProperties properties = properties();
+        properties.getPipeline().setQueueCapacity(4);
+        properties.getPipeline().setSinkBatchSize(2);
+        CommentTracker tracker = new CommentTracker(properties);
+        List<String> written = new CopyOnWriteArrayList<>();
+        List<String> emitted = new CopyOnWriteArrayList<>();
+        SyncPipeline pipeline = new SyncPipeline(tracker, new RecordingEnricher(properties, 0),
+                sink(written).andThen(batch -> sleep(5)), properties.getPipeline(), workers);
+
+        assertThrows(CancellationException.class, () -> pipeline.run(emit -> {
+            for (int i = 0; i < 1000; i++) {
+                if (i == 20) {
+                    pipeline.stop();
+                }
+                emit.accept(comment("post", "c" + i));
+                emitted.add("c" + i);
+            }
+        }));
+
+        List<String> claimed = emitted.stream().filter(id -> !tracker.claim(id, 0)).sorted().toList();
+        assertFalse(claimed.isEmpty());
+        assertEquals(claimed, written.stream().sorted().toList(), "a shutdown drops no claimed comment");
+    }
+
+    @Test
+    void testInterruptedCallerWaitsForClaimedCommentsToDrain() throws Exception {
+        AppProperties properties = properties();
+        properties.getPipeline().setQueueCapacity(4);
+        properties.getPipeline().setSinkBatchSize(2);
+        CommentTracker tracker = new CommentTracker(properties);
+        List<String> written = new CopyOnWriteArrayList<>();
+        List<String> emitted = new CopyOnWriteArrayList<>();
+        SyncPipeline pipeline = new SyncPipeline(tracker, new RecordingEnricher(properties, 0),
+                sink(written).andThen(batch -> sleep(5)), properties.getPipeline(), workers);
+        AtomicBoolean stillInterrupted = new AtomicBoolean();
+
+        Thread caller = new Thread(() -> {
+            try {
+                pipeline.run(emit -> {
+                    for (int i = 0; i < 40; i++) {
+                        emit.accept(comment("post", "c" + i));
+                        emitted.add("c" + i);
+                    }
+                    // the fetch is done; the caller now waits on the stages
+                    Thread.currentThread().interrupt();
+                });
+            } catch (CancellationException expected) {
+                stillInterrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        caller.start();
+        caller.join(10_000);
+
+        assertTrue(stillInterrupted.get(), "the interrupt is kept for the caller");
+        List<String> claimed = emitted.stream().filter(id -> !tracker.claim(id, 0)).sorted().toList();
+        assertEquals(claimed, written.stream().sorted().toList());
+    }
+
+    private static AppProperties properties() {
+        AppProperties properties = new AppProperties();
+        properties.getDedup().setPersistent(false);
+        properties.getPipeline().setEnrichParallelism(2);
+        return properties;
+    }
+
+    private static SyncPipeline.FetchedComment comment(String postId, String commentId) {
+        Map<String, Object> body = Map.of("id", commentId, "created_time", "2025-08-30T10:00:00+0000");
+        return new SyncPipeline.FetchedComment(postId, commentId, 0, () -> body);
+    }
+
+    private static Consumer<Map<String, List<Map<String, Object>>>> sink(List<String> written) {
+        return batch -> batch.values().forEach(comments -> comments.forEach(c -> written.add((String) c.get("id"))));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class RecordingEnricher extends PostEnricher {
+        final List<String> enriched = new CopyOnWriteArrayList<>();
+        private final long delayMillis;
+
+        RecordingEnricher(AppProperties properties, long delayMillis) {
+            super(null, properties);
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public Map<String, Map<String, Object>> enrich(Collection<String> postIds) {
+            sleep(delayMillis);
+            enriched.addAll(new ArrayList<>(postIds));
+            return Map.of();
+        }
+    }
+}
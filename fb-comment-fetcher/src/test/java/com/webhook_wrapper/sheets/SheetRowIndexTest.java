@@ -0,0 +1,204 @@
+package com.webhook_wrapper.sheets;
+
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.services.sheets.v4.model.ValueRange;
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.facebook.CommentTracker;
+import com.webhook_wrapper.metrics.SyncMetrics;
+import com.webhook_wrapper.resilience.ApiGuards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SheetRowIndexTest {
+
+    @Test
+    void testWarmUpReadsTheIdColumnInChunksAndSeedsTheTracker() throws Exception {
+        AppProperties properties = properties(false);
+        CommentTracker tracker = new CommentTracker(properties);
+        FakeSheet sheet = new FakeSheet(properties, tracker, "commentId", "c1", "c2", "", "c4", "c5", "c6");
+
+        assertEquals(6, sheet.loadIndex(), "header plus five comments; the blank row is skipped");
+        assertEquals(3, sheet.reads.size());
+        assertEquals("Sheet1!C1:C3", sheet.reads.get(0));
+        assertEquals("Sheet1!C4:C6", sheet.reads.get(1));
+        assertEquals("Sheet1!C7:C7", sheet.reads.get(2), "reads stop at the last row of the grid");
+        assertFalse(tracker.claim("c4", 0), "IDs found in the sheet are already claimed");
+        assertTrue(tracker.claim("c7", 0));
+    }
+
+    @Test
+    void testBlankIdsAtTheEndOfAChunkDoNotEndTheRead() throws Exception {
+        AppProperties properties = properties(false);
+        CommentTracker tracker = new CommentTracker(properties);
+        // a manual row and a cleared ID cell close the first chunk
+        FakeSheet sheet = new FakeSheet(properties, tracker, "commentId", "c1", "", "", "c5", "c6");
+        sheet.gridRows = 10;
+
+        assertEquals(4, sheet.loadIndex());
+        assertEquals(List.of("Sheet1!C1:C3", "Sheet1!C4:C6", "Sheet1!C7:C9", "Sheet1!C10:C10"), sheet.reads);
+        assertFalse(tracker.claim("c6", 0), "IDs after the blank cells are indexed too");
+
+        BatchAppendResult result = sheet.appendRows(List.of(row("c5", "hi"), row("c7", "hi")));
+        assertEquals(1, result.getAppendedRows());
+        assertEquals(1, result.getSkippedRows());
+        assertEquals(List.of("commentId", "c1", "", "", "c5", "c6", "c7"), sheet.ids());
+    }
+
+    @Test
+    void testCommentsAlreadyInTheSheetAreNotAppendedAgain() throws Exception {
+        AppProperties properties = properties(false);
+        FakeSheet sheet = new FakeSheet(properties, new CommentTracker(properties), "commentId", "c1", "c2");
+
+        BatchAppendResult result = sheet.appendRows(List.of(row("c1", "hi"), row("c2", "hi"), row("c3", "hi"),
+                row("c3", "hi")));
+
+        assertEquals(1, result.getAppendedRows());
+        assertEquals(3, result.getSkippedRows());
+        assertFalse(result.hasFailures());
+        assertEquals(List.of("commentId", "c1", "c2", "c3"), sheet.ids());
+
+        int reads = sheet.reads.size();
+        result = sheet.appendRows(List.of(row("c3", "hi"), row("c4", "hi")));
+        assertEquals(1, result.getAppendedRows());
+        assertEquals(List.of("commentId", "c1", "c2", "c3", "c4"), sheet.ids());
+        assertEquals(reads, sheet.reads.size(), "rows we appended are indexed without reading them back");
+    }
+
+    @Test
+    void testRetryAfterAnAmbiguousFailureDoesNotDuplicateRows() throws Exception {
+        AppProperties properties = properties(false);
+        FakeSheet sheet = new FakeSheet(properties, new CommentTracker(properties), "commentId");
+        sheet.loadIndex();
+        // Sheets wrote the rows but the response never arrived
+        sheet.writeThenFail = 1;
+
+        BatchAppendResult result = sheet.appendRows(List.of(row("c1", "hi"), row("c2", "hi")));
+
+        assertFalse(result.hasFailures());
+        assertEquals(2, result.getSkippedRows());
+        assertEquals(List.of("commentId", "c1", "c2"), sheet.ids());
+    }
+
+    @Test
+    void testUpsertWritesEditsOverTheExistingRow() throws Exception {
+        AppProperties properties = properties(true);
+        FakeSheet sheet = new FakeSheet(properties, new CommentTracker(properties), "commentId", "c1", "c2");
+
+        BatchAppendResult result = sheet.appendRows(List.of(row("c2", "edited"), row("c3", "new")));
+
+        assertEquals(1, result.getUpdatedRows());
+        assertEquals(1, result.getAppendedRows());
+        assertEquals(List.of("Sheet1!A3:H3"), sheet.updatedRanges, "the empty parent cell is written too");
+        assertEquals("edited", sheet.rows.get(2).get(5));
+        assertEquals(List.of("commentId", "c1", "c2", "c3"), sheet.ids());
+    }
+
+    @Test
+    void testSheetRange() {
+        SheetRange range = new SheetRange("'Sales Leads'!B2:I");
+        assertEquals("'Sales Leads'!D1:D50", range.column(2, 1, 50));
+        assertEquals("'Sales Leads'!B7:H7", range.row(7, 7));
+        assertEquals("C5:C9", new SheetRange("A:G").column(2, 5, 9));
+        assertEquals("Sheet1!AB1:AB2", new SheetRange("Sheet1!Z:AH").column(2, 1, 2));
+        assertEquals(101, SheetRange.firstRow("Sheet1!A101:G150"));
+        assertEquals(-1, SheetRange.firstRow(null));
+    }
+
+    private static AppProperties properties(boolean upsert) {
+        AppProperties properties = new AppProperties();
+        properties.getDedup().setPersistent(false);
+        properties.getSheetIndex().setEnabled(true);
+        properties.getSheetIndex().setChunkRows(3);
+        properties.getSheetIndex().setUpsert(upsert);
+        properties.getResilience().setInitialBackoffMs(1);
+        return properties;
+    }
+
+    private static CommentRow row(String commentId, String message) {
+        return new CommentRow("2025-08-30T10:00:00Z", "PAGE", commentId, "Alice", "123", message, "");
+    }
+
+    /**
+     * Appender over an in-memory sheet that answers values.get, values.append
+     * and values.batchUpdate like Sheets does for range Sheet1!A:G, including
+     * dropping blank cells at the end of a values.get range.
+     */
+    private static class FakeSheet extends SheetsAppender {
+        private static final Pattern ROWS = Pattern.compile("[A-Z]+(\\d+):[A-Z]+(\\d+)$");
+
+        final List<List<Object>> rows = new ArrayList<>();
+        final List<String> reads = new ArrayList<>();
+        final List<String> updatedRanges = new ArrayList<>();
+        int writeThenFail;
+        // rows in the grid beyond the ones holding values
+        int gridRows;
+
+        FakeSheet(AppProperties properties, CommentTracker tracker, String... ids) throws Exception {
+            super("", "Sheet1!A:G", 500, 60_000, properties,
+                    new ApiGuards(properties, new SyncMetrics(new SimpleMeterRegistry())), tracker);
+            for (String id : ids) {
+                rows.add(id.isEmpty() ? new ArrayList<>() : row(id, "").toValues());
+            }
+        }
+
+        List<String> ids() {
+            List<String> ids = new ArrayList<>();
+            for (List<Object> row : rows) {
+                ids.add(row.size() > 2 ? (String) row.get(2) : "");
+            }
+            return ids;
+        }
+
+        @Override
+        protected List<Object> readColumn(String a1Range) {
+            reads.add(a1Range);
+            Matcher matcher = ROWS.matcher(a1Range);
+            assertTrue(matcher.find());
+            List<Object> column = new ArrayList<>();
+            int last = Math.min(rows.size(), Integer.parseInt(matcher.group(2)));
+            for (int row = Integer.parseInt(matcher.group(1)); row <= last; row++) {
+                List<Object> values = rows.get(row - 1);
+                column.add(values.size() > 2 ? values.get(2) : "");
+            }
+            while (!column.isEmpty() && "".equals(column.get(column.size() - 1))) {
+                column.remove(column.size() - 1);
+            }
+            return column;
+        }
+
+        @Override
+        protected int readRowCount() {
+            return Math.max(rows.size(), gridRows);
+        }
+
+        @Override
+        protected String executeAppend(List<List<Object>> values) throws IOException {
+            int first = rows.size() + 1;
+            rows.addAll(values);
+            if (writeThenFail > 0) {
+                writeThenFail--;
+                throw new GoogleJsonResponseException(
+                        new HttpResponseException.Builder(503, "Service Unavailable", new HttpHeaders()), null);
+            }
+            return "Sheet1!A" + first + ":G" + (first + values.size() - 1);
+        }
+
+        @Override
+        protected void executeBatchUpdate(List<ValueRange> data) {
+            for (ValueRange range : data) {
+                updatedRanges.add(range.getRange());
+                rows.set(SheetRange.firstRow(range.getRange()) - 1, range.getValues().get(0));
+            }
+        }
+    }
+}
@@ -1,9 +1,23 @@
 package com.webhook_wrapper.sheets;
 
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.sheets.v4.Sheets;
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.resilience.ApiGuard;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,4 +55,193 @@ class SheetsAppenderTest {
         assertTrue(SheetsTestController.class.isAnnotationPresent(org.springframework.web.bind.annotation.RestController.class));
         assertTrue(SheetsTestController.class.isAnnotationPresent(org.springframework.web.bind.annotation.RequestMapping.class));
     }
+
+    @Test
+    void testAppendSendsOneRequestPerBatch() throws Exception {
+        RecordingAppender appender = new RecordingAppender(3, null);
+        List<CommentRow> rows = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            rows.add(row("c" + i));
+        }
+        BatchAppendResult result = appender.write(rows);
+        assertEquals(3, result.getRequests());
+        assertEquals(List.of(3, 3, 1), appender.calls.stream().map(List::size).toList());
+        assertEquals(7, result.getAppendedRows());
+        assertFalse(result.hasFailures());
+    }
+
+    @Test
+    void testBadRowIsIsolatedFromTheRestOfTheBatch() throws Exception {
+        RecordingAppender appender = new RecordingAppender(500, "bad");
+        List<CommentRow> rows = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            rows.add(row(i == 5 ? "bad" : "c" + i));
+        }
+        BatchAppendResult result = appender.appendRows(rows);
+        assertEquals(7, result.getAppendedRows());
+        assertEquals(1, result.getFailures().size());
+        assertEquals("bad", result.getFailures().get(0).row().commentId());
+        assertFalse(result.getFailures().get(0).retryable(), "a row Sheets rejected will not succeed on retry");
+    }
+
+    @Test
+    void testServerErrorIsRetriedBeforeFailingTheChunk() throws Exception {
+        RecordingAppender appender = new RecordingAppender(500, null);
+        appender.unavailableCalls = 1;
+        BatchAppendResult result = appender.appendRows(List.of(row("c1"), row("c2")));
+        assertEquals(2, result.getAppendedRows());
+        assertEquals(1, appender.calls.size());
+        assertEquals(0, appender.unavailableCalls, "the first attempt failed");
+        assertFalse(result.hasFailures());
+    }
+
+    @Test
+    void testClassify() {
+        HttpHeaders retryAfter = new HttpHeaders().set("Retry-After", "7");
+        ApiGuard.Failure throttled = SheetsAppender.classify(new GoogleJsonResponseException(
+                new HttpResponseException.Builder(429, "Too Many Requests", retryAfter), null));
+        assertEquals(ApiGuard.Kind.THROTTLED, throttled.kind());
+        assertEquals(7_000, throttled.retryAfterMillis());
+        assertEquals(ApiGuard.Kind.TRANSIENT, SheetsAppender.classify(new GoogleJsonResponseException(
+                new HttpResponseException.Builder(503, "Unavailable", new HttpHeaders()), null)).kind());
+        assertEquals(ApiGuard.Kind.TRANSIENT, SheetsAppender.classify(new IOException("connection reset")).kind());
+        assertEquals(ApiGuard.Kind.PERMANENT, SheetsAppender.classify(new GoogleJsonResponseException(
+                new HttpResponseException.Builder(403, "Forbidden", new HttpHeaders()), null)).kind());
+    }
+
+    @Test
+    void testRowsWrittenWhileTheClientStartsAreHeldUntilItIsUp() throws Exception {
+        LazyAppender appender = new LazyAppender(true, 2);
+        BatchAppendResult held = appender.write(List.of(row("c1"), row("c2")));
+        assertFalse(held.hasFailures());
+        assertEquals(0, held.getAppendedRows());
+        assertEquals(2, appender.getBufferedRowCount());
+
+        appender.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (appender.calls.isEmpty()) {
+            assertTrue(System.currentTimeMillis() < deadline, "held rows were never appended");
+            Thread.sleep(5);
+        }
+        assertEquals(3, appender.clientAttempts.get(), "two failed attempts, then the client came up");
+        assertEquals(List.of("c1", "c2"), appender.calls.get(0).stream().map(values -> values.get(2)).toList());
+
+        assertEquals(1, appender.write(List.of(row("c3"))).getAppendedRows(), "written directly once up");
+        appender.stop();
+    }
+
+    @Test
+    void testClientRetriesNeverWaitLongerThanTheMaximum() throws Exception {
+        AppProperties.Startup startup = LazyAppender.startup();
+        startup.setInitRetryInitialMs(60_000);
+        startup.setInitRetryMaxMs(5);
+        LazyAppender appender = new LazyAppender(true, 3, startup);
+        appender.write(List.of(row("c1")));
+
+        appender.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (appender.calls.isEmpty()) {
+            assertTrue(System.currentTimeMillis() < deadline, "retries waited longer than init-retry-max-ms");
+            Thread.sleep(5);
+        }
+        assertEquals(4, appender.clientAttempts.get());
+        appender.stop();
+    }
+
+    @Test
+    void testRowsAreLeftToTheOutboxWhileTheClientStarts() throws Exception {
+        LazyAppender appender = new LazyAppender(false, 0);
+        BatchAppendResult result = appender.write(List.of(row("c1")));
+        assertEquals(1, result.getFailures().size());
+        assertTrue(result.getFailures().get(0).retryable());
+        assertEquals(0, appender.getBufferedRowCount());
+    }
+
+    @Test
+    void testRepliesAndTopLevelCommentsFillTheSameColumns() throws Exception {
+        RecordingAppender appender = new RecordingAppender(500, null);
+        appender.write(List.of(row("c1"), new CommentRow("2025-08-30T10:05:00Z", "PAGE", "c1_r1", "Bob", "456",
+                "hi", "", List.of(), "c1")));
+
+        List<List<Object>> written = appender.calls.get(0);
+        assertEquals(written.get(1).size(), written.get(0).size(), "a short row would shift the next append");
+        assertEquals("", written.get(0).get(7));
+        assertEquals("c1", written.get(1).get(7));
+    }
+
+    private static CommentRow row(String commentId) {
+        return new CommentRow("2025-08-30T10:00:00Z", "PAGE", commentId, "Alice", "123", null, "");
+    }
+
+    /**
+     * Appender that records append calls instead of talking to Google and
+     * rejects any block containing the given commentId with a 400. The first
+     * unavailableCalls calls fail with a 503.
+     */
+    private static class RecordingAppender extends SheetsAppender {
+        final List<List<List<Object>>> calls = new ArrayList<>();
+        private final String rejectCommentId;
+        int unavailableCalls;
+
+        RecordingAppender(int batchMaxRows, String rejectCommentId) throws Exception {
+            super(settings("", "Sheet1!A:G").batchMaxRows(batchMaxRows));
+            this.rejectCommentId = rejectCommentId;
+        }
+
+        @Override
+        protected String executeAppend(List<List<Object>> values) throws IOException {
+            if (unavailableCalls > 0) {
+                unavailableCalls--;
+                throw new GoogleJsonResponseException(
+                        new HttpResponseException.Builder(503, "Service Unavailable", new HttpHeaders()), null);
+            }
+            for (List<Object> value : values) {
+                if (value.get(2).equals(rejectCommentId)) {
+                    throw new GoogleJsonResponseException(
+                            new HttpResponseException.Builder(400, "Bad Request", new HttpHeaders()), null);
+                }
+            }
+            calls.add(values);
+            return null;
+        }
+    }
+
+    /**
+     * Deferred-start appender whose client fails to build failedStarts times.
+     */
+    private static class LazyAppender extends SheetsAppender {
+        final List<List<List<Object>>> calls = new CopyOnWriteArrayList<>();
+        final AtomicInteger clientAttempts = new AtomicInteger();
+        private final int failedStarts;
+
+        LazyAppender(boolean holdRows, int failedStarts) throws Exception {
+            this(holdRows, failedStarts, startup());
+        }
+
+        LazyAppender(boolean holdRows, int failedStarts, AppProperties.Startup startup) throws Exception {
+            super(settings("sheet", "Sheet1!A:G").startup(startup, holdRows));
+            this.failedStarts = failedStarts;
+        }
+
+        static AppProperties.Startup startup() {
+            AppProperties.Startup startup = new AppProperties.Startup();
+            startup.setLazySheets(true);
+            startup.setInitRetryInitialMs(1);
+            return startup;
+        }
+
+        @Override
+        protected Sheets createClient() throws Exception {
+            if (clientAttempts.incrementAndGet() <= failedStarts) {
+                throw new IOException("The Application Default Credentials are not available");
+            }
+            return new Sheets.Builder(new NetHttpTransport(), GsonFactory.getDefaultInstance(), null).build();
+        }
+
+        @Override
+        protected String executeAppend(List<List<Object>> values) {
+            calls.add(values);
+            return null;
+        }
+    }
 }
@@ -0,0 +1,160 @@
+package com.webhook_wrapper.sink;
+
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.sheets.BatchAppendResult;
+import com.webhook_wrapper.sheets.CommentRow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcCommentSinkTest {
+    private static final String URL = "jdbc:h2:mem:comments;DB_CLOSE_DELAY=-1";
+
+    private JdbcCommentSink sink;
+
+    @AfterEach
+    void dropTable() throws SQLException {
+        if (sink != null) {
+            sink.close();
+        }
+        try (Connection db = DriverManager.getConnection(URL, "sa", ""); Statement sql = db.createStatement()) {
+            sql.execute("DROP TABLE IF EXISTS comments");
+        }
+    }
+
+    @Test
+    void testInsertsInBatchesAndStoresEveryColumn() throws Exception {
+        sink = new JdbcCommentSink(settings(2));
+        List<CommentRow> rows = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            rows.add(row("c" + i, List.of("a" + i + "@b.co", "")));
+        }
+
+        BatchAppendResult result = sink.write(rows);
+
+        assertEquals(5, result.getAppendedRows());
+        assertTrue(result.getFailures().isEmpty());
+        assertEquals(List.of("c0", "c1", "c2", "c3", "c4"), query("SELECT comment_id FROM comments ORDER BY comment_id"));
+        assertEquals(List.of("hello c3|a3@b.co\t"), query("SELECT message || '|' || extras FROM comments WHERE comment_id = 'c3'"));
+    }
+
+    @Test
+    void testRepliesStoreTheirParent() throws Exception {
+        sink = new JdbcCommentSink(settings(10));
+        CommentRow reply = new CommentRow("2025-08-30T10:05:00Z", "PAGE", "c1_r1", "Bob", "456", "hi", "",
+                List.of(), "c1");
+
+        sink.write(List.of(row("c1", List.of()), reply));
+
+        assertEquals(List.of("c1|", "c1_r1|c1"),
+                query("SELECT comment_id || '|' || COALESCE(parent_id, '') FROM comments ORDER BY comment_id"));
+    }
+
+    @Test
+    void testTableFromBeforeRepliesGetsTheParentColumn() throws Exception {
+        try (Connection db = DriverManager.getConnection(URL, "sa", ""); Statement sql = db.createStatement()) {
+            sql.execute("CREATE TABLE comments (comment_id VARCHAR(255) PRIMARY KEY, created_at VARCHAR(64), "
+                    + "page_id VARCHAR(255), name VARCHAR(1024), from_id VARCHAR(255), message TEXT, "
+                    + "phone VARCHAR(64), extras TEXT)");
+            sql.execute("INSERT INTO comments (comment_id) VALUES ('old')");
+        }
+        sink = new JdbcCommentSink(settings(10));
+
+        BatchAppendResult result = sink.write(List.of(new CommentRow("2025-08-30T10:05:00Z", "PAGE", "c1_r1",
+                "Bob", "456", "hi", "", List.of(), "c1")));
+
+        assertEquals(1, result.getAppendedRows());
+        assertEquals(List.of("old|", "c1_r1|c1"),
+                query("SELECT comment_id || '|' || COALESCE(parent_id, '') FROM comments ORDER BY comment_id DESC"));
+    }
+
+    @Test
+    void testReconnectingToAnExistingTableKeepsItsRows() throws Exception {
+        sink = new JdbcCommentSink(settings(10));
+        sink.write(List.of(row("c1", List.of())));
+        sink.close();
+
+        sink = new JdbcCommentSink(settings(10));
+        BatchAppendResult result = sink.write(List.of(row("c2", List.of())));
+
+        assertEquals(1, result.getAppendedRows());
+        assertTrue(result.getFailures().isEmpty());
+        assertEquals(List.of("c1", "c2"), query("SELECT comment_id FROM comments ORDER BY comment_id"));
+    }
+
+    @Test
+    void testRedeliveredRowsAreNotDuplicated() throws Exception {
+        sink = new JdbcCommentSink(settings(10));
+        sink.write(List.of(row("c1", List.of()), row("c2", List.of())));
+
+        BatchAppendResult again = sink.write(List.of(row("c1", List.of()), row("c2", List.of()), row("c3", List.of())));
+
+        assertEquals(3, again.getAppendedRows());
+        assertTrue(again.getFailures().isEmpty());
+        assertEquals(List.of("c1", "c2", "c3"), query("SELECT comment_id FROM comments ORDER BY comment_id"));
+    }
+
+    @Test
+    void testBadRowFailsAloneAndIsNotRetryable() throws Exception {
+        sink = new JdbcCommentSink(settings(10));
+        CommentRow bad = new CommentRow("2025-08-30T10:00:00Z", "PAGE", null, "Alice", "123", "no id", "");
+
+        BatchAppendResult result = sink.write(List.of(row("c1", List.of()), bad, row("c3", List.of())));
+
+        assertEquals(2, result.getAppendedRows());
+        assertEquals(1, result.getFailures().size());
+        assertFalse(result.getFailures().get(0).retryable());
+        assertEquals(List.of("c1", "c3"), query("SELECT comment_id FROM comments ORDER BY comment_id"));
+    }
+
+    @Test
+    void testUnreachableDatabaseFailsRetryably() {
+        AppProperties.Sinks.Jdbc settings = settings(10);
+        settings.setUrl("jdbc:nosuchdriver:anywhere");
+        sink = new JdbcCommentSink(settings);
+
+        BatchAppendResult result = sink.write(List.of(row("c1", List.of())));
+
+        assertEquals(0, result.getAppendedRows());
+        assertTrue(result.getFailures().get(0).retryable());
+    }
+
+    @Test
+    void testRejectsTableNamesThatAreNotIdentifiers() {
+        AppProperties.Sinks.Jdbc settings = settings(10);
+        settings.setTable("comments; DROP TABLE x");
+        assertThrows(IllegalArgumentException.class, () -> new JdbcCommentSink(settings));
+    }
+
+    private static AppProperties.Sinks.Jdbc settings(int batchSize) {
+        AppProperties.Sinks.Jdbc settings = new AppProperties.Sinks.Jdbc();
+        settings.setUrl(URL);
+        settings.setBatchSize(batchSize);
+        return settings;
+    }
+
+    private static List<String> query(String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Connection db = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = db.createStatement();
+             ResultSet rows = statement.executeQuery(sql)) {
+            while (rows.next()) {
+                values.add(rows.getString(1));
+            }
+        }
+        return values;
+    }
+
+    private static CommentRow row(String commentId, List<String> extras) {
+        return new CommentRow("2025-08-30T10:00:00Z", "PAGE", commentId, "Alice", "123", "hello " + commentId, "", extras);
+    }
+}
@@ -0,0 +1,155 @@
+package com.webhook_wrapper.sink;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.sheets.BatchAppendResult;
+import com.webhook_wrapper.sheets.CommentRow;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollingFileCommentSinkTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testCsvQuotesFieldsAndWritesHeader() throws Exception {
+        RollingFileCommentSink sink = new RollingFileCommentSink(settings("csv"), List.of("email"), Clock.systemUTC());
+        BatchAppendResult result = sink.write(List.of(
+                row("c1", "plain", List.of("a@b.co")),
+                row("c2", "say \"hi\", then\nleave", List.of("")),
+                new CommentRow("2025-08-30T10:00:00Z", "PAGE", "c3", "Bob", "456", "reply", "", List.of(""), "c1")));
+        Path file = sink.getCurrentFile();
+        sink.close();
+
+        assertEquals(3, result.getAppendedRows());
+        assertEquals("timestamp,page_id,comment_id,name,from_id,message,phone,email,parent_id\n"
+                + "2025-08-30T10:00:00Z,PAGE,c1,Alice,123,plain,,a@b.co,\n"
+                + "2025-08-30T10:00:00Z,PAGE,c2,Alice,123,\"say \"\"hi\"\", then\nleave\",,,\n"
+                + "2025-08-30T10:00:00Z,PAGE,c3,Bob,456,reply,,,c1\n",
+                Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testNdjsonWritesOneObjectPerLine() throws Exception {
+        RollingFileCommentSink sink = new RollingFileCommentSink(settings("ndjson"), List.of("order"), Clock.systemUTC());
+        sink.write(List.of(row("c1", "line\none", List.of("A-1")), row("c2", "two", List.of(""))));
+        Path file = sink.getCurrentFile();
+        sink.close();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        JsonNode first = new ObjectMapper().readTree(lines.get(0));
+        assertEquals("c1", first.get("commentId").asText());
+        assertEquals("line\none", first.get("message").asText());
+        assertEquals("A-1", first.get("order").asText());
+    }
+
+    @Test
+    void testRotatesOnSizeAndCompressesFinishedFiles() throws Exception {
+        AppProperties.Sinks.File settings = settings("csv");
+        settings.setMaxBytes(200);
+        settings.setCompress(true);
+        RollingFileCommentSink sink = new RollingFileCommentSink(settings, List.of(), Clock.systemUTC());
+        for (int i = 0; i < 5; i++) {
+            sink.write(List.of(row("c" + i, "message number " + i, List.of()), row("d" + i, "more", List.of())));
+        }
+        sink.close();
+
+        List<Path> files = listFiles();
+        assertTrue(files.size() > 1, "expected several files, got " + files);
+        StringBuilder all = new StringBuilder();
+        for (Path file : files) {
+            assertTrue(file.toString().endsWith(".csv.gz"), file.toString());
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(text.startsWith("timestamp,"));
+                all.append(text);
+            }
+        }
+        for (int i = 0; i < 5; i++) {
+            assertTrue(all.indexOf(",c" + i + ",") >= 0 && all.indexOf(",d" + i + ",") >= 0);
+        }
+    }
+
+    @Test
+    void testRotatesOnAge() throws Exception {
+        AppProperties.Sinks.File settings = settings("csv");
+        settings.setRotateIntervalMinutes(10);
+        MutableClock clock = new MutableClock();
+        RollingFileCommentSink sink = new RollingFileCommentSink(settings, List.of(), clock);
+        sink.write(List.of(row("c1", "first", List.of())));
+        Path first = sink.getCurrentFile();
+        clock.advance(Duration.ofMinutes(5));
+        sink.write(List.of(row("c2", "second", List.of())));
+        assertEquals(first, sink.getCurrentFile());
+        clock.advance(Duration.ofMinutes(5));
+        sink.write(List.of(row("c3", "third", List.of())));
+        assertNotEquals(first, sink.getCurrentFile());
+        sink.close();
+
+        assertEquals(2, listFiles().size());
+    }
+
+    @Test
+    void testRejectsUnknownFormat() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new RollingFileCommentSink(settings("parquet"), List.of(), Clock.systemUTC()));
+    }
+
+    private AppProperties.Sinks.File settings(String format) {
+        AppProperties.Sinks.File settings = new AppProperties.Sinks.File();
+        settings.setDir(dir.toString());
+        settings.setFormat(format);
+        return settings;
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static CommentRow row(String commentId, String message, List<String> extras) {
+        return new CommentRow("2025-08-30T10:00:00Z", "PAGE", commentId, "Alice", "123", message, "", extras);
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-08-30T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
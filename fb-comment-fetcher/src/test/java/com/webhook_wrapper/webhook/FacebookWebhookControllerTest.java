@@ -0,0 +1,170 @@
+package com.webhook_wrapper.webhook;
+
+import com.webhook_wrapper.config.AppProperties;
+import com.webhook_wrapper.extract.CommentFieldExtraction;
+import com.webhook_wrapper.extract.PhoneNumberExtractor;
+import com.webhook_wrapper.facebook.CommentTracker;
+import com.webhook_wrapper.facebook.GraphCallContext;
+import com.webhook_wrapper.facebook.PostEnricher;
+import com.webhook_wrapper.metrics.SyncMetrics;
+import com.webhook_wrapper.outbox.CommentOutbox;
+import com.webhook_wrapper.scheduler.CommentIngestService;
+import com.webhook_wrapper.sheets.BatchAppendResult;
+import com.webhook_wrapper.sheets.CommentRow;
+import com.webhook_wrapper.sink.CommentSink;
+import com.webhook_wrapper.sink.CommentSinks;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FacebookWebhookControllerTest {
+    private final List<String> written = new CopyOnWriteArrayList<>();
+    private final List<String> tokens = new CopyOnWriteArrayList<>();
+    private CommentIngestService ingestService;
+    private FacebookWebhookController controller;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        AppProperties properties = new AppProperties();
+        properties.getDedup().setPersistent(false);
+        properties.getOutbox().setEnabled(false);
+        properties.getWebhook().setEnabled(true);
+        properties.getWebhook().setVerifyToken("verify-me");
+        properties.getWebhook().setAppSecret("app-secret");
+        properties.setPages(List.of(page("111", "token-a", "sheet-a"), page("222", "token-b", "sheet-b")));
+
+        SyncMetrics metrics = new SyncMetrics(new SimpleMeterRegistry());
+        CommentSinks sinks = new CommentSinks(List.of(new RecordingSink(null)), metrics);
+        PostEnricher enricher = new PostEnricher(null, properties) {
+            @Override
+            public Map<String, Map<String, Object>> enrich(Collection<String> postIds) {
+                tokens.add(GraphCallContext.current().getAccessToken());
+                return Map.of();
+            }
+        };
+        ingestService = new CommentIngestService(new CommentTracker(properties), sinks, enricher,
+                new CommentOutbox(properties, sinks),
+                new CommentFieldExtraction(properties, List.of(new PhoneNumberExtractor())), metrics);
+        controller = new FacebookWebhookController(properties, ingestService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestService.shutdown();
+    }
+
+    @Test
+    void testSubscriptionHandshakeEchoesTheChallenge() {
+        ResponseEntity<String> accepted = controller.verify("subscribe", "verify-me", "1158201444");
+        assertEquals(200, accepted.getStatusCode().value());
+        assertEquals("1158201444", accepted.getBody());
+
+        assertEquals(403, controller.verify("subscribe", "wrong", "1158201444").getStatusCode().value());
+        assertEquals(403, controller.verify("unsubscribe", "verify-me", "1158201444").getStatusCode().value());
+    }
+
+    @Test
+    void testDeliveriesWithoutAValidSignatureAreRejected() throws Exception {
+        byte[] body = delivery(entry("111", "111_1", "1_1"));
+
+        assertEquals(403, controller.receive(body, null).getStatusCode().value());
+        assertEquals(403, controller.receive(body, new WebhookSignatureVerifier("other").signatureFor(body))
+                .getStatusCode().value());
+
+        // a later signed delivery goes through; the rejected ones were never queued ahead of it
+        controller.receive(delivery(entry("111", "111_1", "1_2")), sign(delivery(entry("111", "111_1", "1_2"))));
+        awaitWritten(1);
+        assertEquals(List.of("sheet-a:1_2"), written);
+    }
+
+    @Test
+    void testEachEntryIsIngestedAsItsOwnPage() throws Exception {
+        // the unknown page comes first, so anything queued for it would be written before the others
+        byte[] body = delivery(entry("333", "333_1", "3_1"), entry("111", "111_1", "1_1"),
+                entry("222", "222_1", "2_1"));
+
+        ResponseEntity<String> response = controller.receive(body, sign(body));
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("EVENT_RECEIVED", response.getBody());
+        awaitWritten(2);
+        assertEquals(List.of("sheet-a:1_1", "sheet-b:2_1"), written, "each page's rows go to its own sheet");
+        assertEquals(Set.of("token-a", "token-b"), Set.copyOf(tokens), "posts are looked up with the page's token");
+    }
+
+    private void awaitWritten(int rows) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (written.size() < rows && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(rows, written.size());
+    }
+
+    private static AppProperties.Page page(String pageId, String token, String sheetId) {
+        AppProperties.Page page = new AppProperties.Page();
+        page.setPageId(pageId);
+        page.setAccessToken(token);
+        page.setSheetId(sheetId);
+        return page;
+    }
+
+    private static String entry(String pageId, String postId, String commentId) {
+        return "{\"id\":\"" + pageId + "\",\"time\":1693389601,\"changes\":[{\"field\":\"feed\",\"value\":{"
+                + "\"item\":\"comment\",\"verb\":\"add\",\"post_id\":\"" + postId + "\",\"comment_id\":\""
+                + commentId + "\",\"created_time\":1693389600,\"message\":\"hi\"}}]}";
+    }
+
+    private static byte[] delivery(String... entries) {
+        return ("{\"object\":\"page\",\"entry\":[" + String.join(",", entries) + "]}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String sign(byte[] body) {
+        return new WebhookSignatureVerifier("app-secret").signatureFor(body);
+    }
+
+    /**
+     * Records sheet:commentId for every row, per page destination.
+     */
+    private class RecordingSink implements CommentSink {
+        private final String sheetId;
+
+        RecordingSink(String sheetId) {
+            this.sheetId = sheetId;
+        }
+
+        @Override
+        public String name() {
+            return "recording";
+        }
+
+        @Override
+        public int preferredBatchSize() {
+            return 100;
+        }
+
+        @Override
+        public BatchAppendResult write(List<CommentRow> rows) {
+            for (CommentRow row : rows) {
+                written.add(sheetId + ":" + row.commentId());
+            }
+            return BatchAppendResult.empty();
+        }
+
+        @Override
+        public CommentSink forTarget(String sheetId, String range) {
+            return new RecordingSink(sheetId);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.webhook_wrapper.webhook;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookEventParserTest {
+
+    private static final String DELIVERY = """
+            {"object":"page","entry":[{"id":"681857498348124","time":1693389601,"changes":[
+              {"field":"feed","value":{"item":"comment","verb":"add","post_id":"681857498348124_1",
+                "comment_id":"1_100","parent_id":"681857498348124_1","created_time":1693389600,
+                "message":"Call me on 555-123-4567","from":{"id":"42","name":"Alice"}}},
+              {"field":"feed","value":{"item":"comment","verb":"remove","post_id":"681857498348124_1",
+                "comment_id":"1_99","created_time":1693389500}},
+              {"field":"feed","value":{"item":"reaction","verb":"add","post_id":"681857498348124_1"}}
+            ]}]}
+            """;
+
+    @Test
+    void testOnlyAddedCommentsAreExtracted() throws Exception {
+        Map<String, List<Map<String, Object>>> comments = new WebhookEventParser(false)
+                .parseCommentsByPage(DELIVERY.getBytes(StandardCharsets.UTF_8)).get("681857498348124");
+
+        assertEquals(1, comments.size());
+        List<Map<String, Object>> onPost = comments.get("681857498348124_1");
+        assertEquals(1, onPost.size());
+
+        Map<String, Object> comment = onPost.get(0);
+        assertEquals("1_100", comment.get("id"));
+        assertEquals("Call me on 555-123-4567", comment.get("message"));
+        assertEquals("2023-08-30T10:00:00+0000", comment.get("created_time"));
+        assertEquals("Alice", ((Map<?, ?>) comment.get("from")).get("name"));
+    }
+
+    @Test
+    void testEditsAreExtractedWhenAskedFor() throws Exception {
+        String edit = DELIVERY.replaceFirst("\"verb\":\"add\"", "\"verb\":\"edited\"");
+        byte[] body = edit.getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(new WebhookEventParser(false).parseCommentsByPage(body).isEmpty());
+
+        List<Map<String, Object>> onPost = new WebhookEventParser(true).parseCommentsByPage(body)
+                .get("681857498348124").get("681857498348124_1");
+        assertEquals(1, onPost.size());
+        assertEquals("1_100", onPost.get(0).get("id"));
+        assertEquals(true, onPost.get(0).get("edited"));
+    }
+
+    @Test
+    void testCommentsAreGroupedByThePageTheEntryNames() throws Exception {
+        String twoPages = DELIVERY.replace("]}]}", "]},{\"id\":\"999\",\"time\":1693389601,\"changes\":["
+                + "{\"field\":\"feed\",\"value\":{\"item\":\"comment\",\"verb\":\"add\",\"post_id\":\"999_7\","
+                + "\"comment_id\":\"7_1\",\"created_time\":1693389600,\"message\":\"hi\"}}]}]}");
+        byte[] body = twoPages.getBytes(StandardCharsets.UTF_8);
+
+        Map<String, Map<String, List<Map<String, Object>>>> byPage = new WebhookEventParser(false).parseCommentsByPage(body);
+
+        assertEquals(List.of("681857498348124", "999"), List.copyOf(byPage.keySet()));
+        assertEquals("1_100", byPage.get("681857498348124").get("681857498348124_1").get(0).get("id"));
+        assertEquals("7_1", byPage.get("999").get("999_7").get(0).get("id"));
+    }
+
+    @Test
+    void testNonPageObjectsAreIgnored() throws Exception {
+        byte[] body = "{\"object\":\"user\",\"entry\":[]}".getBytes(StandardCharsets.UTF_8);
+        assertTrue(new WebhookEventParser(false).parseCommentsByPage(body).isEmpty());
+    }
+
+    @Test
+    void testSignatureVerification() {
+        byte[] body = DELIVERY.getBytes(StandardCharsets.UTF_8);
+        WebhookSignatureVerifier verifier = new WebhookSignatureVerifier("app-secret");
+        String signature = verifier.signatureFor(body);
+
+        assertTrue(verifier.isValid(body, signature));
+        assertFalse(verifier.isValid(body, "sha256=" + "0".repeat(64)));
+        assertFalse(verifier.isValid(body, null));
+        assertFalse(new WebhookSignatureVerifier("other-secret").isValid(body, signature));
+        assertFalse(new WebhookSignatureVerifier("").isValid(body, signature));
+    }
+}
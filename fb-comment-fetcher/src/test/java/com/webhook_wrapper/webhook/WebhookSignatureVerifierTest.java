@@ -0,0 +1,47 @@
+package com.webhook_wrapper.webhook;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookSignatureVerifierTest {
+    private static final byte[] BODY = "{\"object\":\"page\",\"entry\":[]}".getBytes(StandardCharsets.UTF_8);
+    // echo -n '{"object":"page","entry":[]}' | openssl dgst -sha256 -hmac app-secret
+    private static final String HMAC = "e6e9d7a842a48e17f43a34d6125d0d933e2aab92ee37f0993a4d493b50e3d438";
+
+    @Test
+    void testSignatureIsTheHexHmacOfTheBody() {
+        assertEquals("sha256=" + HMAC, new WebhookSignatureVerifier("app-secret").signatureFor(BODY));
+    }
+
+    @Test
+    void testMatchingSignatureIsAccepted() {
+        WebhookSignatureVerifier verifier = new WebhookSignatureVerifier("app-secret");
+
+        assertTrue(verifier.isValid(BODY, "sha256=" + HMAC));
+        assertTrue(verifier.isValid(BODY, "sha256=" + HMAC.toUpperCase()), "hex case does not matter");
+    }
+
+    @Test
+    void testTamperedOrMalformedSignaturesAreRejected() {
+        WebhookSignatureVerifier verifier = new WebhookSignatureVerifier("app-secret");
+        String signature = verifier.signatureFor(BODY);
+        byte[] tampered = "{\"object\":\"page\",\"entry\":[{}]}".getBytes(StandardCharsets.UTF_8);
+
+        assertFalse(verifier.isValid(tampered, signature));
+        assertFalse(verifier.isValid(BODY, signature.substring(0, signature.length() - 2)), "truncated");
+        assertFalse(verifier.isValid(BODY, signature.replace("sha256=", "sha1=")));
+        assertFalse(verifier.isValid(BODY, HMAC), "missing sha256= prefix");
+        assertFalse(verifier.isValid(BODY, "sha256=not-hex"));
+        assertFalse(verifier.isValid(BODY, null));
+    }
+
+    @Test
+    void testNothingIsAcceptedWithoutAnAppSecret() {
+        WebhookSignatureVerifier verifier = new WebhookSignatureVerifier("");
+
+        assertFalse(verifier.isValid(BODY, "sha256=" + HMAC));
+    }
+}